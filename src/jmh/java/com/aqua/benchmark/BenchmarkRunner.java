@@ -0,0 +1,84 @@
+package com.aqua.benchmark;
+
+import java.util.Collection;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ejecuta los benchmarks con el perfilador de recolección de basura activado y guarda los
+ * resultados en JSON, para compararlos con la línea base antes de aceptar un cambio de rendimiento.
+ * Al terminar imprime, por benchmark y parámetros, el tiempo medido y la memoria reservada
+ * por operación y por segundo.
+ *
+ * <p>Argumentos: una expresión regular con los benchmarks a ejecutar (todos si se omite) y,
+ * opcionalmente, los tamaños de flota separados por comas, que reemplazan los parámetros
+ * {@code fleetSize} y {@code recipients} de cada benchmark.</p>
+ * <pre>
+ * mvn -Pbenchmarks compile exec:exec -Djmh.main=com.aqua.benchmark.BenchmarkRunner -Djmh.args="Repository 1000,1000000"
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    public static final String RESULT_FILE = "target/jmh-result.json";
+
+    private static final String ALLOCATION_PER_OPERATION = "gc.alloc.rate.norm";
+    private static final String ALLOCATION_RATE = "gc.alloc.rate";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .include(args.length > 0 ? args[0] : "com\\.aqua\\..*Benchmark")
+            .exclude(BenchmarkRunner.class.getName())
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(RESULT_FILE);
+        if (args.length > 1) {
+            String[] sizes = args[1].split(",");
+            options.param("fleetSize", sizes).param("recipients", sizes);
+        }
+        Collection<RunResult> results = new Runner(options.build()).run();
+        printSummary(results);
+    }
+
+    private static void printSummary(Collection<RunResult> results) {
+        System.out.printf("%n%-60s %-30s %18s %14s %12s%n",
+            "Benchmark", "Parámetros", "Resultado", "B/op", "MB/s");
+        for (RunResult run : results) {
+            Result<?> primary = run.getPrimaryResult();
+            Result<?> allocation = run.getSecondaryResults().get(ALLOCATION_PER_OPERATION);
+            Result<?> allocationRate = run.getSecondaryResults().get(ALLOCATION_RATE);
+            System.out.printf("%-60s %-30s %12.3f %-5s %14s %12s%n",
+                shortName(run.getParams().getBenchmark()), params(run),
+                primary.getScore(), primary.getScoreUnit(),
+                format(allocation), format(allocationRate));
+        }
+        System.out.printf("%nResultados completos en %s%n", RESULT_FILE);
+    }
+
+    private static String params(RunResult run) {
+        StringBuilder text = new StringBuilder();
+        for (String key : run.getParams().getParamsKeys()) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(key).append('=').append(run.getParams().getParam(key));
+        }
+        return text.toString();
+    }
+
+    private static String shortName(String benchmark) {
+        return benchmark.startsWith("com.aqua.") ? benchmark.substring("com.aqua.".length()) : benchmark;
+    }
+
+    private static String format(Result<?> result) {
+        return result == null || Double.isNaN(result.getScore()) ? "-" : String.format("%.1f", result.getScore());
+    }
+}
@@ -0,0 +1,46 @@
+package com.aqua.benchmark;
+
+import com.aqua.domain.River;
+import com.aqua.domain.WaterSource;
+import com.aqua.domain.Well;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Genera flotas deterministas de fuentes de agua para los benchmarks.
+ * La misma semilla y tamaño producen siempre las mismas fuentes, de modo que los resultados de
+ * distintos cambios se comparan sobre los mismos datos.
+ */
+public final class Fleets {
+
+    public static final long SEED = 42;
+    public static final int LOCATIONS = 1000;
+
+    private static final String[] QUALITIES = {"GOOD", "FAIR", "POOR"};
+
+    private Fleets() {
+    }
+
+    /**
+     * Genera una flota con ríos y pozos alternados, niveles aleatorios y un 5% de fuentes en nivel crítico
+     * @param size El número de fuentes
+     * @return Las fuentes, con IDs de 0 a {@code size - 1}
+     */
+    public static List<WaterSource> generate(int size) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<WaterSource> sources = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            double capacity = random.nextDouble(500, 5000);
+            String location = "Zona " + (id % LOCATIONS);
+            String quality = QUALITIES[random.nextInt(QUALITIES.length)];
+            WaterSource source = (id & 1) == 0
+                ? new River(id, "RIVER", capacity, location, quality)
+                : new Well(id, "WELL", capacity, location, quality);
+            double ratio = random.nextInt(20) == 0 ? random.nextDouble(0, 0.1) : random.nextDouble(0.2, 1);
+            source.setCurrentLevel(capacity * ratio);
+            sources.add(source);
+        }
+        return sources;
+    }
+}
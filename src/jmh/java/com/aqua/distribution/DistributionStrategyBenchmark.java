@@ -0,0 +1,85 @@
+package com.aqua.distribution;
+
+import com.aqua.domain.River;
+import com.aqua.domain.WaterSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark de las estrategias de distribución: contrato con mapas frente al contrato por posiciones.
+ * Con -prof gc, la métrica gc.alloc.rate.norm muestra los bytes reservados por operación, que en
+ * la variante por posiciones debe ser cero en régimen estable.
+ * Ejecutar con: -Djmh.args="DistributionStrategy -prof gc"
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DistributionStrategyBenchmark {
+
+    @Param({"EQUITABLE", "FAIR", "PRIORITY", "MAX_MIN_FAIR"})
+    public String strategy;
+
+    @Param({"16", "1000", "100000", "1000000"})
+    public int recipients;
+
+    private DistributionStrategy mapStrategy;
+    private IndexedDistributionStrategy indexedStrategy;
+    private WaterSource source;
+    private Map<String, Double> allocationData;
+    private double[] demand;
+    private double[] allocations;
+
+    @Setup
+    public void setUp() {
+        switch (strategy) {
+            case "EQUITABLE":
+                indexedStrategy = new EquitableDistributionStrategy();
+                break;
+            case "FAIR":
+                indexedStrategy = new FairDistributionStrategy();
+                break;
+            case "MAX_MIN_FAIR":
+                indexedStrategy = new MaxMinFairDistributionStrategy();
+                break;
+            default:
+                indexedStrategy = new PriorityDistributionStrategy();
+        }
+        mapStrategy = (DistributionStrategy) indexedStrategy;
+        source = new River(1, "RIVER", 1_000_000, "Río Norte", "GOOD");
+        SplittableRandom random = new SplittableRandom(42);
+        allocationData = new LinkedHashMap<>();
+        demand = new double[recipients];
+        allocations = new double[recipients];
+        for (int i = 0; i < recipients; i++) {
+            demand[i] = random.nextDouble(1, 1000);
+            allocationData.put("destinatario-" + i, demand[i]);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Double> mapBased() {
+        return mapStrategy.distribute(source, allocationData);
+    }
+
+    @Benchmark
+    public double[] indexed() {
+        indexedStrategy.distribute(source.getCurrentLevel(), demand, allocations);
+        return allocations;
+    }
+}
@@ -0,0 +1,101 @@
+package com.aqua.monitoring;
+
+import com.aqua.alert.Alert;
+import com.aqua.benchmark.Fleets;
+import com.aqua.config.Configuration;
+import com.aqua.domain.WaterSource;
+import com.aqua.observer.DeliveryPolicy;
+import com.aqua.observer.EventBus;
+import com.aqua.observer.FleetLevelMonitor;
+import com.aqua.observer.IObserver;
+import com.aqua.repository.WaterSourceRepositoryImpl;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark de la verificación de niveles de toda la flota con varios observadores suscritos:
+ * {@link WaterLevelMonitor#checkWaterLevel(WaterSource)} fuente por fuente, que publica una alerta
+ * por cada fuente crítica, frente a una evaluación del {@link FleetLevelMonitor}, que en régimen
+ * estable solo recorre los arreglos y no publica nada.
+ * Ejecutar con: -Djmh.args="WaterLevelMonitorBenchmark -prof gc"
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class WaterLevelMonitorBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int fleetSize;
+
+    @Param({"1", "4"})
+    public int observers;
+
+    private EventBus eventBus;
+    private WaterLevelMonitor monitor;
+    private FleetLevelMonitor fleetMonitor;
+    private WaterSource[] sources;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<WaterSource> fleet = Fleets.generate(fleetSize);
+        sources = fleet.toArray(new WaterSource[0]);
+        WaterSourceRepositoryImpl repository = new WaterSourceRepositoryImpl();
+        repository.addAll(fleet);
+        Configuration config = new Configuration();
+        eventBus = new EventBus();
+        for (int i = 0; i < observers; i++) {
+            eventBus.subscribe(new DiscardingObserver(), DeliveryPolicy.DROP_OLDEST);
+        }
+        monitor = new WaterLevelMonitor(config, eventBus);
+        fleetMonitor = new FleetLevelMonitor(repository, config, eventBus);
+        fleetMonitor.evaluate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        eventBus.close();
+    }
+
+    @Benchmark
+    public int checkWaterLevel() {
+        for (WaterSource source : sources) {
+            monitor.checkWaterLevel(source);
+        }
+        return sources.length;
+    }
+
+    @Benchmark
+    public int fleetEvaluate() {
+        return fleetMonitor.evaluate();
+    }
+
+    /**
+     * Observador que descarta los eventos, para medir solo el costo de publicarlos
+     */
+    private static final class DiscardingObserver implements IObserver {
+
+        @Override
+        public void update(WaterSource source, double currentLevel) {
+        }
+
+        @Override
+        public void update(Alert alert) {
+        }
+    }
+}
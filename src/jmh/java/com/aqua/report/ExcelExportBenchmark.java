@@ -0,0 +1,91 @@
+package com.aqua.report;
+
+import com.aqua.benchmark.Fleets;
+import com.aqua.repository.WaterSourceRepositoryImpl;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark de la exportación a Excel: libro completo en memoria frente a libro por ventana de filas.
+ * Tras cada iteración imprime el pico de heap usado durante la exportación, que en modo streaming
+ * debe mantenerse casi constante al crecer el número de filas. El libro en memoria no cabe en el
+ * heap del benchmark con más de {@value #MAX_IN_MEMORY_ROWS} filas, así que esas combinaciones fallan
+ * en la preparación en lugar de medir la recolección de basura.
+ * Para flotas grandes: -Djmh.args="ExcelExport -p fleetSize=1000000 -p streaming=true"
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ExcelExportBenchmark {
+
+    static final int MAX_IN_MEMORY_ROWS = 200_000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int fleetSize;
+
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    private HistoricalReportGenerator generator;
+    private List<MemoryPoolMXBean> heapPools;
+    private long baselineUsed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (!streaming && fleetSize > MAX_IN_MEMORY_ROWS) {
+            throw new IllegalStateException(String.format(
+                "El libro en memoria no cabe en el heap con %d filas; usar streaming=true", fleetSize));
+        }
+        WaterSourceRepositoryImpl repository = new WaterSourceRepositoryImpl();
+        repository.addAll(Fleets.generate(fleetSize));
+        generator = new HistoricalReportGenerator(repository);
+        heapPools = ManagementFactory.getMemoryPoolMXBeans();
+        heapPools.removeIf(pool -> pool.getType() != MemoryType.HEAP);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        System.gc();
+        baselineUsed = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+            baselineUsed += pool.getUsage().getUsed();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf("%nPico de heap sobre la línea base: %d MB (%d filas, streaming=%b)%n",
+            Math.max(0, peak - baselineUsed) >> 20, fleetSize, streaming);
+    }
+
+    @Benchmark
+    public int export() throws IOException {
+        return generator.exportToExcel(OutputStream.nullOutputStream(), streaming);
+    }
+}
@@ -0,0 +1,60 @@
+package com.aqua.report;
+
+import com.aqua.benchmark.Fleets;
+import com.aqua.repository.WaterSourceRepositoryImpl;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark de la generación de reportes según el tamaño de la flota: el reporte completo como
+ * texto, el mismo reporte escrito por partes sin acumularlo y el resumen por grupos.
+ * Ejecutar con: -Djmh.args="ReportBenchmark -prof gc"
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int fleetSize;
+
+    private HistoricalReportGenerator generator;
+    private final Writer sink = Writer.nullWriter();
+
+    @Setup
+    public void setUp() {
+        WaterSourceRepositoryImpl repository = new WaterSourceRepositoryImpl();
+        repository.addAll(Fleets.generate(fleetSize));
+        generator = new HistoricalReportGenerator(repository);
+    }
+
+    @Benchmark
+    public String generateReport() {
+        return generator.generateReport();
+    }
+
+    @Benchmark
+    public ReportPage writeReport() throws IOException {
+        return generator.writeReport(sink, ReportQuery.all());
+    }
+
+    @Benchmark
+    public String generateSummaryReport() {
+        return generator.generateSummaryReport();
+    }
+}
@@ -0,0 +1,130 @@
+package com.aqua.repository;
+
+import com.aqua.domain.River;
+import com.aqua.domain.WaterSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks del diario de mutaciones: rendimiento de actualizaciones concurrentes con
+ * confirmación en grupo y tiempo de recuperación con y sin instantáneas frecuentes.
+ */
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+public class JournaledRepositoryBenchmark {
+
+    private static final int FLEET_SIZE = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class WriteState {
+
+        @Param({"SYNC", "ASYNC"})
+        public JournaledWaterSourceRepository.Durability durability;
+
+        Path directory;
+        JournaledWaterSourceRepository repository;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("aqua-journal-bench");
+            repository = new JournaledWaterSourceRepository(new WaterSourceRepositoryImpl(), directory,
+                durability, JournaledWaterSourceRepository.DEFAULT_SNAPSHOT_INTERVAL);
+            for (int id = 0; id < FLEET_SIZE; id++) {
+                repository.addWaterSource(new River(id, "RIVER", 1000, "Río " + (id % 100), "GOOD"));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            System.out.printf("%n%d mutaciones, %d fsync (%.1f mutaciones por fsync)%n",
+                repository.getMutationCount(), repository.getSyncCount(),
+                (double) repository.getMutationCount() / Math.max(1, repository.getSyncCount()));
+            repository.close();
+            deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void updateLevel(WriteState state) {
+        WaterSource source = state.repository.getWaterSource(ThreadLocalRandom.current().nextInt(FLEET_SIZE));
+        source.setCurrentLevel(ThreadLocalRandom.current().nextDouble(source.getCapacity()));
+        state.repository.updateWaterSource(source);
+    }
+
+    @State(Scope.Benchmark)
+    public static class RecoveryState {
+
+        @Param({"100000"})
+        public int mutations;
+
+        @Param({"5000", "1000000"})
+        public int snapshotInterval;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("aqua-recovery-bench");
+            try (JournaledWaterSourceRepository repository = new JournaledWaterSourceRepository(
+                    new WaterSourceRepositoryImpl(), directory, JournaledWaterSourceRepository.Durability.ASYNC,
+                    snapshotInterval)) {
+                for (int id = 0; id < FLEET_SIZE; id++) {
+                    repository.addWaterSource(new River(id, "RIVER", 1000, "Río " + (id % 100), "GOOD"));
+                }
+                for (int i = FLEET_SIZE; i < mutations; i++) {
+                    WaterSource source = repository.getWaterSource(i % FLEET_SIZE);
+                    source.setCurrentLevel(i % 1000);
+                    repository.updateWaterSource(source);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public long recover(RecoveryState state) throws IOException {
+        try (JournaledWaterSourceRepository repository = new JournaledWaterSourceRepository(
+                new WaterSourceRepositoryImpl(), state.directory)) {
+            return repository.getRecoveredMutations();
+        }
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
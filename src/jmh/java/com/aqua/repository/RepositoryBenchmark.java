@@ -0,0 +1,75 @@
+package com.aqua.repository;
+
+import com.aqua.benchmark.Fleets;
+import com.aqua.domain.WaterSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark de las operaciones básicas de {@link WaterSourceRepositoryImpl} según el tamaño de la flota:
+ * consulta por ID, actualización de una fuente y listado completo.
+ * Ejecutar con: -Djmh.args="RepositoryBenchmark -prof gc"
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RepositoryBenchmark {
+
+    /**
+     * Paso entre IDs consultados; es primo, así que recorre toda la flota sin seguir el orden de inserción
+     */
+    private static final int STRIDE = 7919;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int fleetSize;
+
+    private WaterSourceRepositoryImpl repository;
+    private WaterSource[] sources;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<WaterSource> fleet = Fleets.generate(fleetSize);
+        repository = new WaterSourceRepositoryImpl();
+        repository.addAll(fleet);
+        sources = fleet.toArray(new WaterSource[0]);
+    }
+
+    @Benchmark
+    public WaterSource get() {
+        return repository.getWaterSource(nextId());
+    }
+
+    @Benchmark
+    public WaterSource update() {
+        WaterSource source = sources[nextId()];
+        source.setCurrentLevel(source.getCapacity() - source.getCurrentLevel());
+        repository.updateWaterSource(source);
+        return source;
+    }
+
+    @Benchmark
+    public List<WaterSource> list() {
+        return repository.listWaterSources();
+    }
+
+    private int nextId() {
+        int id = next;
+        next = (next + STRIDE) % fleetSize;
+        return id;
+    }
+}
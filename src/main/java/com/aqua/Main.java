@@ -1,46 +1,74 @@
 package com.aqua;
 
+import com.aqua.api.ApiServer;
 import com.aqua.config.Configuration;
 import com.aqua.domain.River;
+import com.aqua.domain.WaterSource;
 import com.aqua.domain.Well;
+import com.aqua.history.TimeSeriesStore;
+import com.aqua.metrics.MetricsHttpServer;
+import com.aqua.metrics.MetricsRegistry;
 import com.aqua.observer.WaterLevelMonitor;
+import com.aqua.repository.IWaterSourceRepository;
+import com.aqua.repository.IndexedWaterSourceRepository;
 import com.aqua.repository.WaterSourceRepositoryImpl;
 import com.aqua.report.HistoricalReportGenerator;
 import com.aqua.system.WaterManagementSystem;
 import com.aqua.ui.WaterManagementController;
 import com.aqua.ui.WaterManagementUI;
+import java.io.IOException;
+import java.util.Arrays;
 import javax.swing.*;
 
 /**
  * Clase principal que inicializa y inicia el sistema de gestión de agua.
- * Esta clase configura todos los componentes necesarios y lanza la interfaz de usuario.
+ * Esta clase configura todos los componentes necesarios y lanza la interfaz de usuario,
+ * o con {@code --headless} la API HTTP local en el puerto de {@code -Daqua.api.port}.
  */
 public class Main {
     
-    public static void main(String[] args) {
-        // Establecer el aspecto visual al predeterminado del sistema
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception e) {
-            e.printStackTrace();
+    public static final String HEADLESS_FLAG = "--headless";
+    
+    public static void main(String[] args) throws IOException {
+        boolean headless = Arrays.asList(args).contains(HEADLESS_FLAG);
+        if (!headless) {
+            // Establecer el aspecto visual al predeterminado del sistema
+            try {
+                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
         }
         
         // Crear componentes del sistema
-        WaterSourceRepositoryImpl repository = new WaterSourceRepositoryImpl();
+        IndexedWaterSourceRepository repository = new IndexedWaterSourceRepository(new WaterSourceRepositoryImpl());
+        TimeSeriesStore historyStore = new TimeSeriesStore();
+        repository.addChangeListener(historyStore);
         Configuration config = new Configuration();
         WaterLevelMonitor monitor = new WaterLevelMonitor(null); // Se establecerá al agregar fuentes de agua
-        HistoricalReportGenerator reportGenerator = new HistoricalReportGenerator(repository);
+        HistoricalReportGenerator reportGenerator = new HistoricalReportGenerator(repository, historyStore);
         
         // Crear e inicializar el sistema
         WaterManagementSystem system = new WaterManagementSystem(
             repository, monitor, reportGenerator, config);
         
+        // Agregar datos de ejemplo
+        addSampleData(repository);
+        for (WaterSource source : repository.listWaterSources()) {
+            historyStore.record(source);
+        }
+
+        if (headless) {
+            // La API se crea antes que el servidor de métricas para que ambos usen su configuración HTTP
+            startApi(system);
+            startMetrics();
+            return;
+        }
+        startMetrics();
+
         // Crear controlador y UI
         WaterManagementController controller = new WaterManagementController(system);
         WaterManagementUI ui = new WaterManagementUI();
-        
-        // Agregar datos de ejemplo
-        addSampleData(repository);
 
         // Conectar controlador y UI
         ui.setController(controller);
@@ -52,11 +80,51 @@ public class Main {
         });
     }
     
+    /**
+     * Inicia el sistema sin interfaz y lo expone en la API HTTP local hasta que termine el proceso
+     * @param system El sistema a exponer
+     * @throws IOException Si no se puede abrir el puerto de la API
+     */
+    private static void startApi(WaterManagementSystem system) throws IOException {
+        int port = Integer.getInteger(ApiServer.PORT_PROPERTY, ApiServer.DEFAULT_PORT);
+        ApiServer server = new ApiServer(system, port);
+        system.start();
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            system.stop();
+        }, "aqua-api-shutdown"));
+        System.out.printf("API disponible en http://127.0.0.1:%d%s (hilos virtuales: %s)%n",
+            server.getPort(), ApiServer.SOURCES_PATH, server.usesVirtualThreads() ? "sí" : "no");
+    }
+    
+    /**
+     * Publica las métricas por JMX y, si se indicó {@code -Daqua.metrics.port}, en un servidor HTTP local
+     */
+    private static void startMetrics() {
+        MetricsRegistry registry = MetricsRegistry.global();
+        if (!registry.isEnabled()) {
+            return;
+        }
+        try {
+            registry.registerMBean();
+            String port = System.getProperty(MetricsHttpServer.PORT_PROPERTY);
+            if (port != null) {
+                MetricsHttpServer server = new MetricsHttpServer(registry, Integer.parseInt(port));
+                server.start();
+                System.out.println("Métricas disponibles en http://127.0.0.1:" + server.getPort() + MetricsHttpServer.PROMETHEUS_PATH);
+            }
+        } catch (Exception e) {
+            // Las métricas no deben impedir que el sistema arranque
+            e.printStackTrace();
+        }
+    }
+    
     /**
      * Agrega datos de ejemplo al repositorio
      * @param repository El repositorio al que se agregarán los datos
      */
-    private static void addSampleData(WaterSourceRepositoryImpl repository) {
+    private static void addSampleData(IWaterSourceRepository repository) {
         // Agregar algunas fuentes de agua de ejemplo
         repository.addWaterSource(new River(1, "RIVER", 1000, "Río Norte", "GOOD"));
         repository.addWaterSource(new Well(2, "WELL", 500, "Pozo Sur", "GOOD"));
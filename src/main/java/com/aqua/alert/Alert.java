@@ -17,9 +17,37 @@ public abstract class Alert {
         ERROR
     }
     
+    /**
+     * Condición que originó la alerta, usada para agrupar alertas repetidas
+     */
+    public enum AlertKind {
+        GENERAL("general"),
+        LOW_LEVEL("nivel crítico"),
+        LOW_CAPACITY("capacidad crítica"),
+        QUALITY_DROP("calidad deteriorada"),
+        SUMMARY("resumen");
+        
+        private final String description;
+        
+        AlertKind(String description) {
+            this.description = description;
+        }
+        
+        public String getDescription() {
+            return description;
+        }
+    }
+    
+    /**
+     * Valor de {@code sourceId} para alertas que no se refieren a una fuente concreta
+     */
+    public static final int NO_SOURCE = -1;
+    
     private String message;
     private AlertType type;
     private LocalDateTime timestamp;
+    private int sourceId;
+    private AlertKind kind;
     
     /**
      * Constructor para Alert
@@ -27,9 +55,22 @@ public abstract class Alert {
      * @param type El tipo de alerta
      */
     public Alert(String message, AlertType type) {
+        this(message, type, NO_SOURCE, AlertKind.GENERAL);
+    }
+    
+    /**
+     * Constructor para Alert asociada a una fuente y condición
+     * @param message El mensaje de la alerta
+     * @param type El tipo de alerta
+     * @param sourceId El ID de la fuente, o {@link #NO_SOURCE}
+     * @param kind La condición que originó la alerta
+     */
+    public Alert(String message, AlertType type, int sourceId, AlertKind kind) {
         this.message = message;
         this.type = type;
         this.timestamp = LocalDateTime.now();
+        this.sourceId = sourceId;
+        this.kind = kind == null ? AlertKind.GENERAL : kind;
     }
 
     /**
@@ -0,0 +1,339 @@
+package com.aqua.alert;
+
+import com.aqua.domain.WaterSource;
+import com.aqua.observer.IObserver;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Etapa intermedia entre los productores de alertas y sus consumidores.
+ * Descarta alertas repetidas de la misma fuente y condición mientras la condición siga activa
+ * (histéresis: la condición se rearma tras un periodo sin repeticiones o al resolverse),
+ * limita la frecuencia de alertas por fuente con un balde de fichas, agrupa las ráfagas en
+ * alertas de resumen y conserva un historial acotado. El volumen que llega a los consumidores
+ * y la memoria usada quedan acotados sin importar el tamaño de la flota.
+ *
+ * <p>La comprobación de duplicados no toma bloqueos globales, por lo que varios hilos de
+ * simulación pueden enviar alertas a la vez.</p>
+ */
+public class AlertPipeline implements IObserver {
+
+    public static final int DEFAULT_HISTORY_CAPACITY = 500;
+    public static final long DEFAULT_REARM_MILLIS = 60_000;
+    public static final int DEFAULT_BURST_TOKENS = 3;
+    public static final long DEFAULT_REFILL_MILLIS = 20_000;
+    public static final long DEFAULT_WINDOW_MILLIS = 1_000;
+    public static final int DEFAULT_WINDOW_LIMIT = 20;
+
+    private final int historyCapacity;
+    private final long rearmNanos;
+    private final int burstTokens;
+    private final long refillNanos;
+    private final long windowNanos;
+    private final int windowLimit;
+
+    private final Map<Long, KeyState> keys = new ConcurrentHashMap<>();
+    private final Map<Integer, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final List<IObserver> sinks = new CopyOnWriteArrayList<>();
+    private final Deque<Alert> history = new ArrayDeque<>();
+    private final Map<Alert.AlertKind, Integer> rolled = new EnumMap<>(Alert.AlertKind.class);
+    private long windowStart = System.nanoTime();
+    private int windowCount;
+    private long lastSweep = System.nanoTime();
+
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder rolledUp = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+
+    /**
+     * Constructor con los valores predeterminados
+     */
+    public AlertPipeline() {
+        this(DEFAULT_HISTORY_CAPACITY, DEFAULT_REARM_MILLIS, DEFAULT_BURST_TOKENS, DEFAULT_REFILL_MILLIS,
+                DEFAULT_WINDOW_MILLIS, DEFAULT_WINDOW_LIMIT);
+    }
+
+    /**
+     * Constructor para AlertPipeline
+     * @param historyCapacity El número máximo de alertas que se conservan en el historial
+     * @param rearmMillis El tiempo sin repeticiones tras el cual una condición vuelve a alertar
+     * @param burstTokens Las alertas que una fuente puede emitir seguidas
+     * @param refillMillis El tiempo para recuperar una ficha del balde de una fuente
+     * @param windowMillis La duración de la ventana usada para detectar ráfagas
+     * @param windowLimit Las alertas individuales permitidas por ventana antes de agruparlas
+     */
+    public AlertPipeline(int historyCapacity, long rearmMillis, int burstTokens, long refillMillis,
+            long windowMillis, int windowLimit) {
+        if (historyCapacity <= 0 || burstTokens <= 0 || windowLimit <= 0) {
+            throw new IllegalArgumentException("La capacidad del historial, las fichas y el límite por ventana deben ser positivos");
+        }
+        if (rearmMillis < 0 || refillMillis <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("Los intervalos de tiempo deben ser positivos");
+        }
+        this.historyCapacity = historyCapacity;
+        this.rearmNanos = TimeUnit.MILLISECONDS.toNanos(rearmMillis);
+        this.burstTokens = burstTokens;
+        this.refillNanos = TimeUnit.MILLISECONDS.toNanos(refillMillis);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.windowLimit = windowLimit;
+    }
+
+    /**
+     * Agrega un consumidor de las alertas que superan el filtro
+     * @param sink El observador que recibe las alertas
+     */
+    public void addSink(IObserver sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("El consumidor no puede ser nulo");
+        }
+        sinks.add(sink);
+    }
+
+    /**
+     * Elimina un consumidor
+     * @param sink El observador a eliminar
+     */
+    public void removeSink(IObserver sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * Envía una alerta por el filtro completo
+     * @param alert La alerta
+     * @return true si la alerta se emitió individualmente
+     */
+    public boolean submit(Alert alert) {
+        if (alert == null) {
+            throw new IllegalArgumentException("La alerta no puede ser nula");
+        }
+        return admit(alert.getSourceId(), alert.getKind()) && publish(alert);
+    }
+
+    /**
+     * Decide si una alerta de la fuente y condición debe generarse, aplicando la deduplicación
+     * y el límite por fuente. Permite a los productores evitar construir alertas que se descartarían.
+     * @param sourceId El ID de la fuente, o {@link Alert#NO_SOURCE}
+     * @param kind La condición
+     * @return true si la alerta debe construirse y pasarse a {@link #publish(Alert)}
+     */
+    public boolean admit(int sourceId, Alert.AlertKind kind) {
+        if (sourceId == Alert.NO_SOURCE) {
+            return true;
+        }
+        long now = System.nanoTime();
+        KeyState state = keys.computeIfAbsent(key(sourceId, kind), k -> new KeyState());
+        synchronized (state) {
+            if (state.active && now - state.lastSeen < rearmNanos) {
+                state.lastSeen = now;
+                duplicates.increment();
+                return false;
+            }
+            // La condición queda activa solo si el balde admite la alerta; una alerta limitada no
+            // cuenta como emitida y su siguiente repetición vuelve a intentarlo
+            TokenBucket bucket = buckets.computeIfAbsent(sourceId, id -> new TokenBucket(burstTokens, now));
+            if (!bucket.tryAcquire(now, burstTokens, refillNanos)) {
+                rateLimited.increment();
+                return false;
+            }
+            state.active = true;
+            state.lastSeen = now;
+        }
+        return true;
+    }
+
+    /**
+     * Indica que la condición de una fuente desapareció, para que vuelva a alertar la próxima vez
+     * @param sourceId El ID de la fuente
+     * @param kind La condición resuelta
+     */
+    public void resolve(int sourceId, Alert.AlertKind kind) {
+        keys.remove(key(sourceId, kind));
+    }
+
+    /**
+     * Emite una alerta ya admitida, o la agrupa si la ventana actual ya alcanzó su límite
+     * @param alert La alerta
+     * @return true si la alerta se emitió individualmente
+     */
+    public boolean publish(Alert alert) {
+        List<Alert> out = new ArrayList<>(2);
+        boolean individual;
+        synchronized (this) {
+            long now = System.nanoTime();
+            rollWindow(now, false, out);
+            individual = windowCount < windowLimit;
+            if (individual) {
+                windowCount++;
+                record(alert, out);
+            } else {
+                rolled.merge(alert.getKind(), 1, Integer::sum);
+                rolledUp.increment();
+            }
+        }
+        deliver(out);
+        return individual;
+    }
+
+    /**
+     * Cierra la ventana actual, emitiendo el resumen de las alertas agrupadas,
+     * y libera el estado de las fuentes que ya no tienen alertas activas
+     */
+    public void flush() {
+        List<Alert> out = new ArrayList<>(1);
+        synchronized (this) {
+            long now = System.nanoTime();
+            rollWindow(now, true, out);
+            if (now - lastSweep >= Math.max(rearmNanos, windowNanos)) {
+                lastSweep = now;
+                sweep(now);
+            }
+        }
+        deliver(out);
+    }
+
+    /**
+     * Obtiene las alertas emitidas más recientes, de la más antigua a la más nueva
+     * @return Copia del historial acotado
+     */
+    public synchronized List<Alert> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    public long getSuppressedDuplicates() {
+        return duplicates.sum();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    public long getRolledUp() {
+        return rolledUp.sum();
+    }
+
+    public long getEmitted() {
+        return emitted.sum();
+    }
+
+    /**
+     * Obtiene el número de pares fuente-condición con estado en memoria
+     * @return El número de condiciones rastreadas
+     */
+    public int getTrackedConditions() {
+        return keys.size();
+    }
+
+    @Override
+    public void update(WaterSource source, double currentLevel) {
+        // Los cambios de nivel no pasan por el filtro de alertas
+    }
+
+    @Override
+    public void update(Alert alert) {
+        submit(alert);
+    }
+
+    /**
+     * Cierra la ventana si ya venció (o si se fuerza) y genera el resumen de lo agrupado
+     */
+    private void rollWindow(long now, boolean force, List<Alert> out) {
+        if (!force && now - windowStart < windowNanos) {
+            return;
+        }
+        if (!rolled.isEmpty()) {
+            int total = 0;
+            StringBuilder detail = new StringBuilder();
+            for (Map.Entry<Alert.AlertKind, Integer> entry : rolled.entrySet()) {
+                total += entry.getValue();
+                if (detail.length() > 0) {
+                    detail.append(", ");
+                }
+                detail.append(entry.getValue()).append(" de ").append(entry.getKey().getDescription());
+            }
+            record(new SystemAlert(
+                String.format("Ráfaga de %d alertas agrupadas (%s)", total, detail),
+                Alert.AlertType.WARNING, Alert.NO_SOURCE, Alert.AlertKind.SUMMARY), out);
+            rolled.clear();
+        }
+        windowStart = now;
+        windowCount = 0;
+    }
+
+    private void record(Alert alert, List<Alert> out) {
+        if (history.size() == historyCapacity) {
+            history.removeFirst();
+        }
+        history.addLast(alert);
+        out.add(alert);
+    }
+
+    private void deliver(List<Alert> alerts) {
+        for (Alert alert : alerts) {
+            emitted.increment();
+            for (IObserver sink : sinks) {
+                sink.update(alert);
+            }
+        }
+    }
+
+    /**
+     * Elimina las condiciones sin repeticiones recientes y los baldes que ya estarían llenos
+     */
+    private void sweep(long now) {
+        keys.values().removeIf(state -> state.isExpired(now, rearmNanos));
+        long fullAfter = refillNanos * burstTokens;
+        buckets.values().removeIf(bucket -> bucket.isIdle(now, fullAfter));
+    }
+
+    private static long key(int sourceId, Alert.AlertKind kind) {
+        return ((long) sourceId << 8) | kind.ordinal();
+    }
+
+    /**
+     * Estado de deduplicación de un par fuente-condición
+     */
+    private static final class KeyState {
+        boolean active;
+        long lastSeen;
+
+        synchronized boolean isExpired(long now, long rearmNanos) {
+            return now - lastSeen >= rearmNanos;
+        }
+    }
+
+    /**
+     * Balde de fichas de una fuente; se recarga una ficha cada {@code refillNanos}
+     */
+    private static final class TokenBucket {
+        private double tokens;
+        private long last;
+
+        TokenBucket(int tokens, long now) {
+            this.tokens = tokens;
+            this.last = now;
+        }
+
+        synchronized boolean tryAcquire(long now, int capacity, long refillNanos) {
+            tokens = Math.min(capacity, tokens + (double) (now - last) / refillNanos);
+            last = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean isIdle(long now, long fullAfter) {
+            return now - last >= fullAfter;
+        }
+    }
+}
@@ -19,7 +19,18 @@ public class CriticalLevelAlert extends Alert implements IObserver {
      * @param threshold El umbral crítico
      */
     public CriticalLevelAlert(String message, double level, double threshold) {
-        super(message, AlertType.WARNING);
+        this(message, NO_SOURCE, level, threshold);
+    }
+    
+    /**
+     * Constructor para CriticalLevelAlert asociada a una fuente
+     * @param message El mensaje de la alerta
+     * @param sourceId El ID de la fuente
+     * @param level El nivel actual de agua
+     * @param threshold El umbral crítico
+     */
+    public CriticalLevelAlert(String message, int sourceId, double level, double threshold) {
+        super(message, AlertType.WARNING, sourceId, AlertKind.LOW_LEVEL);
         this.level = level;
         this.threshold = threshold;
     }
@@ -13,4 +13,15 @@ public class SystemAlert extends Alert {
     public SystemAlert(String message, AlertType type) {
         super(message, type);
     }
+    
+    /**
+     * Constructor para SystemAlert asociada a una fuente y condición
+     * @param message El mensaje de la alerta
+     * @param type El tipo de alerta
+     * @param sourceId El ID de la fuente
+     * @param kind La condición que originó la alerta
+     */
+    public SystemAlert(String message, AlertType type, int sourceId, AlertKind kind) {
+        super(message, type, sourceId, kind);
+    }
 } 
\ No newline at end of file
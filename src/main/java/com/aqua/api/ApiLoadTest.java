@@ -0,0 +1,204 @@
+package com.aqua.api;
+
+import com.aqua.config.Configuration;
+import com.aqua.domain.River;
+import com.aqua.metrics.LatencyHistogram;
+import com.aqua.observer.WaterLevelMonitor;
+import com.aqua.repository.IndexedWaterSourceRepository;
+import com.aqua.repository.WaterSourceRepositoryImpl;
+import com.aqua.report.HistoricalReportGenerator;
+import com.aqua.system.WaterManagementSystem;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga de la API HTTP: mantiene un número fijo de clientes concurrentes, cada uno en su
+ * propio hilo virtual con un socket bloqueante y una conexión persistente, que repiten la misma
+ * petición GET durante un tiempo fijo. Informa cada segundo las peticiones por segundo y al final
+ * la latencia. El cliente HTTP es mínimo a propósito, para que la prueba mida al servidor.
+ *
+ * <p>Argumentos en la forma {@code clave=valor}:</p>
+ * <ul>
+ *   <li>{@code clients}: el número de clientes concurrentes (predeterminado 1000)</li>
+ *   <li>{@code seconds}: la duración de la prueba (predeterminado 10)</li>
+ *   <li>{@code path}: la ruta pedida (predeterminado {@code /api/sources/1})</li>
+ *   <li>{@code host} y {@code port}: el servidor destino; sin {@code port} se inicia un servidor
+ *       embebido con {@code sources} fuentes (predeterminado 1000)</li>
+ * </ul>
+ * Cada cliente mantiene una conexión abierta; con decenas de miles de clientes conviene ejecutar el
+ * servidor en otro proceso y subir el límite de descriptores de archivo.
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.aqua.api.ApiLoadTest -Dexec.args="clients=10000 path=/api/overview"
+ * </pre>
+ */
+public final class ApiLoadTest {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+
+    private ApiLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        String path = options.getOrDefault("path", "/api/sources/1");
+        String host = options.getOrDefault("host", "127.0.0.1");
+
+        ApiServer server = null;
+        int port;
+        if (options.containsKey("port")) {
+            port = Integer.parseInt(options.get("port"));
+        } else {
+            server = new ApiServer(embeddedSystem(Integer.parseInt(options.getOrDefault("sources", "1000"))), 0);
+            server.start();
+            port = server.getPort();
+            System.out.printf("Servidor embebido en el puerto %d (hilos virtuales: %s)%n",
+                port, server.usesVirtualThreads() ? "sí" : "no");
+        }
+
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("aqua-api-load");
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        byte[] request = ("GET " + path + " HTTP/1.1\r\nHost: " + host + ":" + port + "\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        CountDownLatch done = new CountDownLatch(clients);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            executor.execute(() -> {
+                try {
+                    runClient(address, request, deadline, latency, completed, failed);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long last = 0;
+        while (!done.await(1, TimeUnit.SECONDS)) {
+            long now = completed.sum();
+            System.out.printf("%,d peticiones/s  %,d errores%n", now - last, failed.sum());
+            last = now;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        executor.shutdownNow();
+        if (server != null) {
+            server.stop();
+        }
+        System.out.printf("%nTotal: %,d peticiones con %d clientes en %.1f s (%,.0f peticiones/s), %,d errores%n",
+            completed.sum(), clients, elapsed, completed.sum() / elapsed, failed.sum());
+        System.out.printf("Latencia: media %.2f ms, p50 %.2f ms, p99 %.2f ms, máx %.2f ms%n",
+            latency.getMean() / 1e6, latency.getPercentile(0.50) / 1e6,
+            latency.getPercentile(0.99) / 1e6, latency.getMax() / 1e6);
+    }
+
+    /**
+     * Repite la petición en una conexión persistente hasta el plazo, reconectando si se cierra
+     */
+    private static void runClient(InetSocketAddress address, byte[] request, long deadline,
+            LatencyHistogram latency, LongAdder completed, LongAdder failed) {
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                while (System.nanoTime() < deadline) {
+                    long sent = System.nanoTime();
+                    out.write(request);
+                    out.flush();
+                    if (readResponse(in) == 200) {
+                        latency.record(System.nanoTime() - sent);
+                        completed.increment();
+                    } else {
+                        failed.increment();
+                    }
+                }
+            } catch (IOException e) {
+                failed.increment();
+            }
+        }
+    }
+
+    /**
+     * Lee una respuesta HTTP/1.1 con {@code Content-Length} y descarta el cuerpo
+     * @return El código de estado
+     */
+    private static int readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        if (!statusLine.startsWith("HTTP/1.1 ") || statusLine.length() < 12) {
+            throw new IOException("Respuesta no válida: " + statusLine);
+        }
+        int status = Integer.parseInt(statusLine.substring(9, 12));
+        long length = 0;
+        String header;
+        while (!(header = readLine(in)).isEmpty()) {
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                length = Long.parseLong(header.substring(15).trim());
+            }
+        }
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Conexión cerrada durante el cuerpo de la respuesta");
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+        return status;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("Conexión cerrada por el servidor");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static WaterManagementSystem embeddedSystem(int sources) {
+        IndexedWaterSourceRepository repository = new IndexedWaterSourceRepository(new WaterSourceRepositoryImpl());
+        for (int id = 1; id <= sources; id++) {
+            repository.addWaterSource(new River(id, "RIVER", 1000, "Zona " + (id % 100), "GOOD"));
+        }
+        Configuration config = new Configuration();
+        return new WaterManagementSystem(repository, new WaterLevelMonitor(null),
+            new HistoricalReportGenerator(repository), config);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Argumento no válido, se esperaba clave=valor: " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+}
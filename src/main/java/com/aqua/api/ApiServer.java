@@ -0,0 +1,565 @@
+package com.aqua.api;
+
+import com.aqua.distribution.DistributionBatch;
+import com.aqua.distribution.DistributionResult;
+import com.aqua.distribution.DistributionStrategy;
+import com.aqua.distribution.EquitableDistributionStrategy;
+import com.aqua.distribution.FairDistributionStrategy;
+import com.aqua.distribution.MaxMinFairDistributionStrategy;
+import com.aqua.distribution.PriorityDistributionStrategy;
+import com.aqua.distribution.WaterDistributor;
+import com.aqua.domain.River;
+import com.aqua.domain.WaterSource;
+import com.aqua.domain.Well;
+import com.aqua.metrics.Counter;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
+import com.aqua.repository.FleetSnapshot;
+import com.aqua.report.ReportQuery;
+import com.aqua.system.WaterManagementSystem;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API HTTP local que expone las operaciones de {@link WaterManagementSystem} para el modo sin interfaz.
+ * Cada petición se atiende en su propio hilo virtual (ver {@link VirtualThreads}), de modo que las
+ * peticiones que esperan, por ejemplo un reporte grande, no ocupan un hilo de un grupo fijo.
+ *
+ * <ul>
+ *   <li>{@code GET /api/sources} y {@code GET /api/sources/{id}}: las fuentes en JSON</li>
+ *   <li>{@code POST /api/sources}: agrega una fuente con los parámetros de formulario {@code id},
+ *       {@code type} (RIVER o WELL), {@code capacity}, {@code location}, {@code quality} y, opcional, {@code level}</li>
+ *   <li>{@code PUT /api/sources/{id}}: cambia {@code capacity}, {@code location}, {@code quality} o {@code level}</li>
+ *   <li>{@code DELETE /api/sources/{id}}: elimina una fuente</li>
+ *   <li>{@code GET /api/reports}, {@code /api/reports/summary} y {@code /api/reports/history}: los reportes
+ *       en texto; el primero admite {@code page} y {@code size} y, sin ellos, se transmite completo por partes; el último {@code from}, {@code to} y {@code bucket}</li>
+ *   <li>{@code POST /api/distribution?strategy=fair}: reparte el agua de cada ubicación entre los
+ *       destinatarios del cuerpo, uno por línea como {@code id,ubicación,demanda}</li>
+ *   <li>{@code GET /api/overview}: totales, agua por ubicación y resumen, calculados en paralelo</li>
+ * </ul>
+ */
+public class ApiServer {
+
+    public static final String PORT_PROPERTY = "aqua.api.port";
+    public static final int DEFAULT_PORT = 8080;
+    public static final String SOURCES_PATH = "/api/sources";
+    public static final String REPORTS_PATH = "/api/reports";
+    public static final String DISTRIBUTION_PATH = "/api/distribution";
+    public static final String OVERVIEW_PATH = "/api/overview";
+
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final String MAX_IDLE_CONNECTIONS_PROPERTY = "sun.net.httpserver.maxIdleConnections";
+    private static final int MAX_IDLE_CONNECTIONS = 65_536;
+    private static final int BACKLOG = 4096;
+    private static final long FAN_OUT_TIMEOUT_MILLIS = 5000;
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+    private static final Counter REQUESTS = MetricsRegistry.global()
+        .counter("api_requests", "Peticiones atendidas por la API HTTP");
+    private static final Counter ERRORS = MetricsRegistry.global()
+        .counter("api_errors", "Peticiones de la API HTTP que terminaron con un error del servidor");
+    private static final Timer REQUEST_TIMER = MetricsRegistry.global()
+        .timer("api_request", "Tiempo de atención de una petición de la API HTTP");
+
+    static {
+        // Las opciones del servidor HTTP del JDK se leen al crear el primer servidor del proceso.
+        // Escribe los encabezados y el cuerpo por separado; con el algoritmo de Nagle cada respuesta
+        // de una conexión persistente espera el ACK retardado del cliente.
+        setDefault(NODELAY_PROPERTY, "true");
+        // Por defecto cierra las conexiones persistentes inactivas que pasan de 200, lo que obliga a
+        // reconectar a los clientes cuando hay miles de ellos
+        setDefault(MAX_IDLE_CONNECTIONS_PROPERTY, String.valueOf(MAX_IDLE_CONNECTIONS));
+    }
+
+    private final WaterManagementSystem system;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor que escucha en la interfaz local
+     * @param system El sistema a exponer
+     * @param port El puerto, o 0 para elegir uno libre
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public ApiServer(WaterManagementSystem system, int port) throws IOException {
+        this(system, new InetSocketAddress("127.0.0.1", port));
+    }
+
+    /**
+     * Constructor para ApiServer
+     * @param system El sistema a exponer
+     * @param address La dirección donde escuchar
+     * @throws IOException Si no se puede abrir la dirección
+     */
+    public ApiServer(WaterManagementSystem system, InetSocketAddress address) throws IOException {
+        if (system == null || address == null) {
+            throw new IllegalArgumentException("El sistema y la dirección no pueden ser nulos");
+        }
+        this.system = system;
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = VirtualThreads.newThreadPerTaskExecutor("aqua-api");
+        server.setExecutor(executor);
+        server.createContext(SOURCES_PATH, exchange -> handle(exchange, this::sources));
+        server.createContext(REPORTS_PATH, exchange -> handle(exchange, this::reports));
+        server.createContext(DISTRIBUTION_PATH, exchange -> handle(exchange, this::distribution));
+        server.createContext(OVERVIEW_PATH, exchange -> handle(exchange, this::overview));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Deja de atender peticiones, esperando como máximo un segundo a las que están en curso
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Obtiene el puerto en que escucha el servidor
+     * @return El puerto
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Indica si las peticiones se atienden en hilos virtuales
+     * @return true si la JVM ofrece hilos virtuales
+     */
+    public boolean usesVirtualThreads() {
+        return VirtualThreads.isAvailable();
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        long start = REQUEST_TIMER.start();
+        REQUESTS.increment();
+        try {
+            handler.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, TEXT_CONTENT_TYPE, e.getMessage());
+        } catch (Exception e) {
+            ERRORS.increment();
+            e.printStackTrace();
+            send(exchange, 500, TEXT_CONTENT_TYPE, "Error interno del servidor");
+        } finally {
+            exchange.close();
+            REQUEST_TIMER.stop(start);
+        }
+    }
+
+    private void sources(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String id = subPath(exchange, SOURCES_PATH);
+        if (id == null) {
+            if ("GET".equals(method)) {
+                StringBuilder json = new StringBuilder(256);
+                json.append('[');
+                List<WaterSource> sources = system.getWaterSourceRepository().listWaterSources();
+                for (int i = 0; i < sources.size(); i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    appendSource(json, sources.get(i));
+                }
+                send(exchange, 200, JSON_CONTENT_TYPE, json.append(']').toString());
+            } else if ("POST".equals(method)) {
+                createSource(exchange, readForm(exchange));
+            } else {
+                send(exchange, 405, null, null);
+            }
+            return;
+        }
+        WaterSource source = system.getWaterSourceRepository().getWaterSource(parseInt(id, "id"));
+        if (source == null) {
+            send(exchange, 404, TEXT_CONTENT_TYPE, "Fuente de agua no encontrada: " + id);
+        } else if ("GET".equals(method)) {
+            StringBuilder json = new StringBuilder(128);
+            appendSource(json, source);
+            send(exchange, 200, JSON_CONTENT_TYPE, json.toString());
+        } else if ("PUT".equals(method)) {
+            updateSource(exchange, source, readForm(exchange));
+        } else if ("DELETE".equals(method)) {
+            system.removeWaterSource(source.getId());
+            send(exchange, 204, null, null);
+        } else {
+            send(exchange, 405, null, null);
+        }
+    }
+
+    private void createSource(HttpExchange exchange, Map<String, String> form) throws IOException {
+        int id = parseInt(required(form, "id"), "id");
+        String type = required(form, "type");
+        double capacity = parseDouble(required(form, "capacity"), "capacity");
+        String location = required(form, "location");
+        String quality = required(form, "quality");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva");
+        }
+        WaterSource source;
+        if ("RIVER".equals(type)) {
+            source = new River(id, type, capacity, location, quality);
+        } else if ("WELL".equals(type)) {
+            source = new Well(id, type, capacity, location, quality);
+        } else {
+            throw new IllegalArgumentException("Tipo de fuente no soportado: " + type);
+        }
+        if (form.containsKey("level")) {
+            source.setCurrentLevel(parseLevel(form.get("level"), capacity));
+        }
+        if (!system.addWaterSourceIfAbsent(source)) {
+            send(exchange, 409, TEXT_CONTENT_TYPE, "Ya existe una fuente de agua con el ID " + id);
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", SOURCES_PATH + "/" + id);
+        StringBuilder json = new StringBuilder(128);
+        appendSource(json, source);
+        send(exchange, 201, JSON_CONTENT_TYPE, json.toString());
+    }
+
+    private void updateSource(HttpExchange exchange, WaterSource source, Map<String, String> form) throws IOException {
+        double capacity = form.containsKey("capacity")
+            ? parseDouble(form.get("capacity"), "capacity") : source.getCapacity();
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva");
+        }
+        // Validar todo antes de modificar la fuente
+        double level = form.containsKey("level") ? parseLevel(form.get("level"), capacity) : -1;
+        String location = form.get("location");
+        if (location != null && location.trim().isEmpty()) {
+            throw new IllegalArgumentException("La ubicación no puede estar vacía");
+        }
+        String quality = form.get("quality");
+        // Los cambios de la petición se publican como una sola versión de la flota
+        system.getWaterSourceRepository().runBatch(() -> {
+            source.setCapacity(capacity);
+            if (level >= 0) {
+                source.setCurrentLevel(level);
+            } else if (source.getCurrentLevel() > capacity) {
+                source.addToLevel(0); // Limita el nivel actual a la nueva capacidad
+            }
+            if (location != null) {
+                source.setLocation(location.trim());
+            }
+            if (quality != null) {
+                source.setQuality(quality);
+            }
+            system.updateWaterSource(source);
+            return null;
+        });
+        StringBuilder json = new StringBuilder(128);
+        appendSource(json, source);
+        send(exchange, 200, JSON_CONTENT_TYPE, json.toString());
+    }
+
+    private void reports(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, null, null);
+            return;
+        }
+        String report = subPath(exchange, REPORTS_PATH);
+        Map<String, String> query = parseForm(exchange.getRequestURI().getRawQuery());
+        if (report == null) {
+            if (query.containsKey("page")) {
+                int page = parseInt(query.get("page"), "page");
+                int size = query.containsKey("size") ? parseInt(query.get("size"), "size") : 100;
+                StringBuilder text = new StringBuilder(4096);
+                system.writeReport(text, ReportQuery.page(null, page, size));
+                send(exchange, 200, TEXT_CONTENT_TYPE, text.toString());
+            } else {
+                // Sin página el reporte completo se transmite por partes, sin armarlo en memoria
+                exchange.getResponseHeaders().set("Content-Type", TEXT_CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    system.writeReport(Channels.newChannel(out), ReportQuery.all());
+                }
+            }
+        } else if ("summary".equals(report)) {
+            send(exchange, 200, TEXT_CONTENT_TYPE, system.generateSummaryReport());
+        } else if ("history".equals(report)) {
+            long to = query.containsKey("to") ? parseLong(query.get("to"), "to") : System.currentTimeMillis();
+            long from = query.containsKey("from") ? parseLong(query.get("from"), "from") : to - TimeUnit.DAYS.toMillis(1);
+            long bucket = query.containsKey("bucket") ? parseLong(query.get("bucket"), "bucket") : TimeUnit.HOURS.toMillis(1);
+            send(exchange, 200, TEXT_CONTENT_TYPE, system.generateHistoryReport(from, to, bucket));
+        } else {
+            send(exchange, 404, TEXT_CONTENT_TYPE, "Reporte no encontrado: " + report);
+        }
+    }
+
+    private void distribution(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, null, null);
+            return;
+        }
+        Map<String, String> query = parseForm(exchange.getRequestURI().getRawQuery());
+        DistributionStrategy strategy = strategy(query.getOrDefault("strategy", "equitable"));
+        DistributionBatch batch = new DistributionBatch();
+        batch.addSources(system.getWaterSourceRepository().listWaterSources(), WaterSource::getLocation);
+        for (String line : readBody(exchange).split("\n")) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Se esperaba id,ubicación,demanda: " + line);
+            }
+            batch.addRecipient(fields[1].trim(), parseInt(fields[0].trim(), "id"),
+                parseDouble(fields[2].trim(), "demanda"));
+        }
+        WaterDistributor distributor = new WaterDistributor();
+        distributor.setStrategy(strategy);
+        DistributionResult result = distributor.distributeWater(batch);
+        StringBuilder json = new StringBuilder(64 + 48 * result.getRecipientCount());
+        json.append("{\"allocations\":[");
+        for (int i = 0; i < result.getRecipientCount(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"recipientId\":").append(result.getRecipientId(i))
+                .append(",\"allocation\":").append(result.getAllocationAt(i)).append('}');
+        }
+        send(exchange, 200, JSON_CONTENT_TYPE, json.append("]}").toString());
+    }
+
+    /**
+     * Calcula las partes de la vista general en paralelo, cada una en su propio hilo. Los totales y las
+     * ubicaciones recorren la misma versión de la flota; el resumen se lee de los agregados en vivo,
+     * por lo que puede reflejar cambios posteriores a esa versión. Si alguna no termina a tiempo se cancelan todas y se responde 503,
+     * de modo que ninguna sobrevive a la petición.
+     */
+    private void overview(HttpExchange exchange) throws Exception {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, null, null);
+            return;
+        }
+        FleetSnapshot sources = system.getWaterSourceRepository().getFleetSnapshot();
+        Callable<String> totals = () -> totalsJson(sources);
+        Callable<String> locations = () -> locationsJson(sources);
+        Callable<String> summary = () -> {
+            StringBuilder json = new StringBuilder(1024);
+            appendString(json, system.generateSummaryReport());
+            return json.toString();
+        };
+        List<Future<String>> parts = executor.invokeAll(Arrays.asList(totals, locations, summary),
+            FAN_OUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        StringBuilder json = new StringBuilder(2048);
+        try {
+            json.append("{\"totals\":").append(parts.get(0).get())
+                .append(",\"locations\":").append(parts.get(1).get())
+                .append(",\"summary\":").append(parts.get(2).get()).append('}');
+        } catch (CancellationException e) {
+            send(exchange, 503, TEXT_CONTENT_TYPE, "La vista general no se completó a tiempo");
+            return;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        send(exchange, 200, JSON_CONTENT_TYPE, json.toString());
+    }
+
+    private static String totalsJson(FleetSnapshot sources) {
+        double capacity = 0;
+        double level = 0;
+        for (WaterSource source : sources) {
+            capacity += source.getCapacity();
+            level += source.getCurrentLevel();
+        }
+        return "{\"sources\":" + sources.size() + ",\"capacity\":" + capacity + ",\"level\":" + level + "}";
+    }
+
+    private static String locationsJson(FleetSnapshot sources) {
+        Map<String, double[]> byLocation = new TreeMap<>();
+        for (WaterSource source : sources) {
+            double[] totals = byLocation.computeIfAbsent(String.valueOf(source.getLocation()), location -> new double[2]);
+            totals[0]++;
+            totals[1] += source.getCurrentLevel();
+        }
+        StringBuilder json = new StringBuilder(64 * byLocation.size() + 2);
+        json.append('{');
+        for (Map.Entry<String, double[]> entry : byLocation.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            appendString(json, entry.getKey());
+            json.append(":{\"sources\":").append((long) entry.getValue()[0])
+                .append(",\"level\":").append(entry.getValue()[1]).append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static DistributionStrategy strategy(String name) {
+        switch (name) {
+            case "equitable":
+                return new EquitableDistributionStrategy();
+            case "priority":
+                return new PriorityDistributionStrategy();
+            case "fair":
+                return new FairDistributionStrategy();
+            case "maxmin":
+                return new MaxMinFairDistributionStrategy();
+            default:
+                throw new IllegalArgumentException("Estrategia de distribución no soportada: " + name);
+        }
+    }
+
+    private static void appendSource(StringBuilder json, WaterSource source) {
+        json.append("{\"id\":").append(source.getId()).append(",\"type\":");
+        appendString(json, source.getType());
+        json.append(",\"capacity\":").append(source.getCapacity()).append(",\"location\":");
+        appendString(json, source.getLocation());
+        json.append(",\"quality\":");
+        appendString(json, source.getQuality());
+        json.append(",\"currentLevel\":").append(source.getCurrentLevel()).append('}');
+    }
+
+    /**
+     * Agrega un texto como cadena JSON, escapando comillas, barras y caracteres de control
+     */
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c == '\n') {
+                json.append("\\n");
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Obtiene el resto de la ruta después del contexto, sin la barra inicial
+     * @return El resto, o null si la ruta es exactamente la del contexto
+     */
+    private static String subPath(HttpExchange exchange, String context) {
+        String path = exchange.getRequestURI().getPath();
+        if (path.length() <= context.length() + 1) {
+            return null;
+        }
+        return path.substring(context.length() + 1);
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> readForm(HttpExchange exchange) throws IOException {
+        return parseForm(readBody(exchange));
+    }
+
+    private static Map<String, String> parseForm(String encoded) {
+        Map<String, String> form = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return form;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                form.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return form;
+    }
+
+    private static String required(Map<String, String> form, String name) {
+        String value = form.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Falta el parámetro " + name);
+        }
+        return value.trim();
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El parámetro " + name + " debe ser un número entero: " + value);
+        }
+    }
+
+    private static long parseLong(String value, String name) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El parámetro " + name + " debe ser un número entero: " + value);
+        }
+    }
+
+    private static double parseDouble(String value, String name) {
+        try {
+            double number = Double.parseDouble(value);
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                throw new NumberFormatException();
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El parámetro " + name + " debe ser un número: " + value);
+        }
+    }
+
+    private static double parseLevel(String value, double capacity) {
+        double level = parseDouble(value, "level");
+        if (level < 0) {
+            throw new IllegalArgumentException("El nivel no puede ser negativo");
+        }
+        if (level > capacity) {
+            throw new IllegalArgumentException("El nivel no puede ser mayor que la capacidad");
+        }
+        return level;
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.aqua.api;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Crea ejecutores que atienden cada tarea en un hilo virtual cuando la JVM los ofrece (Java 21 o
+ * superior). El proyecto compila para Java 17, por lo que el ejecutor de hilos virtuales se busca en
+ * tiempo de ejecución; en JVM anteriores se usa un grupo de hilos de plataforma que crece a demanda.
+ */
+final class VirtualThreads {
+
+    private static final MethodHandle NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Indica si la JVM actual ofrece hilos virtuales
+     * @return true si los ejecutores creados usan hilos virtuales
+     */
+    static boolean isAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Crea un ejecutor que inicia un hilo por tarea
+     * @param name El prefijo del nombre de los hilos de plataforma, si no hay hilos virtuales
+     * @return El ejecutor
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name) {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("No se pudo crear el ejecutor de hilos virtuales", e);
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static MethodHandle findVirtualExecutorFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
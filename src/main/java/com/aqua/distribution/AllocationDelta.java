@@ -0,0 +1,42 @@
+package com.aqua.distribution;
+
+import lombok.Getter;
+
+/**
+ * Cambio en la asignación de un destinatario entre dos planificaciones sucesivas
+ */
+@Getter
+public final class AllocationDelta {
+
+    private final int recipientId;
+    private final String region;
+    private final double previous;
+    private final double current;
+
+    /**
+     * Constructor para AllocationDelta
+     * @param recipientId El ID del destinatario
+     * @param region La región del destinatario
+     * @param previous La asignación anterior, 0 si el destinatario es nuevo
+     * @param current La asignación nueva, 0 si el destinatario se eliminó
+     */
+    public AllocationDelta(int recipientId, String region, double previous, double current) {
+        this.recipientId = recipientId;
+        this.region = region;
+        this.previous = previous;
+        this.current = current;
+    }
+
+    /**
+     * Obtiene la variación de la asignación
+     * @return La asignación nueva menos la anterior
+     */
+    public double getChange() {
+        return current - previous;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Destinatario %d (%s): %.2f -> %.2f", recipientId, region, previous, current);
+    }
+}
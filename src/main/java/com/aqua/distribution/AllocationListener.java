@@ -0,0 +1,15 @@
+package com.aqua.distribution;
+
+import java.util.List;
+
+/**
+ * Interfaz para recibir los cambios de asignación del planificador de distribución
+ */
+public interface AllocationListener {
+
+    /**
+     * Llamado desde el hilo del planificador al terminar una planificación con cambios
+     * @param deltas Las asignaciones que cambiaron, agrupadas por región
+     */
+    void allocationsChanged(List<AllocationDelta> deltas);
+}
@@ -0,0 +1,203 @@
+package com.aqua.distribution;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Motor de distribución por lotes para muchas fuentes y destinatarios.
+ * Particiona el problema por región: el agua disponible de las fuentes de una región se reparte
+ * entre los destinatarios de la misma región con la estrategia configurada, y las regiones se
+ * resuelven en paralelo con fork-join. Las regiones se agrupan en tareas de un tamaño mínimo de
+ * destinatarios para que el costo de repartir el trabajo no domine en regiones pequeñas.
+ *
+ * <p>Si la estrategia implementa {@link IndexedDistributionStrategy}, cada región se resuelve sobre
+ * un tramo de arreglos primitivos ordenados por región, sin mapas ni valores encapsulados; si no,
+ * se le entregan los datos de la región como mapa a través de una fuente que agrupa la región.</p>
+ *
+ * <p>La estrategia debe poder usarse desde varios hilos a la vez; las incluidas no tienen estado.</p>
+ */
+public class BatchDistributionEngine {
+
+    public static final int DEFAULT_TASK_RECIPIENTS = 4096;
+
+    private final DistributionStrategy strategy;
+    private final IndexedDistributionStrategy indexedStrategy;
+    private final ForkJoinPool pool;
+    private final int taskRecipients;
+
+    /**
+     * Constructor que usa el pool común de fork-join
+     * @param strategy La estrategia aplicada a cada región
+     */
+    public BatchDistributionEngine(DistributionStrategy strategy) {
+        this(strategy, ForkJoinPool.commonPool(), DEFAULT_TASK_RECIPIENTS);
+    }
+
+    /**
+     * Constructor para BatchDistributionEngine
+     * @param strategy La estrategia aplicada a cada región
+     * @param pool El pool donde se resuelven las particiones
+     * @param taskRecipients El número de destinatarios a partir del cual un grupo de regiones se divide en subtareas
+     */
+    public BatchDistributionEngine(DistributionStrategy strategy, ForkJoinPool pool, int taskRecipients) {
+        if (strategy == null || pool == null) {
+            throw new IllegalArgumentException("La estrategia y el pool no pueden ser nulos");
+        }
+        if (taskRecipients <= 0) {
+            throw new IllegalArgumentException("El tamaño de las tareas debe ser positivo");
+        }
+        this.strategy = strategy;
+        this.indexedStrategy = strategy instanceof IndexedDistributionStrategy
+            ? (IndexedDistributionStrategy) strategy : null;
+        this.pool = pool;
+        this.taskRecipients = taskRecipients;
+    }
+
+    /**
+     * Resuelve la distribución de un lote
+     * @param batch El lote de fuentes y destinatarios
+     * @return Las asignaciones por destinatario, lo extraído por fuente y los totales por región
+     */
+    public DistributionResult solve(DistributionBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("El lote no puede ser nulo");
+        }
+        int regions = batch.getRegionCount();
+        int recipients = batch.getRecipientCount();
+        int sources = batch.getSourceCount();
+
+        // Agrupar los destinatarios por región con un ordenamiento por conteo
+        int[] regionStart = new int[regions + 1];
+        int[] recipientRegions = batch.recipientRegions();
+        for (int i = 0; i < recipients; i++) {
+            regionStart[recipientRegions[i] + 1]++;
+        }
+        for (int region = 0; region < regions; region++) {
+            regionStart[region + 1] += regionStart[region];
+        }
+        int[] order = new int[recipients];
+        int[] cursor = regionStart.clone();
+        for (int i = 0; i < recipients; i++) {
+            order[cursor[recipientRegions[i]]++] = i;
+        }
+
+        double[] regionAvailable = new double[regions];
+        int[] sourceRegions = batch.sourceRegions();
+        double[] available = batch.sourceAvailable();
+        for (int i = 0; i < sources; i++) {
+            regionAvailable[sourceRegions[i]] += available[i];
+        }
+
+        // Demanda y asignaciones en el orden agrupado por región, para que cada región sea un tramo contiguo
+        double[] demand = batch.recipientDemand();
+        double[] groupedDemand = new double[recipients];
+        for (int slot = 0; slot < recipients; slot++) {
+            groupedDemand[slot] = demand[order[slot]];
+        }
+        double[] groupedAllocations = new double[recipients];
+        double[] regionAllocated = new double[regions];
+        if (regions > 0) {
+            pool.invoke(new PartitionTask(batch, regionStart, regionAvailable, groupedDemand, groupedAllocations,
+                regionAllocated, 0, regions));
+        }
+        double[] allocations = new double[recipients];
+        for (int slot = 0; slot < recipients; slot++) {
+            allocations[order[slot]] = groupedAllocations[slot];
+        }
+
+        // Cada fuente aporta en proporción a su agua disponible dentro de la región
+        double[] sourceDraws = new double[sources];
+        for (int i = 0; i < sources; i++) {
+            int region = sourceRegions[i];
+            if (regionAvailable[region] > 0) {
+                double share = Math.min(1, regionAllocated[region] / regionAvailable[region]);
+                sourceDraws[i] = available[i] * share;
+            }
+        }
+        return new DistributionResult(batch, allocations, sourceDraws, regionAvailable, regionAllocated);
+    }
+
+    public DistributionStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Resuelve un rango de regiones, dividiéndolo mientras tenga más destinatarios que el umbral
+     */
+    private final class PartitionTask extends RecursiveAction {
+
+        private final DistributionBatch batch;
+        private final int[] regionStart;
+        private final double[] regionAvailable;
+        private final double[] demand;
+        private final double[] allocations;
+        private final double[] regionAllocated;
+        private final int fromRegion;
+        private final int toRegion;
+
+        PartitionTask(DistributionBatch batch, int[] regionStart, double[] regionAvailable, double[] demand,
+                double[] allocations, double[] regionAllocated, int fromRegion, int toRegion) {
+            this.batch = batch;
+            this.regionStart = regionStart;
+            this.regionAvailable = regionAvailable;
+            this.demand = demand;
+            this.allocations = allocations;
+            this.regionAllocated = regionAllocated;
+            this.fromRegion = fromRegion;
+            this.toRegion = toRegion;
+        }
+
+        @Override
+        protected void compute() {
+            int work = regionStart[toRegion] - regionStart[fromRegion];
+            if (toRegion - fromRegion == 1 || work <= taskRecipients) {
+                solveRange();
+                return;
+            }
+            // Dividir por la región que deja la mitad de los destinatarios a cada lado
+            int half = regionStart[fromRegion] + work / 2;
+            int middle = fromRegion + 1;
+            while (middle < toRegion - 1 && regionStart[middle + 1] <= half) {
+                middle++;
+            }
+            invokeAll(
+                new PartitionTask(batch, regionStart, regionAvailable, demand, allocations, regionAllocated,
+                    fromRegion, middle),
+                new PartitionTask(batch, regionStart, regionAvailable, demand, allocations, regionAllocated,
+                    middle, toRegion));
+        }
+
+        private void solveRange() {
+            PooledWaterSource pooled = indexedStrategy == null ? new PooledWaterSource() : null;
+            Map<String, Double> regionDemand = indexedStrategy == null ? new HashMap<>() : null;
+            for (int region = fromRegion; region < toRegion; region++) {
+                int start = regionStart[region];
+                int end = regionStart[region + 1];
+                if (start == end) {
+                    continue;
+                }
+                if (indexedStrategy != null) {
+                    indexedStrategy.distribute(regionAvailable[region], demand, start, end - start, allocations);
+                } else {
+                    regionDemand.clear();
+                    for (int slot = start; slot < end; slot++) {
+                        regionDemand.put(Integer.toString(slot - start), demand[slot]);
+                    }
+                    pooled.reset(batch.getRegion(region), regionAvailable[region]);
+                    Map<String, Double> allocated = strategy.distribute(pooled, regionDemand);
+                    for (int slot = start; slot < end; slot++) {
+                        Double amount = allocated.get(Integer.toString(slot - start));
+                        allocations[slot] = amount == null ? 0 : amount;
+                    }
+                }
+                double total = 0;
+                for (int slot = start; slot < end; slot++) {
+                    total += allocations[slot];
+                }
+                regionAllocated[region] = total;
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.aqua.distribution;
+
+import com.aqua.domain.WaterSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Problema de distribución con muchas fuentes y destinatarios agrupados por región.
+ * Los datos se guardan en arreglos primitivos paralelos y cada región se identifica con un
+ * índice denso, de modo que el motor puede particionar el problema sin mapas ni objetos por fila.
+ * No es seguro para hilos mientras se llena.
+ */
+public final class DistributionBatch {
+
+    private final Map<String, Integer> regionIndex = new HashMap<>();
+    private final List<String> regions = new ArrayList<>();
+
+    private int sourceCount;
+    private int[] sourceIds = new int[16];
+    private int[] sourceRegions = new int[16];
+    private double[] sourceAvailable = new double[16];
+
+    private int recipientCount;
+    private int[] recipientIds = new int[16];
+    private int[] recipientRegions = new int[16];
+    private double[] recipientDemand = new double[16];
+
+    /**
+     * Agrega una fuente de agua a una región
+     * @param region La región
+     * @param sourceId El ID de la fuente
+     * @param available El agua disponible en la fuente
+     */
+    public void addSource(String region, int sourceId, double available) {
+        if (!(available >= 0)) {
+            throw new IllegalArgumentException("El agua disponible no puede ser negativa");
+        }
+        if (sourceCount == sourceIds.length) {
+            int length = sourceCount * 2;
+            sourceIds = Arrays.copyOf(sourceIds, length);
+            sourceRegions = Arrays.copyOf(sourceRegions, length);
+            sourceAvailable = Arrays.copyOf(sourceAvailable, length);
+        }
+        sourceIds[sourceCount] = sourceId;
+        sourceRegions[sourceCount] = region(region);
+        sourceAvailable[sourceCount] = available;
+        sourceCount++;
+    }
+
+    /**
+     * Agrega fuentes de agua con su nivel actual como agua disponible
+     * @param sources Las fuentes de agua
+     * @param regionOf Función que obtiene la región de cada fuente
+     */
+    public void addSources(Iterable<? extends WaterSource> sources, Function<? super WaterSource, String> regionOf) {
+        for (WaterSource source : sources) {
+            addSource(regionOf.apply(source), source.getId(), source.getCurrentLevel());
+        }
+    }
+
+    /**
+     * Agrega un destinatario a una región
+     * @param region La región
+     * @param recipientId El ID del destinatario
+     * @param demand La demanda del destinatario, o su prioridad según la estrategia
+     */
+    public void addRecipient(String region, int recipientId, double demand) {
+        if (!(demand >= 0)) {
+            throw new IllegalArgumentException("La demanda no puede ser negativa");
+        }
+        if (recipientCount == recipientIds.length) {
+            int length = recipientCount * 2;
+            recipientIds = Arrays.copyOf(recipientIds, length);
+            recipientRegions = Arrays.copyOf(recipientRegions, length);
+            recipientDemand = Arrays.copyOf(recipientDemand, length);
+        }
+        recipientIds[recipientCount] = recipientId;
+        recipientRegions[recipientCount] = region(region);
+        recipientDemand[recipientCount] = demand;
+        recipientCount++;
+    }
+
+    public int getSourceCount() {
+        return sourceCount;
+    }
+
+    public int getRecipientCount() {
+        return recipientCount;
+    }
+
+    public int getRegionCount() {
+        return regions.size();
+    }
+
+    /**
+     * Obtiene el nombre de una región
+     * @param region El índice de la región
+     * @return El nombre de la región
+     */
+    public String getRegion(int region) {
+        return regions.get(region);
+    }
+
+    int[] sourceIds() {
+        return sourceIds;
+    }
+
+    int[] sourceRegions() {
+        return sourceRegions;
+    }
+
+    double[] sourceAvailable() {
+        return sourceAvailable;
+    }
+
+    int[] recipientIds() {
+        return recipientIds;
+    }
+
+    int[] recipientRegions() {
+        return recipientRegions;
+    }
+
+    double[] recipientDemand() {
+        return recipientDemand;
+    }
+
+    private int region(String region) {
+        if (region == null) {
+            throw new IllegalArgumentException("La región no puede ser nula");
+        }
+        Integer index = regionIndex.get(region);
+        if (index == null) {
+            index = regions.size();
+            regionIndex.put(region, index);
+            regions.add(region);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,130 @@
+package com.aqua.distribution;
+
+import java.util.Arrays;
+
+/**
+ * Resultado de una distribución por lotes en arreglos primitivos paralelos al lote:
+ * la asignación de cada destinatario, lo extraído de cada fuente y los totales por región.
+ */
+public final class DistributionResult {
+
+    private final DistributionBatch batch;
+    private final double[] allocations;
+    private final double[] sourceDraws;
+    private final double[] regionAvailable;
+    private final double[] regionAllocated;
+    private int[] sortedRecipientIds;
+    private int[] sortedRecipientSlots;
+
+    DistributionResult(DistributionBatch batch, double[] allocations, double[] sourceDraws,
+            double[] regionAvailable, double[] regionAllocated) {
+        this.batch = batch;
+        this.allocations = allocations;
+        this.sourceDraws = sourceDraws;
+        this.regionAvailable = regionAvailable;
+        this.regionAllocated = regionAllocated;
+    }
+
+    public int getRecipientCount() {
+        return batch.getRecipientCount();
+    }
+
+    /**
+     * Obtiene el ID del destinatario en una posición del lote
+     * @param index La posición en el orden en que se agregaron los destinatarios
+     * @return El ID del destinatario
+     */
+    public int getRecipientId(int index) {
+        checkIndex(index, batch.getRecipientCount());
+        return batch.recipientIds()[index];
+    }
+
+    /**
+     * Obtiene la asignación del destinatario en una posición del lote
+     * @param index La posición en el orden en que se agregaron los destinatarios
+     * @return El agua asignada
+     */
+    public double getAllocationAt(int index) {
+        checkIndex(index, batch.getRecipientCount());
+        return allocations[index];
+    }
+
+    /**
+     * Obtiene la asignación de un destinatario por su ID; si el ID se repite devuelve una de sus asignaciones
+     * @param recipientId El ID del destinatario
+     * @return El agua asignada, o 0 si el destinatario no está en el lote
+     */
+    public double getAllocation(int recipientId) {
+        int slot = slotOf(recipientId);
+        return slot < 0 ? 0 : allocations[slot];
+    }
+
+    /**
+     * Obtiene el agua extraída de la fuente en una posición del lote.
+     * Cada fuente aporta en proporción a su agua disponible dentro de su región.
+     * @param index La posición en el orden en que se agregaron las fuentes
+     * @return El agua extraída
+     */
+    public double getSourceDrawAt(int index) {
+        checkIndex(index, batch.getSourceCount());
+        return sourceDraws[index];
+    }
+
+    /**
+     * Obtiene el agua disponible en una región
+     * @param region El índice de la región
+     * @return La suma del agua disponible de sus fuentes
+     */
+    public double getRegionAvailable(int region) {
+        checkIndex(region, regionAvailable.length);
+        return regionAvailable[region];
+    }
+
+    /**
+     * Obtiene el agua asignada en una región
+     * @param region El índice de la región
+     * @return La suma de las asignaciones de sus destinatarios
+     */
+    public double getRegionAllocated(int region) {
+        checkIndex(region, regionAllocated.length);
+        return regionAllocated[region];
+    }
+
+    /**
+     * Copia las asignaciones en un arreglo del llamador, en el orden del lote
+     * @param out El arreglo destino, con al menos {@link #getRecipientCount()} posiciones
+     */
+    public void copyAllocations(double[] out) {
+        System.arraycopy(allocations, 0, out, 0, batch.getRecipientCount());
+    }
+
+    /**
+     * Busca la posición de un destinatario con una búsqueda binaria sobre los IDs ordenados,
+     * que se construyen la primera vez que se consulta por ID
+     */
+    private synchronized int slotOf(int recipientId) {
+        if (sortedRecipientIds == null) {
+            int n = batch.getRecipientCount();
+            long[] packed = new long[n];
+            int[] ids = batch.recipientIds();
+            for (int i = 0; i < n; i++) {
+                packed[i] = ((long) ids[i] << 32) | i;
+            }
+            Arrays.sort(packed);
+            sortedRecipientIds = new int[n];
+            sortedRecipientSlots = new int[n];
+            for (int i = 0; i < n; i++) {
+                sortedRecipientIds[i] = (int) (packed[i] >> 32);
+                sortedRecipientSlots[i] = (int) packed[i];
+            }
+        }
+        int position = Arrays.binarySearch(sortedRecipientIds, recipientId);
+        return position < 0 ? -1 : sortedRecipientSlots[position];
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Posición fuera de rango: " + index);
+        }
+    }
+}
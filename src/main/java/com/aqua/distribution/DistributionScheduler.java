@@ -0,0 +1,472 @@
+package com.aqua.distribution;
+
+import com.aqua.alert.Alert;
+import com.aqua.domain.WaterSource;
+import com.aqua.observer.DeliveryPolicy;
+import com.aqua.observer.IObserver;
+import com.aqua.observer.ISubject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.Getter;
+
+/**
+ * Planificador que mantiene la distribución de agua al día mientras cambian los niveles.
+ * El problema se particiona por región, como en {@link BatchDistributionEngine}: el agua de las
+ * fuentes de una región se reparte entre los destinatarios de la misma región. Los eventos de
+ * nivel y los cambios de demanda solo marcan su partición como pendiente; en cada ciclo se
+ * vuelven a resolver únicamente las particiones pendientes y se publican las asignaciones que
+ * cambiaron, de modo que el costo de un ciclo es proporcional a lo que cambió y no a la flota.
+ *
+ * <p>Se suscribe a los eventos de nivel de un monitor con {@link #subscribe(ISubject)}; con la
+ * política {@link DeliveryPolicy#CONFLATE} varios cambios de una fuente entre dos ciclos llegan
+ * como uno solo. La estrategia debe poder usarse desde varios hilos a la vez.</p>
+ */
+public class DistributionScheduler implements IObserver {
+
+    public static final long DEFAULT_PERIOD_MILLIS = 1000;
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+
+    private final IndexedDistributionStrategy strategy;
+    private final Function<? super WaterSource, String> regionOf;
+    @Getter
+    private final long periodMillis;
+    @Getter
+    private final double tolerance;
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final Map<Integer, Partition> sourcePartitions = new ConcurrentHashMap<>();
+    private final Map<Integer, Partition> recipientPartitions = new ConcurrentHashMap<>();
+    private final Queue<Partition> dirty = new ConcurrentLinkedQueue<>();
+    private final List<AllocationListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object replanLock = new Object();
+
+    private final LongAdder replans = new LongAdder();
+    private final LongAdder partitionsSolved = new LongAdder();
+    private final LongAdder deltasPublished = new LongAdder();
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> ticker;
+
+    /**
+     * Constructor que agrupa las fuentes por ubicación y usa el intervalo predeterminado
+     * @param strategy La estrategia aplicada a cada región
+     */
+    public DistributionScheduler(IndexedDistributionStrategy strategy) {
+        this(strategy, WaterSource::getLocation, DEFAULT_PERIOD_MILLIS, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Constructor para DistributionScheduler
+     * @param strategy La estrategia aplicada a cada región
+     * @param regionOf Función que obtiene la región de cada fuente
+     * @param periodMillis El intervalo entre planificaciones en milisegundos
+     * @param tolerance La variación mínima de una asignación para publicarla como cambio
+     */
+    public DistributionScheduler(IndexedDistributionStrategy strategy, Function<? super WaterSource, String> regionOf,
+            long periodMillis, double tolerance) {
+        if (strategy == null || regionOf == null) {
+            throw new IllegalArgumentException("La estrategia y la función de región no pueden ser nulas");
+        }
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("El intervalo de planificación debe ser positivo");
+        }
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("La tolerancia no puede ser negativa");
+        }
+        this.strategy = strategy;
+        this.regionOf = regionOf;
+        this.periodMillis = periodMillis;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Se suscribe a los eventos de nivel de un monitor, conservando solo el último nivel de cada fuente
+     * @param subject El monitor que publica los cambios de nivel
+     */
+    public void subscribe(ISubject subject) {
+        if (subject == null) {
+            throw new IllegalArgumentException("El monitor no puede ser nulo");
+        }
+        subject.registerObserver(this, DeliveryPolicy.CONFLATE);
+    }
+
+    /**
+     * Agrega un oyente de los cambios de asignación
+     * @param listener El oyente
+     */
+    public void addListener(AllocationListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("El oyente no puede ser nulo");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Elimina un oyente de los cambios de asignación
+     * @param listener El oyente a eliminar
+     */
+    public void removeListener(AllocationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Registra varias fuentes con su nivel actual como agua disponible
+     * @param sources Las fuentes de agua
+     */
+    public void addSources(Iterable<? extends WaterSource> sources) {
+        for (WaterSource source : sources) {
+            update(source, source.getCurrentLevel());
+        }
+    }
+
+    /**
+     * Quita una fuente de la planificación
+     * @param sourceId El ID de la fuente
+     */
+    public void removeSource(int sourceId) {
+        Partition partition = sourcePartitions.remove(sourceId);
+        if (partition != null) {
+            synchronized (partition) {
+                if (partition.sourceLevels.remove(sourceId) != null) {
+                    markDirty(partition);
+                }
+            }
+        }
+    }
+
+    /**
+     * Establece la demanda de un destinatario; si estaba en otra región se mueve a la nueva
+     * @param region La región del destinatario
+     * @param recipientId El ID del destinatario
+     * @param demand La demanda, o su prioridad según la estrategia
+     */
+    public void setDemand(String region, int recipientId, double demand) {
+        if (region == null) {
+            throw new IllegalArgumentException("La región no puede ser nula");
+        }
+        if (!(demand >= 0)) {
+            throw new IllegalArgumentException("La demanda no puede ser negativa");
+        }
+        Partition target = partition(region);
+        Partition previous = recipientPartitions.put(recipientId, target);
+        if (previous != null && previous != target) {
+            synchronized (previous) {
+                if (previous.removeRecipient(recipientId)) {
+                    markDirty(previous);
+                }
+            }
+        }
+        synchronized (target) {
+            if (target.setDemand(recipientId, demand)) {
+                markDirty(target);
+            }
+        }
+    }
+
+    /**
+     * Quita un destinatario; la próxima planificación publica su asignación en 0
+     * @param recipientId El ID del destinatario
+     */
+    public void removeRecipient(int recipientId) {
+        Partition partition = recipientPartitions.remove(recipientId);
+        if (partition != null) {
+            synchronized (partition) {
+                if (partition.removeRecipient(recipientId)) {
+                    markDirty(partition);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inicia las planificaciones periódicas; no hace nada si ya está en ejecución
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aqua-distribution-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker = executor.scheduleWithFixedDelay(this::runScheduledReplan, periodMillis, periodMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene las planificaciones periódicas y espera a que termine la que está en curso
+     */
+    public void stop() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            if (ticker == null) {
+                return;
+            }
+            ticker.cancel(false);
+            ticker = null;
+            stopped = executor;
+            executor = null;
+        }
+        stopped.shutdown();
+        try {
+            stopped.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Indica si el planificador está en ejecución
+     * @return true si hay planificaciones periódicas
+     */
+    public synchronized boolean isRunning() {
+        return ticker != null;
+    }
+
+    /**
+     * Resuelve en el hilo llamador las particiones pendientes y publica los cambios
+     * @return Las asignaciones que cambiaron
+     */
+    public List<AllocationDelta> replan() {
+        List<AllocationDelta> deltas = new ArrayList<>();
+        synchronized (replanLock) {
+            int solved = 0;
+            Partition partition;
+            while ((partition = dirty.poll()) != null) {
+                synchronized (partition) {
+                    partition.dirty = false;
+                    partition.solve(strategy, tolerance, deltas);
+                }
+                solved++;
+            }
+            replans.increment();
+            partitionsSolved.add(solved);
+        }
+        if (!deltas.isEmpty()) {
+            deltasPublished.add(deltas.size());
+            for (AllocationListener listener : listeners) {
+                try {
+                    listener.allocationsChanged(deltas);
+                } catch (RuntimeException e) {
+                    // Un oyente que falla no debe impedir que los demás reciban los cambios
+                    e.printStackTrace();
+                }
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * Obtiene la asignación de un destinatario según la última planificación
+     * @param recipientId El ID del destinatario
+     * @return El agua asignada, o 0 si el destinatario no existe
+     */
+    public double getAllocation(int recipientId) {
+        Partition partition = recipientPartitions.get(recipientId);
+        if (partition == null) {
+            return 0;
+        }
+        synchronized (partition) {
+            Integer slot = partition.slots.get(recipientId);
+            return slot == null ? 0 : partition.allocations[slot];
+        }
+    }
+
+    /**
+     * Obtiene el agua disponible de una región según los últimos niveles recibidos
+     * @param region La región
+     * @return La suma de los niveles de sus fuentes
+     */
+    public double getAvailable(String region) {
+        Partition partition = partitions.get(region);
+        if (partition == null) {
+            return 0;
+        }
+        synchronized (partition) {
+            return partition.available();
+        }
+    }
+
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    public long getReplans() {
+        return replans.sum();
+    }
+
+    public long getPartitionsSolved() {
+        return partitionsSolved.sum();
+    }
+
+    public long getDeltasPublished() {
+        return deltasPublished.sum();
+    }
+
+    @Override
+    public void update(WaterSource source, double currentLevel) {
+        String region = regionOf.apply(source);
+        if (region == null) {
+            return;
+        }
+        Partition target = partition(region);
+        Partition previous = sourcePartitions.put(source.getId(), target);
+        if (previous != null && previous != target) {
+            synchronized (previous) {
+                if (previous.sourceLevels.remove(source.getId()) != null) {
+                    markDirty(previous);
+                }
+            }
+        }
+        double level = Math.max(0, currentLevel);
+        synchronized (target) {
+            Double old = target.sourceLevels.put(source.getId(), level);
+            if (old == null || old != level) {
+                markDirty(target);
+            }
+        }
+    }
+
+    @Override
+    public void update(Alert alert) {
+        // Las alertas no cambian la distribución
+    }
+
+    private void runScheduledReplan() {
+        try {
+            replan();
+        } catch (RuntimeException e) {
+            // Una planificación fallida no debe cancelar las siguientes
+            e.printStackTrace();
+        }
+    }
+
+    private Partition partition(String region) {
+        return partitions.computeIfAbsent(region, Partition::new);
+    }
+
+    /**
+     * Encola una partición la primera vez que cambia desde la última planificación; se llama con su bloqueo tomado
+     */
+    private void markDirty(Partition partition) {
+        if (!partition.dirty) {
+            partition.dirty = true;
+            dirty.offer(partition);
+        }
+    }
+
+    /**
+     * Estado de una región: los niveles de sus fuentes y la demanda y asignación de sus
+     * destinatarios en arreglos primitivos. Se accede con su propio bloqueo.
+     */
+    private static final class Partition {
+
+        final String region;
+        final Map<Integer, Double> sourceLevels = new HashMap<>();
+        final Map<Integer, Integer> slots = new HashMap<>();
+        final List<AllocationDelta> removed = new ArrayList<>();
+        int[] ids = new int[8];
+        double[] demand = new double[8];
+        // Últimas asignaciones publicadas a los oyentes
+        double[] allocations = new double[8];
+        double[] next = new double[8];
+        int count;
+        boolean dirty;
+
+        Partition(String region) {
+            this.region = region;
+        }
+
+        double available() {
+            double total = 0;
+            for (double level : sourceLevels.values()) {
+                total += level;
+            }
+            return total;
+        }
+
+        /**
+         * @return true si la demanda cambió
+         */
+        boolean setDemand(int recipientId, double value) {
+            Integer slot = slots.get(recipientId);
+            if (slot != null) {
+                if (demand[slot] == value) {
+                    return false;
+                }
+                demand[slot] = value;
+                return true;
+            }
+            if (count == ids.length) {
+                int length = count * 2;
+                ids = Arrays.copyOf(ids, length);
+                demand = Arrays.copyOf(demand, length);
+                allocations = Arrays.copyOf(allocations, length);
+                next = new double[length];
+            }
+            ids[count] = recipientId;
+            demand[count] = value;
+            allocations[count] = 0;
+            slots.put(recipientId, count);
+            count++;
+            return true;
+        }
+
+        /**
+         * Quita un destinatario moviendo el último a su lugar
+         * @return true si el destinatario estaba en la partición
+         */
+        boolean removeRecipient(int recipientId) {
+            Integer slot = slots.remove(recipientId);
+            if (slot == null) {
+                return false;
+            }
+            if (allocations[slot] != 0) {
+                removed.add(new AllocationDelta(recipientId, region, allocations[slot], 0));
+            }
+            int last = --count;
+            if (slot != last) {
+                ids[slot] = ids[last];
+                demand[slot] = demand[last];
+                allocations[slot] = allocations[last];
+                slots.put(ids[slot], slot);
+            }
+            return true;
+        }
+
+        void solve(IndexedDistributionStrategy strategy, double tolerance, List<AllocationDelta> deltas) {
+            deltas.addAll(removed);
+            removed.clear();
+            if (count == 0) {
+                return;
+            }
+            strategy.distribute(available(), demand, 0, count, next);
+            for (int slot = 0; slot < count; slot++) {
+                if (Math.abs(next[slot] - allocations[slot]) > tolerance) {
+                    deltas.add(new AllocationDelta(ids[slot], region, allocations[slot], next[slot]));
+                } else {
+                    // Se conserva el último valor publicado, de modo que los pasos pequeños se
+                    // acumulan hasta superar la tolerancia en lugar de desviarse sin aviso
+                    next[slot] = allocations[slot];
+                }
+            }
+            double[] swap = allocations;
+            allocations = next;
+            next = swap;
+        }
+    }
+}
@@ -1,14 +1,13 @@
 package com.aqua.distribution;
 
 import com.aqua.domain.WaterSource;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Implementación de la estrategia de distribución equitativa.
  * Esta estrategia distribuye el agua de manera igual entre todos los destinatarios.
  */
-public class EquitableDistributionStrategy implements DistributionStrategy {
+public class EquitableDistributionStrategy implements DistributionStrategy, IndexedDistributionStrategy {
     
     /**
      * Distribuye el agua de manera equitativa entre todos los destinatarios
@@ -18,19 +17,21 @@ public class EquitableDistributionStrategy implements DistributionStrategy {
      */
     @Override
     public Map<String, Double> distribute(WaterSource source, Map<String, Double> allocationData) {
-        if (source == null || allocationData == null || allocationData.isEmpty()) {
-            throw new IllegalArgumentException("La fuente de agua y los datos de asignación no pueden ser nulos o vacíos");
+        return MapDistributionAdapter.distribute(this, source, allocationData);
+    }
+
+    /**
+     * Asigna a cada destinatario del tramo la misma parte del agua disponible
+     */
+    @Override
+    public void distribute(double available, double[] demand, int offset, int length, double[] allocations) {
+        IndexedDistributionStrategy.checkRange(demand, offset, length, allocations);
+        if (length == 0) {
+            return;
         }
-        
-        double availableWater = source.getCurrentLevel();
-        int recipients = allocationData.size();
-        double amountPerRecipient = availableWater / recipients;
-        
-        Map<String, Double> result = new HashMap<>();
-        for (Map.Entry<String, Double> entry : allocationData.entrySet()) {
-            result.put(entry.getKey(), amountPerRecipient);
+        double amountPerRecipient = available / length;
+        for (int i = offset; i < offset + length; i++) {
+            allocations[i] = amountPerRecipient;
         }
-        
-        return result;
     }
-} 
\ No newline at end of file
+}
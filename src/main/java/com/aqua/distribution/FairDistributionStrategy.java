@@ -8,7 +8,12 @@ import java.util.Map;
  * Implementación de la estrategia de distribución justa.
  * Esta estrategia distribuye el agua considerando tanto las necesidades como la capacidad de cada destinatario.
  */
-public class FairDistributionStrategy implements DistributionStrategy {
+public class FairDistributionStrategy implements DistributionStrategy, IndexedDistributionStrategy {
+
+    /**
+     * Fracción del agua disponible garantizada a cada destinatario, si su necesidad lo permite
+     */
+    private static final double MINIMUM_SHARE = 0.1;
     
     /**
      * Distribuye el agua de manera justa considerando necesidades y capacidades
@@ -18,35 +23,52 @@ public class FairDistributionStrategy implements DistributionStrategy {
      */
     @Override
     public Map<String, Double> distribute(WaterSource source, Map<String, Double> allocationData) {
-        if (source == null || allocationData == null || allocationData.isEmpty()) {
-            throw new IllegalArgumentException("La fuente de agua y los datos de asignación no pueden ser nulos o vacíos");
+        if (source != null && allocationData != null && !allocationData.isEmpty() && source.getCurrentLevel() <= 0) {
+            // Si no hay agua disponible, retornar distribución vacía
+            return new HashMap<>();
         }
-        
-        double availableWater = source.getCurrentLevel();
-        Map<String, Double> result = new HashMap<>();
-        
-        // Calcular el total de necesidades
-        double totalNeeds = allocationData.values().stream()
-                .mapToDouble(Double::doubleValue)
-                .sum();
-        
-        // Si no hay agua disponible, retornar distribución vacía
-        if (availableWater <= 0) {
-            return result;
+        return MapDistributionAdapter.distribute(this, source, allocationData);
+    }
+
+    /**
+     * Distribuye el agua del tramo proporcionalmente a las necesidades, garantizando a cada
+     * destinatario un mínimo. El mínimo es el 10% del agua disponible, pero nunca más que su
+     * necesidad ni más que una parte igual del agua, de modo que la suma de los mínimos no supera
+     * el agua disponible; el resto se reparte en proporción a lo que a cada uno le falta.
+     */
+    @Override
+    public void distribute(double available, double[] demand, int offset, int length, double[] allocations) {
+        IndexedDistributionStrategy.checkRange(demand, offset, length, allocations);
+        int end = offset + length;
+        if (available <= 0) {
+            for (int i = offset; i < end; i++) {
+                allocations[i] = 0;
+            }
+            return;
         }
         
-        // Distribuir el agua proporcionalmente a las necesidades
-        for (Map.Entry<String, Double> entry : allocationData.entrySet()) {
-            double need = entry.getValue();
-            double proportion = need / totalNeeds;
-            double amount = availableWater * proportion;
-            
-            // Asegurar que cada destinatario reciba al menos un mínimo
-            amount = Math.max(amount, availableWater * 0.1); // Mínimo 10% del agua disponible
-            
-            result.put(entry.getKey(), amount);
+        // Asegurar que cada destinatario reciba al menos un mínimo, sin exceder el agua disponible
+        double minimum = Math.min(available * MINIMUM_SHARE, available / length);
+        double assigned = 0;
+        double remainingNeeds = 0;
+        for (int i = offset; i < end; i++) {
+            double need = Math.max(0, demand[i]);
+            allocations[i] = Math.min(need, minimum);
+            assigned += allocations[i];
+            remainingNeeds += need - allocations[i];
         }
         
-        return result;
+        // Distribuir el resto proporcionalmente a las necesidades pendientes
+        double remainingWater = available - assigned;
+        if (remainingWater <= 0 || remainingNeeds <= 0) {
+            return;
+        }
+        double ratio = Math.min(1, Math.nextDown(remainingWater / remainingNeeds));
+        for (int i = offset; i < end && remainingWater > 0; i++) {
+            double pending = Math.max(0, demand[i]) - allocations[i];
+            double share = Math.min(pending * ratio, remainingWater);
+            allocations[i] += share;
+            remainingWater -= share;
+        }
     }
-} 
\ No newline at end of file
+}
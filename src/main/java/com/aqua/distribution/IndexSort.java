@@ -0,0 +1,95 @@
+package com.aqua.distribution;
+
+/**
+ * Ordenamiento estable de posiciones por una clave {@code double}, sin encapsular valores.
+ * Ordena por inserción tramos cortos y después los mezcla de a pares sobre arreglos de enteros
+ * reutilizados por hilo.
+ */
+final class IndexSort {
+
+    private static final int INSERTION_RUN = 16;
+    private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[][] {new int[0], new int[0]});
+    private static final ThreadLocal<double[][]> KEYS = ThreadLocal.withInitial(() -> new double[][] {new double[0]});
+
+    private IndexSort() {
+    }
+
+    /**
+     * Obtiene un arreglo de claves del hilo con al menos el largo indicado
+     * @param length El largo mínimo
+     * @return Arreglo reutilizado; su contenido es indefinido
+     */
+    static double[] keys(int length) {
+        double[][] holder = KEYS.get();
+        if (holder[0].length < length) {
+            holder[0] = new double[Math.max(length, holder[0].length * 2)];
+        }
+        return holder[0];
+    }
+
+    /**
+     * Ordena las posiciones {@code [offset, offset + length)} por su clave; a igual clave se
+     * conserva el orden de las posiciones
+     * @param keys Las claves, indexadas por posición
+     * @param offset La primera posición
+     * @param length El número de posiciones
+     * @param descending true para ordenar de mayor a menor clave
+     * @return Arreglo reutilizado del hilo cuyas primeras {@code length} posiciones son el orden
+     */
+    static int[] sort(double[] keys, int offset, int length, boolean descending) {
+        int[][] scratch = SCRATCH.get();
+        if (scratch[0].length < length) {
+            int size = Math.max(length, scratch[0].length * 2);
+            scratch[0] = new int[size];
+            scratch[1] = new int[size];
+        }
+        int[] order = scratch[0];
+        int[] buffer = scratch[1];
+        for (int k = 0; k < length; k++) {
+            order[k] = offset + k;
+        }
+        for (int low = 0; low < length; low += INSERTION_RUN) {
+            int high = Math.min(low + INSERTION_RUN, length);
+            for (int k = low + 1; k < high; k++) {
+                int index = order[k];
+                double key = keys[index];
+                int j = k - 1;
+                while (j >= low && before(key, keys[order[j]], descending)) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = index;
+            }
+        }
+        for (int width = INSERTION_RUN; width < length; width *= 2) {
+            for (int low = 0; low < length - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, length);
+                if (!before(keys[order[middle]], keys[order[middle - 1]], descending)) {
+                    continue; // Las dos mitades ya están en orden
+                }
+                int left = low;
+                int right = middle;
+                int out = low;
+                while (left < middle && right < high) {
+                    buffer[out++] = before(keys[order[right]], keys[order[left]], descending) ? order[right++] : order[left++];
+                }
+                while (left < middle) {
+                    buffer[out++] = order[left++];
+                }
+                while (right < high) {
+                    buffer[out++] = order[right++];
+                }
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Indica si una clave va estrictamente antes que otra
+     */
+    private static boolean before(double key, double other, boolean descending) {
+        return descending ? key > other : key < other;
+    }
+}
@@ -0,0 +1,42 @@
+package com.aqua.distribution;
+
+/**
+ * Contrato de las estrategias de distribución sobre arreglos primitivos.
+ * Los destinatarios se identifican por su posición: la demanda se lee de un tramo de un arreglo
+ * y las asignaciones se escriben en el mismo tramo de un arreglo del llamador, de modo que
+ * distribuir no crea mapas, no encapsula valores y, en régimen estable, no reserva memoria.
+ */
+public interface IndexedDistributionStrategy {
+
+    /**
+     * Distribuye el agua entre los destinatarios de un tramo
+     * @param available El agua disponible
+     * @param demand La demanda (o prioridad, según la estrategia) de cada destinatario
+     * @param offset La primera posición del tramo
+     * @param length El número de destinatarios del tramo
+     * @param allocations El arreglo donde se escribe la asignación de cada destinatario, en las mismas posiciones
+     */
+    void distribute(double available, double[] demand, int offset, int length, double[] allocations);
+
+    /**
+     * Distribuye el agua entre todos los destinatarios del arreglo
+     * @param available El agua disponible
+     * @param demand La demanda de cada destinatario
+     * @param allocations El arreglo donde se escriben las asignaciones, del mismo largo que la demanda
+     */
+    default void distribute(double available, double[] demand, double[] allocations) {
+        distribute(available, demand, 0, demand.length, allocations);
+    }
+
+    /**
+     * Valida los argumentos comunes de una distribución por tramo
+     */
+    static void checkRange(double[] demand, int offset, int length, double[] allocations) {
+        if (demand == null || allocations == null) {
+            throw new IllegalArgumentException("Los arreglos de demanda y asignación no pueden ser nulos");
+        }
+        if (offset < 0 || length < 0 || offset + length > demand.length || offset + length > allocations.length) {
+            throw new IndexOutOfBoundsException("Tramo fuera de rango: " + offset + "+" + length);
+        }
+    }
+}
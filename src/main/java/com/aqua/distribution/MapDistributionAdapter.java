@@ -0,0 +1,38 @@
+package com.aqua.distribution;
+
+import com.aqua.domain.WaterSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aplica una estrategia por posiciones a los datos de asignación en forma de mapa,
+ * respetando el orden de iteración del mapa
+ */
+final class MapDistributionAdapter {
+
+    private MapDistributionAdapter() {
+    }
+
+    static Map<String, Double> distribute(IndexedDistributionStrategy strategy, WaterSource source,
+            Map<String, Double> allocationData) {
+        if (source == null || allocationData == null || allocationData.isEmpty()) {
+            throw new IllegalArgumentException("La fuente de agua y los datos de asignación no pueden ser nulos o vacíos");
+        }
+        int n = allocationData.size();
+        String[] keys = new String[n];
+        double[] demand = new double[n];
+        int i = 0;
+        for (Map.Entry<String, Double> entry : allocationData.entrySet()) {
+            keys[i] = entry.getKey();
+            demand[i] = entry.getValue();
+            i++;
+        }
+        double[] allocations = new double[n];
+        strategy.distribute(source.getCurrentLevel(), demand, 0, n, allocations);
+        Map<String, Double> result = new HashMap<>();
+        for (i = 0; i < n; i++) {
+            result.put(keys[i], allocations[i]);
+        }
+        return result;
+    }
+}
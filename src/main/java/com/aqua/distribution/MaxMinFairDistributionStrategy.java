@@ -0,0 +1,30 @@
+package com.aqua.distribution;
+
+import com.aqua.domain.WaterSource;
+import java.util.Map;
+
+/**
+ * Implementación de la estrategia de distribución max-min justa.
+ * Ningún destinatario recibe más de lo que demanda, los que demandan poco quedan satisfechos y
+ * el agua restante se reparte en partes iguales entre los demás. Nunca se asigna más agua de la
+ * disponible. Ver {@link WaterFilling}.
+ */
+public class MaxMinFairDistributionStrategy implements DistributionStrategy, IndexedDistributionStrategy {
+
+    /**
+     * Distribuye el agua de forma max-min justa según la demanda de cada destinatario
+     * @param source La fuente de agua desde la cual distribuir
+     * @param allocationData Mapa con la demanda de cada destinatario
+     * @return Mapa que contiene las cantidades reales de distribución
+     */
+    @Override
+    public Map<String, Double> distribute(WaterSource source, Map<String, Double> allocationData) {
+        return MapDistributionAdapter.distribute(this, source, allocationData);
+    }
+
+    @Override
+    public void distribute(double available, double[] demand, int offset, int length, double[] allocations) {
+        IndexedDistributionStrategy.checkRange(demand, offset, length, allocations);
+        WaterFilling.solve(available, demand, null, offset, length, allocations);
+    }
+}
@@ -0,0 +1,32 @@
+package com.aqua.distribution;
+
+import com.aqua.domain.WaterSource;
+
+/**
+ * Fuente de agua sintética que representa el agua disponible de todas las fuentes de una región,
+ * para aplicar las estrategias existentes a una partición. Se reutiliza entre particiones.
+ */
+final class PooledWaterSource extends WaterSource {
+
+    static final String TYPE = "POOL";
+
+    PooledWaterSource() {
+        super(-1, TYPE, 0, null, null);
+    }
+
+    /**
+     * Prepara la fuente para una partición
+     * @param region La región de la partición
+     * @param available El agua disponible de la región
+     */
+    void reset(String region, double available) {
+        setLocation(region);
+        setCapacity(available);
+        setCurrentLevel(available);
+    }
+
+    @Override
+    public void updateQuality(String quality) {
+        setQuality(quality);
+    }
+}
@@ -1,16 +1,15 @@
 package com.aqua.distribution;
 
 import com.aqua.domain.WaterSource;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * Implementación de la estrategia de distribución por prioridad.
  * Esta estrategia distribuye el agua según las prioridades asignadas a cada destinatario.
+ * Los destinatarios se ordenan por posición con {@link IndexSort}, sin copiar ni encapsular las entradas.
  */
-public class PriorityDistributionStrategy implements DistributionStrategy {
+public class PriorityDistributionStrategy implements DistributionStrategy, IndexedDistributionStrategy {
+
     
     /**
      * Distribuye el agua según las prioridades de cada destinatario
@@ -20,30 +19,25 @@ public class PriorityDistributionStrategy implements DistributionStrategy {
      */
     @Override
     public Map<String, Double> distribute(WaterSource source, Map<String, Double> allocationData) {
-        if (source == null || allocationData == null || allocationData.isEmpty()) {
-            throw new IllegalArgumentException("La fuente de agua y los datos de asignación no pueden ser nulos o vacíos");
-        }
-        
-        double availableWater = source.getCurrentLevel();
-        Map<String, Double> result = new HashMap<>();
-        
-        // Ordenar los destinatarios por prioridad (mayor a menor)
-        List<Map.Entry<String, Double>> sortedEntries = new ArrayList<>(allocationData.entrySet());
-        sortedEntries.sort((e1, e2) -> Double.compare(e2.getValue(), e1.getValue()));
+        return MapDistributionAdapter.distribute(this, source, allocationData);
+    }
+
+    /**
+     * Recorre el tramo de mayor a menor prioridad asignando a cada destinatario hasta su prioridad
+     * mientras quede agua; a igual prioridad se atiende primero la posición menor
+     */
+    @Override
+    public void distribute(double available, double[] demand, int offset, int length, double[] allocations) {
+        IndexedDistributionStrategy.checkRange(demand, offset, length, allocations);
+        int[] order = IndexSort.sort(demand, offset, length, true);
         
         // Distribuir el agua según las prioridades
-        double remainingWater = availableWater;
-        for (Map.Entry<String, Double> entry : sortedEntries) {
-            double priority = entry.getValue();
-            double amount = Math.min(remainingWater, priority);
-            result.put(entry.getKey(), amount);
+        double remainingWater = available;
+        for (int k = 0; k < length; k++) {
+            int i = order[k];
+            double amount = remainingWater > 0 ? Math.min(remainingWater, demand[i]) : 0;
+            allocations[i] = amount;
             remainingWater -= amount;
-            
-            if (remainingWater <= 0) {
-                break;
-            }
         }
-        
-        return result;
     }
-} 
\ No newline at end of file
+}
@@ -1,7 +1,8 @@
 package com.aqua.distribution;
 
 import com.aqua.domain.WaterSource;
-import java.util.List;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
 import java.util.Map;
 
 /**
@@ -9,6 +10,11 @@ import java.util.Map;
  * Implementa el patrón Strategy para permitir diferentes estrategias de distribución.
  */
 public class WaterDistributor {
+
+    private static final Timer DISTRIBUTE_TIMER = MetricsRegistry.global()
+        .timer("distribution_distribute", "Tiempo de distribución de una fuente");
+    private static final Timer BATCH_TIMER = MetricsRegistry.global()
+        .timer("distribution_batch", "Tiempo de distribución de un lote por regiones");
     
     private DistributionStrategy strategy;
 
@@ -43,17 +49,40 @@ public class WaterDistributor {
         if (allocationData == null) {
             throw new IllegalArgumentException("Los datos de asignación no pueden ser nulos");
         }
-        return strategy.distribute(source, allocationData);
+        long start = DISTRIBUTE_TIMER.start();
+        try {
+            return strategy.distribute(source, allocationData);
+        } finally {
+            DISTRIBUTE_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Distribuye el agua de un lote de fuentes y destinatarios, resolviendo cada región en paralelo
+     * con la estrategia actual
+     * @param batch El lote de fuentes y destinatarios agrupados por región
+     * @return Las asignaciones por destinatario y lo extraído por fuente
+     */
+    public DistributionResult distributeWater(DistributionBatch batch) {
+        long start = BATCH_TIMER.start();
+        try {
+            return new BatchDistributionEngine(strategy).solve(batch);
+        } finally {
+            BATCH_TIMER.stop(start);
+        }
     }
 
     /**
      * Calcula la cantidad total de agua disponible para distribuir
-     * @param sources Lista de fuentes de agua
+     * @param sources Las fuentes de agua, por ejemplo una versión de la flota ({@code FleetSnapshot})
+     *                para sumar los niveles de un mismo instante
      * @return La cantidad total de agua disponible
      */
-    public double calculateAvailableWater(List<WaterSource> sources) {
-        return sources.stream()
-                .mapToDouble(WaterSource::getCurrentLevel)
-                .sum();
+    public double calculateAvailableWater(Iterable<? extends WaterSource> sources) {
+        double available = 0;
+        for (WaterSource source : sources) {
+            available += source.getCurrentLevel();
+        }
+        return available;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.aqua.distribution;
+
+/**
+ * Asignación max-min justa ponderada por llenado progresivo ("water-filling").
+ * Se sube un nivel común λ: cada destinatario recibe {@code min(demanda, λ · peso)}, y λ es el
+ * mayor valor con el que la suma de las asignaciones no supera el agua disponible. Ordenando a los
+ * destinatarios por el nivel en que quedan satisfechos ({@code demanda / peso}) el nivel se
+ * encuentra en un solo recorrido, con costo total O(n log n).
+ *
+ * <p>Por construcción la suma de las asignaciones es a lo sumo el agua disponible: los
+ * satisfechos reciben su demanda y el resto comparte exactamente lo que queda. λ se reduce en el
+ * error relativo máximo de sumar {@code n} términos en punto flotante, para que el redondeo no
+ * convierta la asignación en un exceso.</p>
+ */
+final class WaterFilling {
+
+    private WaterFilling() {
+    }
+
+    /**
+     * Resuelve la asignación de un tramo
+     * @param available El agua disponible
+     * @param demand La demanda de cada destinatario
+     * @param weights El peso de cada destinatario, o null para pesos iguales; un peso no positivo no recibe agua
+     * @param offset La primera posición del tramo
+     * @param length El número de destinatarios
+     * @param allocations El arreglo donde se escriben las asignaciones
+     * @return El nivel λ, o infinito si alcanza para satisfacer todas las demandas
+     */
+    static double solve(double available, double[] demand, double[] weights, int offset, int length,
+            double[] allocations) {
+        double[] keys = IndexSort.keys(length);
+        double totalWeight = 0;
+        for (int k = 0; k < length; k++) {
+            double weight = weightAt(weights, offset + k);
+            keys[k] = weight > 0 ? demandAt(demand, offset + k) / weight : Double.POSITIVE_INFINITY;
+            if (weight > 0) {
+                totalWeight += weight;
+            }
+        }
+        int[] order = IndexSort.sort(keys, 0, length, false);
+
+        double level = Double.POSITIVE_INFINITY;
+        double satisfied = 0;
+        for (int k = 0; k < length && totalWeight > 0; k++) {
+            int position = offset + order[k];
+            double weight = weightAt(weights, position);
+            double key = keys[order[k]];
+            if (satisfied + key * totalWeight >= available) {
+                level = bound((available - satisfied) / totalWeight, length);
+                break;
+            }
+            satisfied += demandAt(demand, position);
+            totalWeight -= weight;
+        }
+        if (available <= 0) {
+            level = 0;
+        }
+
+        for (int position = offset; position < offset + length; position++) {
+            allocations[position] = allocation(demandAt(demand, position), weightAt(weights, position), level);
+        }
+        return level;
+    }
+
+    /**
+     * Calcula la asignación de un destinatario para un nivel
+     */
+    static double allocation(double demand, double weight, double level) {
+        if (weight <= 0) {
+            return 0;
+        }
+        return level == Double.POSITIVE_INFINITY ? demand : Math.min(demand, level * weight);
+    }
+
+    /**
+     * Reduce el nivel en el error relativo de una suma de {@code count} términos y lo limita a
+     * valores no negativos
+     */
+    static double bound(double level, int count) {
+        return level > 0 ? Math.nextDown(level * (1 - Math.ulp(1.0) * Math.max(count, 1))) : 0;
+    }
+
+    private static double demandAt(double[] demand, int position) {
+        return Math.max(0, demand[position]);
+    }
+
+    private static double weightAt(double[] weights, int position) {
+        return weights == null ? 1 : weights[position];
+    }
+}
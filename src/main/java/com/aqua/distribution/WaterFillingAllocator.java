@@ -0,0 +1,314 @@
+package com.aqua.distribution;
+
+import java.util.Arrays;
+
+/**
+ * Asignación max-min justa ponderada que se mantiene al cambiar la demanda o el peso de un
+ * destinatario, sin volver a resolver todo el problema.
+ * Los destinatarios se guardan ordenados por el nivel en que quedan satisfechos
+ * ({@code demanda / peso}), con sumas prefijas de demanda y peso en árboles de Fenwick sobre
+ * ese orden. Un cambio reubica al destinatario con una búsqueda binaria y desplaza solo las
+ * posiciones entre su lugar anterior y el nuevo; el nivel λ se vuelve a encontrar con una
+ * búsqueda binaria sobre las sumas prefijas, en O(log² n). Las asignaciones no se escriben:
+ * cada una se calcula en O(1) a partir de λ.
+ *
+ * <p>Las sumas se recalculan desde cero cada {@code n} actualizaciones para que el error de
+ * redondeo acumulado no crezca; entre recálculos la suma de las asignaciones puede superar el agua
+ * disponible solo en ese error. No es seguro para hilos.</p>
+ */
+public class WaterFillingAllocator {
+
+    private final int size;
+    private final double[] demand;
+    private final double[] weight;
+    private final double[] key;
+    private final int[] sorted;
+    private final int[] rank;
+    private final double[] demandTree;
+    private final double[] weightTree;
+    private double totalWeight;
+    private double available;
+    private double level;
+    private int updatesSinceRebuild;
+
+    /**
+     * Constructor que resuelve la asignación inicial en O(n log n)
+     * @param available El agua disponible
+     * @param demand La demanda de cada destinatario
+     * @param weights El peso de cada destinatario, o null para pesos iguales
+     */
+    public WaterFillingAllocator(double available, double[] demand, double[] weights) {
+        if (demand == null) {
+            throw new IllegalArgumentException("La demanda no puede ser nula");
+        }
+        if (weights != null && weights.length != demand.length) {
+            throw new IllegalArgumentException("Los pesos deben tener el mismo largo que la demanda");
+        }
+        this.size = demand.length;
+        this.demand = demand.clone();
+        this.weight = weights == null ? filled(size, 1) : weights.clone();
+        this.key = new double[size];
+        for (int i = 0; i < size; i++) {
+            key[i] = keyOf(i);
+        }
+        this.sorted = Arrays.copyOf(IndexSort.sort(key, 0, size, false), size);
+        this.rank = new int[size];
+        for (int position = 0; position < size; position++) {
+            rank[sorted[position]] = position;
+        }
+        this.demandTree = new double[size + 1];
+        this.weightTree = new double[size + 1];
+        this.available = available;
+        rebuild();
+    }
+
+    /**
+     * Cambia la demanda de un destinatario y actualiza el nivel
+     * @param recipient La posición del destinatario
+     * @param newDemand La nueva demanda
+     */
+    public void setDemand(int recipient, double newDemand) {
+        checkRecipient(recipient);
+        reposition(recipient, newDemand, weight[recipient]);
+    }
+
+    /**
+     * Cambia el peso de un destinatario y actualiza el nivel
+     * @param recipient La posición del destinatario
+     * @param newWeight El nuevo peso
+     */
+    public void setWeight(int recipient, double newWeight) {
+        checkRecipient(recipient);
+        reposition(recipient, demand[recipient], newWeight);
+    }
+
+    /**
+     * Cambia el agua disponible y actualiza el nivel en O(log² n)
+     * @param newAvailable El agua disponible
+     */
+    public void setAvailable(double newAvailable) {
+        this.available = newAvailable;
+        solveLevel();
+    }
+
+    /**
+     * Obtiene la asignación actual de un destinatario
+     * @param recipient La posición del destinatario
+     * @return El agua asignada
+     */
+    public double getAllocation(int recipient) {
+        checkRecipient(recipient);
+        return WaterFilling.allocation(Math.max(0, demand[recipient]), weight[recipient], level);
+    }
+
+    /**
+     * Copia todas las asignaciones en un arreglo del llamador
+     * @param allocations El arreglo destino, con al menos {@link #size()} posiciones
+     */
+    public void copyAllocations(double[] allocations) {
+        for (int i = 0; i < size; i++) {
+            allocations[i] = WaterFilling.allocation(Math.max(0, demand[i]), weight[i], level);
+        }
+    }
+
+    /**
+     * Obtiene el nivel común λ de la asignación
+     * @return El nivel, o infinito si todas las demandas quedan satisfechas
+     */
+    public double getLevel() {
+        return level;
+    }
+
+    public double getAvailable() {
+        return available;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void reposition(int recipient, double newDemand, double newWeight) {
+        int from = rank[recipient];
+        // Retirar la contribución anterior antes de mover al destinatario
+        add(from, -demandContribution(recipient), -weightContribution(recipient));
+        demand[recipient] = newDemand;
+        weight[recipient] = newWeight;
+        double newKey = keyOf(recipient);
+        key[recipient] = newKey;
+
+        int to = from;
+        if (from > 0 && newKey < key[sorted[from - 1]]) {
+            to = firstAbove(0, from, newKey);
+            shift(to, from, 1);
+        } else if (from < size - 1 && newKey > key[sorted[from + 1]]) {
+            to = firstAbove(from + 1, size, newKey) - 1;
+            shift(from + 1, to + 1, -1);
+        }
+        sorted[to] = recipient;
+        rank[recipient] = to;
+        add(to, demandContribution(recipient), weightContribution(recipient));
+        totalWeight = prefixWeight(size);
+
+        if (++updatesSinceRebuild >= Math.max(size, 1)) {
+            rebuild();
+        } else {
+            solveLevel();
+        }
+    }
+
+    /**
+     * Desplaza una posición las entradas de {@code [from, to)} en la dirección indicada,
+     * moviendo también sus contribuciones en las sumas prefijas
+     */
+    private void shift(int from, int to, int direction) {
+        if (direction > 0) {
+            for (int position = to - 1; position >= from; position--) {
+                move(position, position + 1);
+            }
+        } else {
+            for (int position = from; position < to; position++) {
+                move(position, position - 1);
+            }
+        }
+    }
+
+    private void move(int from, int to) {
+        int recipient = sorted[from];
+        double demandValue = demandContribution(recipient);
+        double weightValue = weightContribution(recipient);
+        add(from, -demandValue, -weightValue);
+        add(to, demandValue, weightValue);
+        sorted[to] = recipient;
+        rank[recipient] = to;
+    }
+
+    /**
+     * Busca la primera posición de {@code [low, high)} cuya clave es mayor que la indicada
+     */
+    private int firstAbove(int low, int high, double value) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key[sorted[middle]] > value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Recalcula las sumas prefijas en O(n) y el nivel
+     */
+    private void rebuild() {
+        Arrays.fill(demandTree, 0);
+        Arrays.fill(weightTree, 0);
+        for (int position = 0; position < size; position++) {
+            int node = position + 1;
+            demandTree[node] += demandContribution(sorted[position]);
+            weightTree[node] += weightContribution(sorted[position]);
+            int parent = node + (node & -node);
+            if (parent <= size) {
+                demandTree[parent] += demandTree[node];
+                weightTree[parent] += weightTree[node];
+            }
+        }
+        totalWeight = prefixWeight(size);
+        updatesSinceRebuild = 0;
+        solveLevel();
+    }
+
+    /**
+     * Busca la primera posición en que el agua asignada con λ igual a su clave alcanza el agua
+     * disponible; esa función es creciente en la posición, así que basta una búsqueda binaria
+     */
+    private void solveLevel() {
+        if (available <= 0) {
+            level = 0;
+            return;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (allocatedAt(middle) >= available) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        if (low == size) {
+            level = Double.POSITIVE_INFINITY;
+            return;
+        }
+        double remainingWeight = totalWeight - prefixWeight(low);
+        level = remainingWeight > 0
+            ? WaterFilling.bound((available - prefixDemand(low)) / remainingWeight, size)
+            : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calcula el agua asignada si λ fuera la clave de la posición indicada
+     */
+    private double allocatedAt(int position) {
+        double satisfied = prefixDemand(position);
+        double remainingWeight = totalWeight - prefixWeight(position);
+        if (remainingWeight <= 0) {
+            return satisfied;
+        }
+        return satisfied + key[sorted[position]] * remainingWeight;
+    }
+
+    private void add(int position, double demandDelta, double weightDelta) {
+        for (int node = position + 1; node <= size; node += node & -node) {
+            demandTree[node] += demandDelta;
+            weightTree[node] += weightDelta;
+        }
+    }
+
+    /**
+     * Suma de las demandas de las posiciones {@code [0, position)}
+     */
+    private double prefixDemand(int position) {
+        double sum = 0;
+        for (int node = position; node > 0; node -= node & -node) {
+            sum += demandTree[node];
+        }
+        return sum;
+    }
+
+    /**
+     * Suma de los pesos de las posiciones {@code [0, position)}
+     */
+    private double prefixWeight(int position) {
+        double sum = 0;
+        for (int node = position; node > 0; node -= node & -node) {
+            sum += weightTree[node];
+        }
+        return sum;
+    }
+
+    private double keyOf(int recipient) {
+        return weight[recipient] > 0 ? Math.max(0, demand[recipient]) / weight[recipient] : Double.POSITIVE_INFINITY;
+    }
+
+    private double demandContribution(int recipient) {
+        return weight[recipient] > 0 ? Math.max(0, demand[recipient]) : 0;
+    }
+
+    private double weightContribution(int recipient) {
+        return Math.max(0, weight[recipient]);
+    }
+
+    private void checkRecipient(int recipient) {
+        if (recipient < 0 || recipient >= size) {
+            throw new IndexOutOfBoundsException("Destinatario fuera de rango: " + recipient);
+        }
+    }
+
+    private static double[] filled(int length, double value) {
+        double[] values = new double[length];
+        Arrays.fill(values, value);
+        return values;
+    }
+}
@@ -0,0 +1,65 @@
+package com.aqua.distribution;
+
+import com.aqua.domain.WaterSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implementación de la estrategia de distribución por prioridad ponderada.
+ * Cada destinatario tiene una demanda y un peso de prioridad: el agua se reparte en proporción
+ * a los pesos, sin superar la demanda de nadie, y lo que sobra de los satisfechos se reparte
+ * entre los demás con la misma proporción (max-min justa ponderada). A diferencia de la
+ * prioridad estricta, un destinatario de menor prioridad no se queda sin agua mientras haya
+ * uno de mayor prioridad insatisfecho, y nunca se asigna más agua de la disponible.
+ */
+public class WeightedPriorityDistributionStrategy {
+
+    /**
+     * Distribuye el agua entre los destinatarios de un tramo
+     * @param available El agua disponible
+     * @param demand La demanda de cada destinatario
+     * @param weights El peso de prioridad de cada destinatario; un peso no positivo no recibe agua
+     * @param offset La primera posición del tramo
+     * @param length El número de destinatarios del tramo
+     * @param allocations El arreglo donde se escribe la asignación de cada destinatario
+     */
+    public void distribute(double available, double[] demand, double[] weights, int offset, int length,
+            double[] allocations) {
+        IndexedDistributionStrategy.checkRange(demand, offset, length, allocations);
+        if (weights == null || offset + length > weights.length) {
+            throw new IllegalArgumentException("Los pesos deben cubrir el tramo de destinatarios");
+        }
+        WaterFilling.solve(available, demand, weights, offset, length, allocations);
+    }
+
+    /**
+     * Distribuye el agua de una fuente según demandas y pesos identificados por destinatario
+     * @param source La fuente de agua desde la cual distribuir
+     * @param demand Mapa con la demanda de cada destinatario
+     * @param weights Mapa con el peso de prioridad de cada destinatario; los que falten tienen peso 1
+     * @return Mapa que contiene las cantidades reales de distribución
+     */
+    public Map<String, Double> distribute(WaterSource source, Map<String, Double> demand, Map<String, Double> weights) {
+        if (source == null || demand == null || demand.isEmpty() || weights == null) {
+            throw new IllegalArgumentException("La fuente de agua, las demandas y los pesos no pueden ser nulos o vacíos");
+        }
+        int n = demand.size();
+        String[] keys = new String[n];
+        double[] demandValues = new double[n];
+        double[] weightValues = new double[n];
+        int i = 0;
+        for (Map.Entry<String, Double> entry : demand.entrySet()) {
+            keys[i] = entry.getKey();
+            demandValues[i] = entry.getValue();
+            weightValues[i] = weights.getOrDefault(entry.getKey(), 1.0);
+            i++;
+        }
+        double[] allocations = new double[n];
+        distribute(source.getCurrentLevel(), demandValues, weightValues, 0, n, allocations);
+        Map<String, Double> result = new HashMap<>();
+        for (i = 0; i < n; i++) {
+            result.put(keys[i], allocations[i]);
+        }
+        return result;
+    }
+}
@@ -1,21 +1,41 @@
 package com.aqua.domain;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 /**
  * Clase base que representa una fuente de agua en el sistema.
  * Esta clase contiene atributos y comportamientos comunes para todos los tipos de fuentes de agua.
+ *
+ * <p>El nivel actual admite escrituras concurrentes sin bloqueos: {@link #addToLevel(double)},
+ * {@link #withdraw(double)} y {@link #compareAndSetLevel(double, double)} leen y escriben el nivel
+ * como una sola operación atómica, de modo que varios hilos pueden ajustar la misma fuente sin perder
+ * cambios. El nivel siempre se limita al intervalo entre cero y la capacidad.</p>
+ *
+ * <p>Los cambios se notifican a todos los oyentes registrados con
+ * {@link #addChangeListener(WaterSourceListener)}; registrar un oyente nuevo no desplaza a los demás,
+ * por lo que varios repositorios pueden observar la misma fuente.</p>
  */
 @Getter
 @Setter
 public abstract class WaterSource {
+    private static final VarHandle CURRENT_LEVEL = findLevelHandle();
+    private static final WaterSourceListener[] NO_LISTENERS = new WaterSourceListener[0];
+
     private final int id;
     private final String type;
     private double capacity;
     private String location;
     private String quality;
-    private double currentLevel;
+    private volatile double currentLevel;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile WaterSourceListener[] changeListeners = NO_LISTENERS;
 
     /**
      * Constructor para WaterSource
@@ -45,6 +65,195 @@ public abstract class WaterSource {
     }
 
     public void setCurrentLevel(double currentLevel) {
-        this.currentLevel = Math.max(0, Math.min(currentLevel, capacity));
+        double level = clampLevel(currentLevel);
+        double previous = (double) CURRENT_LEVEL.getAndSet(this, level);
+        if (previous != level) {
+            notifyLevelChanged(previous);
+        }
+    }
+
+    /**
+     * Cambia el nivel solo si todavía es el esperado, como una sola operación atómica
+     * @param expectedLevel El nivel esperado, tal como lo devolvió {@link #getCurrentLevel()}
+     * @param newLevel El nuevo nivel, que se limita al intervalo entre cero y la capacidad
+     * @return true si el nivel era el esperado y se cambió
+     */
+    public boolean compareAndSetLevel(double expectedLevel, double newLevel) {
+        double level = clampLevel(newLevel);
+        if (!CURRENT_LEVEL.compareAndSet(this, expectedLevel, level)) {
+            return false;
+        }
+        if (expectedLevel != level) {
+            notifyLevelChanged(expectedLevel);
+        }
+        return true;
+    }
+
+    /**
+     * Suma una cantidad al nivel sin perder los cambios de otros hilos, reintentando si el nivel
+     * cambió entre la lectura y la escritura
+     * @param delta La cantidad a sumar; negativa para restar
+     * @return El nuevo nivel, limitado al intervalo entre cero y la capacidad
+     */
+    public double addToLevel(double delta) {
+        if (Double.isNaN(delta) || Double.isInfinite(delta)) {
+            throw new IllegalArgumentException("La cantidad a sumar al nivel debe ser un número finito");
+        }
+        while (true) {
+            double current = getCurrentLevel();
+            double level = clampLevel(current + delta);
+            if (level == current || compareAndSetLevel(current, level)) {
+                return level;
+            }
+        }
+    }
+
+    /**
+     * Extrae agua de la fuente sin perder los cambios de otros hilos. Si la fuente no tiene
+     * suficiente agua se extrae lo que haya.
+     * @param amount La cantidad a extraer
+     * @return La cantidad realmente extraída
+     */
+    public double withdraw(double amount) {
+        if (!(amount >= 0) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("La cantidad a extraer debe ser un número finito no negativo");
+        }
+        while (true) {
+            double current = getCurrentLevel();
+            double taken = Math.min(amount, current);
+            if (taken <= 0) {
+                return 0;
+            }
+            if (compareAndSetLevel(current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    /**
+     * Limita un nivel al intervalo entre cero y la capacidad actual
+     * @param level El nivel a limitar
+     * @return El nivel limitado
+     */
+    protected double clampLevel(double level) {
+        return Math.max(0, Math.min(level, getCapacity()));
+    }
+
+    public void setCapacity(double capacity) {
+        double previous = this.capacity;
+        this.capacity = capacity;
+        if (previous != capacity) {
+            notifyCapacityChanged(previous);
+        }
+    }
+
+    public void setQuality(String quality) {
+        String previous = this.quality;
+        this.quality = quality;
+        if (!Objects.equals(previous, quality)) {
+            notifyQualityChanged(previous);
+        }
+    }
+
+    public void setLocation(String location) {
+        String previous = this.location;
+        this.location = location;
+        if (!Objects.equals(previous, location)) {
+            notifyLocationChanged(previous);
+        }
+    }
+
+    /**
+     * Registra un oyente de los cambios de esta fuente; registrar otra vez el mismo oyente no tiene efecto
+     * @param listener El oyente
+     */
+    public synchronized void addChangeListener(WaterSourceListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("El oyente no puede ser nulo");
+        }
+        if (!hasChangeListener(listener)) {
+            WaterSourceListener[] listeners = Arrays.copyOf(changeListeners, changeListeners.length + 1);
+            listeners[listeners.length - 1] = listener;
+            changeListeners = listeners;
+        }
+    }
+
+    /**
+     * Elimina un oyente registrado
+     * @param listener El oyente a eliminar
+     */
+    public synchronized void removeChangeListener(WaterSourceListener listener) {
+        WaterSourceListener[] listeners = changeListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                WaterSourceListener[] remaining = new WaterSourceListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+                changeListeners = remaining.length == 0 ? NO_LISTENERS : remaining;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Indica si un oyente está registrado en esta fuente
+     * @param listener El oyente
+     * @return true si el oyente recibe los cambios de esta fuente
+     */
+    public boolean hasChangeListener(WaterSourceListener listener) {
+        for (WaterSourceListener registered : changeListeners) {
+            if (registered == listener) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Notifica a los oyentes registrados que cambió el nivel actual
+     * @param previousLevel El nivel anterior
+     */
+    protected void notifyLevelChanged(double previousLevel) {
+        for (WaterSourceListener listener : changeListeners) {
+            listener.levelChanged(this, previousLevel);
+        }
+    }
+
+    /**
+     * Notifica a los oyentes registrados que cambió la capacidad
+     * @param previousCapacity La capacidad anterior
+     */
+    protected void notifyCapacityChanged(double previousCapacity) {
+        for (WaterSourceListener listener : changeListeners) {
+            listener.capacityChanged(this, previousCapacity);
+        }
+    }
+
+    /**
+     * Notifica a los oyentes registrados que cambió la calidad
+     * @param previousQuality La calidad anterior
+     */
+    protected void notifyQualityChanged(String previousQuality) {
+        for (WaterSourceListener listener : changeListeners) {
+            listener.qualityChanged(this, previousQuality);
+        }
+    }
+
+    /**
+     * Notifica a los oyentes registrados que cambió la ubicación
+     * @param previousLocation La ubicación anterior
+     */
+    protected void notifyLocationChanged(String previousLocation) {
+        for (WaterSourceListener listener : changeListeners) {
+            listener.locationChanged(this, previousLocation);
+        }
+    }
+
+    private static VarHandle findLevelHandle() {
+        try {
+            return MethodHandles.lookup().findVarHandle(WaterSource.class, "currentLevel", double.class);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
     }
-} 
\ No newline at end of file
+}
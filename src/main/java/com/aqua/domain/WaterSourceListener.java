@@ -0,0 +1,40 @@
+package com.aqua.domain;
+
+/**
+ * Interfaz para recibir los cambios de estado de una fuente de agua.
+ * Los métodos tienen implementación vacía para que cada oyente atienda solo los cambios que le interesan.
+ */
+public interface WaterSourceListener {
+
+    /**
+     * Llamado cuando cambia el nivel actual de una fuente
+     * @param source La fuente de agua que cambió
+     * @param previousLevel El nivel anterior
+     */
+    default void levelChanged(WaterSource source, double previousLevel) {
+    }
+
+    /**
+     * Llamado cuando cambia la capacidad de una fuente
+     * @param source La fuente de agua que cambió
+     * @param previousCapacity La capacidad anterior
+     */
+    default void capacityChanged(WaterSource source, double previousCapacity) {
+    }
+
+    /**
+     * Llamado cuando cambia la calidad del agua de una fuente
+     * @param source La fuente de agua que cambió
+     * @param previousQuality La calidad anterior
+     */
+    default void qualityChanged(WaterSource source, String previousQuality) {
+    }
+
+    /**
+     * Llamado cuando cambia la ubicación de una fuente
+     * @param source La fuente de agua que cambió
+     * @param previousLocation La ubicación anterior
+     */
+    default void locationChanged(WaterSource source, String previousLocation) {
+    }
+}
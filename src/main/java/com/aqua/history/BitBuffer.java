@@ -0,0 +1,111 @@
+package com.aqua.history;
+
+import java.util.Arrays;
+
+/**
+ * Búfer de bits de solo anexado sobre un arreglo de long, con lectura secuencial.
+ * Los bits se escriben del más significativo al menos significativo de cada palabra.
+ */
+final class BitBuffer {
+
+    private long[] words;
+    private long bitLength;
+
+    BitBuffer(int initialWords) {
+        this.words = new long[Math.max(1, initialWords)];
+    }
+
+    /**
+     * Escribe los {@code bits} bits menos significativos de un valor
+     * @param value El valor
+     * @param bits El número de bits, entre 1 y 64
+     */
+    void write(long value, int bits) {
+        int index = (int) (bitLength >>> 6);
+        int offset = (int) (bitLength & 63);
+        if (index + 1 >= words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        long masked = value & mask(bits);
+        int free = 64 - offset;
+        if (bits <= free) {
+            words[index] |= masked << (free - bits);
+        } else {
+            int rest = bits - free;
+            words[index] |= masked >>> rest;
+            words[index + 1] |= masked << (64 - rest);
+        }
+        bitLength += bits;
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Recorta el arreglo al número de palabras realmente usadas
+     */
+    void trim() {
+        int used = (int) ((bitLength + 63) >>> 6);
+        if (used < words.length) {
+            words = Arrays.copyOf(words, Math.max(1, used));
+        }
+    }
+
+    long getBitLength() {
+        return bitLength;
+    }
+
+    /**
+     * Obtiene el tamaño ocupado en memoria por los datos
+     * @return El número de bytes del arreglo
+     */
+    long getSizeInBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    Reader reader() {
+        return new Reader(words, bitLength);
+    }
+
+    private static long mask(int bits) {
+        return bits == 64 ? -1L : (1L << bits) - 1;
+    }
+
+    /**
+     * Lector secuencial; ve los bits escritos hasta el momento en que se creó
+     */
+    static final class Reader {
+
+        private final long[] words;
+        private final long limit;
+        private long position;
+
+        private Reader(long[] words, long limit) {
+            this.words = words;
+            this.limit = limit;
+        }
+
+        long read(int bits) {
+            if (position + bits > limit) {
+                throw new IllegalStateException("Lectura más allá del final del bloque");
+            }
+            int index = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            int free = 64 - offset;
+            long result;
+            if (bits <= free) {
+                result = (words[index] >>> (free - bits)) & mask(bits);
+            } else {
+                int rest = bits - free;
+                result = ((words[index] & mask(free)) << rest) | (words[index + 1] >>> (64 - rest));
+            }
+            position += bits;
+            return result;
+        }
+
+        boolean readBit() {
+            return read(1) != 0;
+        }
+    }
+}
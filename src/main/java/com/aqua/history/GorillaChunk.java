@@ -0,0 +1,177 @@
+package com.aqua.history;
+
+/**
+ * Bloque comprimido de una serie temporal en el formato de Gorilla.
+ * Las marcas de tiempo se codifican como diferencia de diferencias con prefijos de longitud
+ * variable, de modo que un muestreo regular cuesta un bit por punto; los valores se codifican
+ * como el XOR con el valor anterior, guardando solo los bits significativos, de modo que un
+ * valor repetido cuesta un bit.
+ *
+ * <p>Un bloque abierto admite anexar puntos; al sellarlo su arreglo se recorta y queda
+ * inmutable. No es seguro para hilos: la serie que lo contiene sincroniza el acceso.</p>
+ */
+final class GorillaChunk {
+
+    /**
+     * Recibe los puntos decodificados de un bloque
+     */
+    interface PointSink {
+        void accept(long timestamp, double value);
+    }
+
+    private final BitBuffer bits = new BitBuffer(4);
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private long lastValueBits;
+    private int leadingZeros = -1;
+    private int trailingZeros;
+    private boolean sealed;
+
+    /**
+     * Anexa un punto al bloque
+     * @param timestamp La marca de tiempo, no menor que la del último punto
+     * @param value El valor
+     */
+    void append(long timestamp, double value) {
+        if (sealed) {
+            throw new IllegalStateException("El bloque ya está sellado");
+        }
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            bits.write(timestamp, 64);
+            bits.write(valueBits, 64);
+            firstTimestamp = timestamp;
+        } else {
+            long delta = timestamp - lastTimestamp;
+            writeDeltaOfDelta(delta - lastDelta);
+            writeValue(valueBits ^ lastValueBits);
+            lastDelta = delta;
+        }
+        lastTimestamp = timestamp;
+        lastValueBits = valueBits;
+        count++;
+    }
+
+    /**
+     * Sella el bloque y libera el espacio sobrante
+     */
+    void seal() {
+        sealed = true;
+        bits.trim();
+    }
+
+    /**
+     * Decodifica los puntos con marca de tiempo en [from, to)
+     * @param from Inicio del rango, inclusivo
+     * @param to Fin del rango, exclusivo
+     * @param sink El receptor de los puntos
+     */
+    void decode(long from, long to, PointSink sink) {
+        if (count == 0 || lastTimestamp < from || firstTimestamp >= to) {
+            return;
+        }
+        BitBuffer.Reader reader = bits.reader();
+        long timestamp = reader.read(64);
+        long valueBits = reader.read(64);
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; ; ) {
+            if (timestamp >= to) {
+                return;
+            }
+            if (timestamp >= from) {
+                sink.accept(timestamp, Double.longBitsToDouble(valueBits));
+            }
+            if (++i == count) {
+                return;
+            }
+            delta += readDeltaOfDelta(reader);
+            timestamp += delta;
+            if (reader.readBit()) {
+                if (reader.readBit()) {
+                    leading = (int) reader.read(5);
+                    int significant = (int) reader.read(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                int significant = 64 - leading - trailing;
+                valueBits ^= reader.read(significant) << trailing;
+            }
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    long getSizeInBytes() {
+        return bits.getSizeInBytes();
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            bits.writeBit(false);
+        } else if (dod >= -63 && dod <= 64) {
+            bits.write(0b10, 2);
+            bits.write(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            bits.write(0b110, 3);
+            bits.write(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            bits.write(0b1110, 4);
+            bits.write(dod + 2047, 12);
+        } else {
+            bits.write(0b1111, 4);
+            bits.write(dod, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitBuffer.Reader reader) {
+        if (!reader.readBit()) {
+            return 0;
+        }
+        if (!reader.readBit()) {
+            return reader.read(7) - 63;
+        }
+        if (!reader.readBit()) {
+            return reader.read(9) - 255;
+        }
+        if (!reader.readBit()) {
+            return reader.read(12) - 2047;
+        }
+        return reader.read(64);
+    }
+
+    private void writeValue(long xor) {
+        if (xor == 0) {
+            bits.writeBit(false);
+            return;
+        }
+        bits.writeBit(true);
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (leadingZeros >= 0 && leading >= leadingZeros && trailing >= trailingZeros) {
+            // Los bits significativos caben en la ventana del valor anterior
+            bits.writeBit(false);
+            bits.write(xor >>> trailingZeros, 64 - leadingZeros - trailingZeros);
+        } else {
+            int significant = 64 - leading - trailing;
+            bits.writeBit(true);
+            bits.write(leading, 5);
+            bits.write(significant - 1, 6);
+            bits.write(xor >>> trailing, significant);
+            leadingZeros = leading;
+            trailingZeros = trailing;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.aqua.history;
+
+import lombok.Getter;
+
+/**
+ * Agregado de los puntos de una serie dentro de un intervalo de submuestreo
+ */
+@Getter
+public final class HistoryBucket {
+
+    private final long start;
+    private final int count;
+    private final double min;
+    private final double max;
+    private final double average;
+    private final double last;
+
+    HistoryBucket(long start, int count, double min, double max, double average, double last) {
+        this.start = start;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.average = average;
+        this.last = last;
+    }
+}
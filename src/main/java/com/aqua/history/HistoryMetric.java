@@ -0,0 +1,11 @@
+package com.aqua.history;
+
+/**
+ * Magnitudes de una fuente de agua que se guardan en el historial
+ */
+public enum HistoryMetric {
+    /** Nivel actual de agua */
+    LEVEL,
+    /** Calidad del agua, guardada como código del diccionario de calidades */
+    QUALITY
+}
@@ -0,0 +1,74 @@
+package com.aqua.history;
+
+import java.util.Arrays;
+
+/**
+ * Resultado de una consulta de rango: puntos ordenados por marca de tiempo en arreglos paralelos
+ */
+public final class TimeSeries {
+
+    private final int sourceId;
+    private final HistoryMetric metric;
+    private long[] timestamps;
+    private double[] values;
+    private int size;
+
+    TimeSeries(int sourceId, HistoryMetric metric) {
+        this.sourceId = sourceId;
+        this.metric = metric;
+        this.timestamps = new long[16];
+        this.values = new double[16];
+    }
+
+    void add(long timestamp, double value) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+    }
+
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    public HistoryMetric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Obtiene el número de puntos
+     * @return El número de puntos
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Obtiene la marca de tiempo de un punto
+     * @param index La posición del punto
+     * @return La marca de tiempo en milisegundos
+     */
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    /**
+     * Obtiene el valor de un punto
+     * @param index La posición del punto
+     * @return El valor
+     */
+    public double getValue(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Punto fuera de rango: " + index);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.aqua.history;
+
+import com.aqua.domain.WaterSource;
+import com.aqua.domain.WaterSourceListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Almacén embebido de series temporales con el historial de nivel y calidad de cada fuente.
+ * Recibe los cambios como oyente de las fuentes y los guarda en bloques comprimidos al estilo
+ * de Gorilla ({@link GorillaChunk}): un bloque se sella al llegar a su número máximo de puntos
+ * o a su duración máxima, y los bloques que quedan fuera del periodo de retención se descartan.
+ * Las calidades se guardan como códigos de un diccionario, por lo que una calidad que no
+ * cambia ocupa un bit por punto.
+ *
+ * <p>Cada serie tiene su propio bloqueo, de modo que los hilos de simulación que actualizan
+ * fuentes distintas no compiten entre sí.</p>
+ */
+public class TimeSeriesStore implements WaterSourceListener {
+
+    public static final long DEFAULT_CHUNK_MILLIS = TimeUnit.HOURS.toMillis(2);
+    public static final int DEFAULT_CHUNK_POINTS = 1024;
+    public static final long DEFAULT_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(180);
+
+    private final long chunkMillis;
+    private final int chunkPoints;
+    private final long retentionMillis;
+    private final LongSupplier clock;
+
+    private final Map<Long, Series> series = new ConcurrentHashMap<>();
+    private final Map<String, Integer> qualityCodes = new ConcurrentHashMap<>();
+    private final List<String> qualityLabels = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor con los valores predeterminados y el reloj del sistema
+     */
+    public TimeSeriesStore() {
+        this(DEFAULT_CHUNK_MILLIS, DEFAULT_CHUNK_POINTS, DEFAULT_RETENTION_MILLIS, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor para TimeSeriesStore
+     * @param chunkMillis La duración máxima de un bloque
+     * @param chunkPoints El número máximo de puntos de un bloque
+     * @param retentionMillis El tiempo que se conserva el historial
+     * @param clock El reloj que da las marcas de tiempo en milisegundos
+     */
+    public TimeSeriesStore(long chunkMillis, int chunkPoints, long retentionMillis, LongSupplier clock) {
+        if (chunkMillis <= 0 || chunkPoints <= 1 || retentionMillis <= 0) {
+            throw new IllegalArgumentException("La duración, los puntos por bloque y la retención deben ser positivos");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("El reloj no puede ser nulo");
+        }
+        this.chunkMillis = chunkMillis;
+        this.chunkPoints = chunkPoints;
+        this.retentionMillis = retentionMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Registra un punto en la serie de una fuente con la hora actual
+     * @param sourceId El ID de la fuente
+     * @param metric La magnitud
+     * @param value El valor
+     */
+    public void record(int sourceId, HistoryMetric metric, double value) {
+        record(sourceId, metric, clock.getAsLong(), value);
+    }
+
+    /**
+     * Registra un punto en la serie de una fuente.
+     * Una marca de tiempo anterior a la del último punto se ajusta a esta para mantener el orden.
+     * @param sourceId El ID de la fuente
+     * @param metric La magnitud
+     * @param timestamp La marca de tiempo en milisegundos
+     * @param value El valor
+     */
+    public void record(int sourceId, HistoryMetric metric, long timestamp, double value) {
+        series.computeIfAbsent(key(sourceId, metric), k -> new Series()).append(timestamp, value);
+    }
+
+    /**
+     * Registra el estado actual de una fuente, útil para fijar el punto de partida de su historial
+     * @param source La fuente de agua
+     */
+    public void record(WaterSource source) {
+        long now = clock.getAsLong();
+        record(source.getId(), HistoryMetric.LEVEL, now, source.getCurrentLevel());
+        record(source.getId(), HistoryMetric.QUALITY, now, qualityCode(source.getQuality()));
+    }
+
+    /**
+     * Obtiene los puntos de una serie en un rango de tiempo
+     * @param sourceId El ID de la fuente
+     * @param metric La magnitud
+     * @param from Inicio del rango en milisegundos, inclusivo
+     * @param to Fin del rango en milisegundos, exclusivo
+     * @return Los puntos del rango, en orden
+     */
+    public TimeSeries range(int sourceId, HistoryMetric metric, long from, long to) {
+        checkRange(from, to);
+        TimeSeries result = new TimeSeries(sourceId, metric);
+        Series target = series.get(key(sourceId, metric));
+        if (target != null) {
+            target.decode(from, to, result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Obtiene una serie submuestreada en intervalos de igual duración alineados con {@code from}.
+     * Los intervalos sin puntos se omiten.
+     * @param sourceId El ID de la fuente
+     * @param metric La magnitud
+     * @param from Inicio del rango en milisegundos, inclusivo
+     * @param to Fin del rango en milisegundos, exclusivo
+     * @param bucketMillis La duración de cada intervalo
+     * @return Los agregados por intervalo, en orden
+     */
+    public List<HistoryBucket> downsample(int sourceId, HistoryMetric metric, long from, long to, long bucketMillis) {
+        checkRange(from, to);
+        if (bucketMillis <= 0) {
+            throw new IllegalArgumentException("La duración del intervalo debe ser positiva");
+        }
+        BucketAccumulator accumulator = new BucketAccumulator(from, bucketMillis);
+        Series target = series.get(key(sourceId, metric));
+        if (target != null) {
+            target.decode(from, to, accumulator);
+        }
+        return accumulator.finish();
+    }
+
+    /**
+     * Obtiene los IDs de las fuentes con historial
+     * @return Los IDs, en orden ascendente
+     */
+    public List<Integer> getSourceIds() {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (Long key : series.keySet()) {
+            ids.add((int) (key >> 8));
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Elimina el historial de una fuente
+     * @param sourceId El ID de la fuente
+     */
+    public void remove(int sourceId) {
+        for (HistoryMetric metric : HistoryMetric.values()) {
+            series.remove(key(sourceId, metric));
+        }
+    }
+
+    /**
+     * Obtiene el código con que se guarda una calidad, asignándole uno nuevo si no lo tenía
+     * @param quality La calidad del agua
+     * @return El código de la calidad
+     */
+    public int qualityCode(String quality) {
+        String label = quality == null ? "" : quality;
+        Integer code = qualityCodes.get(label);
+        if (code != null) {
+            return code;
+        }
+        synchronized (qualityLabels) {
+            return qualityCodes.computeIfAbsent(label, l -> {
+                qualityLabels.add(l);
+                return qualityLabels.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * Obtiene la calidad que corresponde a un valor de la serie de calidad
+     * @param code El valor guardado
+     * @return La calidad del agua
+     */
+    public String qualityLabel(double code) {
+        int index = (int) code;
+        if (index < 0 || index >= qualityLabels.size()) {
+            throw new IllegalArgumentException("Código de calidad desconocido: " + code);
+        }
+        return qualityLabels.get(index);
+    }
+
+    /**
+     * Obtiene el número total de puntos guardados
+     * @return El número de puntos
+     */
+    public long getPointCount() {
+        long total = 0;
+        for (Series target : series.values()) {
+            total += target.getPointCount();
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene la memoria ocupada por los bloques comprimidos
+     * @return El tamaño en bytes
+     */
+    public long getCompressedBytes() {
+        long total = 0;
+        for (Series target : series.values()) {
+            total += target.getSizeInBytes();
+        }
+        return total;
+    }
+
+    @Override
+    public void levelChanged(WaterSource source, double previousLevel) {
+        record(source.getId(), HistoryMetric.LEVEL, source.getCurrentLevel());
+    }
+
+    @Override
+    public void qualityChanged(WaterSource source, String previousQuality) {
+        record(source.getId(), HistoryMetric.QUALITY, qualityCode(source.getQuality()));
+    }
+
+    private static long key(int sourceId, HistoryMetric metric) {
+        return ((long) sourceId << 8) | metric.ordinal();
+    }
+
+    private static void checkRange(long from, long to) {
+        if (from > to) {
+            throw new IllegalArgumentException("El inicio del rango no puede ser posterior al fin");
+        }
+    }
+
+    /**
+     * Serie de una fuente y magnitud: bloques sellados en orden más el bloque abierto
+     */
+    private final class Series {
+
+        private final Deque<GorillaChunk> sealed = new ArrayDeque<>();
+        private GorillaChunk open = new GorillaChunk();
+
+        synchronized void append(long timestamp, double value) {
+            if (open.getCount() > 0) {
+                timestamp = Math.max(timestamp, open.getLastTimestamp());
+                if (open.getCount() >= chunkPoints || timestamp - open.getFirstTimestamp() >= chunkMillis) {
+                    open.seal();
+                    sealed.addLast(open);
+                    open = new GorillaChunk();
+                }
+            } else if (!sealed.isEmpty()) {
+                timestamp = Math.max(timestamp, sealed.peekLast().getLastTimestamp());
+            }
+            open.append(timestamp, value);
+            long horizon = timestamp - retentionMillis;
+            while (!sealed.isEmpty() && sealed.peekFirst().getLastTimestamp() < horizon) {
+                sealed.removeFirst();
+            }
+        }
+
+        synchronized void decode(long from, long to, GorillaChunk.PointSink sink) {
+            for (GorillaChunk chunk : sealed) {
+                chunk.decode(from, to, sink);
+            }
+            open.decode(from, to, sink);
+        }
+
+        synchronized long getPointCount() {
+            long total = open.getCount();
+            for (GorillaChunk chunk : sealed) {
+                total += chunk.getCount();
+            }
+            return total;
+        }
+
+        synchronized long getSizeInBytes() {
+            long total = open.getSizeInBytes();
+            for (GorillaChunk chunk : sealed) {
+                total += chunk.getSizeInBytes();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Acumula los puntos decodificados en intervalos consecutivos
+     */
+    private static final class BucketAccumulator implements GorillaChunk.PointSink {
+
+        private final long origin;
+        private final long bucketMillis;
+        private final List<HistoryBucket> buckets = new ArrayList<>();
+        private long bucket = -1;
+        private int count;
+        private double min;
+        private double max;
+        private double sum;
+        private double last;
+
+        BucketAccumulator(long origin, long bucketMillis) {
+            this.origin = origin;
+            this.bucketMillis = bucketMillis;
+        }
+
+        @Override
+        public void accept(long timestamp, double value) {
+            long current = (timestamp - origin) / bucketMillis;
+            if (current != bucket) {
+                emit();
+                bucket = current;
+                min = value;
+                max = value;
+            }
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            last = value;
+        }
+
+        List<HistoryBucket> finish() {
+            emit();
+            return buckets;
+        }
+
+        private void emit() {
+            if (count > 0) {
+                buckets.add(new HistoryBucket(origin + bucket * bucketMillis, count, min, max, sum / count, last));
+            }
+            count = 0;
+            sum = 0;
+        }
+    }
+}
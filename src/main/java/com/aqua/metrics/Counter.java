@@ -0,0 +1,52 @@
+package com.aqua.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contador monótono sobre un {@link LongAdder}, que no compite entre hilos al incrementarse.
+ * No cuenta nada mientras el registro está desactivado.
+ */
+public final class Counter extends Metric {
+
+    private final MetricsRegistry registry;
+    private final LongAdder value = new LongAdder();
+
+    Counter(MetricsRegistry registry, String name, String help) {
+        super(name, help);
+        this.registry = registry;
+    }
+
+    public void increment() {
+        if (registry.isEnabled()) {
+            value.increment();
+        }
+    }
+
+    /**
+     * Suma una cantidad al contador
+     * @param amount La cantidad, no negativa
+     */
+    public void add(long amount) {
+        if (registry.isEnabled()) {
+            value.add(amount);
+        }
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    void writePrometheus(Appendable out, String prefix) throws IOException {
+        String name = prefix + getName() + "_total";
+        out.append("# HELP ").append(name).append(' ').append(getHelp()).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(Long.toString(get())).append('\n');
+    }
+
+    @Override
+    void writeText(Appendable out) throws IOException {
+        out.append(String.format("%-40s %d%n", getName(), get()));
+    }
+}
@@ -0,0 +1,34 @@
+package com.aqua.metrics;
+
+import java.io.IOException;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Valor instantáneo que se lee al consultarlo, como la profundidad de una cola
+ */
+public final class Gauge extends Metric {
+
+    private final DoubleSupplier supplier;
+
+    Gauge(String name, String help, DoubleSupplier supplier) {
+        super(name, help);
+        this.supplier = supplier;
+    }
+
+    public double get() {
+        return supplier.getAsDouble();
+    }
+
+    @Override
+    void writePrometheus(Appendable out, String prefix) throws IOException {
+        String name = prefix + getName();
+        out.append("# HELP ").append(name).append(' ').append(getHelp()).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(Double.toString(get())).append('\n');
+    }
+
+    @Override
+    void writeText(Appendable out) throws IOException {
+        out.append(String.format("%-40s %.3f%n", getName(), get()));
+    }
+}
@@ -0,0 +1,35 @@
+package com.aqua.metrics;
+
+import java.io.IOException;
+
+/**
+ * Métrica con nombre registrada en un {@link MetricsRegistry}
+ */
+public abstract class Metric {
+
+    private final String name;
+    private final String help;
+
+    Metric(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * Escribe la métrica en el formato de texto de Prometheus
+     */
+    abstract void writePrometheus(Appendable out, String prefix) throws IOException;
+
+    /**
+     * Escribe la métrica en una línea legible
+     */
+    abstract void writeText(Appendable out) throws IOException;
+}
@@ -0,0 +1,110 @@
+package com.aqua.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servidor HTTP local que publica las métricas de un registro.
+ * {@code /metrics} responde en el formato de texto de Prometheus y {@code /metrics/text} en líneas
+ * legibles. Atiende en un único hilo en segundo plano; por defecto solo escucha en la interfaz local.
+ */
+public class MetricsHttpServer {
+
+    public static final String PORT_PROPERTY = "aqua.metrics.port";
+    public static final String PROMETHEUS_PATH = "/metrics";
+    public static final String TEXT_PATH = "/metrics/text";
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor que escucha en la interfaz local
+     * @param registry El registro a publicar
+     * @param port El puerto, o 0 para elegir uno libre
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public MetricsHttpServer(MetricsRegistry registry, int port) throws IOException {
+        this(registry, new InetSocketAddress("127.0.0.1", port));
+    }
+
+    /**
+     * Constructor para MetricsHttpServer
+     * @param registry El registro a publicar
+     * @param address La dirección donde escuchar
+     * @throws IOException Si no se puede abrir la dirección
+     */
+    public MetricsHttpServer(MetricsRegistry registry, InetSocketAddress address) throws IOException {
+        if (registry == null || address == null) {
+            throw new IllegalArgumentException("El registro y la dirección no pueden ser nulos");
+        }
+        this.registry = registry;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aqua-metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(PROMETHEUS_PATH, exchange -> respond(exchange, true));
+        server.createContext(TEXT_PATH, exchange -> respond(exchange, false));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Deja de atender peticiones, esperando como máximo un segundo a las que están en curso
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Obtiene el puerto en que escucha el servidor
+     * @return El puerto
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange, boolean prometheus) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            // El contexto de /metrics también recibe las rutas que empiezan por él
+            String path = exchange.getRequestURI().getPath();
+            if (!path.equals(prometheus ? PROMETHEUS_PATH : TEXT_PATH)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            StringBuilder body = new StringBuilder(4096);
+            if (prometheus) {
+                registry.writePrometheus(body);
+            } else {
+                registry.writeText(body);
+            }
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", prometheus ? PROMETHEUS_CONTENT_TYPE : TEXT_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.aqua.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Expone un {@link MetricsRegistry} por JMX como atributos de solo lectura que se leen al consultarlos.
+ * Los contadores y valores instantáneos se publican con su nombre; cada temporizador se publica
+ * como {@code nombre.count}, {@code nombre.meanMillis}, {@code nombre.p50Millis},
+ * {@code nombre.p99Millis} y {@code nombre.maxMillis}. El atributo {@code enabled} activa o
+ * desactiva el registro, y la operación {@code reset} borra los histogramas.
+ */
+final class MetricsMBean implements DynamicMBean {
+
+    private static final String ENABLED = "enabled";
+    private static final String RESET = "reset";
+    private static final String[] TIMER_FIELDS = {"count", "meanMillis", "p50Millis", "p99Millis", "maxMillis"};
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (ENABLED.equals(attribute)) {
+            return registry.isEnabled();
+        }
+        Metric metric = registry.get(attribute);
+        if (metric instanceof Counter) {
+            return ((Counter) metric).get();
+        }
+        if (metric instanceof Gauge) {
+            return ((Gauge) metric).get();
+        }
+        int dot = attribute.lastIndexOf('.');
+        if (dot > 0) {
+            Metric timer = registry.get(attribute.substring(0, dot));
+            if (timer instanceof Timer) {
+                LatencyHistogram histogram = ((Timer) timer).getHistogram();
+                switch (attribute.substring(dot + 1)) {
+                    case "count":
+                        return histogram.getCount();
+                    case "meanMillis":
+                        return histogram.getMean() / NANOS_PER_MILLI;
+                    case "p50Millis":
+                        return histogram.getPercentile(0.5) / NANOS_PER_MILLI;
+                    case "p99Millis":
+                        return histogram.getPercentile(0.99) / NANOS_PER_MILLI;
+                    case "maxMillis":
+                        return histogram.getMax() / NANOS_PER_MILLI;
+                    default:
+                        break;
+                }
+            }
+        }
+        throw new AttributeNotFoundException("Atributo de métrica desconocido: " + attribute);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException {
+        if (!ENABLED.equals(attribute.getName())) {
+            throw new AttributeNotFoundException("Atributo de solo lectura o desconocido: " + attribute.getName());
+        }
+        if (!(attribute.getValue() instanceof Boolean)) {
+            throw new InvalidAttributeValueException("enabled debe ser un valor booleano");
+        }
+        registry.setEnabled((Boolean) attribute.getValue());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Los atributos desconocidos se omiten, como indica el contrato de DynamicMBean
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        AttributeList set = new AttributeList();
+        for (Attribute attribute : attributes.asList()) {
+            try {
+                setAttribute(attribute);
+                set.add(attribute);
+            } catch (AttributeNotFoundException | InvalidAttributeValueException e) {
+                // Los atributos que no se pueden escribir se omiten
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
+        if (!RESET.equals(actionName)) {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+        for (Metric metric : registry.getMetrics()) {
+            if (metric instanceof Timer) {
+                ((Timer) metric).getHistogram().reset();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        attributes.add(new MBeanAttributeInfo(ENABLED, "boolean", "Si las métricas registran valores", true, true, true));
+        for (Metric metric : registry.getMetrics()) {
+            if (metric instanceof Timer) {
+                for (String field : TIMER_FIELDS) {
+                    String type = "count".equals(field) ? "long" : "double";
+                    attributes.add(new MBeanAttributeInfo(metric.getName() + "." + field, type, metric.getHelp(),
+                        true, false, false));
+                }
+            } else {
+                String type = metric instanceof Counter ? "long" : "double";
+                attributes.add(new MBeanAttributeInfo(metric.getName(), type, metric.getHelp(), true, false, false));
+            }
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo(RESET, "Borra los histogramas de los temporizadores",
+            null, "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "Métricas del sistema de gestión de agua",
+            attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] {reset}, null);
+    }
+}
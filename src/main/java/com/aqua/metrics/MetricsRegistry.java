@@ -0,0 +1,194 @@
+package com.aqua.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro de métricas del sistema: contadores, temporizadores con histograma y valores instantáneos.
+ * Los componentes obtienen sus métricas una sola vez, normalmente en campos estáticos, del registro
+ * global; registrar un valor no toma bloqueos ni reserva objetos. Las métricas se exponen por JMX
+ * con {@link #registerMBean()} y en texto o en el formato de Prometheus con {@link MetricsHttpServer}.
+ *
+ * <p>El registro global está activo salvo que se inicie con {@code -Daqua.metrics=false}; desactivado,
+ * cada punto medido cuesta la lectura de un campo volátil.</p>
+ */
+public final class MetricsRegistry {
+
+    public static final String ENABLED_PROPERTY = "aqua.metrics";
+    public static final String PROMETHEUS_PREFIX = "aqua_";
+    public static final String OBJECT_NAME = "com.aqua:type=Metrics";
+
+    private static final MetricsRegistry GLOBAL =
+        new MetricsRegistry(!"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY)));
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+    private volatile boolean enabled;
+    private ObjectName registeredName;
+
+    /**
+     * Constructor para MetricsRegistry
+     * @param enabled Si las métricas registran valores desde el inicio
+     */
+    public MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Obtiene el registro compartido por todo el sistema
+     * @return El registro global
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Activa o desactiva el registro de valores; las métricas conservan lo ya registrado
+     * @param enabled true para registrar valores
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Obtiene un contador, creándolo la primera vez
+     * @param name El nombre, en minúsculas y separado por guiones bajos
+     * @param help La descripción de la métrica
+     * @return El contador
+     */
+    public Counter counter(String name, String help) {
+        return register(name, Counter.class, () -> new Counter(this, name, help));
+    }
+
+    /**
+     * Obtiene un temporizador, creándolo la primera vez
+     * @param name El nombre, en minúsculas y separado por guiones bajos
+     * @param help La descripción de la métrica
+     * @return El temporizador
+     */
+    public Timer timer(String name, String help) {
+        return register(name, Timer.class, () -> new Timer(this, name, help));
+    }
+
+    /**
+     * Registra un valor instantáneo; si ya existía uno con el mismo nombre se reemplaza
+     * @param name El nombre, en minúsculas y separado por guiones bajos
+     * @param help La descripción de la métrica
+     * @param supplier La función que obtiene el valor al consultarlo
+     * @return El valor instantáneo
+     */
+    public Gauge gauge(String name, String help, DoubleSupplier supplier) {
+        checkName(name);
+        if (supplier == null) {
+            throw new IllegalArgumentException("La función del valor no puede ser nula");
+        }
+        Gauge gauge = new Gauge(name, help, supplier);
+        metrics.compute(name, (key, previous) -> {
+            if (previous != null && !(previous instanceof Gauge)) {
+                throw new IllegalArgumentException("Ya existe una métrica de otro tipo llamada " + name);
+            }
+            return gauge;
+        });
+        return gauge;
+    }
+
+    /**
+     * Elimina una métrica
+     * @param name El nombre de la métrica
+     */
+    public void remove(String name) {
+        metrics.remove(name);
+    }
+
+    /**
+     * Obtiene una métrica por su nombre
+     * @param name El nombre de la métrica
+     * @return La métrica, o null si no existe
+     */
+    public Metric get(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Obtiene las métricas registradas, ordenadas por nombre
+     * @return Copia de la lista de métricas
+     */
+    public List<Metric> getMetrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    /**
+     * Escribe todas las métricas en el formato de texto de Prometheus, con tiempos en segundos
+     * @param out El destino
+     * @throws IOException Si falla la escritura
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        for (Metric metric : metrics.values()) {
+            metric.writePrometheus(out, PROMETHEUS_PREFIX);
+        }
+    }
+
+    /**
+     * Escribe todas las métricas en líneas legibles, con tiempos en milisegundos
+     * @param out El destino
+     * @throws IOException Si falla la escritura
+     */
+    public void writeText(Appendable out) throws IOException {
+        for (Metric metric : metrics.values()) {
+            metric.writeText(out);
+        }
+    }
+
+    /**
+     * Publica las métricas en el servidor de MBeans de la plataforma; no hace nada si ya se publicaron
+     * @throws JMException Si el MBean no se puede registrar
+     */
+    public synchronized void registerMBean() throws JMException {
+        if (registeredName != null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(this == GLOBAL
+            ? OBJECT_NAME : OBJECT_NAME + ",instance=" + Integer.toHexString(System.identityHashCode(this)));
+        server.registerMBean(new MetricsMBean(this), name);
+        registeredName = name;
+    }
+
+    /**
+     * Retira las métricas del servidor de MBeans, si estaban publicadas
+     * @throws JMException Si el MBean no se puede retirar
+     */
+    public synchronized void unregisterMBean() throws JMException {
+        if (registeredName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            registeredName = null;
+        }
+    }
+
+    private <T extends Metric> T register(String name, Class<T> type, Supplier<T> factory) {
+        checkName(name);
+        Metric metric = metrics.computeIfAbsent(name, key -> factory.get());
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Ya existe una métrica de otro tipo llamada " + name);
+        }
+        return type.cast(metric);
+    }
+
+    private static void checkName(String name) {
+        if (name == null || !name.matches("[a-z][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Nombre de métrica no válido: " + name);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.aqua.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la duración de una operación en un {@link LatencyHistogram}.
+ * Se usa en pares sin reservar objetos:
+ * <pre>
+ * long start = TIMER.start();
+ * try {
+ *     ...
+ * } finally {
+ *     TIMER.stop(start);
+ * }
+ * </pre>
+ * Con el registro desactivado {@link #start()} no lee el reloj y {@link #stop(long)} no hace nada,
+ * así que el costo se reduce a leer un campo volátil.
+ */
+public final class Timer extends Metric {
+
+    private static final long DISABLED = Long.MIN_VALUE;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final MetricsRegistry registry;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer(MetricsRegistry registry, String name, String help) {
+        super(name, help);
+        this.registry = registry;
+    }
+
+    /**
+     * Marca el inicio de una medición
+     * @return El instante de inicio, que se pasa a {@link #stop(long)}
+     */
+    public long start() {
+        return registry.isEnabled() ? System.nanoTime() : DISABLED;
+    }
+
+    /**
+     * Registra la duración desde el inicio indicado
+     * @param start El valor devuelto por {@link #start()}
+     */
+    public void stop(long start) {
+        if (start != DISABLED) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Registra una duración medida por otros medios
+     * @param nanos La duración en nanosegundos
+     */
+    public void record(long nanos) {
+        if (registry.isEnabled()) {
+            histogram.record(nanos);
+        }
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    void writePrometheus(Appendable out, String prefix) throws IOException {
+        String name = prefix + getName() + "_seconds";
+        out.append("# HELP ").append(name).append(' ').append(getHelp()).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(Double.toString(quantile)).append("\"} ")
+                .append(Double.toString(histogram.getPercentile(quantile) / NANOS_PER_SECOND)).append('\n');
+        }
+        out.append(name).append("_sum ").append(Double.toString(histogram.getSum() / NANOS_PER_SECOND)).append('\n');
+        out.append(name).append("_count ").append(Long.toString(histogram.getCount())).append('\n');
+        out.append("# TYPE ").append(name).append("_max gauge\n");
+        out.append(name).append("_max ").append(Double.toString(histogram.getMax() / NANOS_PER_SECOND)).append('\n');
+    }
+
+    @Override
+    void writeText(Appendable out) throws IOException {
+        out.append(String.format("%-40s n=%d media=%.3fms p50=%.3fms p99=%.3fms máx=%.3fms%n",
+            getName(), histogram.getCount(), histogram.getMean() / NANOS_PER_MILLI,
+            histogram.getPercentile(0.5) / NANOS_PER_MILLI, histogram.getPercentile(0.99) / NANOS_PER_MILLI,
+            histogram.getMax() / NANOS_PER_MILLI));
+    }
+}
@@ -2,19 +2,28 @@ package com.aqua.monitoring;
 
 import com.aqua.config.Configuration;
 import com.aqua.domain.WaterSource;
+import com.aqua.metrics.Counter;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
+import com.aqua.observer.DeliveryPolicy;
+import com.aqua.observer.EventBus;
 import com.aqua.observer.IObserver;
 import com.aqua.alert.Alert;
 import com.aqua.alert.CriticalLevelAlert;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Clase responsable de monitorear los niveles de agua en las fuentes.
  * Implementa el patrón Observer para notificar cambios en los niveles.
+ * Las alertas se publican en un {@link EventBus}, por lo que un observador lento no retrasa la verificación.
  */
 public class WaterLevelMonitor {
+
+    private static final Timer CHECK_TIMER = MetricsRegistry.global()
+        .timer("monitor_check_level", "Tiempo de verificación del nivel de una fuente, incluida la publicación de su alerta");
+    private static final Counter CRITICAL_ALERTS = MetricsRegistry.global()
+        .counter("monitor_critical_alerts", "Alertas de nivel crítico publicadas por el monitor");
     
-    private final List<IObserver> observers;
+    private final EventBus eventBus;
     private final Configuration config;
     
     /**
@@ -22,7 +31,19 @@ public class WaterLevelMonitor {
      * @param config La configuración del sistema
      */
     public WaterLevelMonitor(Configuration config) {
-        this.observers = new ArrayList<>();
+        this(config, new EventBus());
+    }
+    
+    /**
+     * Constructor que publica las alertas en un bus de eventos compartido
+     * @param config La configuración del sistema
+     * @param eventBus El bus de eventos donde se publican las alertas
+     */
+    public WaterLevelMonitor(Configuration config, EventBus eventBus) {
+        if (eventBus == null) {
+            throw new IllegalArgumentException("El bus de eventos no puede ser nulo");
+        }
+        this.eventBus = eventBus;
         this.config = config;
     }
     
@@ -34,7 +55,19 @@ public class WaterLevelMonitor {
         if (observer == null) {
             throw new IllegalArgumentException("El observador no puede ser nulo");
         }
-        observers.add(observer);
+        eventBus.subscribe(observer);
+    }
+    
+    /**
+     * Agrega un nuevo observador al monitor con una política de entrega específica
+     * @param observer El observador a agregar
+     * @param policy Qué hacer cuando el observador se atrasa
+     */
+    public void addObserver(IObserver observer, DeliveryPolicy policy) {
+        if (observer == null) {
+            throw new IllegalArgumentException("El observador no puede ser nulo");
+        }
+        eventBus.subscribe(observer, policy);
     }
     
     /**
@@ -42,7 +75,7 @@ public class WaterLevelMonitor {
      * @param observer El observador a eliminar
      */
     public void removeObserver(IObserver observer) {
-        observers.remove(observer);
+        eventBus.unsubscribe(observer);
     }
     
     /**
@@ -54,13 +87,16 @@ public class WaterLevelMonitor {
             throw new IllegalArgumentException("La fuente de agua no puede ser nula");
         }
         
+        long start = CHECK_TIMER.start();
         double levelPercentage = source.getCurrentLevel() / source.getCapacity();
         
         if (levelPercentage <= config.getCriticalWaterLevelThreshold()) {
             String message = String.format("Nivel crítico de agua en %s ID: %d (%.1f%%)", 
                 source.getType(), source.getId(), levelPercentage * 100);
             notifyObservers(new CriticalLevelAlert(message, levelPercentage, config.getCriticalWaterLevelThreshold()));
+            CRITICAL_ALERTS.increment();
         }
+        CHECK_TIMER.stop(start);
     }
     
     /**
@@ -68,8 +104,14 @@ public class WaterLevelMonitor {
      * @param alert La alerta a notificar
      */
     private void notifyObservers(Alert alert) {
-        for (IObserver observer : observers) {
-            observer.update(alert);
-        }
+        eventBus.publishAlert(alert);
+    }
+    
+    /**
+     * Obtiene el bus de eventos donde se publican las alertas
+     * @return El bus de eventos
+     */
+    public EventBus getEventBus() {
+        return eventBus;
     }
 } 
\ No newline at end of file
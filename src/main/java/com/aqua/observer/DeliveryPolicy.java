@@ -0,0 +1,24 @@
+package com.aqua.observer;
+
+/**
+ * Delivery policy applied by the {@link EventBus} when a subscriber's queue is full.
+ */
+public enum DeliveryPolicy {
+    
+    /**
+     * The publisher waits until the subscriber frees a slot; no event is lost.
+     * Opt-in only: a slow subscriber stalls every publisher, and an observer that publishes into
+     * another full blocking queue from its delivery thread can deadlock the bus executor.
+     */
+    BLOCK,
+    
+    /**
+     * The oldest queued event is discarded to make room for the new one
+     */
+    DROP_OLDEST,
+    
+    /**
+     * Level events keep only the latest value per water source; alerts are queued as with {@link #DROP_OLDEST}
+     */
+    CONFLATE
+}
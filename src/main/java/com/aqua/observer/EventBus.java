@@ -0,0 +1,418 @@
+package com.aqua.observer;
+
+import com.aqua.alert.Alert;
+import com.aqua.domain.WaterSource;
+import com.aqua.metrics.Counter;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous event bus that decouples subjects from their observers.
+ * Every subscriber owns a bounded lock-free ring buffer that is drained on a shared executor,
+ * one batch at a time and never by two threads at once, so events reach each observer in order
+ * and a slow observer only delays its own events. By default publishing never waits on a consumer:
+ * level events are conflated to the latest value per source and alerts drop the oldest queued one
+ * when the queue is full ({@link DeliveryPolicy#CONFLATE}). Subscribers that cannot lose events opt
+ * into {@link DeliveryPolicy#BLOCK}, which makes publishers wait for room in their queue.
+ */
+public class EventBus {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final DeliveryPolicy DEFAULT_POLICY = DeliveryPolicy.CONFLATE;
+
+    private static final int DRAIN_BATCH = 256;
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "aqua-event-bus-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    private static final Counter ERRORS = MetricsRegistry.global()
+        .counter("event_bus_errors", "Eventos del bus cuya entrega terminó con una excepción del observador");
+    private static final Timer PUBLISH_TIMER = MetricsRegistry.global()
+        .timer("event_bus_publish", "Tiempo de publicación de un evento en las colas de todos los suscriptores");
+    private static final Timer DELIVERY_TIMER = MetricsRegistry.global()
+        .timer("event_bus_delivery", "Tiempo que tarda un observador en procesar un evento");
+    private static final Timer LAG_TIMER = MetricsRegistry.global()
+        .timer("event_bus_lag", "Tiempo entre la publicación y la entrega de un evento");
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Executor executor;
+    private volatile boolean closed;
+
+    /**
+     * Creates a bus that delivers on the executor shared by every bus of the process
+     */
+    public EventBus() {
+        this(SHARED_EXECUTOR);
+    }
+
+    /**
+     * Creates a bus that delivers on the given executor
+     * @param executor The executor that drains the subscribers' queues
+     */
+    public EventBus(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes an observer with the default policy and capacity
+     * @param observer The observer to notify
+     * @return The subscription, which exposes its queue metrics
+     */
+    public Subscription subscribe(IObserver observer) {
+        return subscribe(observer, DEFAULT_POLICY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Subscribes an observer with the default capacity
+     * @param observer The observer to notify
+     * @param policy What to do when the observer's queue is full
+     * @return The subscription, which exposes its queue metrics
+     */
+    public Subscription subscribe(IObserver observer, DeliveryPolicy policy) {
+        return subscribe(observer, policy, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Subscribes an observer
+     * @param observer The observer to notify
+     * @param policy What to do when the observer's queue is full
+     * @param capacity The size of the observer's ring buffer
+     * @return The subscription, which exposes its queue metrics
+     */
+    public Subscription subscribe(IObserver observer, DeliveryPolicy policy, int capacity) {
+        if (observer == null) {
+            throw new IllegalArgumentException("Observer cannot be null");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Delivery policy cannot be null");
+        }
+        if (closed) {
+            throw new IllegalStateException("Event bus is closed");
+        }
+        Subscription subscription = new Subscription(observer, policy, capacity, executor);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Removes every subscription of an observer; events already queued for it are discarded
+     * @param observer The observer to remove
+     */
+    public void unsubscribe(IObserver observer) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.observer == observer) {
+                unsubscribe(subscription);
+            }
+        }
+    }
+
+    /**
+     * Removes a subscription; events already queued for it are discarded
+     * @param subscription The subscription to remove
+     */
+    public void unsubscribe(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            subscription.stop();
+        }
+    }
+
+    /**
+     * Publishes a level change to every subscriber
+     * @param source The water source that changed
+     * @param currentLevel The new level
+     */
+    public void publishLevel(WaterSource source, double currentLevel) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        long start = PUBLISH_TIMER.start();
+        Event event = new Event(source, currentLevel, null, System.nanoTime());
+        for (Subscription subscription : subscriptions) {
+            subscription.enqueue(event);
+        }
+        PUBLISH_TIMER.stop(start);
+    }
+
+    /**
+     * Publishes an alert to every subscriber
+     * @param alert The alert
+     */
+    public void publishAlert(Alert alert) {
+        if (alert == null) {
+            throw new IllegalArgumentException("Alert cannot be null");
+        }
+        long start = PUBLISH_TIMER.start();
+        Event event = new Event(null, 0, alert, System.nanoTime());
+        for (Subscription subscription : subscriptions) {
+            subscription.enqueue(event);
+        }
+        PUBLISH_TIMER.stop(start);
+    }
+
+    /**
+     * Gets the current subscriptions
+     * @return A snapshot of the subscriptions
+     */
+    public List<Subscription> getSubscriptions() {
+        return new ArrayList<>(subscriptions);
+    }
+
+    /**
+     * Stops delivery to every subscriber; later publications are ignored
+     */
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            unsubscribe(subscription);
+        }
+    }
+
+    /**
+     * Event carried by the bus: a level change when {@code alert} is null, otherwise an alert
+     */
+    private static final class Event {
+        final WaterSource source;
+        final double level;
+        final Alert alert;
+        final long publishedNanos;
+
+        Event(WaterSource source, double level, Alert alert, long publishedNanos) {
+            this.source = source;
+            this.level = level;
+            this.alert = alert;
+            this.publishedNanos = publishedNanos;
+        }
+    }
+
+    /**
+     * A subscriber with its queue, delivery state and metrics
+     */
+    public static final class Subscription {
+
+        private final IObserver observer;
+        private final DeliveryPolicy policy;
+        private final MpmcRingBuffer<Event> queue;
+        private final Map<Integer, Event> latestLevels;
+        private final Queue<Integer> dirtySources;
+        private final Executor executor;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder conflated = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile long lastLagNanos;
+        private volatile long maxLagNanos;
+        private volatile boolean running = true;
+
+        private Subscription(IObserver observer, DeliveryPolicy policy, int capacity, Executor executor) {
+            this.observer = observer;
+            this.policy = policy;
+            this.queue = new MpmcRingBuffer<>(capacity);
+            if (policy == DeliveryPolicy.CONFLATE) {
+                this.latestLevels = new ConcurrentHashMap<>();
+                this.dirtySources = new ConcurrentLinkedQueue<>();
+            } else {
+                this.latestLevels = null;
+                this.dirtySources = null;
+            }
+            this.executor = executor;
+        }
+
+        public IObserver getObserver() {
+            return observer;
+        }
+
+        public DeliveryPolicy getPolicy() {
+            return policy;
+        }
+
+        /**
+         * Gets the number of events waiting to be delivered
+         * @return The queue depth, including conflated sources
+         */
+        public int getDepth() {
+            return queue.size() + (latestLevels == null ? 0 : latestLevels.size());
+        }
+
+        /**
+         * Gets the time between publication and delivery of the last delivered event
+         * @return The lag in nanoseconds
+         */
+        public long getLagNanos() {
+            return lastLagNanos;
+        }
+
+        /**
+         * Gets the largest lag seen so far
+         * @return The maximum lag in nanoseconds
+         */
+        public long getMaxLagNanos() {
+            return maxLagNanos;
+        }
+
+        /**
+         * Gets the number of events discarded because the queue was full
+         * @return The dropped event count
+         */
+        public long getDropped() {
+            return dropped.sum();
+        }
+
+        /**
+         * Gets the number of level events replaced by a newer one for the same source
+         * @return The conflated event count
+         */
+        public long getConflated() {
+            return conflated.sum();
+        }
+
+        /**
+         * Gets the number of events delivered to the observer
+         * @return The delivered event count
+         */
+        public long getDelivered() {
+            return delivered.sum();
+        }
+
+        /**
+         * Gets the number of events whose delivery threw an exception in the observer
+         * @return The failed event count
+         */
+        public long getFailed() {
+            return failed.sum();
+        }
+
+        private void stop() {
+            running = false;
+        }
+
+        private void enqueue(Event event) {
+            if (!running) {
+                return;
+            }
+            if (latestLevels != null && event.alert == null) {
+                Integer id = event.source.getId();
+                if (latestLevels.put(id, event) == null) {
+                    dirtySources.offer(id);
+                } else {
+                    conflated.increment();
+                }
+            } else if (!queue.offer(event)) {
+                if (policy == DeliveryPolicy.BLOCK) {
+                    awaitRoom(event);
+                } else {
+                    do {
+                        if (queue.poll() != null) {
+                            dropped.increment();
+                        }
+                    } while (!queue.offer(event));
+                }
+            }
+            schedule();
+        }
+
+        private void awaitRoom(Event event) {
+            int spins = 0;
+            while (running && !queue.offer(event)) {
+                schedule();
+                if (++spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                }
+            }
+        }
+
+        private Event next() {
+            Event event = queue.poll();
+            if (event == null && dirtySources != null) {
+                Integer id = dirtySources.poll();
+                if (id != null) {
+                    event = latestLevels.remove(id);
+                }
+            }
+            return event;
+        }
+
+        private boolean isIdle() {
+            return queue.isEmpty() && (dirtySources == null || dirtySources.isEmpty());
+        }
+
+        /**
+         * Submits a drain of the queue unless one is already pending or running
+         */
+        private void schedule() {
+            if (running && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Delivers up to one batch of events and yields the executor thread to other subscribers;
+         * the drain is submitted again if events arrived meanwhile
+         */
+        private void drain() {
+            for (int i = 0; i < DRAIN_BATCH && running; i++) {
+                Event event = next();
+                if (event == null) {
+                    break;
+                }
+                deliver(event);
+            }
+            scheduled.set(false);
+            if (!isIdle()) {
+                schedule();
+            }
+        }
+
+        private void deliver(Event event) {
+            long start = DELIVERY_TIMER.start();
+            try {
+                if (event.alert != null) {
+                    observer.update(event.alert);
+                } else {
+                    observer.update(event.source, event.level);
+                }
+            } catch (RuntimeException e) {
+                // A failing observer must not stop delivery of later events; the failure is counted
+                failed.increment();
+                ERRORS.increment();
+            }
+            DELIVERY_TIMER.stop(start);
+            delivered.increment();
+            long lag = System.nanoTime() - event.publishedNanos;
+            LAG_TIMER.record(lag);
+            lastLagNanos = lag;
+            if (lag > maxLagNanos) {
+                maxLagNanos = lag;
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.aqua.observer;
+
+import com.aqua.alert.CriticalLevelAlert;
+import com.aqua.config.Configuration;
+import com.aqua.domain.WaterSource;
+import com.aqua.metrics.Counter;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
+import com.aqua.repository.IWaterSourceRepository;
+import com.aqua.repository.IntSlotIndex;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Monitors the water level of every source in a repository.
+ * Each evaluation copies IDs, capacities and levels into primitive arrays, computes the critical
+ * flag of the whole fleet in one branch-free loop that the JIT can vectorize, and then publishes
+ * per-source events only for what changed since the previous evaluation: a level event when the
+ * level moved, and a critical-level alert when a source crosses into the critical range.
+ * Batches of known sources are evaluated with {@link #evaluate(int[])} in O(batch), updating the
+ * same state so the next full evaluation does not publish their changes again.
+ */
+public class FleetLevelMonitor implements ISubject {
+
+    private static final Timer EVALUATE_TIMER = MetricsRegistry.global()
+        .timer("fleet_monitor_evaluate", "Tiempo de evaluación de toda la flota");
+    private static final Counter PUBLISHED_EVENTS = MetricsRegistry.global()
+        .counter("fleet_monitor_events", "Eventos publicados por el monitor de flota");
+
+    private final IWaterSourceRepository repository;
+    private final Configuration config;
+    private final EventBus eventBus;
+
+    private int[] ids = new int[0];
+    private double[] capacities = new double[0];
+    private double[] levels = new double[0];
+    private boolean[] critical = new boolean[0];
+    private int count;
+    // Position of each source in the current arrays, built on the first batch after a full evaluation
+    private IntSlotIndex slots;
+
+    private int[] previousIds = new int[0];
+    private double[] previousLevels = new double[0];
+    private boolean[] previousCritical = new boolean[0];
+    private int previousCount;
+
+    /**
+     * Constructor for FleetLevelMonitor
+     * @param repository The repository whose sources are monitored
+     * @param config The configuration holding the critical level threshold
+     */
+    public FleetLevelMonitor(IWaterSourceRepository repository, Configuration config) {
+        this(repository, config, new EventBus());
+    }
+
+    /**
+     * Constructor for FleetLevelMonitor that publishes through a shared event bus
+     * @param repository The repository whose sources are monitored
+     * @param config The configuration holding the critical level threshold
+     * @param eventBus The event bus used to notify observers
+     */
+    public FleetLevelMonitor(IWaterSourceRepository repository, Configuration config, EventBus eventBus) {
+        if (repository == null || config == null || eventBus == null) {
+            throw new IllegalArgumentException("Repository, configuration and event bus cannot be null");
+        }
+        this.repository = repository;
+        this.config = config;
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Evaluates the whole fleet and publishes the per-source events
+     * @return The number of events published
+     */
+    public synchronized int evaluate() {
+        long start = EVALUATE_TIMER.start();
+        swapGenerations();
+        load();
+        slots = null;
+        markCritical(config.getCriticalWaterLevelThreshold());
+        int published = publishChanges();
+        PUBLISHED_EVENTS.add(published);
+        EVALUATE_TIMER.stop(start);
+        return published;
+    }
+
+    /**
+     * Evaluates only the given sources, for example after a batch of level updates, and publishes
+     * their events. Costs O(batch) except for the first batch after a full evaluation, which
+     * indexes the monitored sources once.
+     * @param sourceIds The IDs of the sources to evaluate; unknown IDs are skipped
+     * @return The number of events published
+     */
+    public synchronized int evaluate(int[] sourceIds) {
+        if (sourceIds == null) {
+            throw new IllegalArgumentException("Source IDs cannot be null");
+        }
+        long start = EVALUATE_TIMER.start();
+        if (slots == null) {
+            slots = new IntSlotIndex(Math.max(count, 16));
+            for (int i = 0; i < count; i++) {
+                slots.put(ids[i], i);
+            }
+        }
+        double threshold = config.getCriticalWaterLevelThreshold();
+        int published = 0;
+        for (int id : sourceIds) {
+            WaterSource source = repository.getWaterSource(id);
+            if (source == null) {
+                continue;
+            }
+            double capacity = source.getCapacity();
+            double level = source.getCurrentLevel();
+            boolean isCritical = capacity > 0 & level <= threshold * capacity;
+            int slot = slots.get(id);
+            boolean levelChanged = slot < 0 || levels[slot] != level;
+            boolean becameCritical = isCritical && (slot < 0 || !critical[slot]);
+            if (slot < 0) {
+                slot = append(id);
+            }
+            capacities[slot] = capacity;
+            levels[slot] = level;
+            critical[slot] = isCritical;
+            published += publish(source, level, capacity, threshold, levelChanged, becameCritical);
+        }
+        PUBLISHED_EVENTS.add(published);
+        EVALUATE_TIMER.stop(start);
+        return published;
+    }
+
+    /**
+     * Gets the number of sources seen by the last evaluation
+     * @return The number of monitored sources
+     */
+    public synchronized int getMonitoredCount() {
+        return count;
+    }
+
+    /**
+     * Gets the number of sources that were critical in the last evaluation
+     * @return The number of critical sources
+     */
+    public synchronized int getCriticalCount() {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            if (critical[i]) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void registerObserver(IObserver observer) {
+        eventBus.subscribe(observer);
+    }
+
+    @Override
+    public void registerObserver(IObserver observer, DeliveryPolicy policy) {
+        eventBus.subscribe(observer, policy);
+    }
+
+    @Override
+    public void removeObserver(IObserver observer) {
+        eventBus.unsubscribe(observer);
+    }
+
+    @Override
+    public void notifyObservers() {
+        evaluate();
+    }
+
+    /**
+     * Gets the event bus used to notify observers
+     * @return The event bus
+     */
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Keeps the current arrays as the previous generation and reuses the old ones for the next load
+     */
+    private void swapGenerations() {
+        int[] idsSwap = previousIds;
+        previousIds = ids;
+        ids = idsSwap;
+        double[] levelsSwap = previousLevels;
+        previousLevels = levels;
+        levels = levelsSwap;
+        boolean[] criticalSwap = previousCritical;
+        previousCritical = critical;
+        critical = criticalSwap;
+        previousCount = count;
+    }
+
+    /**
+     * Copies the fleet into the current arrays, growing them when the repository has more sources
+     */
+    private void load() {
+        if (capacities.length < ids.length) {
+            capacities = new double[ids.length];
+        }
+        if (levels.length < ids.length) {
+            levels = new double[ids.length];
+        }
+        int loaded = repository.copyLevels(ids, capacities, levels);
+        while (loaded > ids.length) {
+            int length = Math.max(loaded, ids.length + (ids.length >> 1));
+            ids = new int[length];
+            capacities = new double[length];
+            levels = new double[length];
+            loaded = repository.copyLevels(ids, capacities, levels);
+        }
+        if (critical.length < ids.length) {
+            critical = new boolean[ids.length];
+        }
+        count = loaded;
+    }
+
+    /**
+     * Computes the critical flag of every source without branches in the loop body
+     */
+    private void markCritical(double threshold) {
+        int n = count;
+        double[] capacityColumn = capacities;
+        double[] levelColumn = levels;
+        boolean[] criticalColumn = critical;
+        for (int i = 0; i < n; i++) {
+            double capacity = capacityColumn[i];
+            criticalColumn[i] = capacity > 0 & levelColumn[i] <= threshold * capacity;
+        }
+    }
+
+    private int publishChanges() {
+        Map<Integer, Integer> previousSlots = null;
+        int published = 0;
+        double threshold = config.getCriticalWaterLevelThreshold();
+        for (int i = 0; i < count; i++) {
+            int id = ids[i];
+            int previous = -1;
+            if (i < previousCount && previousIds[i] == id) {
+                previous = i;
+            } else {
+                // The order changed: index the previous generation once per evaluation
+                if (previousSlots == null) {
+                    previousSlots = indexPrevious();
+                }
+                Integer slot = previousSlots.get(id);
+                previous = slot == null ? -1 : slot;
+            }
+            boolean levelChanged = previous < 0 || previousLevels[previous] != levels[i];
+            boolean becameCritical = critical[i] && (previous < 0 || !previousCritical[previous]);
+            if (!levelChanged && !becameCritical) {
+                continue;
+            }
+            WaterSource source = repository.getWaterSource(id);
+            if (source == null) {
+                continue;
+            }
+            published += publish(source, levels[i], capacities[i], threshold, levelChanged, becameCritical);
+        }
+        return published;
+    }
+
+    private int publish(WaterSource source, double level, double capacity, double threshold,
+                        boolean levelChanged, boolean becameCritical) {
+        int published = 0;
+        if (levelChanged) {
+            eventBus.publishLevel(source, level);
+            published++;
+        }
+        if (becameCritical) {
+            double ratio = level / capacity;
+            eventBus.publishAlert(new CriticalLevelAlert(
+                String.format("Nivel crítico de agua en %s ID: %d (%.1f%%)",
+                    source.getType(), source.getId(), ratio * 100),
+                source.getId(), ratio, threshold));
+            published++;
+        }
+        return published;
+    }
+
+    /**
+     * Adds a source that the last full evaluation did not see to the end of the current arrays
+     * @param id The source ID
+     * @return The position of the source
+     */
+    private int append(int id) {
+        if (count == ids.length) {
+            int length = Math.max(16, count + (count >> 1));
+            ids = Arrays.copyOf(ids, length);
+            critical = Arrays.copyOf(critical, length);
+        }
+        if (capacities.length < ids.length) {
+            capacities = Arrays.copyOf(capacities, ids.length);
+        }
+        if (levels.length < ids.length) {
+            levels = Arrays.copyOf(levels, ids.length);
+        }
+        ids[count] = id;
+        slots.put(id, count);
+        return count++;
+    }
+
+    private Map<Integer, Integer> indexPrevious() {
+        Map<Integer, Integer> slots = new HashMap<>(previousCount * 2);
+        for (int i = 0; i < previousCount; i++) {
+            slots.put(previousIds[i], i);
+        }
+        return slots;
+    }
+}
@@ -12,6 +12,16 @@ public interface ISubject {
      */
     void registerObserver(IObserver observer);
     
+    /**
+     * Registers a new observer with a specific delivery policy.
+     * Implementations that deliver synchronously ignore the policy.
+     * @param observer The observer to register
+     * @param policy What to do when the observer falls behind
+     */
+    default void registerObserver(IObserver observer, DeliveryPolicy policy) {
+        registerObserver(observer);
+    }
+    
     /**
      * Removes an observer
      * @param observer The observer to remove
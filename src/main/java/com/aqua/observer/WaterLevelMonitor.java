@@ -3,18 +3,23 @@ package com.aqua.observer;
 import com.aqua.domain.WaterSource;
 import com.aqua.alert.Alert;
 import com.aqua.alert.SystemAlert;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
 import java.util.Random;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Monitors water levels and notifies observers of changes.
  * This class implements the Subject part of the Observer pattern.
+ * Notifications are published through an {@link EventBus}, so observers run on the bus executor;
+ * the caller only waits when an observer that opted into {@link DeliveryPolicy#BLOCK} has a full queue.
  */
 public class WaterLevelMonitor implements ISubject {
+
+    private static final Timer NOTIFY_TIMER = MetricsRegistry.global()
+        .timer("observer_notify", "Tiempo de notificación de un cambio de nivel a los observadores");
     
     private WaterSource waterSource;
-    private List<IObserver> observers;
+    private final EventBus eventBus;
     private Random random;
 
     /**
@@ -22,8 +27,20 @@ public class WaterLevelMonitor implements ISubject {
      * @param waterSource The water source to monitor (can be null initially)
      */
     public WaterLevelMonitor(WaterSource waterSource) {
+        this(waterSource, new EventBus());
+    }
+
+    /**
+     * Constructor for WaterLevelMonitor that publishes through a shared event bus
+     * @param waterSource The water source to monitor (can be null initially)
+     * @param eventBus The event bus used to notify observers
+     */
+    public WaterLevelMonitor(WaterSource waterSource, EventBus eventBus) {
+        if (eventBus == null) {
+            throw new IllegalArgumentException("Event bus cannot be null");
+        }
         this.waterSource = waterSource;
-        this.observers = new ArrayList<>();
+        this.eventBus = eventBus;
         this.random = new Random();
     }
 
@@ -51,9 +68,10 @@ public class WaterLevelMonitor implements ISubject {
         if (waterSource == null) return;
         
         double change = (random.nextDouble() - 0.5) * 20; // Cambio aleatorio entre -10 y +10
-        double newLevel = Math.max(0, Math.min(waterSource.getCurrentLevel() + change, waterSource.getCapacity()));
+        // Actualización atómica, para no perder lecturas de otros sensores sobre la misma fuente
+        double newLevel = waterSource.addToLevel(change);
         
-        // Verificar si el nivel es crítico antes de actualizar
+        // Verificar si el nivel es crítico
         double levelPercentage = (newLevel / waterSource.getCapacity()) * 100;
         if (levelPercentage < 20) {
             SystemAlert alert = new SystemAlert(
@@ -61,34 +79,45 @@ public class WaterLevelMonitor implements ISubject {
                     waterSource.getType(), waterSource.getId(), levelPercentage),
                 Alert.AlertType.WARNING
             );
-            for (IObserver observer : observers) {
-                observer.update(alert);
-            }
+            eventBus.publishAlert(alert);
         }
         
-        waterSource.setCurrentLevel(newLevel);
         notifyObservers();
     }
 
     @Override
     public void registerObserver(IObserver observer) {
-        observers.add(observer);
+        eventBus.subscribe(observer);
+    }
+
+    @Override
+    public void registerObserver(IObserver observer, DeliveryPolicy policy) {
+        eventBus.subscribe(observer, policy);
     }
 
     @Override
     public void removeObserver(IObserver observer) {
-        observers.remove(observer);
+        eventBus.unsubscribe(observer);
     }
 
     @Override
     public void notifyObservers() {
-        if (waterSource != null) {
-            for (IObserver observer : observers) {
-                observer.update(waterSource, waterSource.getCurrentLevel());
-            }
+        WaterSource source = waterSource;
+        if (source != null) {
+            long start = NOTIFY_TIMER.start();
+            eventBus.publishLevel(source, source.getCurrentLevel());
+            NOTIFY_TIMER.stop(start);
         }
     }
 
+    /**
+     * Gets the event bus used to notify observers
+     * @return The event bus
+     */
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+
     /**
      * Gets the current water level
      * @return The current water level
@@ -1,14 +1,31 @@
 package com.aqua.report;
 
 import com.aqua.domain.WaterSource;
+import com.aqua.history.HistoryBucket;
+import com.aqua.history.HistoryMetric;
+import com.aqua.history.TimeSeries;
+import com.aqua.history.TimeSeriesStore;
+import com.aqua.metrics.Counter;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
+import com.aqua.repository.FleetRollup;
+import com.aqua.repository.FleetSnapshot;
 import com.aqua.repository.IWaterSourceRepository;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Generador de reportes históricos del sistema de gestión de agua.
@@ -17,14 +34,41 @@ import java.util.List;
 public class HistoricalReportGenerator implements IReportGenerator {
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final String SHEET_NAME = "Water Sources Report";
+    private static final String[] HEADERS = {"ID", "Type", "Location", "Capacity", "Quality"};
+    private static final int STREAMING_ROW_WINDOW = 100;
+    private static final int WIDTH_SAMPLE_ROWS = 1000;
+    private static final int WIDTH_PADDING_CHARS = 2;
+    private static final int MAX_WIDTH_CHARS = 60;
+    private static final int MAX_SUMMARY_GROUPS = 100;
+
+    private static final Timer WRITE_TIMER = MetricsRegistry.global()
+        .timer("report_write", "Tiempo de escritura del reporte por fuente");
+    private static final Timer SUMMARY_TIMER = MetricsRegistry.global()
+        .timer("report_summary", "Tiempo de generación del reporte resumido");
+    private static final Timer EXCEL_TIMER = MetricsRegistry.global()
+        .timer("report_excel_export", "Tiempo de exportación del reporte a Excel");
+    private static final Counter EXCEL_ROWS = MetricsRegistry.global()
+        .counter("report_excel_rows", "Fuentes exportadas a Excel");
     private final IWaterSourceRepository repository;
+    private final TimeSeriesStore historyStore;
 
     /**
      * Constructor para HistoricalReportGenerator
      * @param repository El repositorio de fuentes de agua
      */
     public HistoricalReportGenerator(IWaterSourceRepository repository) {
+        this(repository, null);
+    }
+
+    /**
+     * Constructor para HistoricalReportGenerator con historial de niveles y calidad
+     * @param repository El repositorio de fuentes de agua
+     * @param historyStore El almacén de series temporales, o null si no se guarda historial
+     */
+    public HistoricalReportGenerator(IWaterSourceRepository repository, TimeSeriesStore historyStore) {
         this.repository = repository;
+        this.historyStore = historyStore;
     }
 
     /**
@@ -34,77 +78,321 @@ public class HistoricalReportGenerator implements IReportGenerator {
     @Override
     public String generateReport() {
         StringBuilder report = new StringBuilder();
-        report.append("Sistema de Gestión de Agua - Reporte Histórico\n");
+        try {
+            writeReport(report, ReportQuery.all());
+        } catch (IOException e) {
+            // StringBuilder no lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return report.toString();
+    }
+
+    /**
+     * Escribe el reporte histórico fuente por fuente, recorriendo la última versión publicada de la
+     * flota, de modo que el total y las fuentes corresponden al mismo instante aunque la simulación
+     * siga escribiendo. Cada fuente se arma en un búfer reutilizado y se envía al destino con una sola llamada.
+     * @param out El destino del reporte
+     * @param query Las fuentes a incluir y el tramo a escribir
+     * @return Lo escrito y si quedan más fuentes
+     * @throws IOException Si falla la escritura
+     */
+    @Override
+    public ReportPage writeReport(Appendable out, ReportQuery query) throws IOException {
+        if (out == null || query == null) {
+            throw new IllegalArgumentException("El destino y la consulta no pueden ser nulos");
+        }
+        long start = WRITE_TIMER.start();
+        try {
+            return writeRecords(out, query);
+        } finally {
+            WRITE_TIMER.stop(start);
+        }
+    }
+
+    private ReportPage writeRecords(Appendable out, ReportQuery query) throws IOException {
+        StringBuilder record = new StringBuilder(256);
+        record.append("Sistema de Gestión de Agua - Reporte Histórico\n");
+        record.append("Generado el: ").append(LocalDateTime.now().format(DATE_FORMATTER)).append("\n\n");
+        // La versión publicada da un total coherente con el recorrido; sin ella se recorre el cursor
+        // para no copiar la flota en cada página
+        Iterator<WaterSource> cursor;
+        int total;
+        if (repository.publishesFleetSnapshot()) {
+            FleetSnapshot snapshot = repository.getFleetSnapshot();
+            cursor = snapshot.iterator();
+            total = snapshot.size();
+        } else {
+            cursor = repository.cursor();
+            total = repository.size();
+        }
+        record.append("Total de Fuentes de Agua: ").append(total).append("\n");
+        if (query.isPartial()) {
+            record.append("Fuentes coincidentes desde la n.º ").append(query.getOffset() + 1).append("\n");
+        }
+        record.append("\n");
+        out.append(record);
+        
+        int skipped = 0;
+        int written = 0;
+        while (cursor.hasNext()) {
+            WaterSource source = cursor.next();
+            if (!query.getFilter().test(source)) {
+                continue;
+            }
+            if (skipped < query.getOffset()) {
+                skipped++;
+                continue;
+            }
+            if (written == query.getLimit()) {
+                return new ReportPage(query.getOffset(), written, true);
+            }
+            record.setLength(0);
+            record.append("ID de Fuente: ").append(source.getId()).append("\n");
+            record.append("Tipo: ").append(source.getType()).append("\n");
+            record.append("Ubicación: ").append(source.getLocation()).append("\n");
+            record.append("Capacidad: ").append(source.getCapacity()).append(" m³\n");
+            record.append("Calidad Actual: ").append(source.getQuality()).append("\n");
+            record.append("----------------------------------------\n");
+            out.append(record);
+            written++;
+        }
+        return new ReportPage(query.getOffset(), written, false);
+    }
+
+    /**
+     * Genera un reporte resumido de la flota a partir de los agregados del repositorio.
+     * Con un repositorio indexado su costo depende del número de grupos y no del número de fuentes.
+     * @return El reporte resumido como una cadena de texto
+     */
+    public String generateSummaryReport() {
+        long start = SUMMARY_TIMER.start();
+        try {
+            return buildSummaryReport();
+        } finally {
+            SUMMARY_TIMER.stop(start);
+        }
+    }
+
+    private String buildSummaryReport() {
+        FleetRollup rollup = repository.getRollup();
+        FleetRollup.GroupTotals totals = rollup.getTotals();
+        StringBuilder report = new StringBuilder();
+        report.append("Sistema de Gestión de Agua - Reporte Resumido\n");
         report.append("Generado el: ").append(LocalDateTime.now().format(DATE_FORMATTER)).append("\n\n");
         
-        List<WaterSource> sources = repository.listWaterSources();
-        report.append("Total de Fuentes de Agua: ").append(sources.size()).append("\n\n");
+        report.append("Total de Fuentes de Agua: ").append(totals.getCount()).append("\n");
+        report.append(String.format("Capacidad Total: %.1f m³\n", totals.getCapacity()));
+        report.append(String.format("Nivel Total: %.1f m³ (%.1f%%)\n\n", totals.getLevel(), totals.getFillRatio() * 100));
+        
+        report.append("Distribución del Llenado\n");
+        report.append(String.format("  mín %.1f%%  p50 %.1f%%  p90 %.1f%%  p99 %.1f%%  máx %.1f%%\n\n",
+            rollup.getMinFillRatio() * 100, rollup.getFillRatioPercentile(0.5) * 100,
+            rollup.getFillRatioPercentile(0.9) * 100, rollup.getFillRatioPercentile(0.99) * 100,
+            rollup.getMaxFillRatio() * 100));
+        
+        appendGroups(report, "Por Tipo", rollup.getByType());
+        appendGroups(report, "Por Calidad", rollup.getByQuality());
+        appendGroups(report, "Por Ubicación", rollup.getByLocation());
+        return report.toString();
+    }
+
+    private static void appendGroups(StringBuilder report, String title, Map<String, FleetRollup.GroupTotals> groups) {
+        report.append(title).append("\n");
+        int shown = 0;
+        for (FleetRollup.GroupTotals group : groups.values()) {
+            if (shown++ == MAX_SUMMARY_GROUPS) {
+                report.append("  ... y ").append(groups.size() - MAX_SUMMARY_GROUPS).append(" grupos más\n");
+                break;
+            }
+            report.append(String.format("  %s: %d fuentes, %.1f m³ de %.1f m³ (%.1f%%)\n",
+                group.getKey(), group.getCount(), group.getLevel(), group.getCapacity(), group.getFillRatio() * 100));
+        }
+        report.append("\n");
+    }
+
+    /**
+     * Genera un reporte con la evolución del nivel y la calidad de cada fuente en un periodo,
+     * agregando el nivel en intervalos de la duración indicada
+     * @param from Inicio del periodo en milisegundos, inclusivo
+     * @param to Fin del periodo en milisegundos, exclusivo
+     * @param bucketMillis La duración de cada intervalo
+     * @return El reporte generado como una cadena de texto
+     */
+    public String generateHistoryReport(long from, long to, long bucketMillis) {
+        if (historyStore == null) {
+            throw new IllegalStateException("No hay historial configurado");
+        }
+        StringBuilder report = new StringBuilder();
+        report.append("Sistema de Gestión de Agua - Historial de Niveles\n");
+        report.append("Periodo: ").append(formatMillis(from)).append(" - ").append(formatMillis(to)).append("\n\n");
         
-        for (WaterSource source : sources) {
-            report.append("ID de Fuente: ").append(source.getId()).append("\n");
-            report.append("Tipo: ").append(source.getType()).append("\n");
-            report.append("Ubicación: ").append(source.getLocation()).append("\n");
-            report.append("Capacidad: ").append(source.getCapacity()).append(" m³\n");
-            report.append("Calidad Actual: ").append(source.getQuality()).append("\n");
+        for (int sourceId : historyStore.getSourceIds()) {
+            List<HistoryBucket> buckets = historyStore.downsample(sourceId, HistoryMetric.LEVEL, from, to, bucketMillis);
+            TimeSeries qualities = historyStore.range(sourceId, HistoryMetric.QUALITY, from, to);
+            if (buckets.isEmpty() && qualities.size() == 0) {
+                continue;
+            }
+            report.append("ID de Fuente: ").append(sourceId).append("\n");
+            for (HistoryBucket bucket : buckets) {
+                report.append(String.format("  %s  mín %.1f  prom %.1f  máx %.1f  (%d lecturas)\n",
+                    formatMillis(bucket.getStart()), bucket.getMin(), bucket.getAverage(), bucket.getMax(),
+                    bucket.getCount()));
+            }
+            for (int i = 0; i < qualities.size(); i++) {
+                report.append("  ").append(formatMillis(qualities.getTimestamp(i)))
+                    .append("  Calidad: ").append(historyStore.qualityLabel(qualities.getValue(i))).append("\n");
+            }
             report.append("----------------------------------------\n");
         }
         
         return report.toString();
     }
 
+    private static String formatMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(DATE_FORMATTER);
+    }
+
     /**
      * Exporta el reporte en el formato especificado
-     * @param format El formato de exportación (solo soporta "EXCEL" por ahora)
+     * @param format El formato de exportación: "EXCEL", o "EXCEL_STREAMING" para flotas grandes
      */
     @Override
     public void exportReport(String format) {
         if ("EXCEL".equalsIgnoreCase(format)) {
-            exportToExcel();
+            exportToExcel(false);
+        } else if ("EXCEL_STREAMING".equalsIgnoreCase(format)) {
+            exportToExcel(true);
         } else {
             throw new IllegalArgumentException("Formato no soportado: " + format);
         }
     }
     
     /**
-     * Exporta el reporte a formato Excel
+     * Exporta el reporte a formato Excel en un archivo con marca de tiempo
      */
-    private void exportToExcel() {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Water Sources Report");
-            
-            // Create header row
-            Row headerRow = sheet.createRow(0);
-            String[] headers = {"ID", "Type", "Location", "Capacity", "Quality"};
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-            }
-            
-            // Add data rows
-            List<WaterSource> sources = repository.listWaterSources();
-            int rowNum = 1;
-            for (WaterSource source : sources) {
-                Row row = sheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(source.getId());
-                row.createCell(1).setCellValue(source.getType());
-                row.createCell(2).setCellValue(source.getLocation());
-                row.createCell(3).setCellValue(source.getCapacity());
-                row.createCell(4).setCellValue(source.getQuality());
-            }
-            
-            // Auto-size columns
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-            }
-            
-            // Save the workbook
-            String fileName = "water_sources_report_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
-            try (FileOutputStream fileOut = new FileOutputStream(fileName)) {
-                workbook.write(fileOut);
-            }
-            
+    private void exportToExcel(boolean streaming) {
+        String fileName = "water_sources_report_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
+        try (OutputStream fileOut = new BufferedOutputStream(new FileOutputStream(fileName))) {
+            exportToExcel(fileOut, streaming);
         } catch (IOException e) {
             throw new RuntimeException("Failed to generate Excel report", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Escribe el reporte en formato Excel.
+     * Las filas se leen de la última versión publicada de la flota, por lo que el libro muestra un
+     * solo instante. En modo streaming solo se mantiene en memoria
+     * una ventana de {@value #STREAMING_ROW_WINDOW} filas; el resto se vuelca a un archivo temporal
+     * comprimido. El ancho de las columnas se calcula a partir de las primeras
+     * {@value #WIDTH_SAMPLE_ROWS} filas en lugar de medir todas las celdas.
+     * @param out El flujo donde se escribe el libro; no se cierra
+     * @param streaming true para usar el libro por ventana de filas, false para el libro completo en memoria
+     * @return El número de fuentes exportadas
+     * @throws IOException Si falla la escritura
+     */
+    public int exportToExcel(OutputStream out, boolean streaming) throws IOException {
+        long start = EXCEL_TIMER.start();
+        try {
+            int rows = writeWorkbook(out, streaming);
+            EXCEL_ROWS.add(rows);
+            return rows;
+        } finally {
+            EXCEL_TIMER.stop(start);
+        }
+    }
+
+    private int writeWorkbook(OutputStream out, boolean streaming) throws IOException {
+        if (!streaming) {
+            try (Workbook workbook = new XSSFWorkbook()) {
+                int rows = writeClassicSheet(workbook.createSheet(SHEET_NAME));
+                workbook.write(out);
+                return rows;
+            }
+        }
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, STREAMING_ROW_WINDOW, true, true);
+        try {
+            int rows = writeStreamingSheet(workbook.createSheet(SHEET_NAME));
+            workbook.write(out);
+            return rows;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private int writeClassicSheet(Sheet sheet) {
+        writeHeader(sheet);
+        
+        // Add data rows
+        int rowNum = 1;
+        Iterator<WaterSource> cursor = fleetCursor();
+        while (cursor.hasNext()) {
+            writeRow(sheet.createRow(rowNum++), cursor.next());
+        }
+        
+        // Auto-size columns
+        for (int i = 0; i < HEADERS.length; i++) {
+            sheet.autoSizeColumn(i);
+        }
+        return rowNum - 1;
+    }
+
+    private int writeStreamingSheet(Sheet sheet) {
+        writeHeader(sheet);
+        int[] widths = new int[HEADERS.length];
+        for (int i = 0; i < HEADERS.length; i++) {
+            widths[i] = HEADERS[i].length();
+        }
+        
+        Iterator<WaterSource> cursor = fleetCursor();
+        int rowNum = 1;
+        while (cursor.hasNext()) {
+            WaterSource source = cursor.next();
+            writeRow(sheet.createRow(rowNum), source);
+            if (rowNum <= WIDTH_SAMPLE_ROWS) {
+                widths[0] = Math.max(widths[0], String.valueOf(source.getId()).length());
+                widths[1] = Math.max(widths[1], length(source.getType()));
+                widths[2] = Math.max(widths[2], length(source.getLocation()));
+                widths[3] = Math.max(widths[3], String.valueOf(source.getCapacity()).length());
+                widths[4] = Math.max(widths[4], length(source.getQuality()));
+            }
+            rowNum++;
+        }
+        
+        // El ancho se expresa en 1/256 del ancho de un carácter, con margen y un tope razonable
+        for (int i = 0; i < HEADERS.length; i++) {
+            sheet.setColumnWidth(i, Math.min(widths[i] + WIDTH_PADDING_CHARS, MAX_WIDTH_CHARS) * 256);
+        }
+        return rowNum - 1;
+    }
+
+    /**
+     * Recorre la versión publicada de la flota si el repositorio la mantiene y, si no, su cursor,
+     * de modo que la exportación nunca copia la flota completa
+     * @return Cursor sobre las fuentes de agua
+     */
+    private Iterator<WaterSource> fleetCursor() {
+        return repository.publishesFleetSnapshot() ? repository.getFleetSnapshot().iterator() : repository.cursor();
+    }
+
+    private static void writeHeader(Sheet sheet) {
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(HEADERS[i]);
+        }
+    }
+
+    private static void writeRow(Row row, WaterSource source) {
+        row.createCell(0).setCellValue(source.getId());
+        row.createCell(1).setCellValue(source.getType());
+        row.createCell(2).setCellValue(source.getLocation());
+        row.createCell(3).setCellValue(source.getCapacity());
+        row.createCell(4).setCellValue(source.getQuality());
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -1,5 +1,11 @@
 package com.aqua.report;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Interface for report generation.
  * This interface defines the contract for different types of report generators.
@@ -12,6 +18,29 @@ public interface IReportGenerator {
      */
     String generateReport();
     
+    /**
+     * Writes the report incrementally, one source at a time, so the full text is never held in memory
+     * @param out The destination of the report text
+     * @param query The sources to include and the page to write
+     * @return What was written and whether more sources follow
+     * @throws IOException If the destination fails
+     */
+    ReportPage writeReport(Appendable out, ReportQuery query) throws IOException;
+    
+    /**
+     * Writes the report as UTF-8 to a channel through a small buffer; the channel is not closed
+     * @param channel The destination channel
+     * @param query The sources to include and the page to write
+     * @return What was written and whether more sources follow
+     * @throws IOException If the channel fails
+     */
+    default ReportPage writeReport(WritableByteChannel channel, ReportQuery query) throws IOException {
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), 8192);
+        ReportPage page = writeReport(writer, query);
+        writer.flush();
+        return page;
+    }
+    
     /**
      * Exports the report in a specific format
      * @param format The format to export the report in (e.g., "PDF", "EXCEL")
@@ -0,0 +1,39 @@
+package com.aqua.report;
+
+/**
+ * Resultado de escribir un tramo de un reporte
+ */
+public final class ReportPage {
+
+    private final int offset;
+    private final int written;
+    private final boolean more;
+
+    /**
+     * Constructor para ReportPage
+     * @param offset El desplazamiento de la consulta
+     * @param written El número de fuentes escritas
+     * @param more true si hay más fuentes coincidentes después del tramo
+     */
+    public ReportPage(int offset, int written, boolean more) {
+        this.offset = offset;
+        this.written = written;
+        this.more = more;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getWritten() {
+        return written;
+    }
+
+    /**
+     * Indica si quedan fuentes coincidentes después del tramo escrito
+     * @return true si hay una página siguiente
+     */
+    public boolean hasMore() {
+        return more;
+    }
+}
@@ -0,0 +1,68 @@
+package com.aqua.report;
+
+import com.aqua.domain.WaterSource;
+import java.util.function.Predicate;
+import lombok.Getter;
+
+/**
+ * Consulta de un reporte por fuente: qué fuentes incluir y qué tramo de ellas escribir.
+ * El desplazamiento y el límite se cuentan sobre las fuentes que cumplen el filtro.
+ */
+@Getter
+public final class ReportQuery {
+
+    private static final Predicate<WaterSource> ALL_SOURCES = source -> true;
+
+    private final Predicate<WaterSource> filter;
+    private final int offset;
+    private final int limit;
+
+    /**
+     * Constructor para ReportQuery
+     * @param filter El filtro de fuentes, o null para incluirlas todas
+     * @param offset El número de fuentes coincidentes que se omiten
+     * @param limit El número máximo de fuentes que se escriben
+     */
+    public ReportQuery(Predicate<WaterSource> filter, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("El desplazamiento y el límite no pueden ser negativos");
+        }
+        this.filter = filter == null ? ALL_SOURCES : filter;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Crea una consulta que incluye todas las fuentes
+     * @return La consulta
+     */
+    public static ReportQuery all() {
+        return new ReportQuery(null, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Crea la consulta de una página
+     * @param filter El filtro de fuentes, o null para incluirlas todas
+     * @param page El número de página, empezando en 0
+     * @param pageSize El número de fuentes por página
+     * @return La consulta
+     */
+    public static ReportQuery page(Predicate<WaterSource> filter, int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("La página no puede ser negativa y su tamaño debe ser positivo");
+        }
+        long offset = (long) page * pageSize;
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Página fuera de rango: " + page);
+        }
+        return new ReportQuery(filter, (int) offset, pageSize);
+    }
+
+    /**
+     * Indica si la consulta puede dejar fuera alguna fuente
+     * @return true si hay filtro, desplazamiento o límite
+     */
+    public boolean isPartial() {
+        return filter != ALL_SOURCES || offset > 0 || limit < Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,445 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Implementación columnar del repositorio de fuentes de agua.
+ * Los IDs, capacidades y niveles se guardan en arreglos primitivos paralelos y las cadenas
+ * (tipo, ubicación y calidad) se codifican en diccionarios, de modo que los recorridos
+ * sobre toda la flota leen memoria contigua y el heap no crece con un objeto por fuente.
+ * Las fuentes devueltas son objetos ligeros que leen y escriben directamente en las columnas.
+ * Las escrituras se serializan; las lecturas no toman bloqueos y, al igual que las vistas de
+ * un ConcurrentHashMap, son débilmente consistentes frente a modificaciones concurrentes.
+ * La comparación e intercambio de niveles tampoco toma el bloqueo: se hace con un {@link VarHandle}
+ * sobre la columna de niveles y solo espera a las compactaciones y al crecimiento de las columnas
+ * ({@link StructureGuard}).
+ */
+public class ColumnarWaterSourceRepository implements IWaterSourceRepository, SourceColumns {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final VarHandle LEVELS = MethodHandles.arrayElementVarHandle(double[].class);
+
+    private final StringDictionary types = new StringDictionary();
+    private final StringDictionary locations = new StringDictionary();
+    private final StringDictionary qualities = new StringDictionary();
+    private final IntSlotIndex index;
+    private final StructureGuard guard = new StructureGuard();
+
+    private int[] ids;
+    private double[] capacities;
+    private double[] levels;
+    private int[] typeCodes;
+    private int[] locationCodes;
+    private int[] qualityCodes;
+    private volatile int size;
+
+    /**
+     * Constructor que inicializa las columnas con la capacidad predeterminada
+     */
+    public ColumnarWaterSourceRepository() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor que reserva espacio para el número esperado de fuentes
+     * @param initialCapacity Número de fuentes para el que se reserva espacio
+     */
+    public ColumnarWaterSourceRepository(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive");
+        }
+        this.index = new IntSlotIndex(initialCapacity);
+        this.ids = new int[initialCapacity];
+        this.capacities = new double[initialCapacity];
+        this.levels = new double[initialCapacity];
+        this.typeCodes = new int[initialCapacity];
+        this.locationCodes = new int[initialCapacity];
+        this.qualityCodes = new int[initialCapacity];
+    }
+
+    /**
+     * Guarda una nueva fuente de agua copiando sus valores a las columnas.
+     * Si ya existe una fuente con el mismo ID, sus valores se reemplazan.
+     * @param source La fuente de agua a guardar
+     */
+    @Override
+    public synchronized void addWaterSource(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        int slot = index.get(source.getId());
+        if (slot < 0) {
+            slot = size;
+            ensureCapacity(slot + 1);
+            ids[slot] = source.getId();
+            index.put(source.getId(), slot);
+            write(slot, source);
+            size = slot + 1;
+        } else {
+            write(slot, source);
+        }
+    }
+
+    /**
+     * Guarda una nueva fuente de agua si no existe otra con el mismo ID
+     * @param source La fuente de agua a guardar
+     * @return true si se guardó, false si el ID ya estaba ocupado
+     */
+    @Override
+    public synchronized boolean addIfAbsent(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        if (index.get(source.getId()) >= 0) {
+            return false;
+        }
+        addWaterSource(source);
+        return true;
+    }
+
+    /**
+     * Actualiza una fuente de agua existente copiando sus valores a las columnas
+     * @param source La fuente de agua actualizada
+     */
+    @Override
+    public synchronized void updateWaterSource(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        int slot = index.get(source.getId());
+        if (slot < 0) {
+            throw new IllegalStateException("Water source with ID " + source.getId() + " does not exist");
+        }
+        if (source instanceof FlyweightWaterSource && ((FlyweightWaterSource) source).isBackedBy(this)) {
+            return; // Los cambios ya se escribieron directamente en las columnas
+        }
+        write(slot, source);
+    }
+
+    /**
+     * Elimina una fuente de agua moviendo la última fuente a su posición para mantener las columnas densas
+     * @param id El ID de la fuente de agua a eliminar
+     */
+    @Override
+    public synchronized void removeWaterSource(int id) {
+        int slot = index.get(id);
+        if (slot < 0) {
+            return;
+        }
+        int last = size - 1;
+        guard.beginChange();
+        try {
+            index.remove(id);
+            if (slot != last) {
+                ids[slot] = ids[last];
+                capacities[slot] = capacities[last];
+                levels[slot] = levels[last];
+                typeCodes[slot] = typeCodes[last];
+                locationCodes[slot] = locationCodes[last];
+                qualityCodes[slot] = qualityCodes[last];
+                index.put(ids[slot], slot);
+            }
+            size = last;
+        } finally {
+            guard.endChange();
+        }
+    }
+
+    /**
+     * Guarda varias fuentes de agua adquiriendo el bloqueo una sola vez
+     * @param sources Las fuentes de agua a guardar
+     */
+    @Override
+    public synchronized void addAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        ensureCapacity(size + sources.size());
+        for (WaterSource source : sources) {
+            addWaterSource(source);
+        }
+    }
+
+    /**
+     * Actualiza varias fuentes de agua adquiriendo el bloqueo una sola vez
+     * @param sources Las fuentes de agua actualizadas
+     */
+    @Override
+    public synchronized void updateAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        for (WaterSource source : sources) {
+            updateWaterSource(source);
+        }
+    }
+
+    /**
+     * Elimina varias fuentes de agua adquiriendo el bloqueo una sola vez
+     * @param ids Los IDs de las fuentes de agua a eliminar
+     */
+    @Override
+    public synchronized void removeAll(int[] ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("IDs cannot be null");
+        }
+        for (int id : ids) {
+            removeWaterSource(id);
+        }
+    }
+
+    /**
+     * Escribe los niveles directamente en la columna de niveles, sin crear objetos
+     * @param ids Los IDs de las fuentes de agua
+     * @param levels Los nuevos niveles, en paralelo a {@code ids}
+     * @return El número de fuentes actualizadas
+     */
+    @Override
+    public synchronized int bulkUpdateLevels(int[] ids, double[] levels) {
+        IWaterSourceRepository.checkLevelBatch(ids, levels);
+        int updated = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int slot = index.get(ids[i]);
+            if (slot >= 0) {
+                this.levels[slot] = Math.max(0, Math.min(levels[i], capacities[slot]));
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Copia las columnas de IDs, capacidades y niveles con copias de arreglo, de forma consistente
+     * @param ids Recibe los IDs
+     * @param capacities Recibe las capacidades
+     * @param levels Recibe los niveles actuales
+     * @return El número de fuentes almacenadas
+     */
+    @Override
+    public synchronized int copyLevels(int[] ids, double[] capacities, double[] levels) {
+        IWaterSourceRepository.checkLevelColumns(ids, capacities, levels);
+        int count = Math.min(size, ids.length);
+        System.arraycopy(this.ids, 0, ids, 0, count);
+        System.arraycopy(this.capacities, 0, capacities, 0, count);
+        System.arraycopy(this.levels, 0, levels, 0, count);
+        return size;
+    }
+
+    /**
+     * Busca una fuente de agua por su ID
+     * @param id El ID de la fuente de agua
+     * @return Una vista ligera de la fuente, o null si no existe
+     */
+    @Override
+    public synchronized WaterSource getWaterSource(int id) {
+        // La vista se arma bajo el bloqueo para que una compactación no le cambie la posición
+        int slot = index.get(id);
+        return slot < 0 ? null : flyweight(slot);
+    }
+
+    /**
+     * Obtiene una copia de la lista de fuentes de agua; cada elemento es una fuente ligera que lee
+     * las columnas. Para recorrer la flota sin copiar la lista se usa {@link #cursor()}.
+     * @return Lista de todas las fuentes de agua
+     */
+    @Override
+    public synchronized List<WaterSource> listWaterSources() {
+        List<WaterSource> sources = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            sources.add(flyweight(slot));
+        }
+        return sources;
+    }
+
+    /**
+     * Recorre las posiciones de las columnas sin copiar la lista de fuentes
+     * @return Cursor débilmente consistente sobre las fuentes de agua
+     */
+    @Override
+    public Iterator<WaterSource> cursor() {
+        return new SlotCursor(() -> size, this::occupiedFlyweight);
+    }
+
+    /**
+     * Obtiene el número de fuentes almacenadas
+     * @return El número de fuentes
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Obtiene una vista de solo lectura de la columna de IDs, sin copiarla
+     * @return Vista de los IDs en orden de posición
+     */
+    public IntBuffer idView() {
+        return IntBuffer.wrap(ids, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Obtiene una vista de solo lectura de la columna de capacidades, sin copiarla
+     * @return Vista de las capacidades en orden de posición
+     */
+    public DoubleBuffer capacityView() {
+        return DoubleBuffer.wrap(capacities, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Obtiene una vista de solo lectura de la columna de niveles, sin copiarla
+     * @return Vista de los niveles actuales en orden de posición
+     */
+    public DoubleBuffer levelView() {
+        return DoubleBuffer.wrap(levels, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public synchronized int slotOf(int id) {
+        return index.get(id);
+    }
+
+    @Override
+    public boolean holds(int slot, int id) {
+        return slot < size && ids[slot] == id;
+    }
+
+    public int idAt(int slot) {
+        return ids[slot];
+    }
+
+    @Override
+    public double capacityAt(int slot) {
+        return capacities[slot];
+    }
+
+    @Override
+    public double levelAt(int slot) {
+        return levels[slot];
+    }
+
+    public String typeAt(int slot) {
+        return types.decode(typeCodes[slot]);
+    }
+
+    @Override
+    public String locationAt(int slot) {
+        return locations.decode(locationCodes[slot]);
+    }
+
+    @Override
+    public String qualityAt(int slot) {
+        return qualities.decode(qualityCodes[slot]);
+    }
+
+    @Override
+    public synchronized double setCapacityById(int slot, int id, double capacity) {
+        int s = resolve(slot, id);
+        double previous = capacities[s];
+        capacities[s] = capacity;
+        return previous;
+    }
+
+    @Override
+    public int compareAndSetLevelById(int slot, int id, double expected, double level) {
+        int stripe = guard.enter(slot);
+        if (stripe < 0) {
+            return lockedCompareAndSetLevel(slot, id, expected, level);
+        }
+        try {
+            if (!holds(slot, id)) {
+                return SLOT_MOVED;
+            }
+            return LEVELS.compareAndSet(levels, slot, expected, level) ? LEVEL_SET : LEVEL_CHANGED;
+        } finally {
+            guard.exit(stripe);
+        }
+    }
+
+    private synchronized int lockedCompareAndSetLevel(int slot, int id, double expected, double level) {
+        if (!holds(slot, id)) {
+            return SLOT_MOVED;
+        }
+        return LEVELS.compareAndSet(levels, slot, expected, level) ? LEVEL_SET : LEVEL_CHANGED;
+    }
+
+    @Override
+    public synchronized String setLocationById(int slot, int id, String location) {
+        int s = resolve(slot, id);
+        String previous = locations.decode(locationCodes[s]);
+        locationCodes[s] = locations.encode(location);
+        return previous;
+    }
+
+    @Override
+    public synchronized String setQualityById(int slot, int id, String quality) {
+        int s = resolve(slot, id);
+        String previous = qualities.decode(qualityCodes[s]);
+        qualityCodes[s] = qualities.encode(quality);
+        return previous;
+    }
+
+    /**
+     * Obtiene la posición vigente de una fuente; se llama con el bloqueo tomado
+     * @param slot La posición donde se espera la fuente
+     * @param id El ID de la fuente
+     * @return La posición que contiene la fuente
+     */
+    private int resolve(int slot, int id) {
+        if (holds(slot, id)) {
+            return slot;
+        }
+        int current = index.get(id);
+        if (current < 0) {
+            throw new IllegalStateException("Water source with ID " + id + " does not exist");
+        }
+        return current;
+    }
+
+    /**
+     * Crea la fuente ligera de una posición si todavía está ocupada, leyendo su ID y tipo bajo el bloqueo
+     * @param slot La posición
+     * @return La fuente, o null si el almacén se redujo por debajo de la posición
+     */
+    private synchronized FlyweightWaterSource occupiedFlyweight(int slot) {
+        return slot < size ? flyweight(slot) : null;
+    }
+
+    private FlyweightWaterSource flyweight(int slot) {
+        return new FlyweightWaterSource(this, slot, ids[slot], typeAt(slot));
+    }
+
+    private void write(int slot, WaterSource source) {
+        capacities[slot] = source.getCapacity();
+        levels[slot] = source.getCurrentLevel();
+        typeCodes[slot] = types.encode(source.getType());
+        locationCodes[slot] = locations.encode(source.getLocation());
+        qualityCodes[slot] = qualities.encode(source.getQuality());
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int newLength = Math.max(required, ids.length + (ids.length >> 1));
+        guard.beginChange();
+        try {
+            ids = Arrays.copyOf(ids, newLength);
+            capacities = Arrays.copyOf(capacities, newLength);
+            levels = Arrays.copyOf(levels, newLength);
+            typeCodes = Arrays.copyOf(typeCodes, newLength);
+            locationCodes = Arrays.copyOf(locationCodes, newLength);
+            qualityCodes = Arrays.copyOf(qualityCodes, newLength);
+        } finally {
+            guard.endChange();
+        }
+    }
+}
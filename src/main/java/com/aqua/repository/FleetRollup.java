@@ -0,0 +1,283 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+/**
+ * Agregados de la flota mantenidos de forma incremental: número de fuentes, capacidad y nivel
+ * totales, los mismos totales por tipo, calidad y ubicación, y un histograma de la proporción
+ * de llenado del que se obtienen mínimo, máximo y percentiles.
+ *
+ * <p>Capacidades y niveles se acumulan en milésimas con aritmética entera, de modo que sumar
+ * y restar millones de cambios no acumula error de redondeo. El histograma tiene
+ * {@value #SKETCH_BINS} tramos de igual ancho, así que los percentiles tienen un error
+ * máximo de una milésima de la capacidad. Las lecturas no toman bloqueos y cuestan
+ * O(grupos), no O(fuentes); mientras hay escrituras concurrentes son consistentes por grupo
+ * pero no entre grupos.</p>
+ */
+public class FleetRollup {
+
+    /**
+     * Número de tramos de igual ancho del histograma de llenado en [0, 1);
+     * un tramo adicional agrupa las fuentes llenas
+     */
+    public static final int SKETCH_BINS = 1000;
+
+    private static final double SCALE = 1000;
+
+    private final Group total = new Group(null);
+    private final Map<String, Group> byType = new ConcurrentHashMap<>();
+    private final Map<String, Group> byQuality = new ConcurrentHashMap<>();
+    private final Map<String, Group> byLocation = new ConcurrentHashMap<>();
+    private final AtomicLongArray fillBins = new AtomicLongArray(SKETCH_BINS + 1);
+
+    /**
+     * Obtiene los totales de toda la flota
+     * @return Los totales
+     */
+    public GroupTotals getTotals() {
+        return total.totals();
+    }
+
+    /**
+     * Obtiene los totales por tipo de fuente
+     * @return Los totales, ordenados por tipo
+     */
+    public Map<String, GroupTotals> getByType() {
+        return totals(byType);
+    }
+
+    /**
+     * Obtiene los totales por calidad del agua
+     * @return Los totales, ordenados por calidad
+     */
+    public Map<String, GroupTotals> getByQuality() {
+        return totals(byQuality);
+    }
+
+    /**
+     * Obtiene los totales por ubicación
+     * @return Los totales, ordenados por ubicación
+     */
+    public Map<String, GroupTotals> getByLocation() {
+        return totals(byLocation);
+    }
+
+    /**
+     * Obtiene la proporción de llenado mínima, redondeada hacia abajo a la resolución del histograma
+     * @return La proporción mínima, o 0 si no hay fuentes
+     */
+    public double getMinFillRatio() {
+        for (int bin = 0; bin <= SKETCH_BINS; bin++) {
+            if (fillBins.get(bin) > 0) {
+                return (double) bin / SKETCH_BINS;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Obtiene la proporción de llenado máxima, redondeada hacia arriba a la resolución del histograma
+     * @return La proporción máxima, o 0 si no hay fuentes
+     */
+    public double getMaxFillRatio() {
+        for (int bin = SKETCH_BINS; bin >= 0; bin--) {
+            if (fillBins.get(bin) > 0) {
+                return Math.min(1, (double) (bin + 1) / SKETCH_BINS);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Estima un percentil de la proporción de llenado, interpolando dentro del tramo que lo contiene
+     * @param percentile El percentil, entre 0 y 1
+     * @return La proporción de llenado estimada, o 0 si no hay fuentes
+     */
+    public double getFillRatioPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 1)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1");
+        }
+        long[] bins = new long[SKETCH_BINS + 1];
+        long count = 0;
+        for (int bin = 0; bin <= SKETCH_BINS; bin++) {
+            bins[bin] = fillBins.get(bin);
+            count += bins[bin];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        double target = Math.max(1, Math.ceil(percentile * count));
+        long seen = 0;
+        for (int bin = 0; bin < SKETCH_BINS; bin++) {
+            if (seen + bins[bin] >= target) {
+                return (bin + (target - seen) / bins[bin]) / SKETCH_BINS;
+            }
+            seen += bins[bin];
+        }
+        return 1;
+    }
+
+    /**
+     * Suma una fuente a los agregados; usado para calcularlos con un recorrido completo
+     * @param source La fuente de agua
+     */
+    void add(WaterSource source) {
+        apply(group(byType, source.getType()), group(byQuality, source.getQuality()),
+            group(byLocation, source.getLocation()), 1,
+            scale(source.getCapacity()), scale(source.getCurrentLevel()));
+        moveFill(-1, binOf(IWaterSourceRepository.fillRatio(source.getCurrentLevel(), source.getCapacity())));
+    }
+
+    Group typeGroup(String type) {
+        return group(byType, type);
+    }
+
+    Group qualityGroup(String quality) {
+        return group(byQuality, quality);
+    }
+
+    Group locationGroup(String location) {
+        return group(byLocation, location);
+    }
+
+    /**
+     * Aplica un cambio a los totales y a los grupos de una fuente
+     * @param type El grupo del tipo, o null
+     * @param quality El grupo de la calidad, o null
+     * @param location El grupo de la ubicación, o null
+     * @param count El cambio en el número de fuentes
+     * @param capacity El cambio de capacidad, en milésimas
+     * @param level El cambio de nivel, en milésimas
+     */
+    void apply(Group type, Group quality, Group location, int count, long capacity, long level) {
+        total.add(count, capacity, level);
+        if (type != null) {
+            type.add(count, capacity, level);
+        }
+        if (quality != null) {
+            quality.add(count, capacity, level);
+        }
+        if (location != null) {
+            location.add(count, capacity, level);
+        }
+    }
+
+    /**
+     * Libera un grupo que ya no tiene fuentes.
+     * Solo debe llamarse con las escrituras de pertenencia serializadas.
+     */
+    void release(Group type, Group quality, Group location) {
+        release(byType, type);
+        release(byQuality, quality);
+        release(byLocation, location);
+    }
+
+    /**
+     * Mueve una fuente entre tramos del histograma; -1 indica ningún tramo
+     */
+    void moveFill(int previousBin, int bin) {
+        if (previousBin == bin) {
+            return;
+        }
+        if (previousBin >= 0) {
+            fillBins.decrementAndGet(previousBin);
+        }
+        if (bin >= 0) {
+            fillBins.incrementAndGet(bin);
+        }
+    }
+
+    static int binOf(double ratio) {
+        if (!(ratio > 0)) {
+            return 0;
+        }
+        return ratio >= 1 ? SKETCH_BINS : (int) (ratio * SKETCH_BINS);
+    }
+
+    static long scale(double value) {
+        return Math.round(value * SCALE);
+    }
+
+    private static Group group(Map<String, Group> groups, String key) {
+        return key == null ? null : groups.computeIfAbsent(key, Group::new);
+    }
+
+    private static void release(Map<String, Group> groups, Group group) {
+        if (group != null && group.count.sum() == 0) {
+            groups.remove(group.key, group);
+        }
+    }
+
+    private static Map<String, GroupTotals> totals(Map<String, Group> groups) {
+        Map<String, GroupTotals> result = new TreeMap<>();
+        for (Map.Entry<String, Group> entry : groups.entrySet()) {
+            GroupTotals totals = entry.getValue().totals();
+            if (totals.getCount() > 0) {
+                result.put(entry.getKey(), totals);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Acumuladores de un grupo de fuentes
+     */
+    static final class Group {
+        private final String key;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder capacity = new LongAdder();
+        private final LongAdder level = new LongAdder();
+
+        private Group(String key) {
+            this.key = key;
+        }
+
+        private void add(int countDelta, long capacityDelta, long levelDelta) {
+            if (countDelta != 0) {
+                count.add(countDelta);
+            }
+            if (capacityDelta != 0) {
+                capacity.add(capacityDelta);
+            }
+            if (levelDelta != 0) {
+                level.add(levelDelta);
+            }
+        }
+
+        private GroupTotals totals() {
+            return new GroupTotals(key, count.sum(), capacity.sum() / SCALE, level.sum() / SCALE);
+        }
+    }
+
+    /**
+     * Totales de un grupo en el momento de la consulta
+     */
+    @Getter
+    public static final class GroupTotals {
+        private final String key;
+        private final long count;
+        private final double capacity;
+        private final double level;
+
+        GroupTotals(String key, long count, double capacity, double level) {
+            this.key = key;
+            this.count = count;
+            this.capacity = capacity;
+            this.level = level;
+        }
+
+        /**
+         * Obtiene la proporción de llenado agregada del grupo
+         * @return El nivel total dividido entre la capacidad total
+         */
+        public double getFillRatio() {
+            return IWaterSourceRepository.fillRatio(level, capacity);
+        }
+    }
+}
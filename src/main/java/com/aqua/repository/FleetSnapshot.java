@@ -0,0 +1,358 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Versión inmutable de la flota en un instante. Las fuentes se guardan como copias de solo lectura
+ * en un trie persistente de 32 ramas indexado por los bits del ID, con nodos comprimidos por mapa de
+ * bits para que los IDs dispersos no reserven ramas vacías. Cada cambio copia solo el camino de la
+ * raíz a la fuente, a lo sumo siete nodos, y comparte el resto con la versión anterior, de modo que
+ * publicar una versión nueva tiene un costo acotado y los lectores que conservan una versión
+ * anterior la siguen viendo completa y sin cambios.
+ *
+ * <p>Las fuentes se recorren en orden ascendente de ID. Los cambios de muchas fuentes se agrupan con
+ * {@link #toBuilder()}, que modifica en el lugar los nodos que ya copió y publica una sola versión.
+ * La época numera las versiones publicadas a partir de {@link #EMPTY}.</p>
+ */
+public final class FleetSnapshot implements Iterable<WaterSource> {
+
+    public static final FleetSnapshot EMPTY = new FleetSnapshot(null, 0, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int TOP_SHIFT = 30;
+    private static final int DEPTH = TOP_SHIFT / BITS + 1;
+
+    private final Node root;
+    private final int size;
+    private final long epoch;
+
+    private FleetSnapshot(Node root, int size, long epoch) {
+        this.root = root;
+        this.size = size;
+        this.epoch = epoch;
+    }
+
+    /**
+     * Crea una versión con el estado actual de varias fuentes
+     * @param sources Las fuentes de agua
+     * @return La versión, con época 1
+     */
+    public static FleetSnapshot of(Iterable<? extends WaterSource> sources) {
+        Builder builder = EMPTY.toBuilder();
+        for (WaterSource source : sources) {
+            builder.put(source);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Obtiene el número de la versión; cada versión publicada tiene uno mayor que la anterior
+     * @return La época de la versión
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Obtiene una fuente de la versión
+     * @param id El ID de la fuente
+     * @return La copia de solo lectura de la fuente, o null si no está en la versión
+     */
+    public WaterSource get(int id) {
+        int key = key(id);
+        Node node = root;
+        for (int shift = TOP_SHIFT; node != null; shift -= BITS) {
+            int bit = bit(key, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.children[node.index(bit)];
+            if (shift == 0) {
+                return (WaterSource) child;
+            }
+            node = (Node) child;
+        }
+        return null;
+    }
+
+    /**
+     * Crea una versión con el estado actual de una fuente, agregándola o reemplazando su copia anterior
+     * @param source La fuente de agua
+     * @return La nueva versión, o esta misma si la fuente no cambió
+     */
+    public FleetSnapshot with(WaterSource source) {
+        return toBuilder().put(source).build();
+    }
+
+    /**
+     * Crea una versión sin una fuente
+     * @param id El ID de la fuente
+     * @return La nueva versión, o esta misma si la fuente no estaba
+     */
+    public FleetSnapshot without(int id) {
+        return toBuilder().remove(id).build();
+    }
+
+    /**
+     * Crea un constructor que parte de esta versión para aplicar varios cambios y publicarlos juntos
+     * @return El constructor
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Recorre las fuentes de la versión en orden ascendente de ID
+     * @return El iterador sobre las copias de solo lectura
+     */
+    @Override
+    public Iterator<WaterSource> iterator() {
+        return new Cursor(root);
+    }
+
+    /**
+     * Convierte el ID en la clave del trie, de modo que el orden sin signo de las claves sea el orden de los IDs
+     */
+    private static int key(int id) {
+        return id ^ Integer.MIN_VALUE;
+    }
+
+    private static int bit(int key, int shift) {
+        return 1 << ((key >>> shift) & MASK);
+    }
+
+    /**
+     * Nodo del trie: un mapa de bits con las ramas presentes y sus hijos en orden. En el último nivel
+     * los hijos son las fuentes. Solo el constructor que creó o copió un nodo puede modificarlo.
+     */
+    private static final class Node {
+        final Object owner;
+        int bitmap;
+        Object[] children;
+
+        Node(Object owner, int bitmap, Object[] children) {
+            this.owner = owner;
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    /**
+     * Aplica varios cambios sobre una versión y publica el resultado como una sola versión nueva.
+     * Los nodos que copia le pertenecen y los cambios siguientes los modifican en el lugar, de modo
+     * que un lote de cambios no crea una copia del camino por cada fuente. No es seguro para hilos
+     * y no puede usarse después de {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final FleetSnapshot base;
+        private Object owner = new Object();
+        private Node root;
+        private int size;
+
+        private Builder(FleetSnapshot base) {
+            this.base = base;
+            this.root = base.root;
+            this.size = base.size;
+        }
+
+        /**
+         * Agrega o reemplaza la copia de una fuente con su estado actual
+         * @param source La fuente de agua
+         * @return Este constructor
+         */
+        public Builder put(WaterSource source) {
+            if (source == null) {
+                throw new IllegalArgumentException("Water source cannot be null");
+            }
+            checkOpen();
+            root = put(root, TOP_SHIFT, key(source.getId()), source);
+            return this;
+        }
+
+        /**
+         * Quita una fuente
+         * @param id El ID de la fuente
+         * @return Este constructor
+         */
+        public Builder remove(int id) {
+            checkOpen();
+            root = remove(root, TOP_SHIFT, key(id));
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Publica los cambios como una versión nueva
+         * @return La nueva versión, o la versión de partida si ningún cambio la modificó
+         */
+        public FleetSnapshot build() {
+            checkOpen();
+            owner = null;
+            if (root == base.root) {
+                return base;
+            }
+            return new FleetSnapshot(root, size, base.epoch + 1);
+        }
+
+        private void checkOpen() {
+            if (owner == null) {
+                throw new IllegalStateException("Snapshot builder has already been built");
+            }
+        }
+
+        private Node put(Node node, int shift, int key, WaterSource source) {
+            if (node == null) {
+                node = new Node(owner, 0, new Object[0]);
+            }
+            int bit = bit(key, shift);
+            int index = node.index(bit);
+            if ((node.bitmap & bit) != 0) {
+                Object child = node.children[index];
+                Object replacement;
+                if (shift == 0) {
+                    if (((FrozenWaterSource) child).sameState(source)) {
+                        return node;
+                    }
+                    replacement = FrozenWaterSource.of(source);
+                } else {
+                    replacement = put((Node) child, shift - BITS, key, source);
+                    if (replacement == child) {
+                        return node;
+                    }
+                }
+                Node editable = editable(node);
+                editable.children[index] = replacement;
+                return editable;
+            }
+            Object inserted = shift == 0 ? FrozenWaterSource.of(source) : put(null, shift - BITS, key, source);
+            if (shift == 0) {
+                size++;
+            }
+            Object[] children = new Object[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            children[index] = inserted;
+            System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+            Node editable = node.owner == owner ? node : new Node(owner, 0, null);
+            editable.bitmap = node.bitmap | bit;
+            editable.children = children;
+            return editable;
+        }
+
+        /**
+         * Quita la clave del subárbol
+         * @return El nodo resultante, o null si quedó vacío
+         */
+        private Node remove(Node node, int shift, int key) {
+            if (node == null) {
+                return null;
+            }
+            int bit = bit(key, shift);
+            if ((node.bitmap & bit) == 0) {
+                return node;
+            }
+            int index = node.index(bit);
+            if (shift != 0) {
+                Node child = (Node) node.children[index];
+                Node replacement = remove(child, shift - BITS, key);
+                if (replacement == child) {
+                    return node;
+                }
+                if (replacement != null) {
+                    Node editable = editable(node);
+                    editable.children[index] = replacement;
+                    return editable;
+                }
+            } else {
+                size--;
+            }
+            if (node.children.length == 1) {
+                return null;
+            }
+            Object[] children = new Object[node.children.length - 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            System.arraycopy(node.children, index + 1, children, index, children.length - index);
+            Node editable = node.owner == owner ? node : new Node(owner, 0, null);
+            editable.bitmap = node.bitmap & ~bit;
+            editable.children = children;
+            return editable;
+        }
+
+        private Node editable(Node node) {
+            return node.owner == owner ? node : new Node(owner, node.bitmap, node.children.clone());
+        }
+    }
+
+    /**
+     * Recorrido en profundidad con una pila explícita, de izquierda a derecha en cada nodo
+     */
+    private static final class Cursor implements Iterator<WaterSource> {
+
+        private final Node[] nodes = new Node[DEPTH];
+        private final int[] positions = new int[DEPTH];
+        private int depth = -1;
+        private WaterSource next;
+
+        Cursor(Node root) {
+            if (root != null) {
+                nodes[0] = root;
+                depth = 0;
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public WaterSource next() {
+            WaterSource current = next;
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                int position = positions[depth];
+                if (position == node.children.length) {
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 1;
+                Object child = node.children[position];
+                if (depth == DEPTH - 1) {
+                    next = (WaterSource) child;
+                    return;
+                }
+                depth++;
+                nodes[depth] = (Node) child;
+                positions[depth] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import java.util.Objects;
+
+/**
+ * Fuente de agua ligera que no guarda estado propio.
+ * Todas las lecturas y escrituras se delegan a las columnas del almacén que la creó,
+ * por lo que crear una instancia solo cuesta un objeto pequeño con el ID y la posición.
+ */
+class FlyweightWaterSource extends WaterSource {
+
+    private final SourceColumns columns;
+    private int slot;
+
+    /**
+     * Constructor para FlyweightWaterSource
+     * @param columns Las columnas que contienen los datos de la fuente
+     * @param slot La posición actual de la fuente en las columnas
+     * @param id Identificador único de la fuente de agua
+     * @param type Tipo de fuente de agua
+     */
+    FlyweightWaterSource(SourceColumns columns, int slot, int id, String type) {
+        super(id, type, 0, null, null);
+        this.columns = columns;
+        this.slot = slot;
+    }
+
+    /**
+     * Indica si esta fuente lee y escribe en las columnas indicadas
+     * @param other Las columnas a comparar
+     * @return true si la fuente pertenece a esas columnas
+     */
+    boolean isBackedBy(SourceColumns other) {
+        return columns == other;
+    }
+
+    /**
+     * Obtiene la posición vigente de la fuente, volviéndola a buscar si el almacén se compactó
+     * @return La posición de la fuente en las columnas
+     */
+    private int slot() {
+        if (!columns.holds(slot, getId())) {
+            int current = columns.slotOf(getId());
+            if (current < 0) {
+                throw new IllegalStateException("Water source with ID " + getId() + " does not exist");
+            }
+            slot = current;
+        }
+        return slot;
+    }
+
+    @Override
+    public double getCapacity() {
+        return columns.capacityAt(slot());
+    }
+
+    /**
+     * Cambia la capacidad en las columnas; el almacén verifica bajo su bloqueo que la posición siga
+     * siendo de esta fuente y devuelve el valor que reemplazó. Lo mismo vale para la ubicación y la calidad.
+     */
+    @Override
+    public void setCapacity(double capacity) {
+        double previous = columns.setCapacityById(slot, getId(), capacity);
+        if (previous != capacity) {
+            notifyCapacityChanged(previous);
+        }
+    }
+
+    @Override
+    public String getLocation() {
+        return columns.locationAt(slot());
+    }
+
+    @Override
+    public void setLocation(String location) {
+        String previous = columns.setLocationById(slot, getId(), location);
+        if (!Objects.equals(previous, location)) {
+            notifyLocationChanged(previous);
+        }
+    }
+
+    @Override
+    public String getQuality() {
+        return columns.qualityAt(slot());
+    }
+
+    @Override
+    public void setQuality(String quality) {
+        String previous = columns.setQualityById(slot, getId(), quality);
+        if (!Objects.equals(previous, quality)) {
+            notifyQualityChanged(previous);
+        }
+    }
+
+    @Override
+    public double getCurrentLevel() {
+        return columns.levelAt(slot());
+    }
+
+    /**
+     * Reemplaza el nivel como un intercambio atómico: se compara e intercambia hasta que el nivel
+     * leído siga vigente, de modo que ningún cambio concurrente se pierde y el aviso lleva el nivel
+     * realmente reemplazado
+     */
+    @Override
+    public void setCurrentLevel(double currentLevel) {
+        while (true) {
+            int s = slot();
+            double previous = columns.levelAt(s);
+            double level = Math.max(0, Math.min(currentLevel, columns.capacityAt(s)));
+            if (columns.compareAndSetLevelById(s, getId(), previous, level) == SourceColumns.LEVEL_SET) {
+                if (previous != level) {
+                    notifyLevelChanged(previous);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Cambia el nivel en las columnas solo si todavía es el esperado; el almacén verifica que la
+     * posición siga siendo de esta fuente y hace la comparación y la escritura como una sola operación.
+     * Si la fuente se movió mientras tanto, se vuelve a buscar su posición y se reintenta.
+     */
+    @Override
+    public boolean compareAndSetLevel(double expectedLevel, double newLevel) {
+        while (true) {
+            int s = slot();
+            double level = Math.max(0, Math.min(newLevel, columns.capacityAt(s)));
+            int result = columns.compareAndSetLevelById(s, getId(), expectedLevel, level);
+            if (result == SourceColumns.SLOT_MOVED) {
+                continue;
+            }
+            if (result == SourceColumns.LEVEL_CHANGED) {
+                return false;
+            }
+            if (expectedLevel != level) {
+                notifyLevelChanged(expectedLevel);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void updateQuality(String quality) {
+        setQuality(quality);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FlyweightWaterSource)) return false;
+        FlyweightWaterSource other = (FlyweightWaterSource) o;
+        return columns == other.columns && getId() == other.getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return getId();
+    }
+}
@@ -0,0 +1,105 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import com.aqua.domain.WaterSourceListener;
+import java.util.Objects;
+
+/**
+ * Copia inmutable del estado de una fuente de agua en un instante, usada por {@link FleetSnapshot}.
+ * Guarda sus propios valores y rechaza cualquier modificación, por lo que puede compartirse entre
+ * versiones de la flota y leerse desde cualquier hilo sin bloqueos.
+ */
+final class FrozenWaterSource extends WaterSource {
+
+    private final double capacity;
+    private final String location;
+    private final String quality;
+    private final double currentLevel;
+
+    private FrozenWaterSource(WaterSource source) {
+        super(source.getId(), source.getType(), 0, null, null);
+        this.capacity = source.getCapacity();
+        this.location = source.getLocation();
+        this.quality = source.getQuality();
+        this.currentLevel = source.getCurrentLevel();
+    }
+
+    /**
+     * Copia el estado actual de una fuente
+     * @param source La fuente de agua
+     * @return La copia, o la misma fuente si ya era una copia inmutable
+     */
+    static WaterSource of(WaterSource source) {
+        return source instanceof FrozenWaterSource ? source : new FrozenWaterSource(source);
+    }
+
+    /**
+     * Indica si la copia tiene los mismos valores que una fuente
+     * @param source La fuente de agua
+     * @return true si ninguno de los valores copiados cambió
+     */
+    boolean sameState(WaterSource source) {
+        return capacity == source.getCapacity() && currentLevel == source.getCurrentLevel()
+            && Objects.equals(location, source.getLocation())
+            && Objects.equals(quality, source.getQuality());
+    }
+
+    @Override
+    public double getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getLocation() {
+        return location;
+    }
+
+    @Override
+    public String getQuality() {
+        return quality;
+    }
+
+    @Override
+    public double getCurrentLevel() {
+        return currentLevel;
+    }
+
+    @Override
+    public void updateQuality(String quality) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCapacity(double capacity) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setLocation(String location) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setQuality(String quality) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCurrentLevel(double currentLevel) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean compareAndSetLevel(double expectedLevel, double newLevel) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addChangeListener(WaterSourceListener listener) {
+        throw readOnly();
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Water source " + getId() + " is a read-only snapshot");
+    }
+}
@@ -1,7 +1,12 @@
 package com.aqua.repository;
 
 import com.aqua.domain.WaterSource;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Interface defining the contract for water source repository operations.
@@ -15,6 +20,27 @@ public interface IWaterSourceRepository {
      */
     void addWaterSource(WaterSource source);
     
+    /**
+     * Adds a water source unless one with the same ID already exists, as a single atomic step
+     * with respect to the other writes of the repository.
+     * The default implementation locks the repository, so it is only atomic against writers that
+     * lock it as well; repositories with their own concurrency control override it.
+     * @param source The water source to add
+     * @return true if the source was added, false if its ID was already taken
+     */
+    default boolean addIfAbsent(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        synchronized (this) {
+            if (getWaterSource(source.getId()) != null) {
+                return false;
+            }
+            addWaterSource(source);
+            return true;
+        }
+    }
+    
     /**
      * Updates an existing water source in the repository
      * @param source The water source to update
@@ -39,4 +65,248 @@ public interface IWaterSourceRepository {
      * @return A list of all water sources
      */
     List<WaterSource> listWaterSources();
-} 
\ No newline at end of file
+    
+    /**
+     * Gets the number of water sources
+     * @return The number of water sources
+     */
+    default int size() {
+        return listWaterSources().size();
+    }
+    
+    /**
+     * Iterates over all water sources without materializing a copy of the fleet.
+     * The iteration is weakly consistent: sources added or removed meanwhile may or may not be seen.
+     * @return A cursor over the water sources
+     */
+    default Iterator<WaterSource> cursor() {
+        return listWaterSources().iterator();
+    }
+    
+    /**
+     * Finds the water sources of a given type.
+     * The default implementation scans every source; indexed repositories answer in O(result).
+     * @param type The source type (e.g. "RIVER", "WELL")
+     * @return The matching water sources
+     */
+    default List<WaterSource> findByType(String type) {
+        return listWaterSources().stream()
+                .filter(source -> Objects.equals(type, source.getType()))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Finds the water sources with a given water quality
+     * @param quality The water quality (e.g. "GOOD", "FAIR", "POOR")
+     * @return The matching water sources
+     */
+    default List<WaterSource> findByQuality(String quality) {
+        return listWaterSources().stream()
+                .filter(source -> Objects.equals(quality, source.getQuality()))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Finds the water sources whose location starts with the given prefix
+     * @param prefix The location prefix
+     * @return The matching water sources
+     */
+    default List<WaterSource> findByLocationPrefix(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Location prefix cannot be null");
+        }
+        return listWaterSources().stream()
+                .filter(source -> source.getLocation() != null && source.getLocation().startsWith(prefix))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Finds the water sources whose fill ratio (currentLevel / capacity) lies in [minRatio, maxRatio)
+     * @param minRatio The inclusive lower bound of the fill ratio
+     * @param maxRatio The exclusive upper bound of the fill ratio
+     * @return The matching water sources
+     */
+    default List<WaterSource> findByFillRatio(double minRatio, double maxRatio) {
+        return listWaterSources().stream()
+                .filter(source -> {
+                    double ratio = fillRatio(source.getCurrentLevel(), source.getCapacity());
+                    return ratio >= minRatio && ratio < maxRatio;
+                })
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Gets the fleet aggregates: totals by type, quality and location and the fill ratio distribution.
+     * The default implementation computes them with a full scan; repositories that maintain them
+     * incrementally return a live view instead.
+     * @return The fleet aggregates
+     */
+    default FleetRollup getRollup() {
+        FleetRollup rollup = new FleetRollup();
+        Iterator<WaterSource> sources = cursor();
+        while (sources.hasNext()) {
+            rollup.add(sources.next());
+        }
+        return rollup;
+    }
+    
+    /**
+     * Gets a consistent point-in-time view of the fleet as read-only copies of the water sources.
+     * The default implementation copies every source; repositories that publish a new version on
+     * each change return the current one in O(1).
+     * @return The fleet snapshot
+     */
+    default FleetSnapshot getFleetSnapshot() {
+        FleetSnapshot.Builder builder = FleetSnapshot.EMPTY.toBuilder();
+        Iterator<WaterSource> sources = cursor();
+        while (sources.hasNext()) {
+            builder.put(sources.next());
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Tells whether {@link #getFleetSnapshot()} returns an already published version in O(1)
+     * instead of copying the fleet. Readers that only need one pass over the fleet and must not
+     * allocate per source use {@link #cursor()} when this returns false.
+     * @return true if the repository publishes fleet snapshots
+     */
+    default boolean publishesFleetSnapshot() {
+        return false;
+    }
+    
+    /**
+     * Runs a group of writes to water sources of this repository. Repositories that publish a fleet
+     * snapshot on every change publish the changes made by the group on the calling thread as a
+     * single version when it ends; the default implementation just runs the writes.
+     * @param writes The writes to run
+     * @param <T> The type of the result of the writes
+     * @return The result of the writes
+     */
+    default <T> T runBatch(Supplier<T> writes) {
+        return writes.get();
+    }
+    
+    /**
+     * Computes the fill ratio of a source, treating a non-positive capacity as empty
+     * @param level The current level
+     * @param capacity The capacity
+     * @return The fill ratio
+     */
+    static double fillRatio(double level, double capacity) {
+        return capacity > 0 ? level / capacity : 0;
+    }
+    
+    /**
+     * Adds several water sources in one batch
+     * @param sources The water sources to add
+     */
+    default void addAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        for (WaterSource source : sources) {
+            addWaterSource(source);
+        }
+    }
+    
+    /**
+     * Updates several existing water sources in one batch.
+     * The batch is not atomic: sources preceding a missing one remain updated.
+     * @param sources The water sources to update
+     * @throws IllegalStateException If one of the sources does not exist
+     */
+    default void updateAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        for (WaterSource source : sources) {
+            updateWaterSource(source);
+        }
+    }
+    
+    /**
+     * Removes several water sources in one batch
+     * @param ids The IDs of the water sources to remove
+     */
+    default void removeAll(int[] ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("IDs cannot be null");
+        }
+        for (int id : ids) {
+            removeWaterSource(id);
+        }
+    }
+    
+    /**
+     * Sets the current level of several water sources in one batch.
+     * Levels are clamped to each source's capacity; unknown IDs are skipped.
+     * @param ids The IDs of the water sources
+     * @param levels The new levels, parallel to {@code ids}
+     * @return The number of sources that were updated
+     */
+    default int bulkUpdateLevels(int[] ids, double[] levels) {
+        checkLevelBatch(ids, levels);
+        int updated = 0;
+        for (int i = 0; i < ids.length; i++) {
+            WaterSource source = getWaterSource(ids[i]);
+            if (source != null) {
+                source.setCurrentLevel(levels[i]);
+                updated++;
+            }
+        }
+        return updated;
+    }
+    
+    /**
+     * Copies the ID, capacity and level of every water source into caller-supplied arrays.
+     * Only the first {@code ids.length} sources are written; when the returned count is larger,
+     * the caller grows the arrays and calls again.
+     * @param ids Receives the IDs
+     * @param capacities Receives the capacities, parallel to {@code ids}
+     * @param levels Receives the current levels, parallel to {@code ids}
+     * @return The number of water sources in the repository
+     */
+    default int copyLevels(int[] ids, double[] capacities, double[] levels) {
+        checkLevelColumns(ids, capacities, levels);
+        int count = 0;
+        for (WaterSource source : listWaterSources()) {
+            if (count < ids.length) {
+                ids[count] = source.getId();
+                capacities[count] = source.getCapacity();
+                levels[count] = source.getCurrentLevel();
+            }
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Validates the arguments of {@link #copyLevels(int[], double[], double[])}
+     * @param ids The array that receives the IDs
+     * @param capacities The array that receives the capacities
+     * @param levels The array that receives the levels
+     */
+    static void checkLevelColumns(int[] ids, double[] capacities, double[] levels) {
+        if (ids == null || capacities == null || levels == null) {
+            throw new IllegalArgumentException("Level columns cannot be null");
+        }
+        if (capacities.length < ids.length || levels.length < ids.length) {
+            throw new IllegalArgumentException("Level columns must be at least as long as the ID column");
+        }
+    }
+    
+    /**
+     * Validates the arguments of {@link #bulkUpdateLevels(int[], double[])}
+     * @param ids The IDs of the water sources
+     * @param levels The new levels
+     */
+    static void checkLevelBatch(int[] ids, double[] levels) {
+        if (ids == null || levels == null) {
+            throw new IllegalArgumentException("IDs and levels cannot be null");
+        }
+        if (ids.length != levels.length) {
+            throw new IllegalArgumentException("IDs and levels must have the same length");
+        }
+    }
+}
\ No newline at end of file
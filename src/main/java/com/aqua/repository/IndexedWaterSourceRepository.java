@@ -0,0 +1,435 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import com.aqua.domain.WaterSourceListener;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Repositorio que mantiene índices secundarios sobre otro repositorio.
+ * Los índices por tipo, calidad, ubicación y proporción de llenado se actualizan con cada
+ * mutación del repositorio y con cada cambio de nivel, capacidad, calidad o ubicación de las
+ * fuentes, de modo que las consultas selectivas cuestan O(resultado) en lugar de O(flota).
+ * Los agregados de la flota ({@link FleetRollup}) se mantienen de la misma forma.
+ *
+ * <p>El repositorio se registra como oyente de cambios de cada fuente que entrega, junto a los
+ * demás oyentes que la fuente ya tenga. Otros componentes que necesiten los cambios de las fuentes
+ * se registran con {@link #addChangeListener(WaterSourceListener)} y los reciben después de que los
+ * índices se actualizan.</p>
+ *
+ * <p>Los lectores obtienen con {@link #getFleetSnapshot()} una versión inmutable de la flota
+ * ({@link FleetSnapshot}). Los escritores no publican versiones: solo anotan el ID que cambió en un
+ * conjunto concurrente de fuentes pendientes, sin competir entre sí por la versión. La siguiente
+ * lectura que encuentra fuentes pendientes publica una sola versión con todas ellas; cada ID se
+ * saca del conjunto antes de copiar la fuente, de modo que un cambio posterior a la copia vuelve a
+ * anotarse y la versión publicada nunca queda atrás del último cambio visto. Sin cambios
+ * pendientes, la lectura devuelve la versión vigente en O(1). Los cambios de
+ * {@link #runBatch(Supplier)} y de las operaciones por lote se anotan juntos al terminar.</p>
+ */
+public class IndexedWaterSourceRepository implements IWaterSourceRepository, WaterSourceListener {
+
+    private final IWaterSourceRepository delegate;
+    private final WaterSourceIndex index = new WaterSourceIndex();
+    private final List<WaterSourceListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<ChangedIds> batches = new ThreadLocal<>();
+    private volatile FleetSnapshot snapshot;
+
+    /**
+     * Constructor que indexa las fuentes que ya existen en el repositorio delegado
+     * @param delegate El repositorio donde se guardan las fuentes
+     */
+    public IndexedWaterSourceRepository(IWaterSourceRepository delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate repository cannot be null");
+        }
+        this.delegate = delegate;
+        List<WaterSource> sources = delegate.listWaterSources();
+        for (WaterSource source : sources) {
+            index.put(attach(source));
+        }
+        snapshot = FleetSnapshot.of(sources);
+    }
+
+    @Override
+    public void addWaterSource(WaterSource source) {
+        delegate.addWaterSource(source);
+        index.put(attach(source));
+        changed(source.getId());
+    }
+
+    @Override
+    public boolean addIfAbsent(WaterSource source) {
+        if (!delegate.addIfAbsent(source)) {
+            return false;
+        }
+        index.put(attach(source));
+        changed(source.getId());
+        return true;
+    }
+
+    @Override
+    public void updateWaterSource(WaterSource source) {
+        delegate.updateWaterSource(source);
+        index.put(attach(source));
+        changed(source.getId());
+    }
+
+    @Override
+    public void removeWaterSource(int id) {
+        detach(id);
+        changed(id);
+    }
+
+    @Override
+    public WaterSource getWaterSource(int id) {
+        WaterSource source = delegate.getWaterSource(id);
+        return source == null ? null : attach(source);
+    }
+
+    /**
+     * Obtiene las fuentes del repositorio delegado, registrando este repositorio como oyente de cada una
+     * @return Vista de todas las fuentes de agua
+     */
+    @Override
+    public List<WaterSource> listWaterSources() {
+        List<WaterSource> sources = delegate.listWaterSources();
+        return new AttachingListView(sources);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    /**
+     * Recorre las fuentes del repositorio delegado, registrando este repositorio como oyente de cada una
+     * @return Cursor sobre las fuentes de agua
+     */
+    @Override
+    public Iterator<WaterSource> cursor() {
+        Iterator<WaterSource> sources = delegate.cursor();
+        return new Iterator<WaterSource>() {
+            @Override
+            public boolean hasNext() {
+                return sources.hasNext();
+            }
+
+            @Override
+            public WaterSource next() {
+                return attach(sources.next());
+            }
+        };
+    }
+
+    /**
+     * Obtiene los agregados de la flota, que se mantienen junto con los índices
+     * @return Vista viva de los agregados
+     */
+    @Override
+    public FleetRollup getRollup() {
+        return index.getRollup();
+    }
+
+    /**
+     * Obtiene la versión vigente de la flota, publicando antes una nueva si hay cambios pendientes
+     * @return La versión, que no cambia aunque cambien las fuentes
+     */
+    @Override
+    public FleetSnapshot getFleetSnapshot() {
+        return dirty.isEmpty() ? snapshot : publish();
+    }
+
+    @Override
+    public boolean publishesFleetSnapshot() {
+        return true;
+    }
+
+    /**
+     * Ejecuta las escrituras y anota al final, todos juntos, los cambios que hicieron en este hilo,
+     * de modo que aparecen en la misma versión de la flota. Los lotes anidados se anotan con el
+     * lote exterior.
+     * @param writes Las escrituras a ejecutar
+     * @param <T> El tipo del resultado de las escrituras
+     * @return El resultado de las escrituras
+     */
+    @Override
+    public <T> T runBatch(Supplier<T> writes) {
+        if (batches.get() != null) {
+            return writes.get();
+        }
+        ChangedIds batch = new ChangedIds();
+        batches.set(batch);
+        try {
+            return writes.get();
+        } finally {
+            batches.remove();
+            for (int i = 0; i < batch.size; i++) {
+                dirty.add(batch.ids[i]);
+            }
+        }
+    }
+
+    @Override
+    public int copyLevels(int[] ids, double[] capacities, double[] levels) {
+        return delegate.copyLevels(ids, capacities, levels);
+    }
+
+    @Override
+    public void addAll(Collection<? extends WaterSource> sources) {
+        runBatch(() -> {
+            delegate.addAll(sources);
+            for (WaterSource source : sources) {
+                index.put(attach(source));
+                changed(source.getId());
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<? extends WaterSource> sources) {
+        runBatch(() -> {
+            delegate.updateAll(sources);
+            for (WaterSource source : sources) {
+                index.put(attach(source));
+                changed(source.getId());
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void removeAll(int[] ids) {
+        runBatch(() -> {
+            for (int id : ids) {
+                removeWaterSource(id);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Aplica el lote de niveles en el repositorio delegado. Si el delegado cambia los niveles a
+     * través de las fuentes, cada cambio ya llega a {@link #levelChanged(WaterSource, double)}; solo
+     * cuando escribe directamente en su almacenamiento sin notificar (como los almacenes por columnas)
+     * se reindexa después el llenado de las fuentes del lote.
+     * @param ids Los IDs de las fuentes de agua
+     * @param levels Los nuevos niveles, en paralelo a {@code ids}
+     * @return El número de fuentes actualizadas
+     */
+    @Override
+    public int bulkUpdateLevels(int[] ids, double[] levels) {
+        return runBatch(() -> {
+            ChangedIds batch = batches.get();
+            int notified = batch.size;
+            int updated = delegate.bulkUpdateLevels(ids, levels);
+            if (updated == 0 || batch.size != notified) {
+                return updated;
+            }
+            for (int id : ids) {
+                WaterSource source = delegate.getWaterSource(id);
+                if (source != null) {
+                    index.updateFill(source);
+                    changed(id);
+                }
+            }
+            return updated;
+        });
+    }
+
+    @Override
+    public List<WaterSource> findByType(String type) {
+        return resolve(index.idsByType(type));
+    }
+
+    @Override
+    public List<WaterSource> findByQuality(String quality) {
+        return resolve(index.idsByQuality(quality));
+    }
+
+    @Override
+    public List<WaterSource> findByLocationPrefix(String prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Location prefix cannot be null");
+        }
+        return resolve(index.idsByLocationPrefix(prefix));
+    }
+
+    @Override
+    public List<WaterSource> findByFillRatio(double minRatio, double maxRatio) {
+        return resolve(index.idsByFillRatio(minRatio, maxRatio));
+    }
+
+    /**
+     * Registra un oyente que recibe los cambios de todas las fuentes del repositorio
+     * @param listener El oyente
+     */
+    public void addChangeListener(WaterSourceListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Change listener cannot be null");
+        }
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Elimina un oyente registrado
+     * @param listener El oyente a eliminar
+     */
+    public void removeChangeListener(WaterSourceListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    @Override
+    public void levelChanged(WaterSource source, double previousLevel) {
+        index.updateFill(source);
+        changed(source.getId());
+        for (WaterSourceListener listener : changeListeners) {
+            listener.levelChanged(source, previousLevel);
+        }
+    }
+
+    @Override
+    public void capacityChanged(WaterSource source, double previousCapacity) {
+        index.updateFill(source);
+        changed(source.getId());
+        for (WaterSourceListener listener : changeListeners) {
+            listener.capacityChanged(source, previousCapacity);
+        }
+    }
+
+    @Override
+    public void qualityChanged(WaterSource source, String previousQuality) {
+        index.refresh(source);
+        changed(source.getId());
+        for (WaterSourceListener listener : changeListeners) {
+            listener.qualityChanged(source, previousQuality);
+        }
+    }
+
+    @Override
+    public void locationChanged(WaterSource source, String previousLocation) {
+        index.refresh(source);
+        changed(source.getId());
+        for (WaterSourceListener listener : changeListeners) {
+            listener.locationChanged(source, previousLocation);
+        }
+    }
+
+    /**
+     * Quita una fuente del repositorio delegado y de los índices
+     * @param id El ID de la fuente
+     */
+    private void detach(int id) {
+        WaterSource source = delegate.getWaterSource(id);
+        delegate.removeWaterSource(id);
+        index.remove(id);
+        if (source != null) {
+            source.removeChangeListener(this);
+        }
+    }
+
+    /**
+     * Anota el cambio de una fuente para la siguiente versión, o en el lote de este hilo
+     * @param id El ID de la fuente que cambió
+     */
+    private void changed(int id) {
+        ChangedIds batch = batches.get();
+        if (batch != null) {
+            batch.add(id);
+        } else {
+            dirty.add(id);
+        }
+    }
+
+    /**
+     * Publica en una sola versión el estado actual de las fuentes pendientes. Las lecturas
+     * concurrentes que encuentran cambios pendientes esperan a la misma publicación.
+     * @return La versión publicada
+     */
+    private synchronized FleetSnapshot publish() {
+        FleetSnapshot current = snapshot;
+        if (dirty.isEmpty()) {
+            return current;
+        }
+        FleetSnapshot.Builder builder = current.toBuilder();
+        Iterator<Integer> ids = dirty.iterator();
+        while (ids.hasNext()) {
+            int id = ids.next();
+            ids.remove();
+            WaterSource source = delegate.getWaterSource(id);
+            if (source == null) {
+                builder.remove(id);
+            } else {
+                builder.put(source);
+            }
+        }
+        FleetSnapshot published = builder.build();
+        snapshot = published;
+        return published;
+    }
+
+    private WaterSource attach(WaterSource source) {
+        if (!source.hasChangeListener(this)) {
+            source.addChangeListener(this);
+        }
+        return source;
+    }
+
+    private List<WaterSource> resolve(Collection<Integer> ids) {
+        List<WaterSource> sources = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            WaterSource source = getWaterSource(id);
+            if (source != null) {
+                sources.add(source);
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * IDs de las fuentes que cambiaron dentro de un lote
+     */
+    private static final class ChangedIds {
+        int[] ids = new int[64];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Vista que registra este repositorio como oyente de cada fuente al accederla
+     */
+    private class AttachingListView extends AbstractList<WaterSource> implements RandomAccess {
+
+        private final List<WaterSource> sources;
+
+        AttachingListView(List<WaterSource> sources) {
+            this.sources = sources;
+        }
+
+        @Override
+        public WaterSource get(int index) {
+            return attach(sources.get(index));
+        }
+
+        @Override
+        public int size() {
+            return sources.size();
+        }
+    }
+}
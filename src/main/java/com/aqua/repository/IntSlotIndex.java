@@ -0,0 +1,132 @@
+package com.aqua.repository;
+
+import java.util.Arrays;
+
+/**
+ * Índice hash de direccionamiento abierto que asocia IDs enteros con posiciones.
+ * Evita el boxing de {@code Map<Integer, Integer>} y mantiene claves y valores
+ * en dos arreglos contiguos.
+ */
+public class IntSlotIndex {
+
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Constructor para IntSlotIndex
+     * @param expectedSize Número esperado de entradas
+     */
+    public IntSlotIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Obtiene la posición asociada a un ID
+     * @param key El ID a buscar
+     * @return La posición asociada, o -1 si el ID no está indexado
+     */
+    public int get(int key) {
+        int i = mix(key) & mask;
+        while (true) {
+            int k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == FREE) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Asocia un ID con una posición, reemplazando cualquier asociación previa
+     * @param key El ID (no puede ser Integer.MIN_VALUE)
+     * @param value La posición
+     */
+    public void put(int key, int value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Unsupported water source ID: " + key);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int i = mix(key) & mask;
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    /**
+     * Elimina la asociación de un ID usando borrado por desplazamiento hacia atrás
+     * @param key El ID a eliminar
+     */
+    public void remove(int key) {
+        int i = mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == FREE) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        size--;
+        // Reubicar las entradas siguientes del mismo grupo para no dejar huecos en la secuencia de sondeo
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (keys[j] != FREE) {
+            int home = mix(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[gap] = FREE;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
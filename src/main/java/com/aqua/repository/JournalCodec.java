@@ -0,0 +1,101 @@
+package com.aqua.repository;
+
+import com.aqua.domain.River;
+import com.aqua.domain.WaterSource;
+import com.aqua.domain.Well;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codificación binaria de las fuentes de agua usada por el diario de mutaciones y las instantáneas.
+ * Cada fuente se escribe como ID, capacidad, nivel actual y las cadenas de tipo, ubicación y calidad.
+ */
+final class JournalCodec {
+
+    private JournalCodec() {
+    }
+
+    /**
+     * Asegura que el buffer tenga espacio para la cantidad de bytes indicada, ampliándolo si hace falta
+     * @param buffer El buffer actual
+     * @param bytes Número de bytes que se van a escribir
+     * @return El mismo buffer o uno más grande con el contenido copiado
+     */
+    static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    /**
+     * Calcula una cota superior del número de bytes que ocupa una fuente codificada
+     * @param source La fuente de agua
+     * @return El tamaño máximo codificado en bytes
+     */
+    static int maxSizeOf(WaterSource source) {
+        return 4 + 8 + 8 + maxSizeOf(source.getType()) + maxSizeOf(source.getLocation()) + maxSizeOf(source.getQuality());
+    }
+
+    /**
+     * Escribe una fuente de agua en el buffer
+     * @param buffer El buffer de destino (debe tener espacio suficiente)
+     * @param source La fuente de agua a escribir
+     */
+    static void writeSource(ByteBuffer buffer, WaterSource source) {
+        buffer.putInt(source.getId());
+        buffer.putDouble(source.getCapacity());
+        buffer.putDouble(source.getCurrentLevel());
+        writeString(buffer, source.getType());
+        writeString(buffer, source.getLocation());
+        writeString(buffer, source.getQuality());
+    }
+
+    /**
+     * Lee una fuente de agua del buffer y crea la instancia correspondiente a su tipo
+     * @param buffer El buffer de origen
+     * @return La fuente de agua leída
+     */
+    static WaterSource readSource(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        double capacity = buffer.getDouble();
+        double level = buffer.getDouble();
+        String type = readString(buffer);
+        String location = readString(buffer);
+        String quality = readString(buffer);
+        WaterSource source = "RIVER".equals(type)
+            ? new River(id, type, capacity, location, quality)
+            : new Well(id, type, capacity, location, quality);
+        source.setCurrentLevel(level);
+        return source;
+    }
+
+    private static int maxSizeOf(String value) {
+        // Un carácter UTF-16 nunca ocupa más de 3 bytes en UTF-8
+        return 4 + (value == null ? 0 : value.length() * 3);
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,645 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import com.aqua.domain.WaterSourceListener;
+import com.aqua.metrics.Counter;
+import com.aqua.metrics.MetricsRegistry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Repositorio que registra cada mutación en un diario de escritura anticipada antes de
+ * aplicarla a un repositorio delegado en memoria.
+ * Las sincronizaciones a disco se agrupan: los escritores concurrentes comparten un mismo fsync.
+ * Cada cierto número de mutaciones se escribe una instantánea compacta de todas las fuentes y
+ * se descartan los diarios anteriores, de modo que la recuperación solo reproduce las mutaciones
+ * posteriores a la última instantánea.
+ *
+ * <p>Las fuentes que entrega el repositorio quedan con este repositorio como oyente, de modo que los
+ * cambios hechos directamente sobre ellas (por ejemplo los niveles de la simulación) también se
+ * registran: un cambio de nivel se anota como un nivel suelto y los demás cambios como la fuente
+ * completa, leyendo siempre el estado guardado en el delegado.</p>
+ *
+ * <p>En el directorio se guardan archivos {@code journal-N.log} y {@code snapshot-N.dat}; la
+ * instantánea N contiene el estado resultante de todos los diarios con número menor que N.</p>
+ */
+public class JournaledWaterSourceRepository implements IWaterSourceRepository, WaterSourceListener, Closeable {
+
+    /**
+     * Garantía de durabilidad de las mutaciones
+     */
+    public enum Durability {
+        /** Cada mutación espera a que su lote esté sincronizado en disco */
+        SYNC,
+        /** Las mutaciones regresan de inmediato y se sincronizan en el siguiente lote */
+        ASYNC
+    }
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+
+    private static final Pattern FILE_NAME = Pattern.compile("(journal|snapshot)-(\\d+)\\.(log|dat)");
+    private static final int SNAPSHOT_MAGIC = 0x41515350; // "AQSP"
+    private static final Counter SNAPSHOT_ERRORS = MetricsRegistry.global()
+        .counter("journal_snapshot_errors", "Instantáneas del diario que no se pudieron escribir");
+
+    private final IWaterSourceRepository delegate;
+    private final Path directory;
+    private final Durability durability;
+    private final int snapshotInterval;
+    private final ExecutorService snapshotWriter;
+    private final MutationLog log;
+    private final long recoveredMutations;
+    private long generation;
+    private long mutationsSinceSnapshot;
+
+    /**
+     * Abre el repositorio con sincronización por mutación y el intervalo de instantáneas predeterminado
+     * @param delegate Repositorio vacío donde se mantiene el estado en memoria
+     * @param directory Directorio del diario y las instantáneas
+     * @throws IOException Si el estado guardado no se puede leer
+     */
+    public JournaledWaterSourceRepository(IWaterSourceRepository delegate, Path directory) throws IOException {
+        this(delegate, directory, Durability.SYNC, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Abre el repositorio y recupera el estado a partir de la última instantánea y los diarios posteriores
+     * @param delegate Repositorio vacío donde se mantiene el estado en memoria
+     * @param directory Directorio del diario y las instantáneas
+     * @param durability Garantía de durabilidad de cada mutación
+     * @param snapshotInterval Número de mutaciones entre instantáneas
+     * @throws IOException Si el estado guardado no se puede leer
+     */
+    public JournaledWaterSourceRepository(IWaterSourceRepository delegate, Path directory,
+                                          Durability durability, int snapshotInterval) throws IOException {
+        if (delegate == null || directory == null || durability == null) {
+            throw new IllegalArgumentException("Delegate, directory and durability cannot be null");
+        }
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        this.delegate = delegate;
+        this.directory = directory;
+        this.durability = durability;
+        this.snapshotInterval = snapshotInterval;
+        Files.createDirectories(directory);
+        this.recoveredMutations = recover();
+        this.log = new MutationLog(journalFile(generation));
+        this.snapshotWriter = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "aqua-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registra y agrega una nueva fuente de agua
+     * @param source La fuente de agua a agregar
+     */
+    @Override
+    public void addWaterSource(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        long sequence;
+        synchronized (this) {
+            sequence = log.append(MutationLog.ADD, source);
+            delegate.addWaterSource(source);
+            attachIfStored(source);
+            afterMutation();
+        }
+        commit(sequence);
+    }
+
+    /**
+     * Registra y agrega una fuente de agua si no existe otra con el mismo ID
+     * @param source La fuente de agua a agregar
+     * @return true si se agregó, false si el ID ya estaba ocupado
+     */
+    @Override
+    public boolean addIfAbsent(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        long sequence;
+        synchronized (this) {
+            if (delegate.getWaterSource(source.getId()) != null) {
+                return false;
+            }
+            sequence = log.append(MutationLog.ADD, source);
+            delegate.addWaterSource(source);
+            attachIfStored(source);
+            afterMutation();
+        }
+        commit(sequence);
+        return true;
+    }
+
+    /**
+     * Registra y actualiza una fuente de agua existente
+     * @param source La fuente de agua actualizada
+     */
+    @Override
+    public void updateWaterSource(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        long sequence;
+        synchronized (this) {
+            if (delegate.getWaterSource(source.getId()) == null) {
+                throw new IllegalStateException("Water source with ID " + source.getId() + " does not exist");
+            }
+            sequence = log.append(MutationLog.UPDATE, source);
+            delegate.updateWaterSource(source);
+            attachIfStored(source);
+            afterMutation();
+        }
+        commit(sequence);
+    }
+
+    /**
+     * Elimina una fuente de agua y registra la eliminación. La eliminación se registra después de
+     * aplicarla, de modo que si el delegado falla el diario no anota algo que no ocurrió; reproducir
+     * una eliminación es idempotente.
+     * @param id El ID de la fuente de agua a eliminar
+     */
+    @Override
+    public void removeWaterSource(int id) {
+        long sequence;
+        synchronized (this) {
+            sequence = remove(id);
+            afterMutation();
+        }
+        commit(sequence);
+    }
+
+    /**
+     * Registra y agrega varias fuentes de agua esperando una sola sincronización
+     * @param sources Las fuentes de agua a agregar
+     */
+    @Override
+    public void addAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        long sequence = 0;
+        try {
+            synchronized (this) {
+                for (WaterSource source : sources) {
+                    if (source == null) {
+                        throw new IllegalArgumentException("Water source cannot be null");
+                    }
+                    sequence = log.append(MutationLog.ADD, source);
+                    delegate.addWaterSource(source);
+                    attachIfStored(source);
+                    afterMutation();
+                }
+            }
+        } finally {
+            commit(sequence);
+        }
+    }
+
+    /**
+     * Registra y actualiza varias fuentes de agua esperando una sola sincronización
+     * @param sources Las fuentes de agua actualizadas
+     */
+    @Override
+    public void updateAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        long sequence = 0;
+        try {
+            synchronized (this) {
+                for (WaterSource source : sources) {
+                    if (source == null) {
+                        throw new IllegalArgumentException("Water source cannot be null");
+                    }
+                    if (delegate.getWaterSource(source.getId()) == null) {
+                        throw new IllegalStateException("Water source with ID " + source.getId() + " does not exist");
+                    }
+                    sequence = log.append(MutationLog.UPDATE, source);
+                    delegate.updateWaterSource(source);
+                    attachIfStored(source);
+                    afterMutation();
+                }
+            }
+        } finally {
+            commit(sequence);
+        }
+    }
+
+    /**
+     * Elimina varias fuentes de agua esperando una sola sincronización. Cada eliminación se registra
+     * después de aplicarla; si el delegado falla, quedan registradas justo las que se aplicaron.
+     * @param ids Los IDs de las fuentes de agua a eliminar
+     */
+    @Override
+    public void removeAll(int[] ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("IDs cannot be null");
+        }
+        long sequence = 0;
+        try {
+            synchronized (this) {
+                for (int id : ids) {
+                    sequence = remove(id);
+                    afterMutation();
+                }
+            }
+        } finally {
+            commit(sequence);
+        }
+    }
+
+    /**
+     * Registra un lote de niveles como un único registro del diario y lo aplica al delegado
+     * @param ids Los IDs de las fuentes de agua
+     * @param levels Los nuevos niveles, en paralelo a {@code ids}
+     * @return El número de fuentes actualizadas
+     */
+    @Override
+    public int bulkUpdateLevels(int[] ids, double[] levels) {
+        IWaterSourceRepository.checkLevelBatch(ids, levels);
+        long sequence;
+        int updated;
+        synchronized (this) {
+            sequence = log.appendLevels(ids, levels);
+            updated = delegate.bulkUpdateLevels(ids, levels);
+            afterMutation();
+        }
+        commit(sequence);
+        return updated;
+    }
+
+    @Override
+    public WaterSource getWaterSource(int id) {
+        WaterSource source = delegate.getWaterSource(id);
+        return source == null ? null : attach(source);
+    }
+
+    @Override
+    public List<WaterSource> listWaterSources() {
+        List<WaterSource> sources = delegate.listWaterSources();
+        for (WaterSource source : sources) {
+            attach(source);
+        }
+        return sources;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public Iterator<WaterSource> cursor() {
+        Iterator<WaterSource> sources = delegate.cursor();
+        return new Iterator<WaterSource>() {
+            @Override
+            public boolean hasNext() {
+                return sources.hasNext();
+            }
+
+            @Override
+            public WaterSource next() {
+                return attach(sources.next());
+            }
+        };
+    }
+
+    @Override
+    public FleetRollup getRollup() {
+        return delegate.getRollup();
+    }
+
+    @Override
+    public FleetSnapshot getFleetSnapshot() {
+        return delegate.getFleetSnapshot();
+    }
+
+    @Override
+    public boolean publishesFleetSnapshot() {
+        return delegate.publishesFleetSnapshot();
+    }
+
+    @Override
+    public <T> T runBatch(Supplier<T> writes) {
+        return delegate.runBatch(writes);
+    }
+
+    @Override
+    public int copyLevels(int[] ids, double[] capacities, double[] levels) {
+        return delegate.copyLevels(ids, capacities, levels);
+    }
+
+    @Override
+    public void levelChanged(WaterSource source, double previousLevel) {
+        journalChange(source, true);
+    }
+
+    @Override
+    public void capacityChanged(WaterSource source, double previousCapacity) {
+        journalChange(source, false);
+    }
+
+    @Override
+    public void qualityChanged(WaterSource source, String previousQuality) {
+        journalChange(source, false);
+    }
+
+    @Override
+    public void locationChanged(WaterSource source, String previousLocation) {
+        journalChange(source, false);
+    }
+
+    /**
+     * Escribe una instantánea compacta del estado actual y rota el diario.
+     * La instantánea se escribe en segundo plano; los diarios anteriores se eliminan
+     * una vez que la instantánea está sincronizada en disco.
+     */
+    public synchronized void snapshot() {
+        List<WaterSource> sources = delegate.listWaterSources();
+        ByteBuffer body = ByteBuffer.allocate(64 * 1024);
+        for (WaterSource source : sources) {
+            body = JournalCodec.ensure(body, JournalCodec.maxSizeOf(source));
+            JournalCodec.writeSource(body, source);
+        }
+        body.flip();
+        long next = generation + 1;
+        try {
+            log.rotate(journalFile(next));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rotate water source journal", e);
+        }
+        generation = next;
+        mutationsSinceSnapshot = 0;
+        ByteBuffer data = body;
+        int count = sources.size();
+        snapshotWriter.execute(() -> writeSnapshot(next, count, data));
+    }
+
+    /**
+     * Obtiene el número de mutaciones reproducidas al abrir el repositorio
+     * @return El número de mutaciones recuperadas del diario
+     */
+    public long getRecoveredMutations() {
+        return recoveredMutations;
+    }
+
+    /**
+     * Obtiene el número de fsync realizados sobre el diario desde que se abrió
+     * @return El número de sincronizaciones
+     */
+    public long getSyncCount() {
+        return log.getSyncCount();
+    }
+
+    /**
+     * Obtiene el número de mutaciones registradas desde que se abrió
+     * @return El número de mutaciones
+     */
+    public long getMutationCount() {
+        return log.getAppendCount();
+    }
+
+    /**
+     * Espera las escrituras pendientes de instantáneas y cierra el diario
+     * @throws IOException Si el diario no se puede cerrar
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        snapshotWriter.shutdown();
+        try {
+            snapshotWriter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    /**
+     * Registra un cambio hecho directamente sobre una fuente entregada por el repositorio.
+     * Se anota el estado que el delegado tiene en ese momento, leído bajo el bloqueo, por lo que
+     * el último registro de una fuente siempre refleja su último cambio aunque los avisos de
+     * varios hilos lleguen en otro orden.
+     * @param source La fuente que cambió
+     * @param levelOnly true si solo cambió el nivel
+     */
+    private void journalChange(WaterSource source, boolean levelOnly) {
+        if (Thread.holdsLock(this)) {
+            return; // El cambio lo hizo una mutación de este repositorio, que ya está registrada
+        }
+        long sequence;
+        synchronized (this) {
+            WaterSource stored = delegate.getWaterSource(source.getId());
+            if (stored == null) {
+                return;
+            }
+            sequence = levelOnly
+                ? log.appendLevel(stored.getId(), stored.getCurrentLevel())
+                : log.append(MutationLog.UPDATE, stored);
+            afterMutation();
+        }
+        commit(sequence);
+    }
+
+    /**
+     * Elimina una fuente del delegado y después registra la eliminación
+     * @param id El ID de la fuente
+     * @return El número de secuencia del registro
+     */
+    private long remove(int id) {
+        WaterSource removed = delegate.getWaterSource(id);
+        delegate.removeWaterSource(id);
+        if (removed != null) {
+            removed.removeChangeListener(this);
+        }
+        return log.appendRemove(id);
+    }
+
+    private WaterSource attach(WaterSource source) {
+        if (!source.hasChangeListener(this)) {
+            source.addChangeListener(this);
+        }
+        return source;
+    }
+
+    /**
+     * Registra este repositorio como oyente de una fuente solo si el delegado guarda ese mismo
+     * objeto; los almacenes que copian los valores entregan sus propias fuentes al consultarlas
+     * @param source La fuente agregada o actualizada
+     */
+    private void attachIfStored(WaterSource source) {
+        if (delegate.getWaterSource(source.getId()) == source) {
+            attach(source);
+        }
+    }
+
+    private void afterMutation() {
+        if (++mutationsSinceSnapshot >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    private void commit(long sequence) {
+        if (durability == Durability.SYNC) {
+            log.awaitDurable(sequence);
+        }
+    }
+
+    /**
+     * Carga la última instantánea válida y reproduce los diarios posteriores sobre el delegado
+     * @return El número de mutaciones reproducidas
+     */
+    private long recover() throws IOException {
+        List<Long> journals = new ArrayList<>();
+        List<Long> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    long number = Long.parseLong(matcher.group(2));
+                    (matcher.group(1).equals("journal") ? journals : snapshots).add(number);
+                }
+            });
+        }
+        journals.sort(null);
+        snapshots.sort(null);
+
+        long base = 0;
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (loadSnapshot(snapshotFile(snapshots.get(i)))) {
+                base = snapshots.get(i);
+                break;
+            }
+        }
+
+        MutationLog.Replayer replayer = new MutationLog.Replayer() {
+            @Override
+            public void add(WaterSource source) {
+                delegate.addWaterSource(source);
+            }
+
+            @Override
+            public void update(WaterSource source) {
+                delegate.addWaterSource(source);
+            }
+
+            @Override
+            public void remove(int id) {
+                delegate.removeWaterSource(id);
+            }
+
+            @Override
+            public void levels(int[] ids, double[] levels) {
+                delegate.bulkUpdateLevels(ids, levels);
+            }
+        };
+        long replayed = 0;
+        long last = base;
+        for (long journal : journals) {
+            if (journal >= base) {
+                replayed += MutationLog.replay(journalFile(journal), replayer);
+            }
+            last = Math.max(last, journal);
+        }
+        if (!snapshots.isEmpty()) {
+            last = Math.max(last, snapshots.get(snapshots.size() - 1));
+        }
+        // Los diarios existentes pueden terminar en un registro truncado, así que siempre se empieza uno nuevo
+        generation = last + 1;
+        return replayed;
+    }
+
+    private boolean loadSnapshot(Path file) throws IOException {
+        ByteBuffer data;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        }
+        if (data.remaining() < 16 || data.getInt(0) != SNAPSHOT_MAGIC) {
+            return false;
+        }
+        int count = data.getInt(4);
+        int expected = data.getInt(8);
+        int length = data.getInt(12);
+        if (length != data.remaining() - 16) {
+            return false;
+        }
+        ByteBuffer body = data.position(16).slice();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != expected) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            delegate.addWaterSource(JournalCodec.readSource(body));
+        }
+        return true;
+    }
+
+    /**
+     * Escribe la instantánea en un archivo temporal, lo sincroniza, lo renombra de forma atómica
+     * y elimina los diarios e instantáneas que quedaron obsoletos
+     */
+    private void writeSnapshot(long number, int count, ByteBuffer body) {
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            ByteBuffer header = ByteBuffer.allocate(16);
+            header.putInt(SNAPSHOT_MAGIC).putInt(count).putInt((int) crc.getValue()).putInt(body.remaining()).flip();
+            Path temp = directory.resolve("snapshot-" + number + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                while (body.hasRemaining()) {
+                    out.write(body);
+                }
+                out.force(true);
+            }
+            Files.move(temp, snapshotFile(number), StandardCopyOption.ATOMIC_MOVE);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                    if (matcher.matches() && Long.parseLong(matcher.group(2)) < number) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Los diarios anteriores se conservan, así que la recuperación sigue siendo posible;
+            // el fallo queda visible en las métricas y la siguiente instantánea lo vuelve a intentar
+            SNAPSHOT_ERRORS.increment();
+        }
+    }
+
+    private Path journalFile(long number) {
+        return directory.resolve("journal-" + number + ".log");
+    }
+
+    private Path snapshotFile(long number) {
+        return directory.resolve("snapshot-" + number + ".dat");
+    }
+}
@@ -0,0 +1,673 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Repositorio de fuentes de agua respaldado por archivos mapeados en memoria.
+ * Cada fuente ocupa un registro de ancho fijo en el archivo de datos y las cadenas de tipo,
+ * ubicación y calidad se guardan una sola vez en un segmento de cadenas de solo anexado.
+ * Al reabrir el repositorio no hay paso de deserialización: solo se recorre la columna de IDs
+ * para reconstruir el índice, y las lecturas se hacen directamente sobre el buffer mapeado,
+ * por lo que el conjunto de datos puede ser mayor que el heap de Java.
+ *
+ * <p>Un registro nuevo se escribe completo antes de incrementar el contador confirmado del
+ * encabezado, de modo que una caída del proceso nunca deja registros a medio escribir visibles.
+ * {@link #flush()} fuerza primero los segmentos de datos y después el encabezado para que la
+ * misma garantía se mantenga ante una caída del sistema operativo.</p>
+ *
+ * <p>Una eliminación marca primero el registro como lápida y lo fuerza al almacenamiento; el
+ * registro que se mueve a su posición se copia mientras la posición sigue siendo lápida y se
+ * confirma como vivo solo después de forzar la copia. La recuperación descarta las lápidas y los
+ * duplicados, por lo que una caída en cualquier punto de la eliminación nunca devuelve la fuente
+ * eliminada ni deja visible un registro mezclado.</p>
+ */
+public class MappedWaterSourceRepository implements IWaterSourceRepository, SourceColumns, Closeable {
+
+    private static final int DATA_MAGIC = 0x41515541; // "AQUA"
+    private static final int STRINGS_MAGIC = 0x41515354; // "AQST"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_COUNT = 16;
+
+    // Estructura de un registro (40 bytes, campos double alineados a 8)
+    static final int RECORD_SIZE = 40;
+    private static final int ID = 0;
+    private static final int FLAGS = 4;
+    private static final int CAPACITY = 8;
+    private static final int LEVEL = 16;
+    private static final int TYPE = 24;
+    private static final int LOCATION = 28;
+    private static final int QUALITY = 32;
+
+    // Estados del campo FLAGS de un registro
+    private static final int LIVE = 1;
+    private static final int TOMBSTONE = 2;
+
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_RECORDS - 1;
+    private static final long SEGMENT_BYTES = (long) SEGMENT_RECORDS * RECORD_SIZE;
+
+    private static final int STRINGS_HEADER_SIZE = 16;
+    private static final int STRINGS_END = 8;
+    private static final int NO_STRING = -1;
+
+    // Los niveles están alineados a 8 bytes dentro de cada segmento, como exige el acceso atómico
+    private static final VarHandle LEVELS = MethodHandles.byteBufferViewVarHandle(double[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel dataChannel;
+    private final FileChannel stringsChannel;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private final IntSlotIndex index = new IntSlotIndex(SEGMENT_RECORDS);
+    private final StructureGuard guard = new StructureGuard();
+    private final Map<String, Integer> stringRefs = new HashMap<>();
+    private final Map<Integer, String> strings = new ConcurrentHashMap<>();
+    private long stringsEnd;
+    private volatile int size;
+
+    /**
+     * Abre (o crea) un repositorio mapeado en el directorio indicado
+     * @param directory Directorio donde se guardan los archivos del repositorio
+     * @throws IOException Si los archivos no se pueden abrir o están dañados
+     */
+    public MappedWaterSourceRepository(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.dataChannel = FileChannel.open(directory.resolve("sources.dat"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.stringsChannel = FileChannel.open(directory.resolve("strings.dat"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = dataChannel.size() == 0;
+            this.header = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.nativeOrder());
+            if (created) {
+                header.putInt(0, DATA_MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(8, RECORD_SIZE);
+                header.putInt(12, SEGMENT_RECORDS);
+                header.putLong(HEADER_COUNT, 0);
+            } else if (header.getInt(0) != DATA_MAGIC || header.getInt(8) != RECORD_SIZE
+                    || header.getInt(12) != SEGMENT_RECORDS) {
+                throw new IOException("Unrecognized water source data file in " + directory);
+            }
+            loadStrings(directory);
+            recover();
+        } catch (IOException | RuntimeException e) {
+            dataChannel.close();
+            stringsChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Guarda una nueva fuente de agua en un registro del archivo mapeado.
+     * Si ya existe una fuente con el mismo ID, su registro se sobrescribe.
+     * @param source La fuente de agua a guardar
+     */
+    @Override
+    public synchronized void addWaterSource(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        int slot = index.get(source.getId());
+        if (slot >= 0) {
+            write(slot, source);
+            return;
+        }
+        slot = size;
+        ByteBuffer segment = segmentFor(slot);
+        int offset = offsetOf(slot);
+        segment.putInt(offset + ID, source.getId());
+        segment.putInt(offset + TYPE, intern(source.getType()));
+        write(slot, source);
+        segment.putInt(offset + FLAGS, LIVE);
+        // Confirmar el registro solo después de escribirlo completo
+        header.putLong(HEADER_COUNT, slot + 1);
+        index.put(source.getId(), slot);
+        size = slot + 1;
+    }
+
+    /**
+     * Guarda una nueva fuente de agua si no existe otra con el mismo ID
+     * @param source La fuente de agua a guardar
+     * @return true si se guardó, false si el ID ya estaba ocupado
+     */
+    @Override
+    public synchronized boolean addIfAbsent(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        if (index.get(source.getId()) >= 0) {
+            return false;
+        }
+        addWaterSource(source);
+        return true;
+    }
+
+    /**
+     * Actualiza el registro de una fuente de agua existente
+     * @param source La fuente de agua actualizada
+     */
+    @Override
+    public synchronized void updateWaterSource(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        int slot = index.get(source.getId());
+        if (slot < 0) {
+            throw new IllegalStateException("Water source with ID " + source.getId() + " does not exist");
+        }
+        if (source instanceof FlyweightWaterSource && ((FlyweightWaterSource) source).isBackedBy(this)) {
+            return; // Los cambios ya se escribieron directamente en el archivo
+        }
+        write(slot, source);
+    }
+
+    /**
+     * Elimina una fuente de agua copiando el último registro sobre el suyo.
+     * Cada paso se fuerza al almacenamiento antes del siguiente, por lo que una eliminación
+     * cuesta unas pocas sincronizaciones de página.
+     * @param id El ID de la fuente de agua a eliminar
+     */
+    @Override
+    public synchronized void removeWaterSource(int id) {
+        int slot = index.get(id);
+        if (slot < 0) {
+            return;
+        }
+        int last = size - 1;
+        guard.beginChange();
+        try {
+            // La fuente queda eliminada de forma duradera antes de mover nada
+            segmentFor(slot).putInt(offsetOf(slot) + FLAGS, TOMBSTONE);
+            forceRecord(slot);
+            if (slot != last) {
+                moveRecord(last, slot);
+                index.put(segmentFor(slot).getInt(offsetOf(slot) + ID), slot);
+            }
+            // Si el sistema cae antes de este punto, la recuperación descarta el duplicado del final
+            header.putLong(HEADER_COUNT, last);
+            header.force();
+            index.remove(id);
+            size = last;
+        } finally {
+            guard.endChange();
+        }
+    }
+
+    /**
+     * Guarda varias fuentes de agua adquiriendo el bloqueo una sola vez
+     * @param sources Las fuentes de agua a guardar
+     */
+    @Override
+    public synchronized void addAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        for (WaterSource source : sources) {
+            addWaterSource(source);
+        }
+    }
+
+    /**
+     * Actualiza varias fuentes de agua adquiriendo el bloqueo una sola vez
+     * @param sources Las fuentes de agua actualizadas
+     */
+    @Override
+    public synchronized void updateAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        for (WaterSource source : sources) {
+            updateWaterSource(source);
+        }
+    }
+
+    /**
+     * Elimina varias fuentes de agua adquiriendo el bloqueo una sola vez
+     * @param ids Los IDs de las fuentes de agua a eliminar
+     */
+    @Override
+    public synchronized void removeAll(int[] ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("IDs cannot be null");
+        }
+        for (int id : ids) {
+            removeWaterSource(id);
+        }
+    }
+
+    /**
+     * Escribe los niveles directamente en los registros mapeados, sin crear objetos
+     * @param ids Los IDs de las fuentes de agua
+     * @param levels Los nuevos niveles, en paralelo a {@code ids}
+     * @return El número de fuentes actualizadas
+     */
+    @Override
+    public synchronized int bulkUpdateLevels(int[] ids, double[] levels) {
+        IWaterSourceRepository.checkLevelBatch(ids, levels);
+        int updated = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int slot = index.get(ids[i]);
+            if (slot >= 0) {
+                ByteBuffer segment = segmentFor(slot);
+                int offset = offsetOf(slot);
+                double capacity = segment.getDouble(offset + CAPACITY);
+                segment.putDouble(offset + LEVEL, Math.max(0, Math.min(levels[i], capacity)));
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Copia los IDs, capacidades y niveles leyendo los registros mapeados sin crear fuentes
+     * @param ids Recibe los IDs
+     * @param capacities Recibe las capacidades
+     * @param levels Recibe los niveles actuales
+     * @return El número de fuentes almacenadas
+     */
+    @Override
+    public synchronized int copyLevels(int[] ids, double[] capacities, double[] levels) {
+        IWaterSourceRepository.checkLevelColumns(ids, capacities, levels);
+        int count = Math.min(size, ids.length);
+        for (int slot = 0; slot < count; slot++) {
+            ByteBuffer segment = segmentFor(slot);
+            int offset = offsetOf(slot);
+            ids[slot] = segment.getInt(offset + ID);
+            capacities[slot] = segment.getDouble(offset + CAPACITY);
+            levels[slot] = segment.getDouble(offset + LEVEL);
+        }
+        return size;
+    }
+
+    /**
+     * Busca una fuente de agua por su ID
+     * @param id El ID de la fuente de agua
+     * @return Una vista ligera que lee directamente del archivo mapeado, o null si no existe
+     */
+    @Override
+    public synchronized WaterSource getWaterSource(int id) {
+        // El registro se decodifica bajo el bloqueo para que una eliminación no lo cambie a medias
+        int slot = index.get(id);
+        return slot < 0 ? null : flyweight(slot);
+    }
+
+    /**
+     * Obtiene una copia de la lista de fuentes de agua; cada elemento es una fuente ligera que lee
+     * el archivo mapeado. Para recorrer la flota sin copiar la lista se usa {@link #cursor()}.
+     * @return Lista de todas las fuentes de agua
+     */
+    @Override
+    public synchronized List<WaterSource> listWaterSources() {
+        List<WaterSource> sources = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            sources.add(flyweight(slot));
+        }
+        return sources;
+    }
+
+    /**
+     * Recorre los registros mapeados sin copiar la lista de fuentes
+     * @return Cursor débilmente consistente sobre las fuentes de agua
+     */
+    @Override
+    public Iterator<WaterSource> cursor() {
+        return new SlotCursor(() -> size, this::occupiedFlyweight);
+    }
+
+    /**
+     * Obtiene el número de fuentes almacenadas
+     * @return El número de fuentes
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Fuerza la escritura de los datos al almacenamiento: primero los registros y
+     * las cadenas, y por último el encabezado con el contador confirmado
+     */
+    public synchronized void flush() {
+        try {
+            stringsChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush water source strings", e);
+        }
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        header.force();
+    }
+
+    /**
+     * Fuerza los datos al almacenamiento y cierra los archivos
+     * @throws IOException Si los archivos no se pueden cerrar
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        dataChannel.close();
+        stringsChannel.close();
+    }
+
+    @Override
+    public synchronized int slotOf(int id) {
+        return index.get(id);
+    }
+
+    @Override
+    public boolean holds(int slot, int id) {
+        return slot < size && segmentFor(slot).getInt(offsetOf(slot) + ID) == id;
+    }
+
+    @Override
+    public double capacityAt(int slot) {
+        return segmentFor(slot).getDouble(offsetOf(slot) + CAPACITY);
+    }
+
+    @Override
+    public double levelAt(int slot) {
+        return segmentFor(slot).getDouble(offsetOf(slot) + LEVEL);
+    }
+
+    @Override
+    public String locationAt(int slot) {
+        return stringAt(segmentFor(slot).getInt(offsetOf(slot) + LOCATION));
+    }
+
+    @Override
+    public String qualityAt(int slot) {
+        return stringAt(segmentFor(slot).getInt(offsetOf(slot) + QUALITY));
+    }
+
+    @Override
+    public synchronized double setCapacityById(int slot, int id, double capacity) {
+        int s = resolve(slot, id);
+        ByteBuffer segment = segmentFor(s);
+        int offset = offsetOf(s) + CAPACITY;
+        double previous = segment.getDouble(offset);
+        segment.putDouble(offset, capacity);
+        return previous;
+    }
+
+    /**
+     * Compara e intercambia el nivel directamente en el segmento mapeado, sin tomar el bloqueo salvo
+     * que haya una eliminación en curso ({@link StructureGuard})
+     */
+    @Override
+    public int compareAndSetLevelById(int slot, int id, double expected, double level) {
+        int stripe = guard.enter(slot);
+        if (stripe < 0) {
+            return lockedCompareAndSetLevel(slot, id, expected, level);
+        }
+        try {
+            return casLevel(slot, id, expected, level);
+        } finally {
+            guard.exit(stripe);
+        }
+    }
+
+    private synchronized int lockedCompareAndSetLevel(int slot, int id, double expected, double level) {
+        return casLevel(slot, id, expected, level);
+    }
+
+    private int casLevel(int slot, int id, double expected, double level) {
+        if (!holds(slot, id)) {
+            return SLOT_MOVED;
+        }
+        return LEVELS.compareAndSet(segmentFor(slot), offsetOf(slot) + LEVEL, expected, level)
+            ? LEVEL_SET : LEVEL_CHANGED;
+    }
+
+    @Override
+    public synchronized String setLocationById(int slot, int id, String location) {
+        int s = resolve(slot, id);
+        ByteBuffer segment = segmentFor(s);
+        int offset = offsetOf(s) + LOCATION;
+        String previous = stringAt(segment.getInt(offset));
+        segment.putInt(offset, intern(location));
+        return previous;
+    }
+
+    @Override
+    public synchronized String setQualityById(int slot, int id, String quality) {
+        int s = resolve(slot, id);
+        ByteBuffer segment = segmentFor(s);
+        int offset = offsetOf(s) + QUALITY;
+        String previous = stringAt(segment.getInt(offset));
+        segment.putInt(offset, intern(quality));
+        return previous;
+    }
+
+    /**
+     * Obtiene la posición vigente de una fuente; se llama con el bloqueo tomado
+     * @param slot La posición donde se espera la fuente
+     * @param id El ID de la fuente
+     * @return La posición que contiene la fuente
+     */
+    private int resolve(int slot, int id) {
+        if (holds(slot, id)) {
+            return slot;
+        }
+        int current = index.get(id);
+        if (current < 0) {
+            throw new IllegalStateException("Water source with ID " + id + " does not exist");
+        }
+        return current;
+    }
+
+    /**
+     * Crea la fuente ligera de un registro si todavía está ocupado, decodificándolo bajo el bloqueo
+     * @param slot La posición del registro
+     * @return La fuente, o null si el archivo se redujo por debajo de la posición
+     */
+    private synchronized FlyweightWaterSource occupiedFlyweight(int slot) {
+        return slot < size ? flyweight(slot) : null;
+    }
+
+    private FlyweightWaterSource flyweight(int slot) {
+        ByteBuffer segment = segmentFor(slot);
+        int offset = offsetOf(slot);
+        return new FlyweightWaterSource(this, slot, segment.getInt(offset + ID),
+            stringAt(segment.getInt(offset + TYPE)));
+    }
+
+    private void write(int slot, WaterSource source) {
+        ByteBuffer segment = segmentFor(slot);
+        int offset = offsetOf(slot);
+        segment.putDouble(offset + CAPACITY, source.getCapacity());
+        segment.putDouble(offset + LEVEL, source.getCurrentLevel());
+        segment.putInt(offset + LOCATION, intern(source.getLocation()));
+        segment.putInt(offset + QUALITY, intern(source.getQuality()));
+    }
+
+    private static int offsetOf(int slot) {
+        return (slot & SEGMENT_MASK) * RECORD_SIZE;
+    }
+
+    /**
+     * Obtiene el segmento mapeado que contiene una posición, mapeando uno nuevo si hace falta
+     * @param slot La posición del registro
+     * @return El buffer del segmento
+     */
+    private MappedByteBuffer segmentFor(int slot) {
+        int segment = slot >>> SEGMENT_SHIFT;
+        MappedByteBuffer[] mapped = segments;
+        if (segment < mapped.length) {
+            return mapped[segment];
+        }
+        synchronized (this) {
+            mapped = segments;
+            if (segment < mapped.length) {
+                return mapped[segment];
+            }
+            try {
+                MappedByteBuffer[] grown = Arrays.copyOf(mapped, segment + 1);
+                for (int i = mapped.length; i <= segment; i++) {
+                    long position = HEADER_SIZE + i * SEGMENT_BYTES;
+                    grown[i] = dataChannel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_BYTES);
+                    grown[i].order(ByteOrder.nativeOrder());
+                }
+                segments = grown;
+                return grown[segment];
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map water source segment", e);
+            }
+        }
+    }
+
+    /**
+     * Reconstruye el índice de IDs a partir de los registros confirmados.
+     * Descarta las lápidas, los registros incompletos y el duplicado que deja una eliminación
+     * interrumpida, y compacta los registros vivos al principio del archivo.
+     */
+    private void recover() {
+        long committed = header.getLong(HEADER_COUNT);
+        int count = 0;
+        for (int slot = 0; slot < committed; slot++) {
+            ByteBuffer segment = segmentFor(slot);
+            int offset = offsetOf(slot);
+            int id = segment.getInt(offset + ID);
+            boolean live = segment.getInt(offset + FLAGS) == LIVE
+                && isKnownString(segment.getInt(offset + TYPE))
+                && isKnownString(segment.getInt(offset + LOCATION))
+                && isKnownString(segment.getInt(offset + QUALITY));
+            if (!live || index.get(id) >= 0) {
+                continue;
+            }
+            if (slot != count) {
+                moveRecord(slot, count);
+            }
+            index.put(id, count);
+            count++;
+        }
+        if (count != committed) {
+            header.putLong(HEADER_COUNT, count);
+            header.force();
+        }
+        size = count;
+    }
+
+    /**
+     * Copia un registro sobre otra posición sin que una caída deje visible un registro mezclado:
+     * el destino es una lápida mientras se copia y se confirma como vivo solo después de forzar la copia
+     * @param from La posición del registro a copiar
+     * @param to La posición de destino
+     */
+    private void moveRecord(int from, int to) {
+        ByteBuffer source = segmentFor(from);
+        ByteBuffer target = segmentFor(to);
+        int offset = offsetOf(from);
+        int destination = offsetOf(to);
+        if (target.getInt(destination + FLAGS) != TOMBSTONE) {
+            target.putInt(destination + FLAGS, TOMBSTONE);
+            forceRecord(to);
+        }
+        target.putInt(destination + ID, source.getInt(offset + ID));
+        for (int i = CAPACITY; i < RECORD_SIZE; i += 4) {
+            target.putInt(destination + i, source.getInt(offset + i));
+        }
+        forceRecord(to);
+        target.putInt(destination + FLAGS, LIVE);
+        forceRecord(to);
+    }
+
+    private void forceRecord(int slot) {
+        segmentFor(slot).force(offsetOf(slot), RECORD_SIZE);
+    }
+
+    private void loadStrings(Path directory) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(STRINGS_HEADER_SIZE).order(ByteOrder.nativeOrder());
+        if (stringsChannel.size() == 0) {
+            head.putInt(0, STRINGS_MAGIC).putInt(4, VERSION).putLong(STRINGS_END, STRINGS_HEADER_SIZE);
+            stringsChannel.write(head, 0);
+            stringsEnd = STRINGS_HEADER_SIZE;
+            return;
+        }
+        stringsChannel.read(head, 0);
+        if (head.getInt(0) != STRINGS_MAGIC) {
+            throw new IOException("Unrecognized water source strings file in " + directory);
+        }
+        long end = Math.min(head.getLong(STRINGS_END), stringsChannel.size());
+        ByteBuffer data = stringsChannel.map(FileChannel.MapMode.READ_ONLY, 0, end).order(ByteOrder.nativeOrder());
+        int position = STRINGS_HEADER_SIZE;
+        // Una entrada incompleta al final se descarta; ningún registro confirmado puede referenciarla
+        while (position + 4 <= end) {
+            int length = data.getInt(position);
+            if (length < 0 || position + 4L + length > end) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            data.duplicate().position(position + 4).get(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            stringRefs.put(value, position);
+            strings.put(position, value);
+            position += 4 + length;
+        }
+        stringsEnd = position;
+    }
+
+    /**
+     * Obtiene la referencia de una cadena, anexándola al segmento si es nueva
+     * @param value La cadena (puede ser null)
+     * @return El desplazamiento de la cadena en el segmento
+     */
+    private int intern(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer ref = stringRefs.get(value);
+        if (ref != null) {
+            return ref;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length).order(ByteOrder.nativeOrder());
+        entry.putInt(bytes.length).put(bytes).flip();
+        ByteBuffer end = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+        try {
+            int position = (int) stringsEnd;
+            stringsChannel.write(entry, stringsEnd);
+            stringsEnd += 4 + bytes.length;
+            end.putLong(0, stringsEnd);
+            stringsChannel.write(end, STRINGS_END);
+            stringRefs.put(value, position);
+            strings.put(position, value);
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store water source string", e);
+        }
+    }
+
+    private boolean isKnownString(int ref) {
+        return ref == NO_STRING || strings.containsKey(ref);
+    }
+
+    private String stringAt(int ref) {
+        return ref == NO_STRING ? null : strings.get(ref);
+    }
+}
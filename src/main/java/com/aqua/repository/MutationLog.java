@@ -0,0 +1,337 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de mutaciones de solo anexado con confirmación en grupo.
+ * Los escritores copian sus registros a un buffer pendiente y un único hilo de vaciado
+ * escribe todo lo acumulado y hace un solo fsync por lote, de modo que muchas escrituras
+ * concurrentes comparten el costo de la sincronización.
+ *
+ * <p>Cada registro tiene la forma {@code [longitud][crc32][operación][datos]}; al reproducir
+ * el diario, un registro incompleto o con CRC inválido marca el final de los datos válidos.</p>
+ */
+class MutationLog implements Closeable {
+
+    static final byte ADD = 1;
+    static final byte UPDATE = 2;
+    static final byte REMOVE = 3;
+    static final byte LEVELS = 4;
+
+    private static final int RECORD_HEADER = 8;
+
+    /**
+     * Recibe las mutaciones reproducidas desde el diario
+     */
+    interface Replayer {
+        void add(WaterSource source);
+
+        void update(WaterSource source);
+
+        void remove(int id);
+
+        void levels(int[] ids, double[] levels);
+    }
+
+    private final Object lock = new Object();
+    private final CRC32 crc = new CRC32();
+    private final Thread flusher;
+    private FileChannel channel;
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+    private long appended;
+    private long durable;
+    private long syncs;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Constructor que abre el archivo del diario e inicia el hilo de vaciado
+     * @param file El archivo del diario
+     * @throws IOException Si el archivo no se puede abrir
+     */
+    MutationLog(Path file) throws IOException {
+        this.channel = open(file);
+        this.flusher = new Thread(this::flushLoop, "aqua-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Anexa una fuente completa al diario
+     * @param op La operación ({@link #ADD} o {@link #UPDATE})
+     * @param source La fuente de agua
+     * @return El número de secuencia del registro
+     */
+    long append(byte op, WaterSource source) {
+        synchronized (lock) {
+            int start = begin(1 + JournalCodec.maxSizeOf(source));
+            pending.put(op);
+            JournalCodec.writeSource(pending, source);
+            return end(start);
+        }
+    }
+
+    /**
+     * Anexa la eliminación de una fuente al diario
+     * @param id El ID de la fuente eliminada
+     * @return El número de secuencia del registro
+     */
+    long appendRemove(int id) {
+        synchronized (lock) {
+            int start = begin(1 + 4);
+            pending.put(REMOVE);
+            pending.putInt(id);
+            return end(start);
+        }
+    }
+
+    /**
+     * Anexa un lote de niveles como un único registro compacto
+     * @param ids Los IDs de las fuentes
+     * @param levels Los nuevos niveles, en paralelo a {@code ids}
+     * @return El número de secuencia del registro
+     */
+    long appendLevels(int[] ids, double[] levels) {
+        synchronized (lock) {
+            int start = begin(1 + 4 + ids.length * 12);
+            pending.put(LEVELS);
+            pending.putInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                pending.putInt(ids[i]);
+                pending.putDouble(levels[i]);
+            }
+            return end(start);
+        }
+    }
+
+    /**
+     * Anexa el nivel de una sola fuente, con el mismo formato que un lote de niveles de un elemento
+     * @param id El ID de la fuente
+     * @param level El nuevo nivel
+     * @return El número de secuencia del registro
+     */
+    long appendLevel(int id, double level) {
+        synchronized (lock) {
+            int start = begin(1 + 4 + 12);
+            pending.put(LEVELS);
+            pending.putInt(1);
+            pending.putInt(id);
+            pending.putDouble(level);
+            return end(start);
+        }
+    }
+
+    /**
+     * Espera a que el registro con el número de secuencia indicado esté sincronizado en disco
+     * @param sequence El número de secuencia devuelto al anexar
+     */
+    void awaitDurable(long sequence) {
+        synchronized (lock) {
+            while (durable < sequence && failure == null) {
+                waitOnLock();
+            }
+            if (durable < sequence) {
+                throw new UncheckedIOException("Failed to sync water source journal", failure);
+            }
+        }
+    }
+
+    /**
+     * Vacía todo lo pendiente y continúa escribiendo en un archivo nuevo
+     * @param file El nuevo archivo del diario
+     * @throws IOException Si el archivo no se puede abrir
+     */
+    void rotate(Path file) throws IOException {
+        synchronized (lock) {
+            awaitDurable(appended);
+            channel.close();
+            channel = open(file);
+        }
+    }
+
+    /**
+     * Obtiene el número de fsync realizados
+     * @return El número de sincronizaciones
+     */
+    long getSyncCount() {
+        synchronized (lock) {
+            return syncs;
+        }
+    }
+
+    /**
+     * Obtiene el número de registros anexados
+     * @return El número de registros
+     */
+    long getAppendCount() {
+        synchronized (lock) {
+            return appended;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            channel.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Reproduce los registros válidos de un archivo del diario
+     * @param file El archivo del diario
+     * @param replayer Receptor de las mutaciones
+     * @return El número de registros reproducidos
+     * @throws IOException Si el archivo no se puede leer
+     */
+    static long replay(Path file, Replayer replayer) throws IOException {
+        long count = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            CRC32 check = new CRC32();
+            while (data.remaining() >= RECORD_HEADER) {
+                int length = data.getInt();
+                int expected = data.getInt();
+                if (length <= 0 || length > data.remaining()) {
+                    break;
+                }
+                ByteBuffer record = data.slice();
+                record.limit(length);
+                check.reset();
+                check.update(record.duplicate());
+                if ((int) check.getValue() != expected) {
+                    break;
+                }
+                byte op = record.get();
+                if (op == ADD) {
+                    replayer.add(JournalCodec.readSource(record));
+                } else if (op == UPDATE) {
+                    replayer.update(JournalCodec.readSource(record));
+                } else if (op == REMOVE) {
+                    replayer.remove(record.getInt());
+                } else if (op == LEVELS) {
+                    int entries = record.getInt();
+                    int[] ids = new int[entries];
+                    double[] levels = new double[entries];
+                    for (int i = 0; i < entries; i++) {
+                        ids[i] = record.getInt();
+                        levels[i] = record.getDouble();
+                    }
+                    replayer.levels(ids, levels);
+                } else {
+                    break;
+                }
+                data.position(data.position() + length);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int begin(int maxPayload) {
+        if (closed) {
+            throw new IllegalStateException("Water source journal is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Water source journal failed", failure);
+        }
+        pending = JournalCodec.ensure(pending, RECORD_HEADER + maxPayload);
+        int start = pending.position();
+        pending.position(start + RECORD_HEADER);
+        return start;
+    }
+
+    private long end(int start) {
+        int length = pending.position() - start - RECORD_HEADER;
+        ByteBuffer payload = pending.duplicate();
+        payload.position(start + RECORD_HEADER).limit(start + RECORD_HEADER + length);
+        crc.reset();
+        crc.update(payload);
+        pending.putInt(start, length);
+        pending.putInt(start + 4, (int) crc.getValue());
+        appended++;
+        lock.notifyAll();
+        return appended;
+    }
+
+    /**
+     * Bucle del hilo de vaciado: toma todo lo pendiente, lo escribe y hace un solo fsync por lote
+     */
+    private void flushLoop() {
+        while (true) {
+            FileChannel target;
+            long batchEnd;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    waitOnLock();
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer batch = pending;
+                pending = writing;
+                writing = batch;
+                batchEnd = appended;
+                target = channel;
+            }
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    target.write(writing);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            } finally {
+                writing.clear();
+            }
+            synchronized (lock) {
+                durable = batchEnd;
+                syncs++;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void waitOnLock() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the water source journal", e);
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
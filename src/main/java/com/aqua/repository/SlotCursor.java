@@ -0,0 +1,50 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+/**
+ * Cursor débilmente consistente sobre las posiciones de un almacén por columnas.
+ * La fuente de cada posición se crea en {@link #hasNext()}, de modo que una eliminación concurrente
+ * que reduzca el tamaño del almacén entre {@code hasNext} y {@code next} no rompe el recorrido:
+ * las fuentes agregadas o eliminadas mientras tanto pueden verse o no, como en los iteradores de
+ * un ConcurrentHashMap. Si la posición siguiente dejó de estar ocupada, el recorrido termina.
+ */
+final class SlotCursor implements Iterator<WaterSource> {
+
+    private final IntSupplier size;
+    private final IntFunction<WaterSource> sourceAt;
+    private int slot;
+    private WaterSource next;
+
+    /**
+     * Constructor para SlotCursor
+     * @param size Obtiene el número vigente de posiciones ocupadas
+     * @param sourceAt Crea la fuente ligera de una posición, o devuelve null si ya no está ocupada
+     */
+    SlotCursor(IntSupplier size, IntFunction<WaterSource> sourceAt) {
+        this.size = size;
+        this.sourceAt = sourceAt;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && slot < size.getAsInt()) {
+            next = sourceAt.apply(slot++);
+        }
+        return next != null;
+    }
+
+    @Override
+    public WaterSource next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        WaterSource current = next;
+        next = null;
+        return current;
+    }
+}
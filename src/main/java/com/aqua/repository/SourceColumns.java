@@ -0,0 +1,84 @@
+package com.aqua.repository;
+
+/**
+ * Acceso posicional a un almacén de fuentes de agua organizado por columnas.
+ * Las fuentes se identifican por su posición (slot) dentro del almacén; las posiciones
+ * pueden cambiar cuando se eliminan fuentes, por lo que los consumidores deben
+ * validarlas con {@link #holds(int, int)} antes de usarlas.
+ */
+interface SourceColumns {
+
+    /** El nivel era el esperado y se cambió */
+    int LEVEL_SET = 1;
+    /** El nivel no era el esperado */
+    int LEVEL_CHANGED = 0;
+    /** La posición ya no contiene la fuente; hay que volver a buscarla */
+    int SLOT_MOVED = -1;
+
+    /**
+     * Busca la posición de una fuente de agua
+     * @param id El ID de la fuente de agua
+     * @return La posición de la fuente, o -1 si no existe
+     */
+    int slotOf(int id);
+
+    /**
+     * Indica si la posición indicada sigue conteniendo la fuente con el ID dado
+     * @param slot La posición a verificar
+     * @param id El ID esperado
+     * @return true si la posición contiene esa fuente
+     */
+    boolean holds(int slot, int id);
+
+    double capacityAt(int slot);
+
+    double levelAt(int slot);
+
+    String locationAt(int slot);
+
+    String qualityAt(int slot);
+
+    /**
+     * Cambia la capacidad de una fuente. La posición es solo una pista: bajo el bloqueo del almacén
+     * se verifica que contenga la fuente y, si se movió, se vuelve a buscar por ID.
+     * @param slot La posición donde se espera la fuente
+     * @param id El ID de la fuente
+     * @param capacity La nueva capacidad
+     * @return La capacidad anterior
+     * @throws IllegalStateException Si la fuente ya no existe
+     */
+    double setCapacityById(int slot, int id, double capacity);
+
+    /**
+     * Cambia el nivel de una fuente solo si todavía es el esperado, como una sola operación atómica.
+     * La comprobación de que la posición contiene la fuente forma parte de la misma operación, de
+     * modo que una compactación concurrente nunca hace que el cambio caiga en otra fuente o en una
+     * posición liberada. Los niveles se comparan por sus bits, como {@link Double#doubleToRawLongBits}.
+     * @param slot La posición donde se espera la fuente
+     * @param id El ID de la fuente
+     * @param expected El nivel esperado
+     * @param level El nuevo nivel
+     * @return {@link #LEVEL_SET}, {@link #LEVEL_CHANGED} o {@link #SLOT_MOVED}
+     */
+    int compareAndSetLevelById(int slot, int id, double expected, double level);
+
+    /**
+     * Cambia la ubicación de una fuente, verificando su posición como {@link #setCapacityById}
+     * @param slot La posición donde se espera la fuente
+     * @param id El ID de la fuente
+     * @param location La nueva ubicación
+     * @return La ubicación anterior
+     * @throws IllegalStateException Si la fuente ya no existe
+     */
+    String setLocationById(int slot, int id, String location);
+
+    /**
+     * Cambia la calidad de una fuente, verificando su posición como {@link #setCapacityById}
+     * @param slot La posición donde se espera la fuente
+     * @param id El ID de la fuente
+     * @param quality La nueva calidad
+     * @return La calidad anterior
+     * @throws IllegalStateException Si la fuente ya no existe
+     */
+    String setQualityById(int slot, int id, String quality);
+}
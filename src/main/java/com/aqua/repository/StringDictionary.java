@@ -0,0 +1,67 @@
+package com.aqua.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Diccionario que codifica cadenas repetidas como enteros.
+ * Los valores de tipo, calidad y ubicación se repiten mucho entre fuentes,
+ * así que cada cadena distinta se guarda una sola vez. La decodificación no toma bloqueos.
+ */
+class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Obtiene el código de una cadena, registrándola si es nueva
+     * @param value La cadena a codificar (puede ser null)
+     * @return El código de la cadena, o -1 para null
+     */
+    synchronized int encode(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            code = size++;
+            codes.put(value, code);
+            values = current;
+        }
+        return code;
+    }
+
+    /**
+     * Busca el código de una cadena sin registrarla
+     * @param value La cadena a buscar
+     * @return El código de la cadena, o -1 si no está registrada
+     */
+    synchronized int lookup(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Obtiene la cadena correspondiente a un código
+     * @param code El código de la cadena
+     * @return La cadena, o null si el código es -1
+     */
+    String decode(int code) {
+        return code < 0 ? null : values[code];
+    }
+
+    /**
+     * Obtiene el número de cadenas distintas registradas
+     * @return El tamaño del diccionario
+     */
+    synchronized int size() {
+        return size;
+    }
+}
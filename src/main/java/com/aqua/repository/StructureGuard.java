@@ -0,0 +1,68 @@
+package com.aqua.repository;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Coordina las escrituras sin bloqueo de un almacén por columnas con los cambios de estructura
+ * (mover registros al compactar o reemplazar los arreglos al crecer), que se hacen bajo el bloqueo
+ * del almacén.
+ *
+ * <p>Una escritura sin bloqueo se anota en un contador repartido por posición y después comprueba
+ * que no haya un cambio de estructura en curso; el cambio de estructura se anuncia primero y después
+ * espera a que los contadores queden en cero. Como ambos pasos son accesos volátiles, al menos uno de
+ * los dos ve al otro: o la escritura se desvía al camino con bloqueo, o el cambio espera a que
+ * termine. Mientras una escritura está anotada, sus posiciones y arreglos no cambian.</p>
+ */
+final class StructureGuard {
+
+    private static final int STRIPES = 16;
+    // Cada contador ocupa su propia línea de caché
+    private static final int PADDING = 16;
+
+    private final AtomicIntegerArray inFlight = new AtomicIntegerArray(STRIPES * PADDING);
+    private volatile boolean changing;
+
+    /**
+     * Anota una escritura sin bloqueo sobre una posición
+     * @param slot La posición que se va a escribir
+     * @return El contador a liberar con {@link #exit(int)}, o -1 si hay un cambio de estructura en
+     *         curso y la escritura debe tomar el bloqueo del almacén
+     */
+    int enter(int slot) {
+        int stripe = (slot & (STRIPES - 1)) * PADDING;
+        inFlight.incrementAndGet(stripe);
+        if (changing) {
+            inFlight.decrementAndGet(stripe);
+            return -1;
+        }
+        return stripe;
+    }
+
+    /**
+     * Libera una escritura anotada con {@link #enter(int)}
+     * @param stripe El contador devuelto por {@code enter}
+     */
+    void exit(int stripe) {
+        inFlight.decrementAndGet(stripe);
+    }
+
+    /**
+     * Anuncia un cambio de estructura y espera a que terminen las escrituras sin bloqueo en curso.
+     * Se llama con el bloqueo del almacén tomado.
+     */
+    void beginChange() {
+        changing = true;
+        for (int i = 0; i < STRIPES * PADDING; i += PADDING) {
+            while (inFlight.get(i) != 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Termina un cambio de estructura; se llama con el bloqueo del almacén tomado
+     */
+    void endChange() {
+        changing = false;
+    }
+}
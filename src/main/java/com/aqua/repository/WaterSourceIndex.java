@@ -0,0 +1,257 @@
+package com.aqua.repository;
+
+import com.aqua.domain.WaterSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índices secundarios sobre las fuentes de agua, mantenidos de forma incremental.
+ * Incluye índices hash por tipo y calidad, un índice ordenado por ubicación para consultas
+ * por prefijo y un índice por tramos de proporción de llenado para consultas por rango.
+ * Guarda los valores indexados de cada fuente para poder retirarla de los índices sin
+ * conocer sus valores anteriores. Las escrituras de los índices hash y de ubicación se serializan;
+ * los cambios de llenado solo bloquean la entrada de la fuente, para que varios hilos puedan
+ * actualizar niveles de fuentes distintas en paralelo. Las consultas no toman bloqueos.
+ *
+ * <p>Con cada cambio también actualiza los agregados de la flota ({@link FleetRollup}),
+ * restando la contribución anterior de la fuente y sumando la nueva.</p>
+ */
+class WaterSourceIndex {
+
+    /**
+     * Valores indexados de una fuente
+     */
+    private static final class Entry {
+        String type;
+        String quality;
+        String location;
+        volatile double fill;
+        int fillBucket = -1;
+        boolean removed;
+        FleetRollup.Group typeGroup;
+        FleetRollup.Group qualityGroup;
+        FleetRollup.Group locationGroup;
+        long capacity;
+        long level;
+        int sketchBin = -1;
+    }
+
+    /**
+     * Número de tramos de igual ancho en que se divide la proporción de llenado [0, 1);
+     * un tramo adicional agrupa las fuentes llenas
+     */
+    private static final int FILL_BUCKETS = 100;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> byType = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> byQuality = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Set<Integer>> byLocation = new ConcurrentSkipListMap<>();
+    private final List<Set<Integer>> byFill = new ArrayList<>(FILL_BUCKETS + 1);
+    private final FleetRollup rollup = new FleetRollup();
+
+    WaterSourceIndex() {
+        for (int i = 0; i <= FILL_BUCKETS; i++) {
+            byFill.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Indexa una fuente o actualiza todos sus valores indexados
+     * @param source La fuente de agua
+     */
+    synchronized void put(WaterSource source) {
+        int id = source.getId();
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(id, entry);
+        }
+        entry.type = move(byType, id, entry.type, source.getType());
+        entry.quality = move(byQuality, id, entry.quality, source.getQuality());
+        entry.location = move(byLocation, id, entry.location, source.getLocation());
+        synchronized (entry) {
+            retract(entry);
+            entry.typeGroup = rollup.typeGroup(entry.type);
+            entry.qualityGroup = rollup.qualityGroup(entry.quality);
+            entry.locationGroup = rollup.locationGroup(entry.location);
+            entry.capacity = FleetRollup.scale(source.getCapacity());
+            entry.level = FleetRollup.scale(source.getCurrentLevel());
+            rollup.apply(entry.typeGroup, entry.qualityGroup, entry.locationGroup, 1, entry.capacity, entry.level);
+            moveFill(entry, id, IWaterSourceRepository.fillRatio(source.getCurrentLevel(), source.getCapacity()));
+        }
+    }
+
+    /**
+     * Actualiza solo la proporción de llenado de una fuente ya indexada.
+     * El nivel y la capacidad se leen dentro del bloqueo de la entrada, de modo que la última
+     * notificación en obtenerlo deja registrados los valores más recientes aunque varios hilos
+     * cambien la misma fuente a la vez.
+     * @param source La fuente de agua
+     */
+    void updateFill(WaterSource source) {
+        int id = source.getId();
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            synchronized (entry) {
+                if (!entry.removed) {
+                    double level = source.getCurrentLevel();
+                    double capacity = source.getCapacity();
+                    long scaledCapacity = FleetRollup.scale(capacity);
+                    long scaledLevel = FleetRollup.scale(level);
+                    rollup.apply(entry.typeGroup, entry.qualityGroup, entry.locationGroup, 0,
+                        scaledCapacity - entry.capacity, scaledLevel - entry.level);
+                    entry.capacity = scaledCapacity;
+                    entry.level = scaledLevel;
+                    moveFill(entry, id, IWaterSourceRepository.fillRatio(level, capacity));
+                }
+            }
+        }
+    }
+
+    /**
+     * Actualiza todos los valores de una fuente solo si ya está indexada
+     * @param source La fuente de agua
+     */
+    synchronized void refresh(WaterSource source) {
+        if (entries.containsKey(source.getId())) {
+            put(source);
+        }
+    }
+
+    /**
+     * Retira una fuente de todos los índices
+     * @param id El ID de la fuente
+     */
+    synchronized void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            move(byType, id, entry.type, null);
+            move(byQuality, id, entry.quality, null);
+            move(byLocation, id, entry.location, null);
+            synchronized (entry) {
+                entry.removed = true;
+                byFill.get(entry.fillBucket).remove(id);
+                retract(entry);
+            }
+        }
+    }
+
+    FleetRollup getRollup() {
+        return rollup;
+    }
+
+    boolean contains(int id) {
+        return entries.containsKey(id);
+    }
+
+    Collection<Integer> idsByType(String type) {
+        return snapshot(type == null ? null : byType.get(type));
+    }
+
+    Collection<Integer> idsByQuality(String quality) {
+        return snapshot(quality == null ? null : byQuality.get(quality));
+    }
+
+    /**
+     * Obtiene los IDs cuya ubicación empieza con el prefijo, recorriendo solo el rango de claves que coincide
+     * @param prefix El prefijo de ubicación
+     * @return Los IDs encontrados
+     */
+    Collection<Integer> idsByLocationPrefix(String prefix) {
+        List<Integer> ids = new ArrayList<>();
+        for (Set<Integer> group : byLocation.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            ids.addAll(group);
+        }
+        return ids;
+    }
+
+    /**
+     * Obtiene los IDs con proporción de llenado en [minRatio, maxRatio).
+     * Los tramos interiores del rango se toman completos y solo se filtran los tramos de los extremos.
+     * @param minRatio Límite inferior inclusivo
+     * @param maxRatio Límite superior exclusivo
+     * @return Los IDs encontrados, agrupados por tramo de llenado creciente
+     */
+    Collection<Integer> idsByFillRatio(double minRatio, double maxRatio) {
+        List<Integer> ids = new ArrayList<>();
+        if (!(minRatio < maxRatio)) {
+            return ids;
+        }
+        int first = bucketOf(minRatio);
+        int last = bucketOf(maxRatio);
+        for (int bucket = first; bucket <= last; bucket++) {
+            boolean edge = bucket == first || bucket == last;
+            for (Integer id : byFill.get(bucket)) {
+                if (edge) {
+                    Entry entry = entries.get(id);
+                    if (entry == null || !(entry.fill >= minRatio && entry.fill < maxRatio)) {
+                        continue;
+                    }
+                }
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Resta de los agregados la contribución registrada de una fuente
+     */
+    private void retract(Entry entry) {
+        if (entry.sketchBin < 0) {
+            return;
+        }
+        rollup.apply(entry.typeGroup, entry.qualityGroup, entry.locationGroup, -1, -entry.capacity, -entry.level);
+        rollup.release(entry.typeGroup, entry.qualityGroup, entry.locationGroup);
+        rollup.moveFill(entry.sketchBin, -1);
+        entry.sketchBin = -1;
+    }
+
+    private void moveFill(Entry entry, int id, double ratio) {
+        entry.fill = ratio;
+        int sketchBin = FleetRollup.binOf(ratio);
+        rollup.moveFill(entry.sketchBin, sketchBin);
+        entry.sketchBin = sketchBin;
+        int bucket = bucketOf(ratio);
+        if (bucket != entry.fillBucket) {
+            if (entry.fillBucket >= 0) {
+                byFill.get(entry.fillBucket).remove(id);
+            }
+            byFill.get(bucket).add(id);
+            entry.fillBucket = bucket;
+        }
+    }
+
+    private static int bucketOf(double ratio) {
+        if (!(ratio > 0)) {
+            return 0;
+        }
+        return ratio >= 1 ? FILL_BUCKETS : (int) (ratio * FILL_BUCKETS);
+    }
+
+    private static String move(Map<String, Set<Integer>> index, int id, String previous, String current) {
+        if (previous != null && !previous.equals(current)) {
+            Set<Integer> group = index.get(previous);
+            if (group != null) {
+                group.remove(id);
+                if (group.isEmpty()) {
+                    index.remove(previous);
+                }
+            }
+        }
+        if (current != null) {
+            index.computeIfAbsent(current, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        return current;
+    }
+
+    private static Collection<Integer> snapshot(Set<Integer> group) {
+        return group == null ? new ArrayList<>() : new ArrayList<>(group);
+    }
+}
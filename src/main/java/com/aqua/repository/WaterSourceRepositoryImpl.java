@@ -2,6 +2,9 @@ package com.aqua.repository;
 
 import com.aqua.domain.WaterSource;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -34,6 +37,19 @@ public class WaterSourceRepositoryImpl implements IWaterSourceRepository {
         waterSources.put(source.getId(), source);
     }
 
+    /**
+     * Guarda una nueva fuente de agua si no existe otra con el mismo ID
+     * @param source La fuente de agua a guardar
+     * @return true si se guardó, false si el ID ya estaba ocupado
+     */
+    @Override
+    public boolean addIfAbsent(WaterSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Water source cannot be null");
+        }
+        return waterSources.putIfAbsent(source.getId(), source) == null;
+    }
+
     /**
      * Actualiza una fuente de agua existente
      * @param source La fuente de agua actualizada
@@ -77,4 +93,89 @@ public class WaterSourceRepositoryImpl implements IWaterSourceRepository {
     public List<WaterSource> listWaterSources() {
         return new ArrayList<>(waterSources.values());
     }
-} 
\ No newline at end of file
+
+    @Override
+    public int size() {
+        return waterSources.size();
+    }
+
+    /**
+     * Recorre las fuentes de agua directamente sobre el mapa, sin copiarlas a una lista
+     * @return Cursor débilmente consistente sobre las fuentes de agua
+     */
+    @Override
+    public Iterator<WaterSource> cursor() {
+        return Collections.unmodifiableCollection(waterSources.values()).iterator();
+    }
+
+    /**
+     * Guarda varias fuentes de agua en una sola pasada
+     * @param sources Las fuentes de agua a guardar
+     */
+    @Override
+    public void addAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        for (WaterSource source : sources) {
+            if (source == null) {
+                throw new IllegalArgumentException("Water source cannot be null");
+            }
+            waterSources.put(source.getId(), source);
+        }
+    }
+
+    /**
+     * Actualiza varias fuentes de agua existentes en una sola pasada.
+     * Cada fuente se reemplaza con una sola operación sobre el mapa en lugar de verificar y luego guardar.
+     * @param sources Las fuentes de agua actualizadas
+     */
+    @Override
+    public void updateAll(Collection<? extends WaterSource> sources) {
+        if (sources == null) {
+            throw new IllegalArgumentException("Water sources cannot be null");
+        }
+        for (WaterSource source : sources) {
+            if (source == null) {
+                throw new IllegalArgumentException("Water source cannot be null");
+            }
+            if (waterSources.replace(source.getId(), source) == null) {
+                throw new IllegalStateException("Water source with ID " + source.getId() + " does not exist");
+            }
+        }
+    }
+
+    /**
+     * Elimina varias fuentes de agua por sus IDs
+     * @param ids Los IDs de las fuentes de agua a eliminar
+     */
+    @Override
+    public void removeAll(int[] ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("IDs cannot be null");
+        }
+        for (int id : ids) {
+            waterSources.remove(id);
+        }
+    }
+
+    /**
+     * Actualiza el nivel de varias fuentes de agua en una sola pasada sobre los arreglos
+     * @param ids Los IDs de las fuentes de agua
+     * @param levels Los nuevos niveles, en paralelo a {@code ids}
+     * @return El número de fuentes actualizadas
+     */
+    @Override
+    public int bulkUpdateLevels(int[] ids, double[] levels) {
+        IWaterSourceRepository.checkLevelBatch(ids, levels);
+        int updated = 0;
+        for (int i = 0; i < ids.length; i++) {
+            WaterSource source = waterSources.get(ids[i]);
+            if (source != null) {
+                source.setCurrentLevel(levels[i]);
+                updated++;
+            }
+        }
+        return updated;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,396 @@
+package com.aqua.simulation;
+
+import com.aqua.alert.Alert;
+import com.aqua.alert.AlertPipeline;
+import com.aqua.alert.SystemAlert;
+import com.aqua.domain.WaterSource;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
+import com.aqua.repository.IWaterSourceRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.Getter;
+
+/**
+ * Motor de simulación de niveles y calidad de agua, independiente de la UI.
+ * Cada tick reparte las fuentes del repositorio en fragmentos contiguos que se procesan en paralelo;
+ * cada fragmento tiene su propio generador {@link SplittableRandom}, por lo que los hilos no comparten
+ * estado aleatorio. Cada fragmento se escribe como un lote del repositorio ({@code runBatch}), por lo
+ * que los lectores de la versión publicada de la flota ven un fragmento completo o ninguno de sus
+ * cambios. El resultado de cada tick se combina en un único resumen pendiente que el
+ * consumidor retira cuando puede, sin que la simulación espere a la UI.
+ */
+public class SimulationEngine {
+
+    public static final long DEFAULT_TICK_MILLIS = 5000;
+    public static final int DEFAULT_MAX_ALERTS = 200;
+
+    private static final double LEVEL_STEP = 0.05;
+    private static final double QUALITY_CHANGE_PROBABILITY = 0.05;
+    private static final double LOW_LEVEL_RATIO = 0.30;
+    private static final double RECOVERED_LEVEL_RATIO = 0.35;
+    private static final double LOW_CAPACITY = 300;
+    private static final String[] QUALITIES = {"GOOD", "FAIR", "POOR"};
+    private static final Timer TICK_TIMER = MetricsRegistry.global()
+        .timer("simulation_tick", "Tiempo de un tick completo de simulación");
+
+    private final IWaterSourceRepository repository;
+    @Getter
+    private final int shards;
+    @Getter
+    private final long tickMillis;
+    @Getter
+    private final int maxAlerts;
+    private final SplittableRandom[] randoms;
+    private final AtomicReference<SimulationSnapshot> pending = new AtomicReference<>();
+    private volatile SimulationListener listener;
+    private volatile AlertPipeline alertPipeline;
+    private ExecutorService workers;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> ticker;
+    private long tick;
+
+    /**
+     * Constructor con un fragmento por procesador y el intervalo de tick predeterminado
+     * @param repository El repositorio con las fuentes a simular
+     */
+    public SimulationEngine(IWaterSourceRepository repository) {
+        this(repository, Runtime.getRuntime().availableProcessors(), DEFAULT_TICK_MILLIS,
+                DEFAULT_MAX_ALERTS, System.nanoTime());
+    }
+
+    /**
+     * Constructor para SimulationEngine
+     * @param repository El repositorio con las fuentes a simular
+     * @param shards El número de fragmentos que se procesan en paralelo
+     * @param tickMillis El intervalo entre ticks en milisegundos
+     * @param maxAlerts El tamaño máximo de la muestra de alertas de cada resumen
+     * @param seed La semilla de la que se derivan los generadores de cada fragmento
+     */
+    public SimulationEngine(IWaterSourceRepository repository, int shards, long tickMillis, int maxAlerts, long seed) {
+        if (repository == null) {
+            throw new IllegalArgumentException("El repositorio no puede ser nulo");
+        }
+        if (shards <= 0) {
+            throw new IllegalArgumentException("El número de fragmentos debe ser positivo");
+        }
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("El intervalo de simulación debe ser positivo");
+        }
+        if (maxAlerts < 0) {
+            throw new IllegalArgumentException("El máximo de alertas no puede ser negativo");
+        }
+        this.repository = repository;
+        this.shards = shards;
+        this.tickMillis = tickMillis;
+        this.maxAlerts = maxAlerts;
+        this.randoms = new SplittableRandom[shards];
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int i = 0; i < shards; i++) {
+            randoms[i] = root.split();
+        }
+    }
+
+    /**
+     * Establece quién recibe el aviso de resumen pendiente
+     * @param listener El oyente, o null para no avisar
+     */
+    public void setListener(SimulationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Establece el filtro por el que pasan las alertas de la simulación.
+     * Sin filtro, cada resumen solo lleva una muestra acotada de las alertas del tick.
+     * @param alertPipeline El filtro de alertas, o null para usar la muestra
+     */
+    public void setAlertPipeline(AlertPipeline alertPipeline) {
+        this.alertPipeline = alertPipeline;
+    }
+
+    /**
+     * Inicia los ticks periódicos; no hace nada si ya está en ejecución
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        workers = Executors.newFixedThreadPool(shards, daemonThreads("aqua-simulation-worker"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("aqua-simulation-ticker"));
+        ticker = scheduler.scheduleAtFixedRate(this::runScheduledTick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene los ticks periódicos y espera a que termine el tick en curso
+     */
+    public void stop() {
+        ScheduledExecutorService stoppedScheduler;
+        ExecutorService stoppedWorkers;
+        synchronized (this) {
+            if (ticker == null) {
+                return;
+            }
+            ticker.cancel(false);
+            ticker = null;
+            stoppedScheduler = scheduler;
+            stoppedWorkers = workers;
+            scheduler = null;
+            workers = null;
+        }
+        stoppedScheduler.shutdown();
+        try {
+            stoppedScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stoppedWorkers.shutdown();
+    }
+
+    /**
+     * Indica si el motor está generando ticks periódicos
+     * @return true si está en ejecución
+     */
+    public synchronized boolean isRunning() {
+        return ticker != null;
+    }
+
+    /**
+     * Retira el resumen pendiente, que combina todos los ticks desde el último retiro
+     * @return El resumen pendiente, o null si no hay ticks nuevos
+     */
+    public SimulationSnapshot pollSnapshot() {
+        return pending.getAndSet(null);
+    }
+
+    /**
+     * Ejecuta un tick completo en el hilo llamador, usando los hilos del motor si está en ejecución
+     * @return El resumen de este tick
+     */
+    public SimulationSnapshot tick() {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = workers;
+        }
+        return runTick(executor);
+    }
+
+    private void runScheduledTick() {
+        try {
+            ExecutorService executor;
+            synchronized (this) {
+                executor = workers;
+            }
+            if (executor != null) {
+                runTick(executor);
+            }
+        } catch (RuntimeException e) {
+            // Un tick fallido no debe cancelar los siguientes
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized SimulationSnapshot runTick(ExecutorService executor) {
+        long start = System.nanoTime();
+        List<WaterSource> sources = repository.listWaterSources();
+        int size = sources.size();
+        ShardResult[] results = new ShardResult[shards];
+        if (executor == null || shards == 1) {
+            for (int i = 0; i < shards; i++) {
+                int shard = i;
+                results[i] = repository.runBatch(() -> simulateShard(sources, shard, size));
+            }
+        } else {
+            List<Future<ShardResult>> futures = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++) {
+                int shard = i;
+                Callable<ShardResult> task = () -> repository.runBatch(() -> simulateShard(sources, shard, size));
+                futures.add(executor.submit(task));
+            }
+            for (int i = 0; i < shards; i++) {
+                results[i] = join(futures.get(i));
+            }
+        }
+
+        int lowLevel = 0;
+        int lowCapacity = 0;
+        int qualityDrops = 0;
+        int suppressed = 0;
+        List<Alert> alerts = new ArrayList<>();
+        for (ShardResult result : results) {
+            lowLevel += result.lowLevel;
+            lowCapacity += result.lowCapacity;
+            qualityDrops += result.qualityDrops;
+            int taken = Math.min(maxAlerts - alerts.size(), result.alerts.size());
+            alerts.addAll(result.alerts.subList(0, taken));
+            suppressed += result.suppressed + result.alerts.size() - taken;
+        }
+        long elapsed = System.nanoTime() - start;
+        TICK_TIMER.record(elapsed);
+        SimulationSnapshot snapshot = new SimulationSnapshot(++tick, 1, size, elapsed,
+                lowLevel, lowCapacity, qualityDrops, alerts, suppressed);
+        publish(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Simula un fragmento contiguo de la lista de fuentes
+     * @param sources Las fuentes del tick
+     * @param shard El índice del fragmento
+     * @param size El número total de fuentes
+     * @return Los contadores y alertas del fragmento
+     */
+    private ShardResult simulateShard(List<WaterSource> sources, int shard, int size) {
+        SplittableRandom random = randoms[shard];
+        int from = (int) ((long) size * shard / shards);
+        int to = (int) ((long) size * (shard + 1) / shards);
+        ShardResult result = new ShardResult(alertPipeline, maxAlerts);
+        for (int i = from; i < to; i++) {
+            WaterSource source = sources.get(i);
+            double capacity = source.getCapacity();
+
+            // Simular cambio aleatorio en el nivel de agua (-5% a +5%), sin pisar los cambios que
+            // otros hilos (telemetría, API) escriban en la misma fuente entre la lectura y la escritura
+            double change = (random.nextDouble() * 2 * LEVEL_STEP - LEVEL_STEP) * capacity;
+            double previousLevel;
+            double newLevel;
+            do {
+                previousLevel = source.getCurrentLevel();
+                newLevel = Math.max(0, Math.min(previousLevel + change, capacity));
+            } while (previousLevel != newLevel && !source.compareAndSetLevel(previousLevel, newLevel));
+
+            if (newLevel < LOW_LEVEL_RATIO * capacity) {
+                result.lowLevel++;
+                if (result.wants(source.getId(), Alert.AlertKind.LOW_LEVEL)) {
+                    result.raise(String.format("Nivel crítico de agua en %s ID: %d (%.1f%%)",
+                        source.getType(), source.getId(), (newLevel / capacity) * 100),
+                        source.getId(), Alert.AlertKind.LOW_LEVEL);
+                }
+            } else if (result.pipeline != null && previousLevel < RECOVERED_LEVEL_RATIO * capacity
+                    && newLevel >= RECOVERED_LEVEL_RATIO * capacity) {
+                // Histéresis: la alerta de nivel se rearma solo cuando el nivel supera el umbral de recuperación
+                result.pipeline.resolve(source.getId(), Alert.AlertKind.LOW_LEVEL);
+            }
+
+            if (capacity < LOW_CAPACITY) {
+                result.lowCapacity++;
+                if (result.wants(source.getId(), Alert.AlertKind.LOW_CAPACITY)) {
+                    result.raise(String.format("Capacidad crítica en %s ID: %d (%.1f m³)",
+                        source.getType(), source.getId(), capacity),
+                        source.getId(), Alert.AlertKind.LOW_CAPACITY);
+                }
+            }
+
+            // Simular cambios en la calidad (5% de probabilidad)
+            if (random.nextDouble() < QUALITY_CHANGE_PROBABILITY) {
+                String newQuality = QUALITIES[random.nextInt(QUALITIES.length)];
+                String oldQuality = source.getQuality();
+                source.setQuality(newQuality);
+
+                // Generar alerta solo si la calidad empeora
+                if (rank(oldQuality) >= 0 && rank(newQuality) > rank(oldQuality)) {
+                    result.qualityDrops++;
+                    if (result.wants(source.getId(), Alert.AlertKind.QUALITY_DROP)) {
+                        result.raise(String.format("Calidad de agua deteriorada en %s ID: %d (%s → %s)",
+                            source.getType(), source.getId(), oldQuality, newQuality),
+                            source.getId(), Alert.AlertKind.QUALITY_DROP);
+                    }
+                } else if (result.pipeline != null && rank(newQuality) < rank(oldQuality)) {
+                    result.pipeline.resolve(source.getId(), Alert.AlertKind.QUALITY_DROP);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void publish(SimulationSnapshot snapshot) {
+        SimulationSnapshot previous = pending.getAndAccumulate(snapshot,
+                (current, next) -> current == null ? next : current.mergedWith(next, maxAlerts));
+        SimulationListener current = listener;
+        if (previous == null && current != null) {
+            current.snapshotAvailable(this);
+        }
+    }
+
+    private static int rank(String quality) {
+        for (int i = 0; i < QUALITIES.length; i++) {
+            if (QUALITIES[i].equals(quality)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ShardResult join(Future<ShardResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tick de simulación interrumpido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al simular un fragmento de fuentes", e.getCause());
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Contadores y alertas de un fragmento, usados solo por el hilo que lo simula.
+     * Con un filtro de alertas configurado las alertas se envían a él; si no, se guarda una muestra acotada.
+     */
+    private static final class ShardResult {
+        final AlertPipeline pipeline;
+        final int maxAlerts;
+        int lowLevel;
+        int lowCapacity;
+        int qualityDrops;
+        int suppressed;
+        final List<Alert> alerts = new ArrayList<>();
+
+        ShardResult(AlertPipeline pipeline, int maxAlerts) {
+            this.pipeline = pipeline;
+            this.maxAlerts = maxAlerts;
+        }
+
+        /**
+         * Indica si vale la pena construir la alerta, antes de formatear su mensaje
+         */
+        boolean wants(int sourceId, Alert.AlertKind kind) {
+            if (pipeline != null) {
+                return pipeline.admit(sourceId, kind);
+            }
+            if (alerts.size() < maxAlerts) {
+                return true;
+            }
+            suppressed++;
+            return false;
+        }
+
+        void raise(String message, int sourceId, Alert.AlertKind kind) {
+            Alert alert = new SystemAlert(message, Alert.AlertType.WARNING, sourceId, kind);
+            if (pipeline != null) {
+                pipeline.publish(alert);
+            } else {
+                alerts.add(alert);
+            }
+        }
+    }
+}
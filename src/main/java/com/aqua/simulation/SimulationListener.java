@@ -0,0 +1,16 @@
+package com.aqua.simulation;
+
+/**
+ * Interfaz para recibir avisos del motor de simulación.
+ * El aviso solo indica que hay un resumen pendiente; el consumidor lo retira con
+ * {@link SimulationEngine#pollSnapshot()} cuando puede procesarlo, de modo que varios ticks
+ * se combinan en un solo resumen si el consumidor va más lento que la simulación.
+ */
+public interface SimulationListener {
+
+    /**
+     * Llamado desde un hilo del motor cuando pasa a haber un resumen pendiente
+     * @param engine El motor que tiene el resumen
+     */
+    void snapshotAvailable(SimulationEngine engine);
+}
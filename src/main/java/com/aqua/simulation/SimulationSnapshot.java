@@ -0,0 +1,72 @@
+package com.aqua.simulation;
+
+import com.aqua.alert.Alert;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Resumen inmutable de uno o varios ticks de simulación.
+ * Contiene los contadores de cada tipo de alerta y una muestra acotada de las alertas generadas,
+ * para que publicar el resultado a la UI no dependa del tamaño de la flota.
+ */
+@Getter
+public class SimulationSnapshot {
+
+    private final long tick;
+    private final int ticksCoalesced;
+    private final int sourceCount;
+    private final long tickNanos;
+    private final int lowLevelCount;
+    private final int lowCapacityCount;
+    private final int qualityDropCount;
+    private final List<Alert> alerts;
+    private final int suppressedAlerts;
+
+    /**
+     * Constructor para SimulationSnapshot
+     * @param tick El número del último tick incluido
+     * @param ticksCoalesced Cuántos ticks resume
+     * @param sourceCount El número de fuentes simuladas en el último tick
+     * @param tickNanos La duración del último tick en nanosegundos
+     * @param lowLevelCount Fuentes con nivel crítico
+     * @param lowCapacityCount Fuentes con capacidad crítica
+     * @param qualityDropCount Fuentes cuya calidad empeoró
+     * @param alerts Muestra de las alertas generadas
+     * @param suppressedAlerts Alertas que no entraron en la muestra
+     */
+    public SimulationSnapshot(long tick, int ticksCoalesced, int sourceCount, long tickNanos,
+            int lowLevelCount, int lowCapacityCount, int qualityDropCount,
+            List<Alert> alerts, int suppressedAlerts) {
+        this.tick = tick;
+        this.ticksCoalesced = ticksCoalesced;
+        this.sourceCount = sourceCount;
+        this.tickNanos = tickNanos;
+        this.lowLevelCount = lowLevelCount;
+        this.lowCapacityCount = lowCapacityCount;
+        this.qualityDropCount = qualityDropCount;
+        this.alerts = Collections.unmodifiableList(alerts);
+        this.suppressedAlerts = suppressedAlerts;
+    }
+
+    /**
+     * Combina este resumen con uno posterior.
+     * Los contadores de alertas se acumulan y la muestra conserva las alertas más antiguas hasta el límite.
+     * @param next El resumen posterior
+     * @param maxAlerts El tamaño máximo de la muestra de alertas
+     * @return El resumen combinado
+     */
+    public SimulationSnapshot mergedWith(SimulationSnapshot next, int maxAlerts) {
+        List<Alert> merged = new ArrayList<>(Math.min(maxAlerts, alerts.size() + next.alerts.size()));
+        merged.addAll(alerts.subList(0, Math.min(alerts.size(), maxAlerts)));
+        int room = maxAlerts - merged.size();
+        int taken = Math.min(room, next.alerts.size());
+        merged.addAll(next.alerts.subList(0, taken));
+        int suppressed = suppressedAlerts + next.suppressedAlerts
+                + (alerts.size() - Math.min(alerts.size(), maxAlerts)) + (next.alerts.size() - taken);
+        return new SimulationSnapshot(next.tick, ticksCoalesced + next.ticksCoalesced, next.sourceCount,
+                next.tickNanos, lowLevelCount + next.lowLevelCount, lowCapacityCount + next.lowCapacityCount,
+                qualityDropCount + next.qualityDropCount, merged, suppressed);
+    }
+}
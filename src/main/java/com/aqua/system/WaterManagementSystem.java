@@ -1,12 +1,22 @@
 package com.aqua.system;
 
 import com.aqua.config.Configuration;
+import com.aqua.distribution.DistributionScheduler;
+import com.aqua.distribution.IndexedDistributionStrategy;
 import com.aqua.domain.WaterSource;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
+import com.aqua.observer.FleetLevelMonitor;
 import com.aqua.observer.WaterLevelMonitor;
 import com.aqua.repository.IWaterSourceRepository;
 import com.aqua.report.HistoricalReportGenerator;
+import com.aqua.report.ReportPage;
+import com.aqua.report.ReportQuery;
 import com.aqua.user.User;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import lombok.Getter;
 
@@ -16,13 +26,22 @@ import lombok.Getter;
  */
 @Getter
 public class WaterManagementSystem {
+
+    private static final Timer BULK_UPDATE_TIMER = MetricsRegistry.global()
+        .timer("system_bulk_update_levels", "Tiempo de una actualización de niveles por lote, incluida la evaluación de la flota");
+    private static final Timer MONITOR_FLEET_TIMER = MetricsRegistry.global()
+        .timer("system_monitor_fleet", "Tiempo de una evaluación de la flota pedida al sistema");
+    private static final Timer EXPORT_TIMER = MetricsRegistry.global()
+        .timer("system_export_report", "Tiempo de exportación de un reporte a archivo");
     
     private final IWaterSourceRepository repository;
     private final WaterLevelMonitor monitor;
+    private final FleetLevelMonitor fleetMonitor;
     private final HistoricalReportGenerator reportGenerator;
     private final Configuration config;
     private final List<User> users;
     private boolean isRunning;
+    private volatile DistributionScheduler distributionScheduler;
     
     /**
      * Constructor para WaterManagementSystem
@@ -38,6 +57,7 @@ public class WaterManagementSystem {
             Configuration config) {
         this.repository = repository;
         this.monitor = monitor;
+        this.fleetMonitor = new FleetLevelMonitor(repository, config);
         this.reportGenerator = reportGenerator;
         this.config = config;
         this.users = new ArrayList<>();
@@ -60,6 +80,41 @@ public class WaterManagementSystem {
         if (isRunning) {
             isRunning = false;
         }
+        stopDistributionScheduler();
+    }
+
+    /**
+     * Inicia la planificación continua de la distribución por ubicación.
+     * El planificador parte de los niveles actuales del repositorio y luego recibe los cambios
+     * de nivel del monitor y del monitor de flota.
+     * @param strategy La estrategia aplicada a cada ubicación
+     * @return El planificador, o el que ya estaba en ejecución
+     */
+    public synchronized DistributionScheduler startDistributionScheduler(IndexedDistributionStrategy strategy) {
+        if (distributionScheduler != null) {
+            return distributionScheduler;
+        }
+        DistributionScheduler scheduler = new DistributionScheduler(strategy);
+        scheduler.addSources(repository.listWaterSources());
+        scheduler.subscribe(monitor);
+        scheduler.subscribe(fleetMonitor);
+        scheduler.start();
+        distributionScheduler = scheduler;
+        return scheduler;
+    }
+
+    /**
+     * Detiene la planificación continua de la distribución, si está en ejecución
+     */
+    public synchronized void stopDistributionScheduler() {
+        DistributionScheduler scheduler = distributionScheduler;
+        if (scheduler == null) {
+            return;
+        }
+        monitor.removeObserver(scheduler);
+        fleetMonitor.removeObserver(scheduler);
+        scheduler.stop();
+        distributionScheduler = null;
     }
     
     /**
@@ -71,6 +126,19 @@ public class WaterManagementSystem {
         monitor.setWaterSource(source);
     }
     
+    /**
+     * Agrega una fuente de agua al sistema si no existe otra con el mismo ID
+     * @param source La fuente de agua a agregar
+     * @return true si se agregó, false si el ID ya estaba ocupado
+     */
+    public boolean addWaterSourceIfAbsent(WaterSource source) {
+        if (!repository.addIfAbsent(source)) {
+            return false;
+        }
+        monitor.setWaterSource(source);
+        return true;
+    }
+    
     /**
      * Actualiza una fuente de agua en el sistema
      * @param source La fuente de agua a actualizar
@@ -91,9 +159,113 @@ public class WaterManagementSystem {
             if (monitor.getWaterSource() != null && monitor.getWaterSource().getId() == id) {
                 monitor.setWaterSource(null);
             }
+            DistributionScheduler scheduler = distributionScheduler;
+            if (scheduler != null) {
+                scheduler.removeSource(id);
+            }
         }
     }
     
+    /**
+     * Agrega varias fuentes de agua al sistema en un solo lote.
+     * El monitor se actualiza una sola vez con la última fuente del lote.
+     * @param sources Las fuentes de agua a agregar
+     */
+    public void addAll(Collection<? extends WaterSource> sources) {
+        repository.addAll(sources);
+        WaterSource last = lastOf(sources);
+        if (last != null) {
+            monitor.setWaterSource(last);
+        }
+    }
+
+    /**
+     * Actualiza varias fuentes de agua del sistema en un solo lote.
+     * El monitor se actualiza una sola vez con la última fuente del lote.
+     * @param sources Las fuentes de agua a actualizar
+     */
+    public void updateAll(Collection<? extends WaterSource> sources) {
+        repository.updateAll(sources);
+        WaterSource last = lastOf(sources);
+        if (last != null) {
+            monitor.setWaterSource(last);
+        }
+    }
+
+    /**
+     * Elimina varias fuentes de agua del sistema en un solo lote
+     * @param ids Los IDs de las fuentes de agua a eliminar
+     */
+    public void removeAll(int[] ids) {
+        repository.removeAll(ids);
+        WaterSource monitored = monitor.getWaterSource();
+        if (monitored != null && contains(ids, monitored.getId())) {
+            monitor.setWaterSource(null);
+        }
+        DistributionScheduler scheduler = distributionScheduler;
+        if (scheduler != null) {
+            for (int id : ids) {
+                scheduler.removeSource(id);
+            }
+        }
+    }
+
+    /**
+     * Actualiza el nivel de varias fuentes de agua en un solo lote.
+     * Si la fuente monitoreada está en el lote, los observadores se notifican una sola vez,
+     * y el monitor de flota evalúa solo las fuentes del lote; la pasada completa queda para
+     * {@link #monitorFleet()}.
+     * @param ids Los IDs de las fuentes de agua
+     * @param levels Los nuevos niveles, en paralelo a {@code ids}
+     * @return El número de fuentes actualizadas
+     */
+    public int bulkUpdateLevels(int[] ids, double[] levels) {
+        long start = BULK_UPDATE_TIMER.start();
+        try {
+            int updated = repository.bulkUpdateLevels(ids, levels);
+            WaterSource monitored = monitor.getWaterSource();
+            if (updated > 0 && monitored != null && contains(ids, monitored.getId())) {
+                monitor.notifyObservers();
+            }
+            if (updated > 0) {
+                fleetMonitor.evaluate(ids);
+            }
+            return updated;
+        } finally {
+            BULK_UPDATE_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Evalúa el nivel de todas las fuentes del repositorio y notifica a los observadores del monitor de flota
+     * @return El número de eventos publicados
+     */
+    public int monitorFleet() {
+        long start = MONITOR_FLEET_TIMER.start();
+        try {
+            return fleetMonitor.evaluate();
+        } finally {
+            MONITOR_FLEET_TIMER.stop(start);
+        }
+    }
+
+    private static WaterSource lastOf(Collection<? extends WaterSource> sources) {
+        WaterSource last = null;
+        for (WaterSource source : sources) {
+            last = source;
+        }
+        return last;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Genera un reporte del sistema
      * @return El reporte generado
@@ -102,12 +274,58 @@ public class WaterManagementSystem {
         return reportGenerator.generateReport();
     }
     
+    /**
+     * Escribe un tramo del reporte por fuente sin construirlo completo en memoria
+     * @param out El destino del reporte
+     * @param query Las fuentes a incluir y el tramo a escribir
+     * @return Lo escrito y si quedan más fuentes
+     * @throws IOException Si falla la escritura
+     */
+    public ReportPage writeReport(Appendable out, ReportQuery query) throws IOException {
+        return reportGenerator.writeReport(out, query);
+    }
+    
+    /**
+     * Escribe un tramo del reporte por fuente en UTF-8 sobre un canal, por partes; el canal no se cierra
+     * @param channel El canal de destino
+     * @param query Las fuentes a incluir y el tramo a escribir
+     * @return Lo escrito y si quedan más fuentes
+     * @throws IOException Si falla la escritura
+     */
+    public ReportPage writeReport(WritableByteChannel channel, ReportQuery query) throws IOException {
+        return reportGenerator.writeReport(channel, query);
+    }
+    
+    /**
+     * Genera un reporte resumido de la flota a partir de sus agregados
+     * @return El reporte generado
+     */
+    public String generateSummaryReport() {
+        return reportGenerator.generateSummaryReport();
+    }
+    
+    /**
+     * Genera el reporte del historial de niveles y calidad de un periodo
+     * @param from Inicio del periodo en milisegundos, inclusivo
+     * @param to Fin del periodo en milisegundos, exclusivo
+     * @param bucketMillis La duración de cada intervalo del reporte
+     * @return El reporte generado
+     */
+    public String generateHistoryReport(long from, long to, long bucketMillis) {
+        return reportGenerator.generateHistoryReport(from, to, bucketMillis);
+    }
+    
     /**
      * Exporta el reporte en el formato especificado
      * @param format El formato de exportación
      */
     public void exportReport(String format) {
-        reportGenerator.exportReport(format);
+        long start = EXPORT_TIMER.start();
+        try {
+            reportGenerator.exportReport(format);
+        } finally {
+            EXPORT_TIMER.stop(start);
+        }
     }
 
     /**
@@ -173,6 +391,14 @@ public class WaterManagementSystem {
         return monitor;
     }
 
+    /**
+     * Obtiene el monitor que vigila todas las fuentes del repositorio
+     * @return El monitor de flota
+     */
+    public FleetLevelMonitor getFleetLevelMonitor() {
+        return fleetMonitor;
+    }
+
     /**
      * Obtiene el generador de reportes
      * @return El generador de reportes
@@ -0,0 +1,356 @@
+package com.aqua.telemetry;
+
+import com.aqua.metrics.Counter;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.repository.IntSlotIndex;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Etapa que agrupa las lecturas de cada fuente antes de aplicarlas a otro {@link TelemetrySink}.
+ * Dentro de una ventana de tiempo conserva solo la lectura más reciente de cada fuente, de modo que
+ * el monitor, las alertas y la interfaz reciben a lo sumo un cambio por fuente y ventana, sin importar
+ * cuántas lecturas envíe un sensor. Una ráfaga de un sensor ruidoso ocupa una sola posición y no
+ * desplaza las actualizaciones de las demás fuentes.
+ *
+ * <p>Las lecturas con un instante anterior o igual al de la última lectura aceptada de la fuente se
+ * descartan como reenvíos o llegadas fuera de orden. Si la lectura que reemplaza a otra no trae
+ * calidad, se conserva la calidad de la reemplazada.</p>
+ *
+ * <p>El estado por fuente se libera cuando la fuente pasa {@link #IDLE_WINDOWS} ventanas sin lecturas
+ * aceptadas, de modo que la tabla solo crece con las fuentes activas y no con cada ID que alguna vez
+ * llegó, incluidos los que el repositorio no conoce. Tras liberarse, la primera lectura de la fuente
+ * se acepta sin compararla con el último instante visto.</p>
+ *
+ * <p>Al cerrar la ventana las lecturas se entregan al destino en lotes de tamaño acotado. La ventana
+ * se cierra al llegar lecturas después de su vencimiento y, con {@link #start()}, también
+ * periódicamente aunque no llegue tráfico. Todos los métodos son seguros entre hilos y el destino
+ * se llama desde un solo hilo a la vez.</p>
+ */
+public class ReadingCoalescer implements TelemetrySink {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 250;
+    public static final int IDLE_WINDOWS = 64;
+
+    private static final int INITIAL_SOURCES = 1024;
+    private static final int NO_PENDING = -1;
+    private static final Counter COALESCED = MetricsRegistry.global()
+        .counter("telemetry_coalesced", "Lecturas reemplazadas por otra más reciente de la misma fuente");
+    private static final Counter STALE = MetricsRegistry.global()
+        .counter("telemetry_stale", "Lecturas descartadas por llegar fuera de orden o repetidas");
+
+    private final TelemetrySink downstream;
+    private final long windowNanos;
+
+    // Estado por fuente, en la posición que le asigna el índice la primera vez que se ve
+    private final IntSlotIndex slots = new IntSlotIndex(INITIAL_SOURCES);
+    private int[] slotIds = new int[INITIAL_SOURCES];
+    private long[] lastTimestamps = new long[INITIAL_SOURCES];
+    private long[] lastWindows = new long[INITIAL_SOURCES];
+    private int[] pendingPositions = new int[INITIAL_SOURCES];
+
+    // Lecturas pendientes de la ventana actual, una por fuente
+    private int[] pendingIds = new int[INITIAL_SOURCES];
+    private int[] pendingSlots = new int[INITIAL_SOURCES];
+    private long[] pendingTimestamps = new long[INITIAL_SOURCES];
+    private double[] pendingLevels = new double[INITIAL_SOURCES];
+    private byte[] pendingQualities = new byte[INITIAL_SOURCES];
+    private int pendingCount;
+
+    // Lote reutilizado para entregar las lecturas al destino
+    private final int[] batchIds;
+    private final long[] batchTimestamps;
+    private final double[] batchLevels;
+    private final byte[] batchQualities;
+
+    private long windowStart = System.nanoTime();
+    private long windows;
+    private long received;
+    private long stale;
+    private long coalesced;
+    private long flushed;
+    private long applied;
+    private long evicted;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> ticker;
+
+    /**
+     * Constructor con la ventana y el tamaño de lote predeterminados
+     * @param downstream El destino de las lecturas agrupadas
+     */
+    public ReadingCoalescer(TelemetrySink downstream) {
+        this(downstream, DEFAULT_WINDOW_MILLIS, TelemetryServer.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor para ReadingCoalescer
+     * @param downstream El destino de las lecturas agrupadas
+     * @param windowMillis La duración de la ventana en milisegundos
+     * @param batchSize El número máximo de lecturas por lote entregado al destino
+     */
+    public ReadingCoalescer(TelemetrySink downstream, long windowMillis, int batchSize) {
+        if (downstream == null) {
+            throw new IllegalArgumentException("El destino de las lecturas no puede ser nulo");
+        }
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("La ventana debe ser positiva");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("El tamaño del lote debe ser positivo");
+        }
+        this.downstream = downstream;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.batchIds = new int[batchSize];
+        this.batchTimestamps = new long[batchSize];
+        this.batchLevels = new double[batchSize];
+        this.batchQualities = new byte[batchSize];
+        Arrays.fill(pendingPositions, NO_PENDING);
+    }
+
+    /**
+     * Agrupa un lote de lecturas y, si la ventana venció, entrega las pendientes
+     * @return El número de fuentes que actualizó el destino durante esta llamada
+     */
+    @Override
+    public synchronized int apply(int[] ids, long[] timestamps, double[] levels, byte[] qualities, int count) {
+        for (int i = 0; i < count; i++) {
+            offer(ids[i], timestamps[i], levels[i], qualities[i]);
+        }
+        return System.nanoTime() - windowStart >= windowNanos ? flush() : 0;
+    }
+
+    /**
+     * Agrega una lectura a la ventana actual sin entregarla
+     * @param sourceId El ID de la fuente
+     * @param timestamp El instante de la lectura en milisegundos
+     * @param level El nivel leído
+     * @param quality El código de calidad, {@link TelemetryFrame#QUALITY_UNCHANGED} si no se midió
+     * @return true si la lectura se aceptó, false si era anterior a la última aceptada de la fuente
+     */
+    public synchronized boolean offer(int sourceId, long timestamp, double level, byte quality) {
+        received++;
+        int slot = slots.get(sourceId);
+        if (slot < 0) {
+            slot = slots.size();
+            slots.put(sourceId, slot);
+            ensureSlotCapacity(slot + 1);
+            slotIds[slot] = sourceId;
+        } else if (timestamp <= lastTimestamps[slot]) {
+            stale++;
+            STALE.increment();
+            return false;
+        }
+        lastTimestamps[slot] = timestamp;
+        lastWindows[slot] = windows;
+        int position = pendingPositions[slot];
+        if (position == NO_PENDING) {
+            position = pendingCount++;
+            ensurePendingCapacity(pendingCount);
+            pendingPositions[slot] = position;
+            pendingIds[position] = sourceId;
+            pendingSlots[position] = slot;
+            pendingQualities[position] = quality;
+        } else {
+            coalesced++;
+            COALESCED.increment();
+            if (quality != TelemetryFrame.QUALITY_UNCHANGED) {
+                pendingQualities[position] = quality;
+            }
+        }
+        pendingTimestamps[position] = timestamp;
+        pendingLevels[position] = level;
+        return true;
+    }
+
+    /**
+     * Cierra la ventana actual y entrega sus lecturas al destino en lotes
+     * @return El número de fuentes que actualizó el destino
+     */
+    public synchronized int flush() {
+        windowStart = System.nanoTime();
+        int updated = 0;
+        try {
+            for (int from = 0; from < pendingCount; from += batchIds.length) {
+                int count = Math.min(batchIds.length, pendingCount - from);
+                System.arraycopy(pendingIds, from, batchIds, 0, count);
+                System.arraycopy(pendingTimestamps, from, batchTimestamps, 0, count);
+                System.arraycopy(pendingLevels, from, batchLevels, 0, count);
+                System.arraycopy(pendingQualities, from, batchQualities, 0, count);
+                updated += downstream.apply(batchIds, batchTimestamps, batchLevels, batchQualities, count);
+            }
+        } finally {
+            // Un lote fallido se pierde, como en el servidor; la ventana siguiente empieza vacía
+            for (int i = 0; i < pendingCount; i++) {
+                pendingPositions[pendingSlots[i]] = NO_PENDING;
+            }
+            flushed += pendingCount;
+            applied += updated;
+            pendingCount = 0;
+            if (++windows % IDLE_WINDOWS == 0) {
+                evictIdle();
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Inicia el cierre periódico de ventanas; no hace nada si ya está en ejecución
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        long windowMillis = TimeUnit.NANOSECONDS.toMillis(windowNanos);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "aqua-telemetry-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker = executor.scheduleWithFixedDelay(this::runScheduledFlush, windowMillis, windowMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene el cierre periódico y entrega las lecturas pendientes
+     */
+    public void stop() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            if (ticker == null) {
+                return;
+            }
+            ticker.cancel(false);
+            ticker = null;
+            stopped = executor;
+            executor = null;
+        }
+        stopped.shutdown();
+        try {
+            stopped.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    /**
+     * Obtiene el número de lecturas descartadas por llegar fuera de orden o repetidas
+     * @return Las lecturas descartadas
+     */
+    public synchronized long getStale() {
+        return stale;
+    }
+
+    /**
+     * Obtiene el número de lecturas reemplazadas por otra más reciente dentro de su ventana
+     * @return Las lecturas reemplazadas
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Obtiene el número de lecturas entregadas al destino
+     * @return Las lecturas entregadas
+     */
+    public synchronized long getFlushed() {
+        return flushed;
+    }
+
+    /**
+     * Obtiene el número de fuentes actualizadas según el destino
+     * @return Las actualizaciones aplicadas
+     */
+    public synchronized long getApplied() {
+        return applied;
+    }
+
+    /**
+     * Obtiene el número de fuentes cuyo estado se conserva entre ventanas
+     * @return Las fuentes registradas
+     */
+    public synchronized int getTrackedSources() {
+        return slots.size();
+    }
+
+    /**
+     * Obtiene el número de fuentes liberadas por pasar varias ventanas sin lecturas
+     * @return Las fuentes liberadas
+     */
+    public synchronized long getEvicted() {
+        return evicted;
+    }
+
+    private void runScheduledFlush() {
+        try {
+            synchronized (this) {
+                if (System.nanoTime() - windowStart >= windowNanos) {
+                    flush();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Una entrega fallida no debe cancelar las siguientes
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Libera el estado de las fuentes que no tuvieron lecturas aceptadas en las últimas
+     * {@link #IDLE_WINDOWS} ventanas, moviendo la última posición ocupada a cada posición liberada.
+     * Se llama al cerrar una ventana, cuando no quedan lecturas pendientes.
+     */
+    private void evictIdle() {
+        int size = slots.size();
+        int slot = 0;
+        while (slot < size) {
+            if (windows - lastWindows[slot] < IDLE_WINDOWS) {
+                slot++;
+                continue;
+            }
+            slots.remove(slotIds[slot]);
+            int last = --size;
+            if (slot != last) {
+                slotIds[slot] = slotIds[last];
+                lastTimestamps[slot] = lastTimestamps[last];
+                lastWindows[slot] = lastWindows[last];
+                slots.put(slotIds[slot], slot);
+            }
+            evicted++;
+        }
+    }
+
+    private void ensureSlotCapacity(int required) {
+        if (required > lastTimestamps.length) {
+            int capacity = Math.max(required, lastTimestamps.length * 2);
+            int previous = pendingPositions.length;
+            slotIds = Arrays.copyOf(slotIds, capacity);
+            lastTimestamps = Arrays.copyOf(lastTimestamps, capacity);
+            lastWindows = Arrays.copyOf(lastWindows, capacity);
+            pendingPositions = Arrays.copyOf(pendingPositions, capacity);
+            Arrays.fill(pendingPositions, previous, capacity, NO_PENDING);
+        }
+    }
+
+    private void ensurePendingCapacity(int required) {
+        if (required > pendingIds.length) {
+            int capacity = Math.max(required, pendingIds.length * 2);
+            pendingIds = Arrays.copyOf(pendingIds, capacity);
+            pendingSlots = Arrays.copyOf(pendingSlots, capacity);
+            pendingTimestamps = Arrays.copyOf(pendingTimestamps, capacity);
+            pendingLevels = Arrays.copyOf(pendingLevels, capacity);
+            pendingQualities = Arrays.copyOf(pendingQualities, capacity);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.aqua.telemetry;
+
+import com.aqua.domain.WaterSource;
+import com.aqua.repository.IWaterSourceRepository;
+import java.util.Arrays;
+
+/**
+ * Aplica las lecturas a un repositorio con {@link IWaterSourceRepository#bulkUpdateLevels(int[], double[])}.
+ * Los niveles de un lote se aplican en una sola llamada; la calidad, que cambia rara vez, se aplica
+ * fuente por fuente y solo cuando difiere de la actual. Los instantes de las lecturas se ignoran.
+ */
+public class RepositoryTelemetrySink implements TelemetrySink {
+
+    private final IWaterSourceRepository repository;
+
+    /**
+     * Constructor para RepositoryTelemetrySink
+     * @param repository El repositorio a actualizar
+     */
+    public RepositoryTelemetrySink(IWaterSourceRepository repository) {
+        if (repository == null) {
+            throw new IllegalArgumentException("El repositorio no puede ser nulo");
+        }
+        this.repository = repository;
+    }
+
+    @Override
+    public int apply(int[] ids, long[] timestamps, double[] levels, byte[] qualities, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        // La actualización por lote toma arreglos del largo exacto; un lote lleno se pasa sin copiar
+        int updated = count == ids.length
+            ? repository.bulkUpdateLevels(ids, levels)
+            : repository.bulkUpdateLevels(Arrays.copyOf(ids, count), Arrays.copyOf(levels, count));
+        for (int i = 0; i < count; i++) {
+            String quality = TelemetryFrame.qualityLabel(qualities[i]);
+            if (quality != null) {
+                applyQuality(ids[i], quality);
+            }
+        }
+        return updated;
+    }
+
+    private void applyQuality(int sourceId, String quality) {
+        WaterSource source = repository.getWaterSource(sourceId);
+        if (source != null && !quality.equals(source.getQuality())) {
+            source.setQuality(quality);
+            repository.updateWaterSource(source);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.aqua.telemetry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Formato binario de una lectura de sensor: {@value #FRAME_BYTES} bytes de ancho fijo, big-endian.
+ * <pre>
+ * offset  tamaño  campo
+ *      0       4  ID de la fuente (int)
+ *      4       8  instante de la lectura en milisegundos desde la época (long)
+ *     12       8  nivel en m³ (double)
+ *     20       1  código de calidad (byte), {@link #QUALITY_UNCHANGED} si el sensor no la mide
+ * </pre>
+ * Por TCP las tramas se envían una tras otra sin separadores; por UDP cada datagrama lleva una o
+ * más tramas completas.
+ */
+public final class TelemetryFrame {
+
+    public static final int FRAME_BYTES = 21;
+
+    public static final byte QUALITY_UNCHANGED = 0;
+    public static final byte QUALITY_GOOD = 1;
+    public static final byte QUALITY_FAIR = 2;
+    public static final byte QUALITY_POOR = 3;
+
+    private static final String[] QUALITY_LABELS = {null, "GOOD", "FAIR", "POOR"};
+
+    private TelemetryFrame() {
+    }
+
+    /**
+     * Escribe una trama en la posición actual del búfer
+     * @param buffer El búfer, con al menos {@value #FRAME_BYTES} bytes libres
+     * @param sourceId El ID de la fuente
+     * @param timestamp El instante de la lectura en milisegundos
+     * @param level El nivel leído
+     * @param quality El código de calidad
+     */
+    public static void encode(ByteBuffer buffer, int sourceId, long timestamp, double level, byte quality) {
+        buffer.putInt(sourceId).putLong(timestamp).putDouble(level).put(quality);
+    }
+
+    /**
+     * Obtiene el código de una calidad
+     * @param quality La calidad, como "GOOD"
+     * @return El código, o {@link #QUALITY_UNCHANGED} si la calidad no tiene código
+     */
+    public static byte qualityCode(String quality) {
+        for (byte code = QUALITY_GOOD; code < QUALITY_LABELS.length; code++) {
+            if (QUALITY_LABELS[code].equals(quality)) {
+                return code;
+            }
+        }
+        return QUALITY_UNCHANGED;
+    }
+
+    /**
+     * Obtiene la calidad de un código
+     * @param code El código de calidad
+     * @return La calidad, o null si el código es {@link #QUALITY_UNCHANGED} o desconocido
+     */
+    public static String qualityLabel(byte code) {
+        return code > 0 && code < QUALITY_LABELS.length ? QUALITY_LABELS[code] : null;
+    }
+}
@@ -0,0 +1,194 @@
+package com.aqua.telemetry;
+
+import com.aqua.domain.River;
+import com.aqua.repository.WaterSourceRepositoryImpl;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga para el servidor de telemetría: envía lecturas de una flota sintética tan
+ * rápido como puede durante un tiempo fijo e informa cada segundo las lecturas enviadas y, con el
+ * servidor embebido, las recibidas y aplicadas al repositorio.
+ *
+ * <p>Argumentos en la forma {@code clave=valor}:</p>
+ * <ul>
+ *   <li>{@code protocol}: {@code tcp} o {@code udp} (predeterminado {@code tcp})</li>
+ *   <li>{@code sources}: el número de fuentes de la flota (predeterminado 100000)</li>
+ *   <li>{@code seconds}: la duración de la prueba (predeterminado 10)</li>
+ *   <li>{@code connections}: el número de emisores en paralelo (predeterminado 1)</li>
+ *   <li>{@code host} y {@code port}: el servidor destino; sin {@code port} se inicia un servidor
+ *       embebido con un repositorio en memoria</li>
+ *   <li>{@code window}: con el servidor embebido, agrupa las lecturas con un {@link ReadingCoalescer}
+ *       de esa ventana en milisegundos</li>
+ * </ul>
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.aqua.telemetry.TelemetryLoadGenerator -Dexec.args="protocol=udp seconds=5"
+ * </pre>
+ */
+public final class TelemetryLoadGenerator {
+
+    private static final int FRAMES_PER_WRITE = 2048;
+    private static final int FRAMES_PER_DATAGRAM = 64;
+
+    private TelemetryLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String protocol = options.getOrDefault("protocol", "tcp");
+        if (!"tcp".equals(protocol) && !"udp".equals(protocol)) {
+            throw new IllegalArgumentException("Protocolo no soportado: " + protocol);
+        }
+        int sources = Integer.parseInt(options.getOrDefault("sources", "100000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "1"));
+        String host = options.getOrDefault("host", "127.0.0.1");
+
+        TelemetryServer server = null;
+        ReadingCoalescer coalescer = null;
+        InetSocketAddress target;
+        if (options.containsKey("port")) {
+            target = new InetSocketAddress(host, Integer.parseInt(options.get("port")));
+        } else {
+            WaterSourceRepositoryImpl repository = new WaterSourceRepositoryImpl();
+            for (int id = 0; id < sources; id++) {
+                repository.addWaterSource(new River(id, "RIVER", 1000, "Zona " + (id % 1000), "GOOD"));
+            }
+            TelemetrySink sink = new RepositoryTelemetrySink(repository);
+            if (options.containsKey("window")) {
+                coalescer = new ReadingCoalescer(sink, Long.parseLong(options.get("window")),
+                    TelemetryServer.DEFAULT_BATCH_SIZE);
+                coalescer.start();
+                sink = coalescer;
+            }
+            server = new TelemetryServer(sink, 0);
+            server.start();
+            target = new InetSocketAddress("127.0.0.1", "tcp".equals(protocol) ? server.getTcpPort() : server.getUdpPort());
+            System.out.printf("Servidor embebido en %s con %d fuentes%n", target, sources);
+        }
+
+        LongAdder sent = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            int first = (int) ((long) sources * i / connections);
+            Runnable sender = "tcp".equals(protocol)
+                ? () -> sendTcp(target, sources, first, deadline, sent)
+                : () -> sendUdp(target, sources, first, deadline, sent);
+            Thread thread = new Thread(sender, "aqua-telemetry-load-" + i);
+            thread.start();
+            senders.add(thread);
+        }
+
+        long start = System.nanoTime();
+        long lastSent = 0;
+        long lastReceived = 0;
+        while (senders.get(0).isAlive()) {
+            TimeUnit.SECONDS.sleep(1);
+            long nowSent = sent.sum();
+            if (server == null) {
+                System.out.printf("enviadas %,d/s%n", nowSent - lastSent);
+            } else {
+                long nowReceived = server.getReceived();
+                System.out.printf("enviadas %,d/s  recibidas %,d/s%n", nowSent - lastSent, nowReceived - lastReceived);
+                lastReceived = nowReceived;
+            }
+            lastSent = nowSent;
+        }
+        for (Thread thread : senders) {
+            thread.join();
+        }
+        if (server != null) {
+            // Dar tiempo a que el servidor termine de leer lo que quedó en los búferes
+            TimeUnit.MILLISECONDS.sleep(500);
+            server.stop();
+            if (coalescer != null) {
+                coalescer.stop();
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%nTotal: %,d lecturas enviadas en %.1f s (%,.0f lecturas/s)%n",
+            sent.sum(), elapsed, sent.sum() / elapsed);
+        if (server != null) {
+            System.out.printf("Servidor: %,d recibidas, %,d aplicadas en %,d lotes, %,d rechazadas (%,.0f lecturas/s)%n",
+                server.getReceived(), server.getApplied(), server.getBatches(), server.getRejected(),
+                server.getReceived() / elapsed);
+        }
+        if (coalescer != null) {
+            System.out.printf("Agrupador: %,d entregadas, %,d reemplazadas, %,d fuera de orden, %,d aplicadas%n",
+                coalescer.getFlushed(), coalescer.getCoalesced(), coalescer.getStale(), coalescer.getApplied());
+        }
+    }
+
+    private static void sendTcp(InetSocketAddress target, int sources, int first, long deadline, LongAdder sent) {
+        SplittableRandom random = new SplittableRandom(first);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(FRAMES_PER_WRITE * TelemetryFrame.FRAME_BYTES);
+        int next = first;
+        try (SocketChannel channel = SocketChannel.open(target)) {
+            while (System.nanoTime() < deadline) {
+                buffer.clear();
+                next = fill(buffer, FRAMES_PER_WRITE, next, sources, random);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                sent.add(FRAMES_PER_WRITE);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void sendUdp(InetSocketAddress target, int sources, int first, long deadline, LongAdder sent) {
+        SplittableRandom random = new SplittableRandom(first);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(FRAMES_PER_DATAGRAM * TelemetryFrame.FRAME_BYTES);
+        int next = first;
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(target);
+            while (System.nanoTime() < deadline) {
+                buffer.clear();
+                next = fill(buffer, FRAMES_PER_DATAGRAM, next, sources, random);
+                buffer.flip();
+                channel.write(buffer);
+                sent.add(FRAMES_PER_DATAGRAM);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Escribe tramas de fuentes consecutivas y devuelve el ID de la siguiente
+     */
+    private static int fill(ByteBuffer buffer, int frames, int next, int sources, SplittableRandom random) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < frames; i++) {
+            byte quality = random.nextInt(100) == 0 ? TelemetryFrame.QUALITY_FAIR : TelemetryFrame.QUALITY_UNCHANGED;
+            TelemetryFrame.encode(buffer, next, now, random.nextDouble(0, 1000), quality);
+            next = next + 1 == sources ? 0 : next + 1;
+        }
+        return next;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Argumento no válido, se esperaba clave=valor: " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+}
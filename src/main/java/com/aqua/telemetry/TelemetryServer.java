@@ -0,0 +1,349 @@
+package com.aqua.telemetry;
+
+import com.aqua.metrics.Counter;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servidor de ingesta de lecturas de sensores en el formato de {@link TelemetryFrame}, por TCP y UDP.
+ * Un único hilo atiende todos los canales con un {@link Selector}. Cada conexión TCP y el canal UDP
+ * leen en un {@link ByteBuffer} directo propio, y las tramas se decodifican del búfer a arreglos
+ * primitivos reutilizados, sin reservar objetos por lectura. Las lecturas se entregan al
+ * {@link TelemetrySink} en lotes: al llenarse el lote y al terminar cada vuelta del selector, de modo
+ * que la latencia queda acotada aunque llegue poco tráfico.
+ *
+ * <p>Por TCP una trama puede quedar partida entre dos lecturas; los bytes sobrantes se conservan para
+ * la siguiente. Por UDP los bytes que no completan una trama se descartan. Las lecturas con nivel
+ * negativo o no finito se descartan y se cuentan como rechazadas.</p>
+ */
+public class TelemetryServer {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    public static final int READ_BUFFER_BYTES = 64 * 1024;
+    public static final int MAX_DATAGRAM_BYTES = 65_507;
+
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+    private static final Counter FRAMES = MetricsRegistry.global()
+        .counter("telemetry_frames", "Lecturas recibidas por el servidor de telemetría");
+    private static final Counter REJECTED = MetricsRegistry.global()
+        .counter("telemetry_rejected", "Lecturas descartadas por nivel no válido o trama incompleta");
+    private static final Timer APPLY_TIMER = MetricsRegistry.global()
+        .timer("telemetry_batch_apply", "Tiempo de aplicación de un lote de lecturas");
+
+    private final TelemetrySink sink;
+    private final InetSocketAddress tcpAddress;
+    private final InetSocketAddress udpAddress;
+
+    private final int[] ids;
+    private final long[] timestamps;
+    private final double[] levels;
+    private final byte[] qualities;
+    private int count;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private Selector selector;
+    private ServerSocketChannel tcpChannel;
+    private DatagramChannel udpChannel;
+    private ByteBuffer datagramBuffer;
+    private Thread thread;
+
+    /**
+     * Constructor que escucha TCP y UDP en el mismo puerto de la interfaz local
+     * @param sink El destino de las lecturas
+     * @param port El puerto, o 0 para elegir puertos libres
+     */
+    public TelemetryServer(TelemetrySink sink, int port) {
+        this(sink, new InetSocketAddress("127.0.0.1", port), new InetSocketAddress("127.0.0.1", port),
+            DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor para TelemetryServer
+     * @param sink El destino de las lecturas
+     * @param tcpAddress La dirección TCP, o null para no aceptar TCP
+     * @param udpAddress La dirección UDP, o null para no aceptar UDP
+     * @param batchSize El número máximo de lecturas por lote entregado al destino
+     */
+    public TelemetryServer(TelemetrySink sink, InetSocketAddress tcpAddress, InetSocketAddress udpAddress,
+            int batchSize) {
+        if (sink == null) {
+            throw new IllegalArgumentException("El destino de las lecturas no puede ser nulo");
+        }
+        if (tcpAddress == null && udpAddress == null) {
+            throw new IllegalArgumentException("Se necesita al menos una dirección TCP o UDP");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("El tamaño del lote debe ser positivo");
+        }
+        this.sink = sink;
+        this.tcpAddress = tcpAddress;
+        this.udpAddress = udpAddress;
+        this.ids = new int[batchSize];
+        this.timestamps = new long[batchSize];
+        this.levels = new double[batchSize];
+        this.qualities = new byte[batchSize];
+    }
+
+    /**
+     * Abre los canales e inicia el hilo del servidor
+     * @throws IOException Si no se puede abrir alguna dirección
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        selector = Selector.open();
+        try {
+            if (tcpAddress != null) {
+                tcpChannel = ServerSocketChannel.open();
+                tcpChannel.bind(tcpAddress);
+                tcpChannel.configureBlocking(false);
+                tcpChannel.register(selector, SelectionKey.OP_ACCEPT);
+            }
+            if (udpAddress != null) {
+                udpChannel = DatagramChannel.open();
+                udpChannel.bind(udpAddress);
+                udpChannel.configureBlocking(false);
+                udpChannel.register(selector, SelectionKey.OP_READ);
+                datagramBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_BYTES);
+            }
+        } catch (IOException e) {
+            closeChannels();
+            throw e;
+        }
+        thread = new Thread(this::run, "aqua-telemetry-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Cierra los canales y espera a que el hilo del servidor aplique el último lote
+     */
+    public void stop() {
+        Thread stopped;
+        synchronized (this) {
+            if (thread == null) {
+                return;
+            }
+            stopped = thread;
+            thread = null;
+        }
+        stopped.interrupt();
+        selector.wakeup();
+        try {
+            stopped.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Obtiene el puerto TCP en que escucha el servidor
+     * @return El puerto, o -1 si no acepta TCP o no se inició
+     */
+    public synchronized int getTcpPort() {
+        return tcpChannel == null ? -1 : tcpChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Obtiene el puerto UDP en que escucha el servidor
+     * @return El puerto, o -1 si no acepta UDP o no se inició
+     */
+    public synchronized int getUdpPort() {
+        return udpChannel == null ? -1 : udpChannel.socket().getLocalPort();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Obtiene el número de fuentes actualizadas según el destino
+     * @return Las actualizaciones aplicadas
+     */
+    public long getApplied() {
+        return applied.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                flush();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                e.printStackTrace();
+            }
+        } finally {
+            flush();
+            closeChannels();
+        }
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel client = tcpChannel.accept();
+            if (client != null) {
+                client.configureBlocking(false);
+                client.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(READ_BUFFER_BYTES));
+            }
+        } else if (key.channel() == udpChannel) {
+            receiveDatagrams();
+        } else {
+            readStream(key);
+        }
+    }
+
+    /**
+     * Lee de una conexión TCP hasta vaciarla, conservando al final del búfer la trama incompleta
+     */
+    private void readStream(SelectionKey key) {
+        SocketChannel client = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        try {
+            int read;
+            while ((read = client.read(buffer)) > 0) {
+                buffer.flip();
+                decode(buffer);
+                buffer.compact();
+            }
+            if (read < 0) {
+                if (buffer.position() > 0) {
+                    discard(1);
+                }
+                closeClient(key);
+            }
+        } catch (IOException e) {
+            // Una conexión que falla no afecta a las demás
+            closeClient(key);
+        }
+    }
+
+    private void receiveDatagrams() throws IOException {
+        while (true) {
+            datagramBuffer.clear();
+            if (udpChannel.receive(datagramBuffer) == null) {
+                return;
+            }
+            datagramBuffer.flip();
+            decode(datagramBuffer);
+            if (datagramBuffer.hasRemaining()) {
+                discard(1);
+            }
+        }
+    }
+
+    /**
+     * Decodifica todas las tramas completas del búfer y deja su posición tras la última
+     */
+    private void decode(ByteBuffer buffer) {
+        int frames = 0;
+        int invalid = 0;
+        while (buffer.remaining() >= TelemetryFrame.FRAME_BYTES) {
+            int sourceId = buffer.getInt();
+            long timestamp = buffer.getLong();
+            double level = buffer.getDouble();
+            byte quality = buffer.get();
+            frames++;
+            if (!(level >= 0) || Double.isInfinite(level)) {
+                invalid++;
+                continue;
+            }
+            ids[count] = sourceId;
+            timestamps[count] = timestamp;
+            levels[count] = level;
+            qualities[count] = quality;
+            if (++count == ids.length) {
+                flush();
+            }
+        }
+        received.add(frames);
+        FRAMES.add(frames);
+        if (invalid > 0) {
+            discard(invalid);
+        }
+    }
+
+    private void flush() {
+        if (count == 0) {
+            return;
+        }
+        long start = APPLY_TIMER.start();
+        try {
+            applied.add(sink.apply(ids, timestamps, levels, qualities, count));
+            batches.increment();
+        } catch (RuntimeException e) {
+            // Un lote que falla no debe detener la ingesta
+            e.printStackTrace();
+        } finally {
+            count = 0;
+            APPLY_TIMER.stop(start);
+        }
+    }
+
+    private void discard(int readings) {
+        rejected.add(readings);
+        REJECTED.add(readings);
+    }
+
+    private void closeClient(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // La conexión ya no se usa
+        }
+    }
+
+    private synchronized void closeChannels() {
+        try {
+            if (selector != null && selector.isOpen()) {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            }
+            if (tcpChannel != null) {
+                tcpChannel.close();
+            }
+            if (udpChannel != null) {
+                udpChannel.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
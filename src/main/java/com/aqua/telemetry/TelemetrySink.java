@@ -0,0 +1,20 @@
+package com.aqua.telemetry;
+
+/**
+ * Destino de las lecturas decodificadas por el {@link TelemetryServer}.
+ * Las lecturas llegan por lotes en arreglos paralelos que el servidor reutiliza, por lo que la
+ * implementación debe copiar lo que necesite conservar antes de volver.
+ */
+public interface TelemetrySink {
+
+    /**
+     * Aplica un lote de lecturas; se llama desde un solo hilo a la vez
+     * @param ids Los IDs de las fuentes
+     * @param timestamps Los instantes de las lecturas en milisegundos
+     * @param levels Los niveles leídos
+     * @param qualities Los códigos de calidad, {@link TelemetryFrame#QUALITY_UNCHANGED} si no se midió
+     * @param count El número de lecturas válidas al inicio de los arreglos
+     * @return El número de fuentes actualizadas
+     */
+    int apply(int[] ids, long[] timestamps, double[] levels, byte[] qualities, int count);
+}
@@ -0,0 +1,49 @@
+package com.aqua.ui;
+
+import java.awt.Color;
+import java.awt.Component;
+import javax.swing.JProgressBar;
+import javax.swing.JTable;
+import javax.swing.table.TableCellRenderer;
+
+/**
+ * Renderizador de la columna de nivel como barra de progreso.
+ * Una sola barra se reutiliza para pintar todas las celdas visibles.
+ */
+class LevelCellRenderer extends JProgressBar implements TableCellRenderer {
+
+    private static final Color LOW = new Color(255, 0, 0); // Rojo
+    private static final Color MEDIUM = new Color(255, 165, 0); // Amarillo
+    private static final Color HIGH = new Color(0, 128, 0); // Verde
+
+    LevelCellRenderer() {
+        super(0, 100);
+        setStringPainted(true);
+        setBorderPainted(false);
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+            boolean hasFocus, int row, int column) {
+        double percentage = value instanceof Double ? (Double) value : 0;
+        setValue((int) percentage);
+        setString(String.format("%.1f%%", percentage));
+        setForeground(colorFor(percentage));
+        return this;
+    }
+
+    /**
+     * Obtiene el color para el nivel de agua
+     * @param percentage El porcentaje de nivel
+     * @return El color correspondiente
+     */
+    static Color colorFor(double percentage) {
+        if (percentage < 20) {
+            return LOW;
+        } else if (percentage < 50) {
+            return MEDIUM;
+        } else {
+            return HIGH;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.aqua.ui;
+
+import java.awt.Color;
+import java.awt.Component;
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * Renderizador de la columna de calidad con el color de cada estado
+ */
+class QualityCellRenderer extends DefaultTableCellRenderer {
+
+    private static final Color GOOD = new Color(0, 128, 0); // Verde
+    private static final Color FAIR = new Color(255, 165, 0); // Amarillo
+    private static final Color POOR = new Color(255, 0, 0); // Rojo
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+            boolean hasFocus, int row, int column) {
+        super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+        if (!isSelected) {
+            setForeground(colorFor((String) value));
+        }
+        return this;
+    }
+
+    /**
+     * Obtiene el color para la calidad del agua
+     * @param quality La calidad del agua
+     * @return El color correspondiente
+     */
+    static Color colorFor(String quality) {
+        if (quality == null) {
+            return Color.BLACK;
+        }
+        switch (quality) {
+            case "GOOD":
+                return GOOD;
+            case "FAIR":
+                return FAIR;
+            case "POOR":
+                return POOR;
+            default:
+                return Color.BLACK;
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.aqua.ui;
 
 import com.aqua.alert.Alert;
 import com.aqua.domain.WaterSource;
+import com.aqua.report.ReportPage;
+import com.aqua.report.ReportQuery;
 import com.aqua.repository.IWaterSourceRepository;
 import com.aqua.system.WaterManagementSystem;
+import java.io.IOException;
 
 /**
  * Controlador para la interfaz de usuario del sistema de gestión de agua.
@@ -77,13 +80,24 @@ public class WaterManagementController {
     }
     
     /**
-     * Genera un reporte del sistema
+     * Genera un reporte resumido del sistema
      */
     public void generateReport() {
-        String report = system.generateReport();
+        String report = system.generateSummaryReport();
         ui.showReport(report);
     }
     
+    /**
+     * Escribe un tramo del reporte por fuente
+     * @param out El destino del reporte
+     * @param query Las fuentes a incluir y el tramo a escribir
+     * @return Lo escrito y si quedan más fuentes
+     * @throws IOException Si falla la escritura
+     */
+    public ReportPage writeReport(Appendable out, ReportQuery query) throws IOException {
+        return system.writeReport(out, query);
+    }
+    
     /**
      * Exporta el reporte en el formato especificado
      * @param format El formato de exportación
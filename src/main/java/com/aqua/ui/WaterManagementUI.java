@@ -1,16 +1,28 @@
 package com.aqua.ui;
 
 import com.aqua.alert.Alert;
+import com.aqua.alert.AlertPipeline;
 import com.aqua.alert.SystemAlert;
 import com.aqua.domain.WaterSource;
 import com.aqua.domain.River;
 import com.aqua.domain.Well;
+import com.aqua.metrics.MetricsRegistry;
+import com.aqua.metrics.Timer;
+import com.aqua.observer.IObserver;
+import com.aqua.report.ReportPage;
+import com.aqua.report.ReportQuery;
+import com.aqua.simulation.SimulationEngine;
+import com.aqua.simulation.SimulationSnapshot;
 import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
+import java.io.IOException;
 import java.util.Map;
-import java.util.Random;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -20,12 +32,34 @@ import java.time.format.DateTimeFormatter;
 public class WaterManagementUI extends JFrame {
     
     private WaterManagementController controller;
-    private Box waterSourceBox;
+    private JTable waterSourceTable;
+    private WaterSourceTableModel waterSourceModel;
+    private final AtomicBoolean displayPending = new AtomicBoolean();
     private Box alertBox;
     private JTextArea reportArea;
+    private JTextField reportFilterField;
+    private JButton previousPageButton;
+    private JButton nextPageButton;
+    private JLabel reportPageLabel;
+    private int reportPage;
     private JTabbedPane tabbedPane;
-    private Timer simulationTimer;
-    private Random random = new Random();
+    private SimulationEngine simulationEngine;
+    private final AlertPipeline alertPipeline = new AlertPipeline();
+    private final Queue<Alert> pendingAlerts = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean alertsPending = new AtomicBoolean();
+    
+    /**
+     * Número máximo de paneles de alerta visibles; los más antiguos se descartan
+     */
+    private static final int MAX_ALERT_PANELS = 200;
+
+    /**
+     * Número de fuentes por página del reporte detallado
+     */
+    private static final int REPORT_PAGE_SIZE = 100;
+
+    private static final Timer DISPLAY_TIMER = MetricsRegistry.global()
+        .timer("ui_update_display", "Tiempo de actualización de la tabla de fuentes en el hilo de eventos");
 
     /**
      * Constructor para WaterManagementUI
@@ -125,7 +159,7 @@ public class WaterManagementUI extends JFrame {
         removeSourceItem.addActionListener(e -> showRemoveWaterSourceDialog());
         
         generateReportItem.addActionListener(e -> controller.generateReport());
-        exportExcelItem.addActionListener(e -> controller.exportReport("EXCEL"));
+        exportExcelItem.addActionListener(e -> controller.exportReport("EXCEL_STREAMING"));
     }
 
     /**
@@ -140,12 +174,30 @@ public class WaterManagementUI extends JFrame {
         topPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
         topPanel.add(new JLabel("Fuentes de Agua"), BorderLayout.WEST);
         
-        // Panel de fuentes con BoxLayout vertical
-        waterSourceBox = Box.createVerticalBox();
-        waterSourceBox.setBackground(new Color(250, 250, 250));
+        // Tabla virtualizada: solo se pintan las filas visibles
+        waterSourceModel = new WaterSourceTableModel();
+        waterSourceTable = new JTable(waterSourceModel);
+        waterSourceTable.setBackground(new Color(250, 250, 250));
+        waterSourceTable.setFont(new Font("Arial", Font.PLAIN, 12));
+        waterSourceTable.setRowHeight(22);
+        waterSourceTable.setFillsViewportHeight(true);
+        waterSourceTable.setGridColor(new Color(200, 200, 200));
+        waterSourceTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        waterSourceTable.getTableHeader().setReorderingAllowed(false);
+        waterSourceTable.getColumnModel().getColumn(WaterSourceTableModel.COLUMN_CAPACITY)
+            .setCellRenderer(new DefaultTableCellRenderer() {
+                @Override
+                protected void setValue(Object value) {
+                    setText(value == null ? "" : String.format("%.2f m³", (Double) value));
+                }
+            });
+        waterSourceTable.getColumnModel().getColumn(WaterSourceTableModel.COLUMN_LEVEL)
+            .setCellRenderer(new LevelCellRenderer());
+        waterSourceTable.getColumnModel().getColumn(WaterSourceTableModel.COLUMN_QUALITY)
+            .setCellRenderer(new QualityCellRenderer());
         
         // Panel de scroll personalizado
-        JScrollPane scrollPane = new JScrollPane(waterSourceBox);
+        JScrollPane scrollPane = new JScrollPane(waterSourceTable);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         
@@ -184,11 +236,65 @@ public class WaterManagementUI extends JFrame {
         scrollPane.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         
+        // Barra de paginación del reporte detallado
+        JPanel pagePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        reportFilterField = new JTextField(15);
+        JButton detailButton = new JButton("Ver Detalle");
+        previousPageButton = new JButton("Anterior");
+        nextPageButton = new JButton("Siguiente");
+        reportPageLabel = new JLabel();
+        previousPageButton.setEnabled(false);
+        nextPageButton.setEnabled(false);
+        detailButton.addActionListener(e -> renderReportPage(0));
+        reportFilterField.addActionListener(e -> renderReportPage(0));
+        previousPageButton.addActionListener(e -> renderReportPage(reportPage - 1));
+        nextPageButton.addActionListener(e -> renderReportPage(reportPage + 1));
+        pagePanel.add(new JLabel("Filtro:"));
+        pagePanel.add(reportFilterField);
+        pagePanel.add(detailButton);
+        pagePanel.add(previousPageButton);
+        pagePanel.add(nextPageButton);
+        pagePanel.add(reportPageLabel);
+        
         panel.add(topPanel, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(pagePanel, BorderLayout.SOUTH);
         return panel;
     }
 
+    /**
+     * Muestra una página del reporte detallado; solo se genera el texto de las fuentes de esa página
+     * @param page El número de página, empezando en 0
+     */
+    private void renderReportPage(int page) {
+        if (controller == null || page < 0) {
+            return;
+        }
+        String text = reportFilterField.getText().trim().toLowerCase();
+        Predicate<WaterSource> filter = text.isEmpty() ? null : source ->
+            contains(source.getType(), text) || contains(source.getLocation(), text) || contains(source.getQuality(), text);
+        StringBuilder pageText = new StringBuilder(REPORT_PAGE_SIZE * 200);
+        ReportPage result;
+        try {
+            result = controller.writeReport(pageText, ReportQuery.page(filter, page, REPORT_PAGE_SIZE));
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error al generar el reporte: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        reportPage = page;
+        reportArea.setText(pageText.toString());
+        reportArea.setCaretPosition(0);
+        previousPageButton.setEnabled(page > 0);
+        nextPageButton.setEnabled(result.hasMore());
+        reportPageLabel.setText(String.format("Página %d (%d fuentes)", page + 1, result.getWritten()));
+        tabbedPane.setSelectedIndex(2);
+    }
+
+    private static boolean contains(String value, String text) {
+        return value != null && value.toLowerCase().contains(text);
+    }
+
     /**
      * Crea el panel de reportes
      * @return El panel de reportes
@@ -202,7 +308,7 @@ public class WaterManagementUI extends JFrame {
         topPanel.add(new JLabel("Reportes"), BorderLayout.WEST);
         
         JButton exportButton = new JButton("Exportar a Excel");
-        exportButton.addActionListener(e -> controller.exportReport("EXCEL"));
+        exportButton.addActionListener(e -> controller.exportReport("EXCEL_STREAMING"));
         topPanel.add(exportButton, BorderLayout.EAST);
         
         // Panel de reportes
@@ -663,8 +769,11 @@ public class WaterManagementUI extends JFrame {
         alertPanel.add(iconLabel, BorderLayout.WEST);
         alertPanel.add(contentPanel, BorderLayout.CENTER);
         
-        // Agregar el panel al Box de alertas
+        // Agregar el panel al Box de alertas, descartando los más antiguos
         alertBox.add(alertPanel);
+        while (alertBox.getComponentCount() > MAX_ALERT_PANELS) {
+            alertBox.remove(0);
+        }
         alertBox.revalidate();
         alertBox.repaint();
         
@@ -683,6 +792,24 @@ public class WaterManagementUI extends JFrame {
         }
     }
 
+    /**
+     * Encola una alerta producida fuera del hilo de eventos; las alertas encoladas
+     * se muestran en un solo paso del hilo de eventos
+     * @param alert La alerta a mostrar
+     */
+    private void enqueueAlert(Alert alert) {
+        pendingAlerts.offer(alert);
+        if (alertsPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                alertsPending.set(false);
+                Alert next;
+                while ((next = pendingAlerts.poll()) != null) {
+                    controller.handleAlert(next);
+                }
+            });
+        }
+    }
+
     /**
      * Muestra un reporte en el área de reportes
      * @param report El reporte a mostrar
@@ -745,112 +872,14 @@ public class WaterManagementUI extends JFrame {
             return; // No actualizar si el controlador o el repositorio no están inicializados
         }
         
-        SwingUtilities.invokeLater(() -> {
-            List<WaterSource> sources = controller.getWaterSourceRepository().listWaterSources();
-            waterSourceBox.removeAll();
-            
-            for (WaterSource source : sources) {
-                // Calcular el porcentaje de nivel y asegurar que esté entre 0 y 100
-                double currentLevel = Math.max(0, Math.min(source.getCurrentLevel(), source.getCapacity()));
-                double levelPercentage = (currentLevel / source.getCapacity()) * 100;
-                levelPercentage = Math.max(0, Math.min(levelPercentage, 100));
-                
-                // Crear panel para la fuente
-                JPanel sourcePanel = createStyledPanel();
-                sourcePanel.setLayout(new BorderLayout());
-                sourcePanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-                
-                // Panel para la información
-                JPanel infoPanel = createStyledPanel();
-                infoPanel.setLayout(new GridLayout(0, 2, 5, 5));
-                
-                // ID y Tipo
-                infoPanel.add(createStyledLabel("ID:"));
-                infoPanel.add(createStyledLabel(String.valueOf(source.getId())));
-                infoPanel.add(createStyledLabel("Tipo:"));
-                infoPanel.add(createStyledLabel(source.getType()));
-                
-                // Ubicación
-                infoPanel.add(createStyledLabel("Ubicación:"));
-                infoPanel.add(createStyledLabel(source.getLocation()));
-                
-                // Capacidad
-                infoPanel.add(createStyledLabel("Capacidad:"));
-                infoPanel.add(createStyledLabel(String.format("%.2f m³", source.getCapacity())));
-                
-                // Nivel actual con barra de progreso
-                JPanel levelPanel = createStyledPanel();
-                levelPanel.setLayout(new BorderLayout());
-                
-                JProgressBar progressBar = new JProgressBar(0, 100);
-                progressBar.setValue((int) levelPercentage);
-                progressBar.setStringPainted(true);
-                progressBar.setString(String.format("%.1f%%", levelPercentage));
-                progressBar.setForeground(getLevelColor(levelPercentage));
-                
-                levelPanel.add(createStyledLabel("Nivel actual:"), BorderLayout.WEST);
-                levelPanel.add(progressBar, BorderLayout.CENTER);
-                
-                infoPanel.add(createStyledLabel("Nivel:"));
-                infoPanel.add(levelPanel);
-                
-                // Calidad
-                JLabel qualityLabel = createStyledLabel(source.getQuality());
-                qualityLabel.setForeground(getQualityColor(source.getQuality()));
-                
-                infoPanel.add(createStyledLabel("Calidad:"));
-                infoPanel.add(qualityLabel);
-                
-                // Agregar panel de información al panel principal
-                sourcePanel.add(infoPanel, BorderLayout.CENTER);
-                
-                // Agregar separador
-                if (sources.indexOf(source) < sources.size() - 1) {
-                    sourcePanel.setBorder(BorderFactory.createCompoundBorder(
-                        sourcePanel.getBorder(),
-                        BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(200, 200, 200))
-                    ));
-                }
-                
-                // Agregar el panel al Box de fuentes
-                waterSourceBox.add(sourcePanel);
-            }
-            
-            waterSourceBox.revalidate();
-            waterSourceBox.repaint();
-        });
-    }
-
-    /**
-     * Obtiene el color para la calidad del agua
-     * @param quality La calidad del agua
-     * @return El color correspondiente
-     */
-    private Color getQualityColor(String quality) {
-        switch (quality) {
-            case "GOOD":
-                return new Color(0, 128, 0); // Verde
-            case "FAIR":
-                return new Color(255, 165, 0); // Amarillo
-            case "POOR":
-                return new Color(255, 0, 0); // Rojo
-            default:
-                return Color.BLACK;
-        }
-    }
-
-    /**
-     * Obtiene el color para el nivel de agua
-     * @param percentage El porcentaje de nivel
-     * @return El color correspondiente
-     */
-    private Color getLevelColor(double percentage) {
-        if (percentage < 20) {
-            return new Color(255, 0, 0); // Rojo
-        } else if (percentage < 50) {
-            return new Color(255, 165, 0); // Amarillo
-        } else {
-            return new Color(0, 128, 0); // Verde
+        // Combinar las solicitudes que lleguen antes de que el hilo de eventos procese la anterior
+        if (displayPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                displayPending.set(false);
+                long start = DISPLAY_TIMER.start();
+                waterSourceModel.refresh(controller.getWaterSourceRepository().listWaterSources());
+                DISPLAY_TIMER.stop(start);
+            });
         }
     }
 
@@ -864,100 +893,67 @@ public class WaterManagementUI extends JFrame {
         return panel;
     }
 
-    /**
-     * Crea un label con estilo común
-     * @param text El texto del label
-     * @return El label con estilo
-     */
-    private JLabel createStyledLabel(String text) {
-        JLabel label = new JLabel(text);
-        label.setFont(new Font("Arial", Font.PLAIN, 12));
-        return label;
-    }
-
     /**
      * Inicia la simulación de cambios en los niveles de agua
      */
     private void startSimulation() {
-        if (simulationTimer != null) {
-            simulationTimer.stop();
-        }
-        
-        simulationTimer = new Timer(5000, e -> {
-            List<WaterSource> sources = controller.getWaterSourceRepository().listWaterSources();
-            if (sources.isEmpty()) {
-                return; // No hay fuentes para simular
-            }
-            
-            for (WaterSource source : sources) {
-                // Simular cambio aleatorio en el nivel de agua (-5% a +5%)
-                double change = (random.nextDouble() * 0.1 - 0.05) * source.getCapacity();
-                double newLevel = source.getCurrentLevel() + change;
-                
-                // Asegurar que el nivel esté entre 0 y la capacidad
-                newLevel = Math.max(0, Math.min(newLevel, source.getCapacity()));
-                source.setCurrentLevel(newLevel);
-                
-                // Calcular porcentaje para las alertas
-                double percentage = (newLevel / source.getCapacity()) * 100;
-                
-                // Generar alertas basadas en el nivel (menos de 30%)
-                if (percentage < 30) {
-                    controller.handleAlert(new SystemAlert(
-                        String.format("Nivel crítico de agua en %s ID: %d (%.1f%%)", 
-                            source.getType(), source.getId(), percentage),
-                        Alert.AlertType.WARNING
-                    ));
+        if (simulationEngine == null) {
+            simulationEngine = new SimulationEngine(controller.getWaterSourceRepository());
+            simulationEngine.setListener(engine -> SwingUtilities.invokeLater(this::applySimulationSnapshot));
+            simulationEngine.setAlertPipeline(alertPipeline);
+            alertPipeline.addSink(new IObserver() {
+                @Override
+                public void update(WaterSource source, double currentLevel) {
+                    // Los cambios de nivel se muestran en la tabla de fuentes
                 }
-                
-                // Generar alerta por capacidad crítica (menos de 300 m³)
-                if (source.getCapacity() < 300) {
-                    controller.handleAlert(new SystemAlert(
-                        String.format("Capacidad crítica en %s ID: %d (%.1f m³)", 
-                            source.getType(), source.getId(), source.getCapacity()),
-                        Alert.AlertType.WARNING
-                    ));
-                }
-                
-                // Simular cambios en la calidad (5% de probabilidad)
-                if (random.nextDouble() < 0.05) {
-                    String[] qualities = {"GOOD", "FAIR", "POOR"};
-                    String newQuality = qualities[random.nextInt(qualities.length)];
-                    String oldQuality = source.getQuality();
-                    source.setQuality(newQuality);
-                    
-                    // Generar alerta solo si la calidad empeora
-                    if (("GOOD".equals(oldQuality) && "FAIR".equals(newQuality)) ||
-                        ("GOOD".equals(oldQuality) && "POOR".equals(newQuality)) ||
-                        ("FAIR".equals(oldQuality) && "POOR".equals(newQuality))) {
-                        
-                        controller.handleAlert(new SystemAlert(
-                            String.format("Calidad de agua deteriorada en %s ID: %d (%s → %s)", 
-                                source.getType(), source.getId(), oldQuality, newQuality),
-                            Alert.AlertType.WARNING
-                        ));
-                    }
+
+                @Override
+                public void update(Alert alert) {
+                    enqueueAlert(alert);
                 }
-            }
-            
-            // Actualizar la visualización
-            updateDisplay();
-        });
-        
-        simulationTimer.start();
+            });
+        }
+        simulationEngine.stop();
+        simulationEngine.start();
         controller.handleAlert(new SystemAlert(
             "Simulación de niveles de agua iniciada",
             Alert.AlertType.INFO
         ));
     }
 
+    /**
+     * Aplica en la UI el resumen pendiente de la simulación, que puede combinar varios ticks
+     */
+    private void applySimulationSnapshot() {
+        // Emitir el resumen de las ráfagas agrupadas desde el último tick
+        alertPipeline.flush();
+        
+        SimulationSnapshot snapshot = simulationEngine.pollSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        for (Alert alert : snapshot.getAlerts()) {
+            controller.handleAlert(alert);
+        }
+        if (snapshot.getSuppressedAlerts() > 0) {
+            controller.handleAlert(new SystemAlert(
+                String.format("%d alertas adicionales omitidas (%d niveles críticos, %d capacidades críticas, %d calidades deterioradas)",
+                    snapshot.getSuppressedAlerts(), snapshot.getLowLevelCount(),
+                    snapshot.getLowCapacityCount(), snapshot.getQualityDropCount()),
+                Alert.AlertType.INFO
+            ));
+        }
+        
+        // Actualizar la visualización
+        updateDisplay();
+    }
+
     /**
      * Detiene la simulación de cambios en los niveles de agua
      */
     private void stopSimulation() {
-        if (simulationTimer != null) {
-            simulationTimer.stop();
-            simulationTimer = null;
+        if (simulationEngine != null && simulationEngine.isRunning()) {
+            simulationEngine.stop();
             
             // Notificar al usuario que la simulación se ha detenido
             controller.handleAlert(new SystemAlert(
@@ -965,7 +961,8 @@ public class WaterManagementUI extends JFrame {
                 Alert.AlertType.INFO
             ));
             
-            // Actualizar la visualización una última vez
+            // Aplicar el último resumen pendiente y actualizar la visualización
+            applySimulationSnapshot();
             updateDisplay();
         }
     }
@@ -0,0 +1,189 @@
+package com.aqua.ui;
+
+import com.aqua.domain.WaterSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Modelo de tabla para las fuentes de agua.
+ * Guarda una copia de los valores visibles en arreglos paralelos para que la tabla pinte solo
+ * las filas visibles sin consultar el repositorio, y al refrescar notifica únicamente las filas
+ * cuyos valores cambiaron.
+ */
+public class WaterSourceTableModel extends AbstractTableModel {
+
+    public static final int COLUMN_ID = 0;
+    public static final int COLUMN_TYPE = 1;
+    public static final int COLUMN_LOCATION = 2;
+    public static final int COLUMN_CAPACITY = 3;
+    public static final int COLUMN_LEVEL = 4;
+    public static final int COLUMN_QUALITY = 5;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Tipo", "Ubicación", "Capacidad", "Nivel", "Calidad"};
+    private static final Class<?>[] COLUMN_CLASSES = {
+        Integer.class, String.class, String.class, Double.class, Double.class, String.class
+    };
+
+    private int rowCount;
+    private int[] ids = new int[0];
+    private String[] types = new String[0];
+    private String[] locations = new String[0];
+    private double[] capacities = new double[0];
+    private double[] levelPercentages = new double[0];
+    private String[] qualities = new String[0];
+
+    /**
+     * Actualiza el modelo con el estado actual de las fuentes.
+     * Si cambió el conjunto de fuentes se reconstruye la tabla; si no, solo se notifican
+     * los tramos contiguos de filas con valores distintos. Debe llamarse desde el hilo de eventos.
+     * @param sources Las fuentes de agua, en el orden en que se muestran
+     * @return El número de filas que cambiaron
+     */
+    public int refresh(List<WaterSource> sources) {
+        int size = sources.size();
+        if (!sameRows(sources, size)) {
+            ensureCapacity(size);
+            for (int row = 0; row < size; row++) {
+                WaterSource source = sources.get(row);
+                ids[row] = source.getId();
+                types[row] = source.getType();
+                store(row, source);
+            }
+            if (size < rowCount) {
+                Arrays.fill(types, size, rowCount, null);
+                Arrays.fill(locations, size, rowCount, null);
+                Arrays.fill(qualities, size, rowCount, null);
+            }
+            rowCount = size;
+            fireTableDataChanged();
+            return size;
+        }
+
+        int changed = 0;
+        int runStart = -1;
+        for (int row = 0; row < size; row++) {
+            if (store(row, sources.get(row))) {
+                changed++;
+                if (runStart < 0) {
+                    runStart = row;
+                }
+            } else if (runStart >= 0) {
+                fireTableRowsUpdated(runStart, row - 1);
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) {
+            fireTableRowsUpdated(runStart, size - 1);
+        }
+        return changed;
+    }
+
+    /**
+     * Obtiene el ID de la fuente mostrada en una fila
+     * @param row La fila del modelo
+     * @return El ID de la fuente
+     */
+    public int getSourceIdAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Fila fuera de rango: " + row);
+        }
+        return ids[row];
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case COLUMN_ID:
+                return ids[row];
+            case COLUMN_TYPE:
+                return types[row];
+            case COLUMN_LOCATION:
+                return locations[row];
+            case COLUMN_CAPACITY:
+                return capacities[row];
+            case COLUMN_LEVEL:
+                return levelPercentages[row];
+            case COLUMN_QUALITY:
+                return qualities[row];
+            default:
+                throw new IllegalArgumentException("Columna desconocida: " + column);
+        }
+    }
+
+    private boolean sameRows(List<WaterSource> sources, int size) {
+        if (size != rowCount) {
+            return false;
+        }
+        for (int row = 0; row < size; row++) {
+            if (sources.get(row).getId() != ids[row]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copia los valores mutables de una fuente en su fila
+     * @return true si algún valor cambió
+     */
+    private boolean store(int row, WaterSource source) {
+        double capacity = source.getCapacity();
+        double percentage = levelPercentage(source.getCurrentLevel(), capacity);
+        String location = source.getLocation();
+        String quality = source.getQuality();
+        boolean changed = capacities[row] != capacity
+                || levelPercentages[row] != percentage
+                || !Objects.equals(locations[row], location)
+                || !Objects.equals(qualities[row], quality);
+        capacities[row] = capacity;
+        levelPercentages[row] = percentage;
+        locations[row] = location;
+        qualities[row] = quality;
+        return changed;
+    }
+
+    private void ensureCapacity(int size) {
+        if (ids.length < size) {
+            int length = Math.max(size, ids.length * 2);
+            ids = Arrays.copyOf(ids, length);
+            types = Arrays.copyOf(types, length);
+            locations = Arrays.copyOf(locations, length);
+            capacities = Arrays.copyOf(capacities, length);
+            levelPercentages = Arrays.copyOf(levelPercentages, length);
+            qualities = Arrays.copyOf(qualities, length);
+        }
+    }
+
+    /**
+     * Calcula el porcentaje de nivel, limitado entre 0 y 100
+     */
+    private static double levelPercentage(double level, double capacity) {
+        if (capacity <= 0) {
+            return 0;
+        }
+        double percentage = (Math.max(0, Math.min(level, capacity)) / capacity) * 100;
+        return Math.max(0, Math.min(percentage, 100));
+    }
+}